@@ -0,0 +1,27 @@
+package com.crypto.archive;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 一个消息归档文件（message_archive_segment 表的一行）
+ */
+@Data
+public class ArchiveSegment {
+    public static final String EXPORTED = "EXPORTED";
+    public static final String PURGED = "PURGED";
+
+    private Long id;
+    // 归档月份 yyyy-MM
+    private String period;
+    private String filePath;
+    private String status;
+    private long messageCount;
+    private Long minId;
+    private Long maxId;
+    // 月份范围 [startTime, endTime)
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private LocalDateTime createdAt;
+}
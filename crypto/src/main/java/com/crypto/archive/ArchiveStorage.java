@@ -0,0 +1,91 @@
+package com.crypto.archive;
+
+import com.crypto.entity.Message;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 归档文件的读写
+ * 1. crypto.archive.dir 须是所有节点挂载到同一路径的共享存储（NFS 等）：归档只在一个节点执行，其他节点的归档查询与全文索引清理都要读取这些文件
+ * 2. 分段只登记相对归档目录的文件名，各节点按本地配置的目录解析；早期分段登记的绝对路径原样使用
+ * 3. 文件不存在时抛出 ArchiveUnavailableException（通常是该节点没有挂载共享目录）
+ */
+@Component
+public class ArchiveStorage {
+
+    private final ObjectMapper objectMapper;
+    private final Path dir;
+
+    @Autowired
+    public ArchiveStorage(ObjectMapper objectMapper,
+                          @Value("${crypto.archive.dir:data/message-archive}") String dir) {
+        this.objectMapper = objectMapper;
+        this.dir = Paths.get(dir);
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    /**
+     * 分段登记的文件路径对应的本地文件
+     */
+    public Path resolve(String filePath) {
+        return dir.resolve(filePath);
+    }
+
+    /**
+     * 新建归档文件的写入器，文件位于归档目录下
+     */
+    public SequenceWriter create(Path file) throws IOException {
+        Files.createDirectories(dir);
+        OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(file)), 1 << 16);
+        return objectMapper.writerFor(Message.class).withRootValueSeparator("\n").writeValues(out);
+    }
+
+    /**
+     * 顺序读取分段的归档文件，visitor 返回 false 时停止
+     */
+    public void scan(ArchiveSegment segment, Predicate<Message> visitor) throws IOException {
+        try (MappingIterator<Message> messages = read(segment)) {
+            while (messages.hasNextValue()) {
+                if (!visitor.test(messages.nextValue())) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 逐条读取分段的归档文件，调用方负责关闭
+     */
+    public MappingIterator<Message> read(ArchiveSegment segment) throws IOException {
+        Path file = resolve(segment.getFilePath());
+        InputStream in;
+        try {
+            in = Files.newInputStream(file);
+        } catch (NoSuchFileException e) {
+            throw new ArchiveUnavailableException("归档文件不存在：" + file.toAbsolutePath()
+                    + "，请确认 crypto.archive.dir 指向各节点共享的归档目录", e);
+        }
+        return objectMapper.readerFor(Message.class)
+                .readValues(new GZIPInputStream(new BufferedInputStream(in), 1 << 16));
+    }
+}
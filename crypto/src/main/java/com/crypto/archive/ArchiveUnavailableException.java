@@ -0,0 +1,14 @@
+package com.crypto.archive;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * 本节点读不到归档文件（共享归档目录未挂载或文件已被移走）
+ */
+public class ArchiveUnavailableException extends UncheckedIOException {
+
+    public ArchiveUnavailableException(String message, IOException cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,129 @@
+package com.crypto.archive;
+
+import com.crypto.dto.MessageFilter;
+import com.crypto.entity.Message;
+import com.crypto.repository.MessageArchiveSegmentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+/**
+ * 已归档消息的慢速查询：顺序扫描与时间范围相交的归档文件，在内存中过滤、排序、分页
+ * 只读取已从消息表删除（PURGED）的分段，与热数据不重叠；归档文件位于共享归档目录，任一节点均可查询
+ */
+@Component
+public class ArchivedMessageReader {
+
+    // 按 (created_at, id) 倒序，与消息列表一致
+    private static final Comparator<Message> NEWEST_FIRST = Comparator
+            .comparing(Message::getCreatedAt, Comparator.reverseOrder())
+            .thenComparing(Message::getId, Comparator.reverseOrder());
+
+    private final MessageArchiveSegmentRepository segmentRepository;
+    private final ArchiveStorage archiveStorage;
+
+    @Autowired
+    public ArchivedMessageReader(MessageArchiveSegmentRepository segmentRepository, ArchiveStorage archiveStorage) {
+        this.segmentRepository = segmentRepository;
+        this.archiveStorage = archiveStorage;
+    }
+
+    /**
+     * 分页查询归档消息，只在内存中保留 offset + limit 条
+     * @param readFilter 按消息 id 的阅读状态过滤，为空表示不过滤
+     */
+    public Page query(MessageFilter filter, LongPredicate readFilter, int offset, int limit) {
+        // 小顶堆保留排序最靠前的 offset + limit 条
+        PriorityQueue<Message> top = new PriorityQueue<>(offset + limit + 1, NEWEST_FIRST.reversed());
+        long[] total = new long[1];
+        for (ArchiveSegment segment : segmentRepository.findOverlapping(filter.getStartDate(), filter.getEndDate())) {
+            if (!ArchiveSegment.PURGED.equals(segment.getStatus())) {
+                continue;
+            }
+            scan(segment, message -> {
+                if (matches(message, filter) && (readFilter == null || readFilter.test(message.getId()))) {
+                    total[0]++;
+                    top.offer(message);
+                    if (top.size() > offset + limit) {
+                        top.poll();
+                    }
+                }
+                return true;
+            });
+        }
+        List<Message> ordered = new ArrayList<>(top);
+        ordered.sort(NEWEST_FIRST);
+        List<Message> records = offset < ordered.size() ? ordered.subList(offset, ordered.size()) : List.of();
+        return new Page(total[0], new ArrayList<>(records));
+    }
+
+    /**
+     * 按 id 查找归档消息，不存在时返回 null
+     */
+    public Message findById(long id) {
+        Message[] found = new Message[1];
+        for (ArchiveSegment segment : segmentRepository.findContainingId(id)) {
+            scan(segment, message -> {
+                if (message.getId() == id) {
+                    found[0] = message;
+                    return false;
+                }
+                return true;
+            });
+            if (found[0] != null) {
+                break;
+            }
+        }
+        return found[0];
+    }
+
+    private void scan(ArchiveSegment segment, Predicate<Message> visitor) {
+        try {
+            archiveStorage.scan(segment, visitor);
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取归档文件失败：" + segment.getFilePath(), e);
+        }
+    }
+
+    private static boolean matches(Message message, MessageFilter filter) {
+        if (filter.getCryptoType() != null && !filter.getCryptoType().equals(message.getCryptoType())) {
+            return false;
+        }
+        if (filter.getSentiment() != null && !filter.getSentiment().equals(message.getSentiment())) {
+            return false;
+        }
+        if (filter.getStartDate() != null && message.getCreatedAt().isBefore(filter.getStartDate())) {
+            return false;
+        }
+        return filter.getEndDate() == null || !message.getCreatedAt().isAfter(filter.getEndDate());
+    }
+
+    /**
+     * 一页归档消息及符合条件的总数
+     */
+    public static final class Page {
+        private final long total;
+        private final List<Message> records;
+
+        public Page(long total, List<Message> records) {
+            this.total = total;
+            this.records = records;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public List<Message> getRecords() {
+            return records;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.crypto.archive;
+
+import com.crypto.dto.MessageCursor;
+import com.crypto.entity.Message;
+import com.crypto.readstate.MessageIdIndex;
+import com.crypto.repository.MessageArchiveSegmentRepository;
+import com.crypto.repository.MessageJdbcRepository;
+import com.crypto.search.MessageSearchIndexer;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 消息冷归档
+ * 1. 保留最近 hot-months 个整月的消息，更早的消息按月份导出为 NDJSON.gz 文件并登记分段（EXPORTED）
+ * 2. 按文件中的 id 分批删除消息表中的行，每批一条短语句、批间暂停，不持有长时间的锁；全部删除后标记为 PURGED
+ * 3. 中途失败时下次执行先继续未完成的删除；导出之后补写到旧月份的消息在下次执行时另外归档为新分段
+ * 仅应在一个节点开启（crypto.archive.enabled）；归档文件写入各节点共享的归档目录（见 ArchiveStorage），
+ * 其他节点据此查询归档消息，并从各自的全文索引中删除已归档的消息
+ */
+@Component
+public class MessageArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageArchiver.class);
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private final MessageJdbcRepository messageJdbcRepository;
+    private final MessageArchiveSegmentRepository segmentRepository;
+    private final MessageIdIndex messageIdIndex;
+    private final MessageSearchIndexer messageSearchIndexer;
+    private final ArchiveStorage archiveStorage;
+    private final boolean enabled;
+    private final int hotMonths;
+    private final int batchSize;
+    private final long batchPauseMs;
+
+    private final ReentrantLock runLock = new ReentrantLock();
+
+    @Autowired
+    public MessageArchiver(MessageJdbcRepository messageJdbcRepository,
+                           MessageArchiveSegmentRepository segmentRepository,
+                           MessageIdIndex messageIdIndex,
+                           MessageSearchIndexer messageSearchIndexer,
+                           ArchiveStorage archiveStorage,
+                           @Value("${crypto.archive.enabled:false}") boolean enabled,
+                           @Value("${crypto.archive.hot-months:6}") int hotMonths,
+                           @Value("${crypto.archive.batch-size:1000}") int batchSize,
+                           @Value("${crypto.archive.batch-pause-ms:50}") long batchPauseMs) {
+        this.messageJdbcRepository = messageJdbcRepository;
+        this.segmentRepository = segmentRepository;
+        this.messageIdIndex = messageIdIndex;
+        this.messageSearchIndexer = messageSearchIndexer;
+        this.archiveStorage = archiveStorage;
+        this.enabled = enabled;
+        this.hotMonths = hotMonths;
+        this.batchSize = batchSize;
+        this.batchPauseMs = batchPauseMs;
+    }
+
+    @Scheduled(fixedDelayString = "${crypto.archive.interval-ms:3600000}")
+    public void scheduledArchive() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            archiveExpired();
+        } catch (Exception e) {
+            log.error("消息归档失败", e);
+        }
+    }
+
+    /**
+     * 归档所有超过保留期的月份
+     * @return 本次处理的分段，已有归档在执行时返回空列表
+     */
+    public List<ArchiveSegment> archiveExpired() throws IOException, InterruptedException {
+        if (!runLock.tryLock()) {
+            return List.of();
+        }
+        try {
+            List<ArchiveSegment> processed = new ArrayList<>();
+            for (ArchiveSegment pending : segmentRepository.findByStatus(ArchiveSegment.EXPORTED)) {
+                purge(pending);
+                processed.add(pending);
+            }
+            LocalDateTime cutoff = YearMonth.now().minusMonths(hotMonths).atDay(1).atStartOfDay();
+            LocalDateTime earliest;
+            while ((earliest = messageJdbcRepository.findEarliestCreatedBefore(cutoff)) != null) {
+                ArchiveSegment segment = export(YearMonth.from(earliest));
+                // 没有导出或删除任何行时停止，避免反复处理同一月份
+                if (segment.getMessageCount() == 0 || purge(segment) == 0) {
+                    break;
+                }
+                processed.add(segment);
+            }
+            return processed;
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    /**
+     * 把一个月的消息按 (created_at, id) 顺序分块读出写入归档文件，写完后再原子改名并登记分段
+     */
+    private ArchiveSegment export(YearMonth month) throws IOException {
+        LocalDateTime start = month.atDay(1).atStartOfDay();
+        LocalDateTime end = month.plusMonths(1).atDay(1).atStartOfDay();
+        String fileName = "messages-" + month + "-" + LocalDateTime.now().format(FILE_TIME) + ".ndjson.gz";
+        Path file = archiveStorage.resolve(fileName);
+        Path partial = archiveStorage.resolve(fileName + ".part");
+
+        long count = 0;
+        long minId = Long.MAX_VALUE;
+        long maxId = Long.MIN_VALUE;
+        try (SequenceWriter writer = archiveStorage.create(partial)) {
+            MessageCursor after = null;
+            while (true) {
+                List<Message> chunk = messageJdbcRepository.findRowsBetween(start, end, after, batchSize);
+                for (Message message : chunk) {
+                    writer.write(message);
+                    minId = Math.min(minId, message.getId());
+                    maxId = Math.max(maxId, message.getId());
+                }
+                count += chunk.size();
+                if (chunk.size() < batchSize) {
+                    break;
+                }
+                Message last = chunk.get(chunk.size() - 1);
+                after = new MessageCursor(last.getCreatedAt(), last.getId());
+            }
+        }
+        ArchiveSegment segment = new ArchiveSegment();
+        segment.setPeriod(month.toString());
+        segment.setStartTime(start);
+        segment.setEndTime(end);
+        segment.setMessageCount(count);
+        if (count == 0) {
+            Files.deleteIfExists(partial);
+            return segment;
+        }
+        Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE);
+        // 登记相对归档目录的文件名，各节点按自己挂载的共享目录解析
+        segment.setFilePath(fileName);
+        segment.setStatus(ArchiveSegment.EXPORTED);
+        segment.setMinId(minId);
+        segment.setMaxId(maxId);
+        segment.setId(segmentRepository.insert(segment));
+        log.info("消息归档导出完成：{}，{} 条 -> {}", month, count, file);
+        return segment;
+    }
+
+    /**
+     * 按归档文件中的 id 分批删除消息，重复执行安全
+     */
+    private long purge(ArchiveSegment segment) throws IOException, InterruptedException {
+        // 消息 id 是 BIGINT，按 64 位收集，避免超出 int 范围时在删除中途失败
+        Roaring64Bitmap removed = new Roaring64Bitmap();
+        List<Long> batch = new ArrayList<>(batchSize);
+        long deleted = 0;
+        try (MappingIterator<Message> messages = archiveStorage.read(segment)) {
+            while (messages.hasNextValue()) {
+                long id = messages.nextValue().getId();
+                batch.add(id);
+                removed.addLong(id);
+                if (batch.size() == batchSize) {
+                    deleted += deleteBatch(batch);
+                }
+            }
+        }
+        deleted += deleteBatch(batch);
+        segmentRepository.updateStatus(segment.getId(), ArchiveSegment.PURGED);
+        segment.setStatus(ArchiveSegment.PURGED);
+
+        messageIdIndex.remove(removed, segment.getId());
+        List<Long> ids = new ArrayList<>(Math.toIntExact(removed.getLongCardinality()));
+        removed.forEach(ids::add);
+        messageSearchIndexer.delete(ids);
+        log.info("消息归档删除完成：{}，删除 {} 条", segment.getPeriod(), deleted);
+        return deleted;
+    }
+
+    private int deleteBatch(List<Long> batch) throws InterruptedException {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        int deleted = messageJdbcRepository.deleteByIds(batch);
+        batch.clear();
+        if (batchPauseMs > 0) {
+            Thread.sleep(batchPauseMs);
+        }
+        return deleted;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("hotMonths", hotMonths);
+        status.put("archiveDir", archiveStorage.getDir().toAbsolutePath().toString());
+        status.put("segments", segmentRepository.findAll());
+        return status;
+    }
+}
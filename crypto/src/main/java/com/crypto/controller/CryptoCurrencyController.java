@@ -1,49 +1,225 @@
 package com.crypto.controller;
 
+import com.crypto.dto.BatchSaveResult;
+import com.crypto.entity.CandleInterval;
 import com.crypto.entity.CryptoCurrency;
+import com.crypto.export.ExportFormat;
+import com.crypto.export.ExportResponse;
+import com.crypto.ingest.CryptoIngestMetrics;
+import com.crypto.ingest.CryptoIngestQueue;
+import com.crypto.quote.QuoteSnapshot;
+import com.crypto.quote.QuoteSnapshotHolder;
+import com.crypto.quote.QuoteStreamService;
 import com.crypto.service.CryptoCurrencyService;
+import com.crypto.service.PriceHistoryService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @RequestMapping("/api/crypto")
 @RestController
-@CrossOrigin(origins = "*", maxAge = 3600)
+@CrossOrigin(origins = "*", maxAge = 3600, exposedHeaders = {HttpHeaders.ETAG, "X-Quote-Version"})
 public class CryptoCurrencyController {
 
     private final CryptoCurrencyService cryptoService;
+    private final CryptoIngestQueue ingestQueue;
+    private final CryptoIngestMetrics ingestMetrics;
+    private final PriceHistoryService priceHistoryService;
+    private final QuoteSnapshotHolder quoteSnapshotHolder;
+    private final QuoteStreamService quoteStreamService;
+    private final ObjectMapper objectMapper;
+
+    // 响应头：当前行情快照版本，客户端下次可作为 since 参数
+    private static final String QUOTE_VERSION_HEADER = "X-Quote-Version";
 
     @Autowired
-    public CryptoCurrencyController(CryptoCurrencyService cryptoService) {
+    public CryptoCurrencyController(CryptoCurrencyService cryptoService, CryptoIngestQueue ingestQueue,
+                                    CryptoIngestMetrics ingestMetrics,
+                                    PriceHistoryService priceHistoryService, QuoteSnapshotHolder quoteSnapshotHolder,
+                                    QuoteStreamService quoteStreamService, ObjectMapper objectMapper) {
         this.cryptoService = cryptoService;
+        this.ingestQueue = ingestQueue;
+        this.ingestMetrics = ingestMetrics;
+        this.priceHistoryService = priceHistoryService;
+        this.quoteSnapshotHolder = quoteSnapshotHolder;
+        this.quoteStreamService = quoteStreamService;
+        this.objectMapper = objectMapper;
     }
 
     /**
      * 批量保存/更新数据（添加参数校验）
+     * crypto.ingest.mode=async 时只入队并返回 202，由后台写入线程合并后落库
      */
     @PostMapping("/batch-save")
     public ResponseEntity<Object> batchSaveOrUpdate(@Valid @RequestBody List<CryptoCurrency> cryptoList) {
+        if (ingestQueue.isEnabled()) {
+            return enqueue(cryptoList);
+        }
         try {
-            cryptoService.batchSaveOrUpdate(cryptoList);
-            return ResponseEntity.ok(Map.of("code", 200, "message", "数据保存/更新成功"));
+            BatchSaveResult result = cryptoService.batchSaveOrUpdate(cryptoList);
+            return ResponseEntity.ok(Map.of("code", 200, "message", "数据保存/更新成功", "data", result));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("code", 400, "message", "操作失败：" + e.getMessage()));
         }
     }
 
     /**
-     * 查询所有数据
+     * 异步写入队列的运行指标（队列深度、合并率、落库耗时）
+     */
+    @GetMapping("/ingest/stats")
+    public ResponseEntity<Map<String, Object>> ingestStats() {
+        return ResponseEntity.ok(ingestQueue.getStats());
+    }
+
+    /**
+     * 查看/设置需要逐行打印写入日志的 symbol（运行时生效，传空列表关闭）
+     */
+    @GetMapping("/ingest/trace")
+    public ResponseEntity<Set<String>> getTracedSymbols() {
+        return ResponseEntity.ok(ingestMetrics.getTracedSymbols());
+    }
+
+    @PutMapping("/ingest/trace")
+    public ResponseEntity<Set<String>> setTracedSymbols(@RequestBody Set<String> symbols) {
+        ingestMetrics.setTracedSymbols(symbols);
+        return ResponseEntity.ok(ingestMetrics.getTracedSymbols());
+    }
+
+    /**
+     * 查询所有数据（由内存行情快照提供，不访问数据库）
+     * 响应携带快照版本 ETag，If-None-Match 命中时返回 304；
+     * since=版本号 时只返回该版本之后变化过的币种
      */
     @GetMapping("/list")
-    public ResponseEntity<List<CryptoCurrency>> findAll() {
-        return ResponseEntity.ok(cryptoService.findAll());
+    public ResponseEntity<Object> findAll(
+            @RequestParam(required = false) Long since,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) throws JsonProcessingException {
+        QuoteSnapshot snapshot = quoteSnapshotHolder.current();
+        String etag = snapshot.getETag();
+        if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok().eTag(etag)
+                .header(QUOTE_VERSION_HEADER, String.valueOf(snapshot.getVersion()))
+                .contentType(MediaType.APPLICATION_JSON);
+        List<CryptoCurrency> changed = since != null ? snapshot.changedSince(since) : null;
+        if (changed != null) {
+            return ok.body(changed);
+        }
+        return ok.body(snapshot.toJson(objectMapper));
+    }
+
+    /**
+     * 行情增量推送（SSE），只推送变化的币种
+     * symbols：逗号分隔的关注列表，为空表示全部；重连时浏览器自动携带 Last-Event-ID，只补发之后的变化
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(
+            @RequestParam(required = false) Set<String> symbols,
+            @RequestParam(required = false) Long lastEventId,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventIdHeader) {
+        return quoteStreamService.subscribe(symbols, lastEventIdHeader != null ? lastEventIdHeader : lastEventId);
+    }
+
+    /**
+     * 查询 K 线（interval：1m/5m/1h/1d），默认返回截至当前的最近 300 根
+     */
+    @GetMapping("/{symbol}/candles")
+    public ResponseEntity<Object> getCandles(
+            @PathVariable String symbol,
+            @RequestParam(defaultValue = "1h") String interval,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+        CandleInterval candleInterval;
+        try {
+            candleInterval = CandleInterval.fromCode(interval);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("code", 400, "message", e.getMessage()));
+        }
+        LocalDateTime to = end != null ? end : LocalDateTime.now();
+        LocalDateTime from = start != null ? start : to.minus(candleInterval.getLength().multipliedBy(300));
+        return ResponseEntity.ok(priceHistoryService.getCandles(symbol, candleInterval, from, to));
+    }
+
+    /**
+     * 流式导出逐笔行情（format：ndjson/csv），symbol 为空表示全部币种，默认 gzip 压缩
+     */
+    @GetMapping("/history/ticks/export")
+    public ResponseEntity<?> exportTicks(
+            @RequestParam(required = false) String symbol,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "true") boolean gzip) {
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.fromCode(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("code", 400, "message", e.getMessage()));
+        }
+        return ExportResponse.of("ticks", exportFormat, gzip,
+                out -> priceHistoryService.exportTicks(symbol, start, end, exportFormat, out));
+    }
+
+    /**
+     * 流式导出某一周期的 K 线（interval：1m/5m/1h/1d）
+     */
+    @GetMapping("/history/candles/export")
+    public ResponseEntity<?> exportCandles(
+            @RequestParam(required = false) String symbol,
+            @RequestParam(defaultValue = "1h") String interval,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "true") boolean gzip) {
+        CandleInterval candleInterval;
+        ExportFormat exportFormat;
+        try {
+            candleInterval = CandleInterval.fromCode(interval);
+            exportFormat = ExportFormat.fromCode(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("code", 400, "message", e.getMessage()));
+        }
+        return ExportResponse.of("candles-" + candleInterval.getCode(), exportFormat, gzip,
+                out -> priceHistoryService.exportCandles(symbol, candleInterval, start, end, exportFormat, out));
+    }
+
+    private ResponseEntity<Object> enqueue(List<CryptoCurrency> cryptoList) {
+        int size = cryptoList == null ? 0 : cryptoList.size();
+        if (size > 0 && cryptoList.contains(null)) {
+            return ResponseEntity.badRequest().body(Map.of("code", 400, "message", "数据列表中包含空元素"));
+        }
+        try {
+            // 整批入队或整批拒绝：429 时整批都未入队，调用方重试整批即可
+            if (size > 0 && !ingestQueue.offer(cryptoList)) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(Map.of(
+                        "code", 429, "message", "写入队列已满，整批未接收，请稍后重试", "accepted", 0, "rejected", size));
+            }
+            return ResponseEntity.accepted().body(Map.of("code", 202, "message", "数据已接收，等待批量落库", "accepted", size));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("code", 503, "message", "服务正在停止"));
+        } catch (IllegalStateException e) {
+            // 写入线程已停止（停机中），不再接收数据
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("code", 503, "message", e.getMessage()));
+        }
     }
 
     /**
@@ -1,11 +1,22 @@
 package com.crypto.controller;
 
+import com.crypto.archive.ArchiveUnavailableException;
+import com.crypto.archive.MessageArchiver;
+import com.crypto.dto.MessageFilter;
+import com.crypto.dto.MessageSaveResult;
 import com.crypto.entity.Message;
+import com.crypto.export.ExportFormat;
+import com.crypto.export.ExportResponse;
+import com.crypto.search.MessageSearchIndexer;
 import com.crypto.service.MessageService;
+import com.crypto.service.SentimentRollupService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
@@ -15,24 +26,187 @@ import java.util.Map;
 @RequestMapping("/api/messages")
 public class MessageController {
     
+    // 阅读状态按用户区分，未携带时归到默认用户
+    private static final String USER_HEADER = "X-User-Id";
+    
     @Autowired
     private MessageService messageService;
     
+    @Autowired
+    private MessageSearchIndexer messageSearchIndexer;
+    
+    @Autowired
+    private SentimentRollupService sentimentRollupService;
+    
+    @Autowired
+    private MessageArchiver messageArchiver;
+    
+    /**
+     * archived=true 时查询已归档的冷数据（扫描归档文件，较慢）
+     */
     @GetMapping
     public ResponseEntity<Map<String, Object>> getMessages(
             @RequestParam(required = false) String cryptoType,
             @RequestParam(required = false) String sentiment,
             @RequestParam(required = false) LocalDateTime startDate,
             @RequestParam(required = false) LocalDateTime endDate,
+            @RequestParam(required = false) Boolean isRead,
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        Map<String, Object> messages = messageService.getMessages(cryptoType, sentiment, startDate, endDate, page, size);
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean estimateTotal,
+            @RequestParam(defaultValue = "false") boolean archived,
+            @RequestHeader(value = USER_HEADER, required = false) String userId) {
+        MessageFilter filter = toFilter(cryptoType, sentiment, startDate, endDate, isRead, userId);
+        Map<String, Object> messages = archived
+                ? messageService.getArchivedMessages(filter, page, size)
+                : messageService.getMessages(filter, page, size, estimateTotal);
         return ResponseEntity.ok(messages);
     }
     
+    /**
+     * 游标分页的消息流：首次请求不带 cursor，之后回传 nextCursor 向后翻页，回传 prevCursor 并指定 direction=prev 向前翻页
+     */
+    @GetMapping("/feed")
+    public ResponseEntity<Map<String, Object>> getMessageFeed(
+            @RequestParam(required = false) String cryptoType,
+            @RequestParam(required = false) String sentiment,
+            @RequestParam(required = false) LocalDateTime startDate,
+            @RequestParam(required = false) LocalDateTime endDate,
+            @RequestParam(required = false) Boolean isRead,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "next") String direction,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestHeader(value = USER_HEADER, required = false) String userId) {
+        MessageFilter filter = toFilter(cryptoType, sentiment, startDate, endDate, isRead, userId);
+        return ResponseEntity.ok(messageService.getMessageFeed(filter, cursor, "prev".equalsIgnoreCase(direction), size));
+    }
+    
+    /**
+     * 流式导出符合条件的全部消息（format：ndjson/csv），筛选条件与列表相同，默认 gzip 压缩
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportMessages(
+            @RequestParam(required = false) String cryptoType,
+            @RequestParam(required = false) String sentiment,
+            @RequestParam(required = false) LocalDateTime startDate,
+            @RequestParam(required = false) LocalDateTime endDate,
+            @RequestParam(required = false) Boolean isRead,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "true") boolean gzip,
+            @RequestHeader(value = USER_HEADER, required = false) String userId) {
+        MessageFilter filter = toFilter(cryptoType, sentiment, startDate, endDate, isRead, userId);
+        ExportFormat exportFormat = ExportFormat.fromCode(format);
+        return ExportResponse.of("messages", exportFormat, gzip,
+                out -> messageService.exportMessages(filter, exportFormat, out));
+    }
+    
+    /**
+     * 全文检索消息内容与来源，按相关度排序，其余筛选条件与列表相同
+     */
+    @GetMapping("/search")
+    public ResponseEntity<Map<String, Object>> searchMessages(
+            @RequestParam String q,
+            @RequestParam(required = false) String cryptoType,
+            @RequestParam(required = false) String sentiment,
+            @RequestParam(required = false) LocalDateTime startDate,
+            @RequestParam(required = false) LocalDateTime endDate,
+            @RequestParam(required = false) Boolean isRead,
+            @RequestParam(defaultValue = "1") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestHeader(value = USER_HEADER, required = false) String userId) {
+        MessageFilter filter = toFilter(cryptoType, sentiment, startDate, endDate, isRead, userId);
+        return ResponseEntity.ok(messageService.searchMessages(q, filter, page, size));
+    }
+    
+    @GetMapping("/search/stats")
+    public ResponseEntity<Map<String, Object>> getSearchIndexStats() {
+        return ResponseEntity.ok(messageSearchIndexer.getStats());
+    }
+    
+    /**
+     * 清空本节点的全文索引并从数据库全量重建，完成后返回
+     */
+    @PostMapping("/search/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildSearchIndex() throws IOException {
+        long indexed = messageSearchIndexer.rebuild();
+        return ResponseEntity.ok(Map.of(
+                "success", true,
+                "message", "全文索引已重建",
+                "indexed", indexed
+        ));
+    }
+    
+    /**
+     * 时间窗口内各情感的消息数与占比（来自汇总表），默认最近 24 小时
+     */
+    @GetMapping("/sentiment-stats")
+    public ResponseEntity<Map<String, Object>> getSentimentStats(
+            @RequestParam(required = false) String cryptoType,
+            @RequestParam(required = false) LocalDateTime startDate,
+            @RequestParam(required = false) LocalDateTime endDate) {
+        LocalDateTime end = endDate != null ? endDate : LocalDateTime.now();
+        LocalDateTime start = startDate != null ? startDate : end.minusHours(24);
+        return ResponseEntity.ok(sentimentRollupService.getSentimentStats(cryptoType, start, end));
+    }
+    
+    /**
+     * 从消息表回填情感汇总，不传时间范围时覆盖全部消息
+     */
+    @PostMapping("/sentiment-stats/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildSentimentStats(
+            @RequestParam(required = false) LocalDateTime startDate,
+            @RequestParam(required = false) LocalDateTime endDate) {
+        Map<String, Object> result = new HashMap<>(sentimentRollupService.rebuild(startDate, endDate));
+        result.put("success", true);
+        result.put("message", "情感汇总已重建");
+        return ResponseEntity.ok(result);
+    }
+    
+    @GetMapping("/archive")
+    public ResponseEntity<Map<String, Object>> getArchiveStatus() {
+        return ResponseEntity.ok(messageArchiver.getStatus());
+    }
+    
+    /**
+     * 立即归档超过保留期的消息（与定时任务相同），完成后返回
+     */
+    @PostMapping("/archive/run")
+    public ResponseEntity<Map<String, Object>> runArchive() throws IOException, InterruptedException {
+        return ResponseEntity.ok(Map.of(
+                "success", true,
+                "message", "消息归档已完成",
+                "segments", messageArchiver.archiveExpired()
+        ));
+    }
+    
+    /**
+     * 把符合条件的消息全部标记为当前用户已读
+     */
+    @PostMapping("/read-all")
+    public ResponseEntity<Map<String, Object>> markAllAsRead(
+            @RequestParam(required = false) String cryptoType,
+            @RequestParam(required = false) String sentiment,
+            @RequestParam(required = false) LocalDateTime startDate,
+            @RequestParam(required = false) LocalDateTime endDate,
+            @RequestHeader(value = USER_HEADER, required = false) String userId) {
+        long marked = messageService.markAllAsRead(toFilter(cryptoType, sentiment, startDate, endDate, null, userId));
+        return ResponseEntity.ok(Map.of(
+                "success", true,
+                "message", "消息已全部标记为已读",
+                "marked", marked
+        ));
+    }
+    
+    @GetMapping("/unread-count")
+    public ResponseEntity<Map<String, Object>> countUnread(
+            @RequestHeader(value = USER_HEADER, required = false) String userId) {
+        return ResponseEntity.ok(Map.of("unread", messageService.countUnread(userId)));
+    }
+    
     @GetMapping("/{id}")
-    public ResponseEntity<Message> getMessageById(@PathVariable Long id) {
-        Message message = messageService.getMessageById(id);
+    public ResponseEntity<Message> getMessageById(@PathVariable Long id,
+                                                  @RequestHeader(value = USER_HEADER, required = false) String userId) {
+        Message message = messageService.getMessageById(id, userId);
         if (message == null) {
             return ResponseEntity.notFound().build();
         }
@@ -40,8 +214,9 @@ public class MessageController {
     }
     
     @PutMapping("/{id}/read")
-    public ResponseEntity<Map<String, Object>> markMessageAsRead(@PathVariable Long id) {
-        messageService.markMessageAsRead(id);
+    public ResponseEntity<Map<String, Object>> markMessageAsRead(@PathVariable Long id,
+                                                                 @RequestHeader(value = USER_HEADER, required = false) String userId) {
+        messageService.markMessageAsRead(id, userId);
         
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
@@ -55,10 +230,18 @@ public class MessageController {
     public ResponseEntity<Map<String, Object>> saveMessage(@RequestBody Message message) {
         try {
             Message savedMessage = messageService.saveMessage(message);
+            if (savedMessage == null) {
+                return ResponseEntity.ok(Map.of(
+                        "success", true,
+                        "message", "消息内容重复，已忽略",
+                        "duplicate", true
+                ));
+            }
             return ResponseEntity.ok(Map.of(
                     "success", true,
                     "message", "消息保存成功",
-                    "data", savedMessage
+                    "data", savedMessage,
+                    "duplicate", false
             ));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
@@ -68,16 +251,17 @@ public class MessageController {
         }
     }
 
-    // 新增：批量保存消息（用于Dify测试）
+    // 新增：批量保存消息（用于Dify测试），重复内容不写入，duplicates 为丢弃的条数
     @PostMapping("/batch-save")
     public ResponseEntity<Map<String, Object>> saveMessages(@RequestBody List<Message> messages) {
         try {
-            List<Message> savedMessages = messageService.saveMessages(messages);
+            MessageSaveResult result = messageService.saveMessages(messages);
             return ResponseEntity.ok(Map.of(
                     "success", true,
                     "message", "消息批量保存成功",
-                    "data", savedMessages,
-                    "count", savedMessages.size()
+                    "data", result.getSaved(),
+                    "count", result.getSaved().size(),
+                    "duplicates", result.getDuplicates()
             ));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
@@ -86,4 +270,34 @@ public class MessageController {
             ));
         }
     }
+
+    // 游标格式错误、用户标识不合法等参数问题
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+        ));
+    }
+
+    // 本节点读不到共享归档目录中的文件
+    @ExceptionHandler(ArchiveUnavailableException.class)
+    public ResponseEntity<Map<String, Object>> handleArchiveUnavailable(ArchiveUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+        ));
+    }
+
+    private static MessageFilter toFilter(String cryptoType, String sentiment, LocalDateTime startDate,
+                                          LocalDateTime endDate, Boolean isRead, String userId) {
+        MessageFilter filter = new MessageFilter();
+        filter.setCryptoType(cryptoType);
+        filter.setSentiment(sentiment);
+        filter.setStartDate(startDate);
+        filter.setEndDate(endDate);
+        filter.setIsRead(isRead);
+        filter.setReaderId(userId);
+        return filter;
+    }
 }
\ No newline at end of file
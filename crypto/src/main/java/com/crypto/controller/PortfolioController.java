@@ -1,7 +1,10 @@
 package com.crypto.controller;
 
+import com.crypto.dto.ScenarioRequest;
 import com.crypto.entity.PortfolioItem;
 import com.crypto.service.PortfolioService;
+import com.crypto.service.ScenarioService;
+import com.crypto.tenant.PortfolioTenants;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -10,6 +13,9 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * 持仓接口按请求头 X-Portfolio-Id 区分投资组合，未携带时使用默认组合
+ */
 @RestController
 @RequestMapping("/api/portfolio")
 public class PortfolioController {
@@ -17,49 +23,100 @@ public class PortfolioController {
     @Autowired
     private PortfolioService portfolioService;
     
+    @Autowired
+    private ScenarioService scenarioService;
+    
     @GetMapping("/current")
-    public ResponseEntity<Map<String, Object>> getCurrentPortfolio() {
-        Map<String, Object> portfolio = portfolioService.getCurrentPortfolio();
+    public ResponseEntity<Map<String, Object>> getCurrentPortfolio(
+            @RequestHeader(value = PortfolioTenants.HEADER, required = false) Long portfolioId) {
+        Map<String, Object> portfolio = portfolioService.getCurrentPortfolio(portfolioId);
         return ResponseEntity.ok(portfolio);
     }
     
+    /**
+     * 按日的持仓历史，days 不大于 0 表示全部历史
+     */
     @GetMapping("/history")
     public ResponseEntity<List<Map<String, Object>>> getPortfolioHistory(
-            @RequestParam(defaultValue = "7") int days) {
+            @RequestParam(defaultValue = "7") int days,
+            @RequestHeader(value = PortfolioTenants.HEADER, required = false) Long portfolioId) {
         
-        List<Map<String, Object>> history = portfolioService.getPortfolioHistory(days);
+        List<Map<String, Object>> history = portfolioService.getPortfolioHistory(portfolioId, days);
         return ResponseEntity.ok(history);
     }
     
+    /**
+     * 列式持仓历史（dates、totalValues、weights），days 不大于 0 表示全部历史；
+     * interval 默认 auto：92 天以内按日，两年以内按周，更长按月
+     */
+    @GetMapping("/history/series")
+    public ResponseEntity<Map<String, Object>> getPortfolioHistorySeries(
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(defaultValue = "auto") String interval,
+            @RequestHeader(value = PortfolioTenants.HEADER, required = false) Long portfolioId) {
+        try {
+            return ResponseEntity.ok(portfolioService.getPortfolioHistorySeries(portfolioId, days, interval));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+        }
+    }
+    
     @PutMapping
     public ResponseEntity<Map<String, Object>> updatePortfolio(
-            @RequestBody Map<String, List<PortfolioItem>> request) {
+            @RequestBody Map<String, List<PortfolioItem>> request,
+            @RequestHeader(value = PortfolioTenants.HEADER, required = false) Long portfolioId) {
         
         List<PortfolioItem> items = request.get("items");
         if (items == null || items.isEmpty()) {
             return ResponseEntity.badRequest().build();
         }
         
-        Map<String, Object> result = portfolioService.updatePortfolio(items);
-        return ResponseEntity.ok(result);
+        try {
+            return ResponseEntity.ok(portfolioService.updatePortfolio(portfolioId, items));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+        }
+    }
+    
+    /**
+     * 当前持仓的风险指标（波动率、VaR、最大回撤、beta、相关系数），比例均为小数，VaR 为 1 日持有期
+     */
+    @GetMapping("/risk")
+    public ResponseEntity<Map<String, Object>> getPortfolioRisk(
+            @RequestHeader(value = PortfolioTenants.HEADER, required = false) Long portfolioId) {
+        return ResponseEntity.ok(portfolioService.getPortfolioRisk(portfolioId));
+    }
+    
+    /**
+     * 批量估算调仓场景：每个场景给出目标占比（%），返回交易明细、费用、换手率与调仓后的风险
+     */
+    @PostMapping("/scenarios")
+    public ResponseEntity<Map<String, Object>> evaluateScenarios(
+            @RequestBody ScenarioRequest request,
+            @RequestHeader(value = PortfolioTenants.HEADER, required = false) Long portfolioId) {
+        try {
+            return ResponseEntity.ok(scenarioService.evaluate(portfolioId, request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+        }
     }
     
-<<<<<<< HEAD
     /**
      * AI专用持仓查询接口
      * 支持Dify智能体直接调用或后端中转调用
      * 返回简洁明了的持仓资产信息
      */
     @GetMapping("/ai/holdings")
-    public ResponseEntity<Map<String, Object>> getHoldingsForAI() {
-        Map<String, Object> result = portfolioService.getHoldingsForAI();
+    public ResponseEntity<Map<String, Object>> getHoldingsForAI(
+            @RequestHeader(value = PortfolioTenants.HEADER, required = false) Long portfolioId) {
+        Map<String, Object> result = portfolioService.getHoldingsForAI(portfolioId);
         return ResponseEntity.ok(result);
     }
-}
-=======
+
     // 添加初始化测试数据的接口
     @PostMapping("/init-test-data")
-    public ResponseEntity<Map<String, Object>> initTestData() {
+    public ResponseEntity<Map<String, Object>> initTestData(
+            @RequestHeader(value = PortfolioTenants.HEADER, required = false) Long portfolioId) {
         // 创建测试数据
         List<PortfolioItem> testItems = new ArrayList<>();
         
@@ -82,8 +139,17 @@ public class PortfolioController {
         testItems.add(sol);
         
         // 调用updatePortfolio方法保存测试数据
-        Map<String, Object> result = portfolioService.updatePortfolio(testItems);
+        Map<String, Object> result = portfolioService.updatePortfolio(portfolioId, testItems);
         return ResponseEntity.ok(result);
     }
+    
+    // 投资组合 id 不合法等参数问题
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+        ));
+    }
+
 }
->>>>>>> 010f0c3 (dify联调)
@@ -1,7 +1,10 @@
 package com.crypto.controller;
 
+import com.crypto.dto.ScenarioRequest;
 import com.crypto.entity.ReportSuggestion;
 import com.crypto.service.ReportService;
+import com.crypto.service.ScenarioService;
+import com.crypto.tenant.PortfolioTenants;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -9,6 +12,9 @@ import org.springframework.web.bind.annotation.*;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * 报告与建议按请求头 X-Portfolio-Id 区分投资组合，未携带时使用默认组合；其他组合的报告按不存在处理
+ */
 @RestController
 @RequestMapping("/api")
 public class ReportController {
@@ -16,20 +22,26 @@ public class ReportController {
     @Autowired
     private ReportService reportService;
     
+    @Autowired
+    private ScenarioService scenarioService;
+    
     // 报告相关接口
     @GetMapping("/reports")
     public ResponseEntity<Map<String, Object>> getReports(
             @RequestParam(required = false) String status,
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestHeader(value = PortfolioTenants.HEADER, required = false) Long portfolioId) {
         
-        Map<String, Object> reports = reportService.getReports(status, page, size);
+        Map<String, Object> reports = reportService.getReports(portfolioId, status, page, size);
         return ResponseEntity.ok(reports);
     }
     
     @GetMapping("/reports/{id}")
-    public ResponseEntity<Map<String, Object>> getReportById(@PathVariable Long id) {
-        Map<String, Object> report = reportService.getReportById(id);
+    public ResponseEntity<Map<String, Object>> getReportById(
+            @PathVariable Long id,
+            @RequestHeader(value = PortfolioTenants.HEADER, required = false) Long portfolioId) {
+        Map<String, Object> report = reportService.getReportById(portfolioId, id);
         if (report == null) {
             return ResponseEntity.notFound().build();
         }
@@ -39,7 +51,8 @@ public class ReportController {
     @PutMapping("/reports/{id}/status")
     public ResponseEntity<Map<String, Object>> updateReportStatus(
             @PathVariable Long id,
-            @RequestBody Map<String, String> request) {
+            @RequestBody Map<String, String> request,
+            @RequestHeader(value = PortfolioTenants.HEADER, required = false) Long portfolioId) {
         
         String status = request.get("status");
         // 移除400错误检查，确保接口总是返回成功响应
@@ -48,7 +61,7 @@ public class ReportController {
             status = "pending";
         }
         
-        reportService.updateReportStatus(id, status);
+        reportService.updateReportStatus(portfolioId, id, status);
         
         Map<String, Object> response = Map.of(
                 "success", true,
@@ -59,34 +72,39 @@ public class ReportController {
     }
     
     @PostMapping("/reports")
-    public ResponseEntity<Map<String, Object>> createReport(@RequestBody Map<String, Object> reportData) {
+    public ResponseEntity<Map<String, Object>> createReport(
+            @RequestBody Map<String, Object> reportData,
+            @RequestHeader(value = PortfolioTenants.HEADER, required = false) Long portfolioId) {
         // 移除400错误检查，确保接口总是返回成功响应
         // 使用默认标题如果没有提供
         if (reportData.get("title") == null || ((String) reportData.get("title")).trim().isEmpty()) {
             reportData.put("title", "自动生成报告 - " + System.currentTimeMillis());
         }
         
-        Map<String, Object> report = reportService.createReport(reportData);
+        Map<String, Object> report = reportService.createReport(portfolioId, reportData);
         return ResponseEntity.status(201).body(report);
     }
     
     // ReportSuggestion相关接口
     @GetMapping("/reports/{reportId}/suggestions")
-    public ResponseEntity<List<ReportSuggestion>> getSuggestionsByReportId(@PathVariable Long reportId) {
-        List<ReportSuggestion> suggestions = reportService.getSuggestionsByReportId(reportId);
+    public ResponseEntity<List<ReportSuggestion>> getSuggestionsByReportId(
+            @PathVariable Long reportId,
+            @RequestHeader(value = PortfolioTenants.HEADER, required = false) Long portfolioId) {
+        List<ReportSuggestion> suggestions = reportService.getSuggestionsByReportId(portfolioId, reportId);
         return ResponseEntity.ok(suggestions);
     }
     
     @PostMapping("/reports/{reportId}/suggestions")
     public ResponseEntity<ReportSuggestion> addSuggestionToReport(
             @PathVariable Long reportId,
-            @RequestBody Map<String, Object> suggestionData) {
+            @RequestBody Map<String, Object> suggestionData,
+            @RequestHeader(value = PortfolioTenants.HEADER, required = false) Long portfolioId) {
         // 验证必要字段
         if (suggestionData.get("cryptoType") == null || suggestionData.get("reason") == null) {
             return ResponseEntity.badRequest().build();
         }
         
-        ReportSuggestion suggestion = reportService.addSuggestionToReport(reportId, suggestionData);
+        ReportSuggestion suggestion = reportService.addSuggestionToReport(portfolioId, reportId, suggestionData);
         if (suggestion == null) {
             return ResponseEntity.notFound().build();
         }
@@ -94,11 +112,32 @@ public class ReportController {
         return ResponseEntity.status(201).body(suggestion);
     }
     
+    /**
+     * 估算执行报告建议需要的交易、费用、换手率与调仓后的风险，可附带变体场景与 blendSteps 个中间方案
+     */
+    @PostMapping("/reports/{reportId}/scenarios")
+    public ResponseEntity<Map<String, Object>> evaluateSuggestionScenarios(
+            @PathVariable Long reportId,
+            @RequestBody(required = false) ScenarioRequest request,
+            @RequestHeader(value = PortfolioTenants.HEADER, required = false) Long portfolioId) {
+        try {
+            Map<String, Object> result = scenarioService.evaluateReportSuggestions(
+                    portfolioId, reportId, request != null ? request : new ScenarioRequest());
+            if (result == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+        }
+    }
+    
     @PutMapping("/suggestions/{suggestionId}")
     public ResponseEntity<ReportSuggestion> updateSuggestion(
             @PathVariable Long suggestionId,
-            @RequestBody Map<String, Object> suggestionData) {
-        ReportSuggestion suggestion = reportService.updateSuggestion(suggestionId, suggestionData);
+            @RequestBody Map<String, Object> suggestionData,
+            @RequestHeader(value = PortfolioTenants.HEADER, required = false) Long portfolioId) {
+        ReportSuggestion suggestion = reportService.updateSuggestion(portfolioId, suggestionId, suggestionData);
         if (suggestion == null) {
             return ResponseEntity.notFound().build();
         }
@@ -107,8 +146,10 @@ public class ReportController {
     }
     
     @DeleteMapping("/suggestions/{suggestionId}")
-    public ResponseEntity<Map<String, Object>> deleteSuggestion(@PathVariable Long suggestionId) {
-        reportService.deleteSuggestion(suggestionId);
+    public ResponseEntity<Map<String, Object>> deleteSuggestion(
+            @PathVariable Long suggestionId,
+            @RequestHeader(value = PortfolioTenants.HEADER, required = false) Long portfolioId) {
+        reportService.deleteSuggestion(portfolioId, suggestionId);
         
         Map<String, Object> response = Map.of(
                 "success", true,
@@ -117,4 +158,13 @@ public class ReportController {
         
         return ResponseEntity.ok(response);
     }
+    
+    // 投资组合 id 不合法等参数问题
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+        ));
+    }
 }
\ No newline at end of file
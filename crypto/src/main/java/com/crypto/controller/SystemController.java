@@ -1,6 +1,7 @@
 package com.crypto.controller;
 
 import com.crypto.service.SystemService;
+import com.crypto.tenant.PortfolioTenants;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -15,8 +16,10 @@ public class SystemController {
     private SystemService systemService;
     
     @GetMapping("/overview")
-    public ResponseEntity<Map<String, Object>> getSystemOverview() {
-        Map<String, Object> overview = systemService.getSystemOverview();
+    public ResponseEntity<Map<String, Object>> getSystemOverview(
+            @RequestHeader(value = "X-User-Id", required = false) String userId,
+            @RequestHeader(value = PortfolioTenants.HEADER, required = false) Long portfolioId) {
+        Map<String, Object> overview = systemService.getSystemOverview(userId, portfolioId);
         return ResponseEntity.ok(overview);
     }
     
@@ -29,4 +32,19 @@ public class SystemController {
         Map<String, Object> result = systemService.saveSystemSettings(settings);
         return ResponseEntity.ok(result);
     }
+    
+    // 手动触发计数器对账，返回各计数器的偏差
+    @PostMapping("/counters/reconcile")
+    public ResponseEntity<Map<String, Object>> reconcileCounters() {
+        return ResponseEntity.ok(systemService.reconcileCounters());
+    }
+    
+    // 投资组合 id 不合法等参数问题
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+        ));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.crypto.dedup;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * 消息去重哈希：规范化后的 content 与 sourceUrl 的 SHA-256，十六进制小写
+ * 规范化：NFKC（全角转半角等）、去首尾空白、连续空白合并为一个空格
+ */
+public final class ContentHash {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final HexFormat HEX = HexFormat.of();
+
+    private ContentHash() {
+    }
+
+    public static String of(String content, String sourceUrl) {
+        String normalized = normalize(content) + '\n' + normalize(sourceUrl);
+        return HEX.formatHex(sha256().digest(normalized.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFKC);
+        return WHITESPACE.matcher(folded.strip()).replaceAll(" ");
+    }
+
+    /**
+     * 布隆过滤器使用的两个 64 位哈希，取自摘要的前 16 字节
+     */
+    static long high(String hash) {
+        return Long.parseUnsignedLong(hash, 0, 16, 16);
+    }
+
+    static long low(String hash) {
+        return Long.parseUnsignedLong(hash, 16, 32, 16);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
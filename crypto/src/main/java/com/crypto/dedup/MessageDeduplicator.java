@@ -0,0 +1,153 @@
+package com.crypto.dedup;
+
+import com.crypto.entity.Message;
+import com.crypto.repository.MessageJdbcRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 消息写入前的精确去重
+ * 1. 布隆过滤器判定“一定不存在”的哈希直接放行，不查库
+ * 2. 可能存在的哈希批量到唯一索引上确认
+ * 3. 启动时后台从表中流式加载已有哈希（只读哈希列），并分批回填历史消息的哈希；加载完成前全部查库
+ */
+@Component
+public class MessageDeduplicator {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageDeduplicator.class);
+    // 回填历史消息哈希时每批的行数
+    private static final int BACKFILL_CHUNK = 5000;
+    // 每条 IN 查询的哈希数
+    private static final int LOOKUP_CHUNK = 1000;
+
+    private final MessageJdbcRepository messageJdbcRepository;
+    private final long expectedMessages;
+    private final double falsePositiveRate;
+
+    private volatile BloomFilter filter;
+    private volatile boolean ready;
+
+    // 统计指标
+    private final AtomicLong skippedLookups = new AtomicLong();
+    private final AtomicLong checkedHashes = new AtomicLong();
+    private final AtomicLong duplicateHashes = new AtomicLong();
+
+    @Autowired
+    public MessageDeduplicator(MessageJdbcRepository messageJdbcRepository,
+                               MeterRegistry registry,
+                               @Value("${crypto.dedup.expected-messages:10000000}") long expectedMessages,
+                               @Value("${crypto.dedup.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.messageJdbcRepository = messageJdbcRepository;
+        this.expectedMessages = expectedMessages;
+        this.falsePositiveRate = falsePositiveRate;
+        FunctionCounter.builder("crypto.message.dedup", skippedLookups, AtomicLong::get).tag("result", "filtered_new").register(registry);
+        FunctionCounter.builder("crypto.message.dedup", checkedHashes, AtomicLong::get).tag("result", "db_checked").register(registry);
+        FunctionCounter.builder("crypto.message.dedup", duplicateHashes, AtomicLong::get).tag("result", "duplicate").register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        Thread loader = new Thread(this::load, "message-dedup-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * 重新构建布隆过滤器；构建期间新登记的哈希直接写入新过滤器
+     */
+    public void load() {
+        ready = false;
+        BloomFilter loading = new BloomFilter(expectedMessages, falsePositiveRate);
+        filter = loading;
+        try {
+            long started = System.currentTimeMillis();
+            messageJdbcRepository.forEachContentHash(hash -> loading.put(ContentHash.high(hash), ContentHash.low(hash)));
+            long backfilled = backfill(loading);
+            ready = true;
+            log.info("消息去重过滤器已加载：{} 条哈希（回填 {} 条），{} 字节，耗时 {} ms", loading.getInsertions(), backfilled,
+                    loading.getSizeInBytes(), System.currentTimeMillis() - started);
+            if (loading.getInsertions() > loading.getExpectedInsertions()) {
+                log.warn("消息数已超过 crypto.dedup.expected-messages={}，误判率上升，建议调大", expectedMessages);
+            }
+        } catch (Exception e) {
+            // 过滤器不可用时全部查库，结果仍然正确
+            log.error("消息去重过滤器加载失败，写入时将逐批查库", e);
+        }
+    }
+
+    private long backfill(BloomFilter loading) {
+        long afterId = 0;
+        long total = 0;
+        while (true) {
+            List<Message> chunk = messageJdbcRepository.findUnhashedAfter(afterId, BACKFILL_CHUNK);
+            if (chunk.isEmpty()) {
+                return total;
+            }
+            for (Message message : chunk) {
+                String hash = ContentHash.of(message.getContent(), message.getSourceUrl());
+                message.setContentHash(hash);
+                loading.put(ContentHash.high(hash), ContentHash.low(hash));
+            }
+            messageJdbcRepository.updateContentHashes(chunk);
+            total += chunk.size();
+            afterId = chunk.get(chunk.size() - 1).getId();
+        }
+    }
+
+    /**
+     * 返回给定哈希中已存在的部分
+     * @param bypassFilter 为 true 时不经过滤器全部查库（写入遇到唯一键冲突后重试时使用）
+     */
+    public Set<String> findExisting(Collection<String> hashes, boolean bypassFilter) {
+        BloomFilter current = filter;
+        List<String> candidates;
+        if (bypassFilter || !ready || current == null) {
+            candidates = new ArrayList<>(hashes);
+        } else {
+            candidates = new ArrayList<>();
+            for (String hash : hashes) {
+                if (current.mightContain(ContentHash.high(hash), ContentHash.low(hash))) {
+                    candidates.add(hash);
+                }
+            }
+            skippedLookups.addAndGet(hashes.size() - candidates.size());
+        }
+        if (candidates.isEmpty()) {
+            return new HashSet<>();
+        }
+        checkedHashes.addAndGet(candidates.size());
+        Set<String> existing = new HashSet<>();
+        for (int from = 0; from < candidates.size(); from += LOOKUP_CHUNK) {
+            existing.addAll(messageJdbcRepository.findExistingHashes(
+                    candidates.subList(from, Math.min(from + LOOKUP_CHUNK, candidates.size()))));
+        }
+        duplicateHashes.addAndGet(existing.size());
+        return existing;
+    }
+
+    /**
+     * 写入事务提交后登记新哈希
+     */
+    public void register(Collection<String> hashes) {
+        BloomFilter current = filter;
+        if (current == null) {
+            return;
+        }
+        for (String hash : hashes) {
+            current.put(ContentHash.high(hash), ContentHash.low(hash));
+        }
+    }
+}
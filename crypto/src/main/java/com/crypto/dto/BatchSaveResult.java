@@ -0,0 +1,39 @@
+package com.crypto.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量保存/更新的逐行结果报告
+ */
+@Data
+public class BatchSaveResult {
+    // 接收条数
+    private int total;
+    // 成功条数
+    private int successCount;
+    // 失败条数
+    private int failCount;
+    // 与数据库的往返次数（每个 JDBC 批次计一次）
+    private int roundTrips;
+    // 失败明细（index 为请求列表中的下标）
+    private List<RowFailure> failures = new ArrayList<>();
+
+    public BatchSaveResult(int total) {
+        this.total = total;
+    }
+
+    public void addFailure(int index, String symbol, String reason) {
+        failures.add(new RowFailure(index, symbol, reason));
+        failCount++;
+    }
+
+    @Data
+    public static class RowFailure {
+        private final int index;
+        private final String symbol;
+        private final String reason;
+    }
+}
@@ -0,0 +1,30 @@
+package com.crypto.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 消息列表的筛选条件，各条件均可为空，非空条件之间为“且”关系
+ * isRead 指 readerId 对应用户的阅读状态，readerId 为空时按默认用户处理
+ */
+@Data
+public class MessageFilter {
+    private String cryptoType;
+    private String sentiment;
+    private LocalDateTime startDate;
+    private LocalDateTime endDate;
+    private Boolean isRead;
+    private String readerId;
+
+    public boolean isEmpty() {
+        return !hasContentConditions() && isRead == null;
+    }
+
+    /**
+     * 是否包含阅读状态以外的条件
+     */
+    public boolean hasContentConditions() {
+        return cryptoType != null || sentiment != null || startDate != null || endDate != null;
+    }
+}
@@ -0,0 +1,17 @@
+package com.crypto.dto;
+
+import com.crypto.entity.Message;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 消息保存结果：实际写入的消息，以及作为重复内容丢弃的条数（含同一批次内的重复）
+ */
+@Data
+@AllArgsConstructor
+public class MessageSaveResult {
+    private List<Message> saved;
+    private int duplicates;
+}
@@ -0,0 +1,25 @@
+package com.crypto.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量调仓场景请求：每个场景是一组目标占比（%），未列出的币种保持当前占比
+ */
+@Data
+public class ScenarioRequest {
+    private List<Target> scenarios = new ArrayList<>();
+    // 是否返回每个场景的交易明细，场景很多时关闭可减小响应
+    private boolean includeTrades = true;
+    // 报告场景：在当前持仓与建议之间额外生成的等分中间方案数
+    private int blendSteps;
+
+    @Data
+    public static class Target {
+        private String name;
+        private Map<String, Double> weights;
+    }
+}
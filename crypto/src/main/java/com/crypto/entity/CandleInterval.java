@@ -0,0 +1,50 @@
+package com.crypto.entity;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * K 线周期
+ */
+public enum CandleInterval {
+    M1("1m", Duration.ofMinutes(1)),
+    M5("5m", Duration.ofMinutes(5)),
+    H1("1h", Duration.ofHours(1)),
+    D1("1d", Duration.ofDays(1));
+
+    private final String code;
+    private final Duration length;
+
+    CandleInterval(String code, Duration length) {
+        this.code = code;
+        this.length = length;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public Duration getLength() {
+        return length;
+    }
+
+    /**
+     * 计算时间点所在 K 线的起始时间（按本地时间对齐，日线从 0 点开始）
+     */
+    public LocalDateTime bucketStart(LocalDateTime time) {
+        LocalDateTime day = time.truncatedTo(ChronoUnit.DAYS);
+        long seconds = Duration.between(day, time).getSeconds();
+        long step = length.getSeconds();
+        return day.plusSeconds(seconds / step * step);
+    }
+
+    public static CandleInterval fromCode(String code) {
+        for (CandleInterval interval : values()) {
+            if (interval.code.equalsIgnoreCase(code)) {
+                return interval;
+            }
+        }
+        throw new IllegalArgumentException("不支持的 K 线周期：" + code);
+    }
+}
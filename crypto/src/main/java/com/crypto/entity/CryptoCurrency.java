@@ -1,5 +1,6 @@
 package com.crypto.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import jakarta.persistence.*;
@@ -34,12 +35,12 @@ public class CryptoCurrency {
     private BigDecimal cnyPrice;
 
     // 24小时涨跌幅 - 兼容 Dify 输出
-    @Column(precision = 10, scale = 4)
+    @Column(name = "change_24h", precision = 10, scale = 4)
     @JsonProperty(value = "change_24h")
     private BigDecimal change24h;
 
     // 24小时成交量 - 兼容 Dify 输出
-    @Column(precision = 20, scale = 2)
+    @Column(name = "volume_24h", precision = 20, scale = 2)
     @JsonProperty(value = "volume_24h")
     private BigDecimal volume24h;
 
@@ -53,6 +54,11 @@ public class CryptoCurrency {
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss.SSSSSS") // 匹配 Dify 输出的时间格式
     private LocalDateTime updateTime;
 
+    // 写入时分配的全局行情版本（各节点一致），由服务端维护，不参与接口输入输出
+    @Column(name = "quote_version", nullable = false)
+    @JsonIgnore
+    private long quoteVersion;
+
     public Long getId() {
         return id;
     }
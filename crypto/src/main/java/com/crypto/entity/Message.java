@@ -1,5 +1,6 @@
 package com.crypto.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import jakarta.persistence.*;
@@ -33,6 +34,11 @@ public class Message {
     @JsonProperty("is_read")
     private Boolean isRead;
     
+    // 去重哈希，由服务端计算
+    @Column(name = "content_hash")
+    @JsonIgnore
+    private String contentHash;
+    
     // Getters and Setters
     public Long getId() {
         return id;
@@ -98,6 +104,14 @@ public class Message {
         this.isRead = isRead;
     }
     
+    public String getContentHash() {
+        return contentHash;
+    }
+    
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+    
     // 为了兼容性，添加 getRead 和 setRead 方法
     public Boolean getRead() {
         return isRead;
@@ -10,6 +10,9 @@ public class PortfolioHistory {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
+    @Column(name = "portfolio_id")
+    private Long portfolioId;
+    
     private LocalDate date;
     
     @Column(name = "total_value")
@@ -29,6 +32,14 @@ public class PortfolioHistory {
         this.id = id;
     }
     
+    public Long getPortfolioId() {
+        return portfolioId;
+    }
+    
+    public void setPortfolioId(Long portfolioId) {
+        this.portfolioId = portfolioId;
+    }
+    
     public LocalDate getDate() {
         return date;
     }
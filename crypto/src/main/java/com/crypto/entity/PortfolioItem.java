@@ -9,6 +9,9 @@ public class PortfolioItem {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
+    @Column(name = "portfolio_id")
+    private Long portfolioId;
+    
     @Column(name = "crypto_type")
     private String cryptoType;
     
@@ -26,6 +29,14 @@ public class PortfolioItem {
         this.id = id;
     }
     
+    public Long getPortfolioId() {
+        return portfolioId;
+    }
+    
+    public void setPortfolioId(Long portfolioId) {
+        this.portfolioId = portfolioId;
+    }
+    
     public String getCryptoType() {
         return cryptoType;
     }
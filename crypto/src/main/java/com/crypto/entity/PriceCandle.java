@@ -0,0 +1,61 @@
+package com.crypto.entity;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * K 线汇总（1m/5m/1h/1d），随行情写入增量维护
+ * volume 为该周期内最后一笔行情携带的 24 小时成交量
+ */
+@Data
+@Entity
+@Table(name = "crypto_price_candle", uniqueConstraints = @UniqueConstraint(
+        name = "uk_candle_symbol_interval_bucket", columnNames = {"symbol", "bar_interval", "bucket_start"}))
+public class PriceCandle {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @JsonIgnore
+    private Long id;
+
+    @Column(nullable = false, length = 20)
+    private String symbol;
+
+    @Column(name = "bar_interval", nullable = false, length = 4)
+    private String barInterval;
+
+    @Column(name = "bucket_start", nullable = false)
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime bucketStart;
+
+    @Column(name = "open_price", nullable = false, precision = 16, scale = 8)
+    private BigDecimal open;
+
+    @Column(name = "high_price", nullable = false, precision = 16, scale = 8)
+    private BigDecimal high;
+
+    @Column(name = "low_price", nullable = false, precision = 16, scale = 8)
+    private BigDecimal low;
+
+    @Column(name = "close_price", nullable = false, precision = 16, scale = 8)
+    private BigDecimal close;
+
+    @Column(precision = 20, scale = 2)
+    private BigDecimal volume;
+
+    @Column(name = "tick_count", nullable = false)
+    private Integer tickCount;
+
+    // 周期内第一笔/最后一笔行情的时间，用于乱序到达时判断开盘价和收盘价
+    @Column(name = "open_time", nullable = false)
+    @JsonIgnore
+    private LocalDateTime openTime;
+
+    @Column(name = "close_time", nullable = false)
+    @JsonIgnore
+    private LocalDateTime closeTime;
+}
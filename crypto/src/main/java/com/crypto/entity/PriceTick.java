@@ -0,0 +1,31 @@
+package com.crypto.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 行情逐笔记录（只追加，不更新）
+ */
+@Data
+@Entity
+@Table(name = "crypto_price_tick", indexes = @Index(name = "idx_tick_symbol_time", columnList = "symbol, tick_time"))
+public class PriceTick {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 20)
+    private String symbol;
+
+    @Column(name = "usd_price", nullable = false, precision = 16, scale = 8)
+    private BigDecimal usdPrice;
+
+    @Column(name = "volume_24h", precision = 20, scale = 2)
+    private BigDecimal volume24h;
+
+    @Column(name = "tick_time", nullable = false)
+    private LocalDateTime tickTime;
+}
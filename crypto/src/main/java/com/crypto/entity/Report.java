@@ -11,6 +11,9 @@ public class Report {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
+    @Column(name = "portfolio_id")
+    private Long portfolioId;
+    
     private String title;
     private String status;
     
@@ -32,6 +35,14 @@ public class Report {
         this.id = id;
     }
     
+    public Long getPortfolioId() {
+        return portfolioId;
+    }
+    
+    public void setPortfolioId(Long portfolioId) {
+        this.portfolioId = portfolioId;
+    }
+    
     public String getTitle() {
         return title;
     }
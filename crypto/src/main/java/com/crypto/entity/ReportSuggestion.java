@@ -11,6 +11,9 @@ public class ReportSuggestion {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
+    @Column(name = "portfolio_id")
+    private Long portfolioId;
+    
     @Column(name = "crypto_type")
     private String cryptoType;
     
@@ -0,0 +1,48 @@
+package com.crypto.export;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 导出接口的流式响应：在异步线程中边查边写，gzip 时边写边压缩
+ */
+public final class ExportResponse {
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final int GZIP_BUFFER = 1 << 16;
+
+    private ExportResponse() {
+    }
+
+    /**
+     * @param name 下载文件名前缀，后面追加导出时间与扩展名
+     * @param writer 把数据写入给定输出流；不需要关闭流
+     */
+    public static ResponseEntity<StreamingResponseBody> of(String name, ExportFormat format, boolean gzip,
+                                                           Consumer<OutputStream> writer) {
+        String fileName = name + "-" + LocalDateTime.now().format(FILE_TIME) + "." + format.getExtension() + (gzip ? ".gz" : "");
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, GZIP_BUFFER);
+                writer.accept(compressed);
+                compressed.finish();
+            } else {
+                writer.accept(out);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip")
+                        : MediaType.parseMediaType(format.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+}
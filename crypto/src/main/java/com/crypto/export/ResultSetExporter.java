@@ -0,0 +1,189 @@
+package com.crypto.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 把流式结果集逐行写成 NDJSON 或 CSV，每行写完即可回收，内存占用与行数无关
+ * 列按 columns 的顺序从结果集第 1 列开始读取，之后追加计算列
+ */
+public class ResultSetExporter implements RowCallbackHandler {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    // 与 datetime(6) 列精度一致的固定宽度时间格式
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+
+    /**
+     * 行过滤条件，返回 false 的行不输出
+     */
+    @FunctionalInterface
+    public interface RowFilter {
+        boolean test(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * 由当前行计算的附加列
+     */
+    @FunctionalInterface
+    public interface ColumnValue {
+        Object get(ResultSet rs) throws SQLException;
+    }
+
+    private final ExportFormat format;
+    private final Writer writer;
+    private final JsonGenerator json;
+    private final List<String> columns;
+    private final List<ColumnValue> computed = new ArrayList<>();
+    private RowFilter filter;
+    private int resultColumns;
+    private boolean started;
+    private long rows;
+
+    public ResultSetExporter(ExportFormat format, OutputStream out, String... columns) {
+        this.format = format;
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.columns = new ArrayList<>(Arrays.asList(columns));
+        this.resultColumns = columns.length;
+        try {
+            // 行分隔由 writeRaw('\n') 输出，关闭默认的根值空格分隔
+            this.json = format == ExportFormat.NDJSON
+                    ? new JsonFactory().createGenerator(writer).setRootValueSeparator(null) : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public ResultSetExporter filter(RowFilter filter) {
+        this.filter = filter;
+        return this;
+    }
+
+    public ResultSetExporter column(String name, ColumnValue value) {
+        columns.add(name);
+        computed.add(value);
+        return this;
+    }
+
+    @Override
+    public void processRow(ResultSet rs) throws SQLException {
+        if (filter != null && !filter.test(rs)) {
+            return;
+        }
+        try {
+            begin();
+            if (json != null) {
+                json.writeStartObject();
+                for (int i = 0; i < columns.size(); i++) {
+                    json.writeFieldName(columns.get(i));
+                    writeJson(value(rs, i));
+                }
+                json.writeEndObject();
+                json.writeRaw('\n');
+            } else {
+                for (int i = 0; i < columns.size(); i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    writer.write(csvField(value(rs, i)));
+                }
+                writer.write("\r\n");
+            }
+            rows++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 写出剩余缓冲；没有任何行时 CSV 仍输出表头
+     * @return 输出的行数
+     */
+    public long finish() {
+        try {
+            begin();
+            if (json != null) {
+                json.flush();
+            }
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return rows;
+    }
+
+    private void begin() throws IOException {
+        if (started) {
+            return;
+        }
+        started = true;
+        if (format == ExportFormat.CSV) {
+            writer.write(String.join(",", columns));
+            writer.write("\r\n");
+        }
+    }
+
+    private Object value(ResultSet rs, int index) throws SQLException {
+        Object value = index < resultColumns ? rs.getObject(index + 1) : computed.get(index - resultColumns).get(rs);
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime().format(TIME_FORMAT);
+        }
+        if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).format(TIME_FORMAT);
+        }
+        return value;
+    }
+
+    private void writeJson(Object value) throws IOException {
+        if (value == null) {
+            json.writeNull();
+        } else if (value instanceof BigDecimal) {
+            json.writeNumber((BigDecimal) value);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            json.writeNumber(((Number) value).longValue());
+        } else if (value instanceof BigInteger) {
+            json.writeNumber((BigInteger) value);
+        } else if (value instanceof Number) {
+            json.writeNumber(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            json.writeBoolean((Boolean) value);
+        } else {
+            json.writeString(value.toString());
+        }
+    }
+
+    /**
+     * 按 RFC 4180 转义：含逗号、引号或换行时整体加引号，引号双写
+     */
+    static String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return '"' + text.replace("\"", "\"\"") + '"';
+            }
+        }
+        return text;
+    }
+}
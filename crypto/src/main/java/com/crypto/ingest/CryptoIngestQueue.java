@@ -0,0 +1,260 @@
+package com.crypto.ingest;
+
+import com.crypto.dto.BatchSaveResult;
+import com.crypto.entity.CryptoCurrency;
+import com.crypto.service.CryptoCurrencyService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 行情异步写入队列
+ * 1. HTTP 线程只把数据放入有界内存队列，立即返回
+ * 2. 单个写入线程按 symbol 合并，只保留 updateTime 最新的一条
+ * 3. 合并后的数据达到 flush-size 或等待超过 flush-interval-ms 时批量落库
+ * 4. 每批整体入队或整体拒绝，不会只接收其中一部分
+ * 仅在 crypto.ingest.mode=async 时启用
+ */
+@Component
+public class CryptoIngestQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(CryptoIngestQueue.class);
+
+    private final CryptoCurrencyService cryptoService;
+    private final boolean enabled;
+    private final int capacity;
+    private final int flushSize;
+    private final long flushIntervalMs;
+    private final IngestOverflowPolicy overflowPolicy;
+    private final long blockTimeoutMs;
+
+    private final BlockingQueue<CryptoCurrency> queue;
+    // 队列空位：入队前按整批条数获取，写入线程取出后归还；公平模式下等待中的大批量不会被后来的小批量插队
+    private final Semaphore slots;
+    private Thread writer;
+    private volatile boolean running;
+
+    // 统计指标
+    private final AtomicLong receivedRows = new AtomicLong();
+    private final AtomicLong rejectedRows = new AtomicLong();
+    private final AtomicLong coalescedRows = new AtomicLong();
+    private final AtomicLong writtenRows = new AtomicLong();
+    private final AtomicLong failedRows = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private volatile long lastFlushNanos;
+    private volatile long maxFlushNanos;
+
+    private final Timer flushTimer;
+
+    @Autowired
+    public CryptoIngestQueue(CryptoCurrencyService cryptoService,
+                             MeterRegistry registry,
+                             @Value("${crypto.ingest.mode:sync}") String mode,
+                             @Value("${crypto.ingest.queue-capacity:10000}") int capacity,
+                             @Value("${crypto.ingest.flush-size:1000}") int flushSize,
+                             @Value("${crypto.ingest.flush-interval-ms:500}") long flushIntervalMs,
+                             @Value("${crypto.ingest.overflow-policy:REJECT}") IngestOverflowPolicy overflowPolicy,
+                             @Value("${crypto.ingest.block-timeout-ms:2000}") long blockTimeoutMs) {
+        this.cryptoService = cryptoService;
+        this.enabled = "async".equalsIgnoreCase(mode);
+        this.capacity = capacity;
+        this.flushSize = flushSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutMs = blockTimeoutMs;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.slots = new Semaphore(capacity, true);
+
+        // 同步发布到 Micrometer，便于按部署规模调整队列参数
+        Gauge.builder("crypto.ingest.queue.depth", queue, BlockingQueue::size).register(registry);
+        FunctionCounter.builder("crypto.ingest.queue.rows", receivedRows, AtomicLong::get).tag("result", "received").register(registry);
+        FunctionCounter.builder("crypto.ingest.queue.rows", rejectedRows, AtomicLong::get).tag("result", "rejected").register(registry);
+        FunctionCounter.builder("crypto.ingest.queue.rows", coalescedRows, AtomicLong::get).tag("result", "coalesced").register(registry);
+        this.flushTimer = Timer.builder("crypto.ingest.queue.flush").description("异步写入队列单次落库耗时").register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "crypto-ingest-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("行情异步写入队列已启动：capacity={}, flushSize={}, flushIntervalMs={}, overflowPolicy={}",
+                capacity, flushSize, flushIntervalMs, overflowPolicy);
+    }
+
+    /**
+     * 停机时停止接收并把队列中剩余数据全部落库
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 放入一批行情，整批入队或整批拒绝
+     * REJECT 策略下空位不足时立即拒绝；BLOCK 策略下最多等待 block-timeout-ms 直到空位足够容纳整批
+     * @return 是否已整批入队；false 表示触发了背压，整批都未入队
+     * @throws IllegalArgumentException 批量中包含空元素时整批拒绝
+     * @throws IllegalStateException 队列未启用或已停止
+     */
+    public boolean offer(List<CryptoCurrency> batch) throws InterruptedException {
+        if (!running) {
+            throw new IllegalStateException("行情异步写入队列未启用或已停止");
+        }
+        if (batch.contains(null)) {
+            throw new IllegalArgumentException("数据列表中包含空元素");
+        }
+        int size = batch.size();
+        // 超过队列容量的批量永远放不下
+        boolean acquired = size <= capacity && (overflowPolicy == IngestOverflowPolicy.REJECT
+                ? slots.tryAcquire(size)
+                : slots.tryAcquire(size, blockTimeoutMs, TimeUnit.MILLISECONDS));
+        if (!acquired) {
+            rejectedRows.addAndGet(size);
+            return false;
+        }
+        queue.addAll(batch);
+        receivedRows.addAndGet(size);
+        return true;
+    }
+
+    /**
+     * 队列深度、合并率、落库耗时等指标，用于容量评估
+     */
+    public Map<String, Object> getStats() {
+        long flushes = flushCount.get();
+        long written = writtenRows.get() + failedRows.get();
+        long merged = written + coalescedRows.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("overflowPolicy", overflowPolicy);
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", capacity);
+        stats.put("receivedRows", receivedRows.get());
+        stats.put("rejectedRows", rejectedRows.get());
+        stats.put("coalescedRows", coalescedRows.get());
+        stats.put("writtenRows", writtenRows.get());
+        stats.put("failedRows", failedRows.get());
+        // 合并率：写入线程取出的条数 / 实际落库条数，越大说明重复推送越多
+        stats.put("coalescingRatio", written == 0 ? 0.0 : (double) merged / written);
+        stats.put("flushCount", flushes);
+        stats.put("lastFlushMillis", lastFlushNanos / 1_000_000.0);
+        stats.put("avgFlushMillis", flushes == 0 ? 0.0 : totalFlushNanos.get() / 1_000_000.0 / flushes);
+        stats.put("maxFlushMillis", maxFlushNanos / 1_000_000.0);
+        return stats;
+    }
+
+    private void writeLoop() {
+        Map<Object, CryptoCurrency> pending = new HashMap<>();
+        List<CryptoCurrency> drained = new ArrayList<>(flushSize);
+        long firstPendingAt = 0;
+        while (running || !queue.isEmpty()) {
+            try {
+                CryptoCurrency head = queue.poll(pollTimeout(pending, firstPendingAt), TimeUnit.MILLISECONDS);
+                if (head != null) {
+                    if (pending.isEmpty()) {
+                        firstPendingAt = System.currentTimeMillis();
+                    }
+                    drained.add(head);
+                    queue.drainTo(drained, flushSize);
+                    slots.release(drained.size());
+                    for (CryptoCurrency crypto : drained) {
+                        coalesce(pending, crypto);
+                    }
+                    drained.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            boolean due = !pending.isEmpty() && System.currentTimeMillis() - firstPendingAt >= flushIntervalMs;
+            if (pending.size() >= flushSize || due || (!running && !pending.isEmpty())) {
+                flush(pending);
+            }
+        }
+        if (!pending.isEmpty()) {
+            flush(pending);
+        }
+        log.info("行情异步写入队列已停止，累计落库 {} 条", writtenRows.get());
+    }
+
+    private long pollTimeout(Map<Object, CryptoCurrency> pending, long firstPendingAt) {
+        if (pending.isEmpty()) {
+            return flushIntervalMs;
+        }
+        return Math.max(0, flushIntervalMs - (System.currentTimeMillis() - firstPendingAt));
+    }
+
+    /**
+     * 按 symbol 合并，保留 updateTime 最新的一条；symbol 为空的数据原样保留，交给校验环节拒绝
+     */
+    private void coalesce(Map<Object, CryptoCurrency> pending, CryptoCurrency crypto) {
+        Object key = crypto != null && crypto.getSymbol() != null ? crypto.getSymbol() : new Object();
+        CryptoCurrency existing = pending.get(key);
+        if (existing == null) {
+            pending.put(key, crypto);
+            return;
+        }
+        coalescedRows.incrementAndGet();
+        if (existing.getUpdateTime() != null
+                && (crypto.getUpdateTime() == null || crypto.getUpdateTime().isBefore(existing.getUpdateTime()))) {
+            return;
+        }
+        pending.put(key, crypto);
+    }
+
+    private void flush(Map<Object, CryptoCurrency> pending) {
+        List<CryptoCurrency> batch = new ArrayList<>(pending.values());
+        pending.clear();
+        long start = System.nanoTime();
+        try {
+            BatchSaveResult result = cryptoService.batchSaveOrUpdate(batch);
+            writtenRows.addAndGet(result.getSuccessCount());
+            failedRows.addAndGet(result.getFailCount());
+        } catch (Exception e) {
+            failedRows.addAndGet(batch.size());
+            log.error("行情异步落库失败，丢弃 {} 条数据：{}", batch.size(), e.getMessage(), e);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            flushCount.incrementAndGet();
+            totalFlushNanos.addAndGet(elapsed);
+            flushTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            lastFlushNanos = elapsed;
+            if (elapsed > maxFlushNanos) {
+                maxFlushNanos = elapsed;
+            }
+        }
+    }
+}
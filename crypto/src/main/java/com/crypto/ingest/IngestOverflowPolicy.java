@@ -0,0 +1,11 @@
+package com.crypto.ingest;
+
+/**
+ * 写入队列满时的背压策略
+ */
+public enum IngestOverflowPolicy {
+    // 队列剩余容量不足时整批拒绝，调用方收到 429 后自行重试
+    REJECT,
+    // 阻塞 HTTP 线程等待队列腾出足够整批的空间，超时后整批拒绝
+    BLOCK
+}
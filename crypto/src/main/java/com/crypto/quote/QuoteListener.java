@@ -0,0 +1,19 @@
+package com.crypto.quote;
+
+import com.crypto.entity.CryptoCurrency;
+
+import java.util.List;
+
+/**
+ * 行情快照替换后的回调，在发布线程内按版本顺序调用，实现方不应阻塞
+ */
+@FunctionalInterface
+public interface QuoteListener {
+    void onQuotesChanged(QuoteSnapshot snapshot, List<CryptoCurrency> changed);
+
+    /**
+     * 对账时发现币种已被删除，在 onQuotesChanged 之后调用
+     */
+    default void onQuotesRemoved(QuoteSnapshot snapshot, List<String> removed) {
+    }
+}
@@ -0,0 +1,107 @@
+package com.crypto.quote;
+
+import com.crypto.entity.CryptoCurrency;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 全量最新行情的不可变快照
+ * 每次写入提交后整体替换，读取方无需加锁；全量 JSON 在首次请求时序列化一次并缓存
+ * 版本号取自数据库中各行的 quote_version，同样的数据在所有节点上得到同样的版本和 ETag
+ */
+public final class QuoteSnapshot {
+
+    // 快照版本：不大于它的 quote_version 都已提交且包含在快照中；之后提交的行也可能已包含在内
+    private final long version;
+    // 最近一次发现有币种被删除（或从数据库全量加载）时的快照版本，since 不晚于它时只能返回全量
+    private final long removedVersion;
+    // symbol -> 行情（按 symbol 排序，保证输出顺序稳定）
+    private final Map<String, CryptoCurrency> quotes;
+    private volatile String etag;
+    private volatile byte[] json;
+
+    /**
+     * @param committedVersion 读取行数据之前已结束的版本，作为快照版本；小于 0 表示未知，取各行的最大版本
+     */
+    QuoteSnapshot(Map<String, CryptoCurrency> quotes, long committedVersion, long removedVersion) {
+        long version = committedVersion;
+        if (version < 0) {
+            version = 0;
+            for (CryptoCurrency quote : quotes.values()) {
+                version = Math.max(version, quote.getQuoteVersion());
+            }
+        }
+        this.version = version;
+        this.removedVersion = removedVersion;
+        this.quotes = Collections.unmodifiableMap(quotes);
+    }
+
+    /**
+     * 同样的数据，记下在当前版本发现了删除：不晚于当前版本的 since 请求改为返回全量
+     */
+    QuoteSnapshot markRemoved() {
+        return new QuoteSnapshot(quotes, version, version);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    long getRemovedVersion() {
+        return removedVersion;
+    }
+
+    /**
+     * 版本号加内容摘要：删除币种或绕过服务层的修改不改变版本号，但会改变 ETag
+     */
+    public String getETag() {
+        String cached = etag;
+        if (cached == null) {
+            cached = "\"" + version + "-" + Integer.toHexString(quotes.hashCode()) + "\"";
+            etag = cached;
+        }
+        return cached;
+    }
+
+    public Map<String, CryptoCurrency> getQuotes() {
+        return quotes;
+    }
+
+    public CryptoCurrency get(String symbol) {
+        return quotes.get(symbol);
+    }
+
+    /**
+     * 返回版本号大于 since 的行情；之后有币种被删除时返回 null，调用方应改为返回全量
+     * 版本号大于快照版本的行在下一个快照中会再次返回
+     */
+    public List<CryptoCurrency> changedSince(long since) {
+        if (since <= removedVersion) {
+            return null;
+        }
+        List<CryptoCurrency> changed = new ArrayList<>();
+        for (CryptoCurrency quote : quotes.values()) {
+            if (quote.getQuoteVersion() > since) {
+                changed.add(quote);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * 全量列表的 JSON，按快照缓存，同一版本只序列化一次
+     */
+    public byte[] toJson(ObjectMapper objectMapper) throws JsonProcessingException {
+        byte[] cached = json;
+        if (cached == null) {
+            cached = objectMapper.writeValueAsBytes(quotes.values());
+            json = cached;
+        }
+        return cached;
+    }
+}
@@ -0,0 +1,169 @@
+package com.crypto.quote;
+
+import com.crypto.entity.CryptoCurrency;
+import com.crypto.repository.CryptoCurrencyRepository;
+import com.crypto.repository.QuoteVersionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 持有当前行情快照
+ * 读路径直接取 volatile 引用；写路径（事务提交后发布、定时对账）串行生成新快照后整体替换
+ * 写入提交后只加载 quote_version 大于当前快照版本的行（包括其他节点的写入），定时对账按全表重建
+ */
+@Component
+public class QuoteSnapshotHolder {
+
+    private static final Logger log = LoggerFactory.getLogger(QuoteSnapshotHolder.class);
+
+    private final CryptoCurrencyRepository cryptoRepository;
+    private final QuoteVersionRepository quoteVersionRepository;
+    private final long leaseTimeoutMs;
+    private final List<QuoteListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile QuoteSnapshot current;
+
+    @Autowired
+    public QuoteSnapshotHolder(CryptoCurrencyRepository cryptoRepository, QuoteVersionRepository quoteVersionRepository,
+                               @Value("${crypto.quote.version-lease-timeout-ms:300000}") long leaseTimeoutMs) {
+        this.cryptoRepository = cryptoRepository;
+        this.quoteVersionRepository = quoteVersionRepository;
+        this.leaseTimeoutMs = leaseTimeoutMs;
+    }
+
+    /**
+     * 当前快照，首次访问时从数据库加载全量
+     */
+    public QuoteSnapshot current() {
+        QuoteSnapshot snapshot = current;
+        if (snapshot == null) {
+            synchronized (this) {
+                if (current == null) {
+                    // 加载前不知道哪些币种已被删除：客户端携带更早的 since 时先返回一次全量
+                    long committed = committedVersion();
+                    current = new QuoteSnapshot(toMap(cryptoRepository.findAll()), committed, -1).markRemoved();
+                    log.info("行情快照已加载：{} 个币种，版本 {}", current.getQuotes().size(), current.getVersion());
+                }
+                snapshot = current;
+            }
+        }
+        return snapshot;
+    }
+
+    public void addListener(QuoteListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 写入事务结束后调用：加载版本号大于当前快照的行（含 COALESCE 合并后的字段），生成新快照
+     * 版本分配与写入不在同一事务，提交顺序可能与版本顺序不同：快照版本只推进到已结束的版本，
+     * 之后提交的行每次都重新加载，先提交的较大版本不会让较小版本的写入被跳过
+     */
+    public synchronized void publish() {
+        QuoteSnapshot base = current();
+        long committed = committedVersion();
+        List<CryptoCurrency> rows = cryptoRepository.findByQuoteVersionGreaterThan(base.getVersion());
+        // 重新加载的行只把内容有变化的通知给监听方
+        List<CryptoCurrency> changed = new ArrayList<>();
+        for (CryptoCurrency row : rows) {
+            if (!row.equals(base.get(row.getSymbol()))) {
+                changed.add(row);
+            }
+        }
+        if (changed.isEmpty() && committed <= base.getVersion()) {
+            return;
+        }
+        Map<String, CryptoCurrency> quotes = new TreeMap<>(base.getQuotes());
+        for (CryptoCurrency row : changed) {
+            quotes.put(row.getSymbol(), row);
+        }
+        replace(new QuoteSnapshot(quotes, advance(committed, base), base.getRemovedVersion()), changed, List.of());
+    }
+
+    /**
+     * 定时与数据库对账：按全表重建快照，去掉已删除的币种，覆盖绕过服务层的修改
+     */
+    @Scheduled(fixedDelayString = "${crypto.quote.refresh-interval-ms:30000}")
+    public void refresh() {
+        if (current != null) {
+            rebuild();
+        }
+    }
+
+    private synchronized void rebuild() {
+        int expired = quoteVersionRepository.expire(leaseTimeoutMs);
+        if (expired > 0) {
+            log.warn("行情快照对账：清理 {} 个超时未结束的行情版本租约", expired);
+        }
+        QuoteSnapshot base = current;
+        long committed = committedVersion();
+        Map<String, CryptoCurrency> quotes = toMap(cryptoRepository.findAll());
+        List<CryptoCurrency> changed = new ArrayList<>();
+        for (CryptoCurrency row : quotes.values()) {
+            if (!row.equals(base.get(row.getSymbol()))) {
+                changed.add(row);
+            }
+        }
+        List<String> removed = new ArrayList<>();
+        for (String symbol : base.getQuotes().keySet()) {
+            if (!quotes.containsKey(symbol)) {
+                removed.add(symbol);
+            }
+        }
+        // 没有任何变化时保留原快照，ETag 不变
+        if (changed.isEmpty() && removed.isEmpty() && committed <= base.getVersion()) {
+            return;
+        }
+        QuoteSnapshot next = new QuoteSnapshot(quotes, advance(committed, base), base.getRemovedVersion());
+        if (!removed.isEmpty()) {
+            // 增量无法表达删除：不晚于当前版本的 since 请求改为返回全量
+            next = next.markRemoved();
+            log.info("行情快照对账：{} 个币种已删除", removed.size());
+        }
+        replace(next, changed, removed);
+    }
+
+    private void replace(QuoteSnapshot next, List<CryptoCurrency> changed, List<String> removed) {
+        current = next;
+        for (QuoteListener listener : listeners) {
+            try {
+                if (!changed.isEmpty()) {
+                    listener.onQuotesChanged(next, changed);
+                }
+                if (!removed.isEmpty()) {
+                    listener.onQuotesRemoved(next, removed);
+                }
+            } catch (RuntimeException e) {
+                log.error("行情变化通知失败：{}", e.getMessage(), e);
+            }
+        }
+    }
+
+    // 先于行数据读取：不大于它的版本都已结束，随后读到的行一定包含这些写入；计数器不存在时为 -1
+    private long committedVersion() {
+        Long committed = quoteVersionRepository.committedVersion();
+        return committed != null ? committed : -1;
+    }
+
+    // 快照版本不回退
+    private static long advance(long committed, QuoteSnapshot base) {
+        return committed < 0 ? -1 : Math.max(committed, base.getVersion());
+    }
+
+    private static Map<String, CryptoCurrency> toMap(List<CryptoCurrency> rows) {
+        Map<String, CryptoCurrency> quotes = new TreeMap<>();
+        for (CryptoCurrency row : rows) {
+            quotes.put(row.getSymbol(), row);
+        }
+        return quotes;
+    }
+}
@@ -0,0 +1,302 @@
+package com.crypto.quote;
+
+import com.crypto.entity.CryptoCurrency;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 行情增量推送（SSE）
+ * 1. 每个订阅者可指定关注的 symbol，未指定则推送全部
+ * 2. 每个订阅者只保留按 symbol 合并后的待发送行情，慢消费者不会无限堆积
+ * 3. 事件 id 为行情快照版本，断线重连时通过 Last-Event-ID 只补发之后的变化
+ * 4. 对账发现币种被删除时推送 remove 事件（data 为被删除的 symbol 列表）
+ * 5. 单次发送超过 send-timeout-ms 的订阅者被断开，卡住的发送线程不再计入发送线程数，其他订阅者不受影响
+ */
+@Component
+public class QuoteStreamService implements QuoteListener {
+
+    private static final Logger log = LoggerFactory.getLogger(QuoteStreamService.class);
+
+    private final QuoteSnapshotHolder quoteSnapshotHolder;
+    private final long timeoutMs;
+    private final long sendTimeoutNanos;
+    private final int dispatchThreads;
+    private final ThreadPoolExecutor dispatcher;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    // 已断开但发送仍未返回的订阅者数，发送线程池按此扩容
+    private int stuckSends;
+
+    @Autowired
+    public QuoteStreamService(QuoteSnapshotHolder quoteSnapshotHolder,
+                              @Value("${crypto.quote.stream.timeout-ms:1800000}") long timeoutMs,
+                              @Value("${crypto.quote.stream.dispatch-threads:8}") int dispatchThreads,
+                              @Value("${crypto.quote.stream.send-timeout-ms:5000}") long sendTimeoutMs) {
+        this.quoteSnapshotHolder = quoteSnapshotHolder;
+        this.timeoutMs = timeoutMs;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        this.dispatchThreads = dispatchThreads;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.dispatcher = new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "quote-stream-dispatcher-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        quoteSnapshotHolder.addListener(this);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        dispatcher.shutdownNow();
+    }
+
+    /**
+     * 新建订阅
+     * @param symbols 关注的 symbol，为空表示全部
+     * @param lastEventId 客户端已收到的最后版本，为空或之后有币种被删除时先推送一次全量
+     */
+    public SseEmitter subscribe(Set<String> symbols, Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, symbols == null || symbols.isEmpty() ? null : symbols);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        // 先登记再取快照：登记之后的变化都会进入 pending，不会漏掉
+        subscribers.add(subscriber);
+        QuoteSnapshot snapshot = quoteSnapshotHolder.current();
+        List<CryptoCurrency> initial = lastEventId != null ? snapshot.changedSince(lastEventId) : null;
+        subscriber.offer(snapshot.getVersion(), initial != null ? initial : snapshot.getQuotes().values(), false);
+        schedule(subscriber);
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void onQuotesChanged(QuoteSnapshot snapshot, List<CryptoCurrency> changed) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.offer(snapshot.getVersion(), changed, true)) {
+                schedule(subscriber);
+            }
+        }
+    }
+
+    @Override
+    public void onQuotesRemoved(QuoteSnapshot snapshot, List<String> removed) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.offerRemoved(snapshot.getVersion(), removed)) {
+                schedule(subscriber);
+            }
+        }
+    }
+
+    /**
+     * 定时心跳，及时发现已断开的连接
+     */
+    @Scheduled(fixedDelayString = "${crypto.quote.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.sending.compareAndSet(false, true)) {
+                dispatcher.execute(() -> {
+                    try {
+                        send(subscriber, SseEmitter.event().comment("ping"));
+                    } catch (IOException | IllegalStateException e) {
+                        subscribers.remove(subscriber);
+                    } finally {
+                        subscriber.sending.set(false);
+                        if (subscriber.hasPending()) {
+                            schedule(subscriber);
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * 断开单次发送超时的订阅者：不再为其安排发送，发送线程池临时扩容一个线程，发送返回后再关闭连接、恢复线程数
+     * 发送线程阻塞在套接字写入上无法中断，直到客户端读取或容器的写超时
+     */
+    @Scheduled(fixedDelayString = "${crypto.quote.stream.send-timeout-ms:5000}")
+    public void closeSlowSubscribers() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            synchronized (subscriber) {
+                if (subscriber.sendStarted == 0 || subscriber.slow || now - subscriber.sendStarted < sendTimeoutNanos) {
+                    continue;
+                }
+                subscriber.slow = true;
+            }
+            subscribers.remove(subscriber);
+            resizeDispatcher(1);
+            log.info("行情推送客户端接收过慢，已断开");
+        }
+    }
+
+    private void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) throws IOException {
+        synchronized (subscriber) {
+            if (subscriber.slow) {
+                throw new IllegalStateException("订阅者接收过慢，已断开");
+            }
+            subscriber.sendStarted = System.nanoTime();
+        }
+        boolean slow;
+        try {
+            subscriber.emitter.send(event);
+        } finally {
+            synchronized (subscriber) {
+                subscriber.sendStarted = 0;
+                slow = subscriber.slow;
+            }
+        }
+        if (slow) {
+            resizeDispatcher(-1);
+            subscriber.emitter.completeWithError(new TimeoutException("行情推送发送超时"));
+            throw new IllegalStateException("订阅者接收过慢，已断开");
+        }
+    }
+
+    // 先扩大最大线程数再扩大核心线程数，缩小时相反
+    private synchronized void resizeDispatcher(int delta) {
+        stuckSends += delta;
+        int size = dispatchThreads + stuckSends;
+        if (delta > 0) {
+            dispatcher.setMaximumPoolSize(size);
+            dispatcher.setCorePoolSize(size);
+        } else {
+            dispatcher.setCorePoolSize(size);
+            dispatcher.setMaximumPoolSize(size);
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.sending.compareAndSet(false, true)) {
+            dispatcher.execute(() -> drain(subscriber));
+        }
+    }
+
+    /**
+     * 同一订阅者同时只有一个发送任务；发送期间到达的行情合并进 pending，发送完成后一次性补发
+     */
+    private void drain(Subscriber subscriber) {
+        try {
+            while (true) {
+                List<CryptoCurrency> batch;
+                List<String> removed;
+                long version;
+                synchronized (subscriber) {
+                    if (subscriber.pending.isEmpty() && subscriber.removed.isEmpty()) {
+                        break;
+                    }
+                    batch = new ArrayList<>(subscriber.pending.values());
+                    removed = new ArrayList<>(subscriber.removed);
+                    version = subscriber.pendingVersion;
+                    subscriber.pending.clear();
+                    subscriber.removed.clear();
+                }
+                if (!batch.isEmpty()) {
+                    send(subscriber, SseEmitter.event().id(String.valueOf(version)).name("quotes").data(batch));
+                }
+                if (!removed.isEmpty()) {
+                    send(subscriber, SseEmitter.event().id(String.valueOf(version)).name("remove").data(removed));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            subscribers.remove(subscriber);
+            log.debug("行情推送连接已断开：{}", e.getMessage());
+            return;
+        } finally {
+            subscriber.sending.set(false);
+        }
+        // 释放发送权之后可能又有新行情进来
+        if (subscriber.hasPending()) {
+            schedule(subscriber);
+        }
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final Set<String> symbols;
+        private final Map<String, CryptoCurrency> pending = new LinkedHashMap<>();
+        // 待推送的已删除 symbol
+        private final Set<String> removed = new LinkedHashSet<>();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private long pendingVersion;
+        // 当前发送开始的时间，0 表示没有在发送
+        private long sendStarted;
+        // 发送超时已被断开
+        private boolean slow;
+
+        private Subscriber(SseEmitter emitter, Set<String> symbols) {
+            this.emitter = emitter;
+            this.symbols = symbols;
+        }
+
+        /**
+         * 合并待发送行情
+         * @param overwrite 为 false 时不覆盖已有的（更新的）待发送行情
+         * @return 是否有新的待发送数据
+         */
+        private synchronized boolean offer(long version, Collection<CryptoCurrency> quotes, boolean overwrite) {
+            boolean added = false;
+            for (CryptoCurrency quote : quotes) {
+                if (symbols != null && !symbols.contains(quote.getSymbol())) {
+                    continue;
+                }
+                if (overwrite) {
+                    pending.put(quote.getSymbol(), quote);
+                    removed.remove(quote.getSymbol());
+                } else {
+                    pending.putIfAbsent(quote.getSymbol(), quote);
+                }
+                added = true;
+            }
+            pendingVersion = Math.max(pendingVersion, version);
+            return added;
+        }
+
+        private synchronized boolean offerRemoved(long version, Collection<String> symbols) {
+            boolean added = false;
+            for (String symbol : symbols) {
+                if (this.symbols != null && !this.symbols.contains(symbol)) {
+                    continue;
+                }
+                pending.remove(symbol);
+                removed.add(symbol);
+                added = true;
+            }
+            pendingVersion = Math.max(pendingVersion, version);
+            return added;
+        }
+
+        private synchronized boolean hasPending() {
+            return !pending.isEmpty() || !removed.isEmpty();
+        }
+    }
+}
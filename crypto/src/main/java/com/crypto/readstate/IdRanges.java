@@ -0,0 +1,95 @@
+package com.crypto.readstate;
+
+import org.roaringbitmap.RelativeRangeConsumer;
+import org.roaringbitmap.longlong.PeekableLongIterator;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 把位图拆成连续 id 区间，用于生成 id BETWEEN ... / id IN (...) 条件
+ * 批量标记已读后已读集合通常只有少量区间，按主键范围扫描即可
+ */
+public final class IdRanges {
+
+    // 每次按容器遍历的 id 跨度，遍历完一段后检查区间数，超出上限时不再继续
+    private static final int WINDOW = 1 << 20;
+
+    private IdRanges() {
+    }
+
+    /**
+     * @return 按升序排列的 [起始, 结束] 闭区间；区间数超过 maxRuns 时返回 null
+     */
+    public static List<long[]> of(Roaring64Bitmap bitmap, int maxRuns) {
+        RunCollector runs = new RunCollector(maxRuns);
+        if (bitmap.isEmpty()) {
+            return runs.runs;
+        }
+        long last = bitmap.last();
+        long from = bitmap.first();
+        while (true) {
+            int length = (int) Math.min(WINDOW, last - from + 1);
+            runs.base = from;
+            bitmap.forAllInRange(from, length, runs);
+            if (runs.overflow) {
+                return null;
+            }
+            long next = from + length;
+            if (next > last) {
+                return runs.runs;
+            }
+            // 跳过两段之间的空白
+            PeekableLongIterator iterator = bitmap.getLongIteratorFrom(next);
+            if (!iterator.hasNext()) {
+                return runs.runs;
+            }
+            from = iterator.peekNext();
+        }
+    }
+
+    private static final class RunCollector implements RelativeRangeConsumer {
+        private final List<long[]> runs = new ArrayList<>();
+        private final int maxRuns;
+        private long base;
+        private boolean overflow;
+
+        private RunCollector(int maxRuns) {
+            this.maxRuns = maxRuns;
+        }
+
+        @Override
+        public void acceptPresent(int relativePos) {
+            add(base + relativePos, base + relativePos);
+        }
+
+        @Override
+        public void acceptAbsent(int relativePos) {
+        }
+
+        @Override
+        public void acceptAllPresent(int relativeFrom, int relativeTo) {
+            add(base + relativeFrom, base + relativeTo - 1);
+        }
+
+        @Override
+        public void acceptAllAbsent(int relativeFrom, int relativeTo) {
+        }
+
+        // 与上一个区间相接时合并（跨段的区间也会被合并）
+        private void add(long start, long end) {
+            if (overflow) {
+                return;
+            }
+            long[] previous = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+            if (previous != null && previous[1] + 1 == start) {
+                previous[1] = end;
+            } else if (runs.size() == maxRuns) {
+                overflow = true;
+            } else {
+                runs.add(new long[]{start, end});
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.crypto.readstate;
+
+import com.crypto.repository.MessageArchiveSegmentRepository;
+import com.crypto.repository.MessageJdbcRepository;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * 全部消息 id 的内存位图，与用户已读位图做 ANDNOT 即得到未读集合
+ * 写时复制：读路径直接取 volatile 引用，返回的位图不可修改
+ * 消息被归档删除后，本节点直接移除；其他节点发现新的已删除归档分段时整体重新加载
+ */
+@Component
+public class MessageIdIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageIdIndex.class);
+
+    private final MessageJdbcRepository messageJdbcRepository;
+    private final MessageArchiveSegmentRepository archiveSegmentRepository;
+    private volatile Roaring64Bitmap ids;
+    // 加载位图时已生效的最新归档分段
+    private volatile long purgedSegmentId;
+
+    @Autowired
+    public MessageIdIndex(MessageJdbcRepository messageJdbcRepository,
+                          MessageArchiveSegmentRepository archiveSegmentRepository) {
+        this.messageJdbcRepository = messageJdbcRepository;
+        this.archiveSegmentRepository = archiveSegmentRepository;
+    }
+
+    /**
+     * 当前全部消息 id，首次访问时从数据库流式加载
+     */
+    public Roaring64Bitmap current() {
+        Roaring64Bitmap snapshot = ids;
+        if (snapshot == null) {
+            synchronized (this) {
+                if (ids == null) {
+                    ids = load();
+                }
+                snapshot = ids;
+            }
+        }
+        return snapshot;
+    }
+
+    private Roaring64Bitmap load() {
+        purgedSegmentId = archiveSegmentRepository.findLatestPurgedId();
+        Roaring64Bitmap loaded = new Roaring64Bitmap();
+        messageJdbcRepository.forEachIdAfter(0, loaded::addLong);
+        loaded.runOptimize();
+        log.info("消息 id 位图已加载：{} 条，{} 字节", loaded.getLongCardinality(), loaded.getSizeInBytes());
+        return loaded;
+    }
+
+    /**
+     * 本节点归档删除消息后移除对应 id，并记为已处理该分段，避免再次整体加载
+     */
+    public synchronized void remove(Roaring64Bitmap removedIds, long segmentId) {
+        if (ids != null) {
+            ids = Roaring64Bitmap.andNot(ids, removedIds);
+            purgedSegmentId = Math.max(purgedSegmentId, segmentId);
+        }
+    }
+
+    /**
+     * 写入事务提交后登记新消息
+     */
+    public synchronized void add(Collection<Long> newIds) {
+        if (ids == null || newIds.isEmpty()) {
+            return;
+        }
+        Roaring64Bitmap next = ids.clone();
+        for (Long id : newIds) {
+            next.addLong(id);
+        }
+        ids = next;
+    }
+
+    /**
+     * 定时补齐其他节点写入的新消息
+     */
+    @Scheduled(fixedDelayString = "${crypto.read-state.id-refresh-interval-ms:30000}")
+    public void refresh() {
+        Roaring64Bitmap snapshot = ids;
+        if (snapshot == null) {
+            return;
+        }
+        if (archiveSegmentRepository.findLatestPurgedId() > purgedSegmentId) {
+            Roaring64Bitmap reloaded = load();
+            synchronized (this) {
+                ids = reloaded;
+            }
+            return;
+        }
+        Roaring64Bitmap added = new Roaring64Bitmap();
+        messageJdbcRepository.forEachIdAfter(snapshot.isEmpty() ? 0 : snapshot.last(), added::addLong);
+        if (!added.isEmpty()) {
+            synchronized (this) {
+                ids = Roaring64Bitmap.or(ids, added);
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.crypto.readstate;
+
+import com.crypto.repository.MessageJdbcRepository;
+import com.crypto.repository.MessageReadStateRepository;
+import org.roaringbitmap.RoaringBitmap;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 按用户的消息阅读状态
+ * 1. 每个用户的已读消息 id 是一个 64 位 Roaring 压缩位图，持久化为 message_read_state 的一行
+ * 2. 本地缓存位图快照，超过 cache-ttl-ms 后按版本号判断是否需要重新加载；最多缓存 cache-max-users 个用户，超出时淘汰最久未访问的
+ * 3. 修改时复制位图、写库成功后再替换缓存；版本号冲突（其他节点已修改）时重新加载后重试
+ *    同一用户的修改串行执行，锁按用户标识分段，数量固定，不随请求中的用户标识增长
+ * 4. 默认用户即旧的全局阅读状态：修改写库后同步到 messages.is_read，直接读该列的报表与导出保持一致
+ */
+@Component
+public class ReadStateStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadStateStore.class);
+
+    private static final int MAX_USER_ID_LENGTH = 64;
+    private static final int MAX_UPDATE_ATTEMPTS = 5;
+    private static final int LOCK_STRIPES = 64;
+    // 序列化格式：首字节为格式标记，之后是 Roaring64Bitmap；旧格式是 32 位 RoaringBitmap，首字节是其 cookie（0x3A / 0x3B）
+    private static final byte FORMAT_64 = 2;
+
+    private final MessageReadStateRepository readStateRepository;
+    private final MessageJdbcRepository messageJdbcRepository;
+    private final String defaultUser;
+    private final long cacheTtlMs;
+    // 按访问顺序排列，超出上限时淘汰最久未访问的用户；访问需在 cache 上同步
+    private final LinkedHashMap<String, CachedState> cache;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    @Autowired
+    public ReadStateStore(MessageReadStateRepository readStateRepository,
+                          MessageJdbcRepository messageJdbcRepository,
+                          @Value("${crypto.read-state.default-user:default}") String defaultUser,
+                          @Value("${crypto.read-state.cache-ttl-ms:5000}") long cacheTtlMs,
+                          @Value("${crypto.read-state.cache-max-users:1000}") int cacheMaxUsers) {
+        this.readStateRepository = readStateRepository;
+        this.messageJdbcRepository = messageJdbcRepository;
+        this.defaultUser = defaultUser;
+        this.cacheTtlMs = cacheTtlMs;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedState> eldest) {
+                return size() > cacheMaxUsers;
+            }
+        };
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * 未携带用户标识的请求归到默认用户
+     * @throws IllegalArgumentException 用户标识过长
+     */
+    public String resolveUser(String userId) {
+        if (userId == null || userId.isBlank()) {
+            return defaultUser;
+        }
+        String trimmed = userId.trim();
+        if (trimmed.length() > MAX_USER_ID_LENGTH) {
+            throw new IllegalArgumentException("用户标识长度不能超过 " + MAX_USER_ID_LENGTH);
+        }
+        return trimmed;
+    }
+
+    /**
+     * 用户已读消息 id 的只读快照，调用方不得修改
+     */
+    public Roaring64Bitmap get(String userId) {
+        return state(userId).readIds;
+    }
+
+    /**
+     * 修改用户阅读状态
+     * @param change 在位图副本上执行修改，返回是否有变化；没有变化时不写库
+     * @return 修改后的位图快照
+     */
+    public Roaring64Bitmap update(String userId, Predicate<Roaring64Bitmap> change) {
+        synchronized (lockFor(userId)) {
+            CachedState current = state(userId);
+            for (int attempt = 1; attempt <= MAX_UPDATE_ATTEMPTS; attempt++) {
+                Roaring64Bitmap next = current.readIds.clone();
+                if (!change.test(next)) {
+                    return current.readIds;
+                }
+                next.runOptimize();
+                byte[] bytes = serialize(next);
+                boolean saved = current.version == 0
+                        ? readStateRepository.insert(userId, bytes)
+                        : readStateRepository.compareAndSet(userId, bytes, current.version);
+                if (saved) {
+                    cachePut(userId, new CachedState(next, current.version + 1));
+                    if (defaultUser.equals(userId)) {
+                        syncLegacyFlags(current.readIds, next);
+                    }
+                    return next;
+                }
+                log.debug("用户 {} 的阅读状态已被其他节点修改，重新加载后重试（第 {} 次）", userId, attempt);
+                current = load(userId);
+            }
+            throw new ConcurrencyFailureException("用户 " + userId + " 的阅读状态并发修改冲突，请稍后重试");
+        }
+    }
+
+    private CachedState state(String userId) {
+        CachedState cached;
+        synchronized (cache) {
+            cached = cache.get(userId);
+        }
+        if (cached != null && System.currentTimeMillis() - cached.checkedAt < cacheTtlMs) {
+            return cached;
+        }
+        if (cached != null) {
+            // 只比较版本号，未变化时继续使用缓存的位图
+            Long version = readStateRepository.findVersion(userId);
+            if (version != null && version == cached.version) {
+                CachedState refreshed = new CachedState(cached.readIds, cached.version);
+                cachePut(userId, refreshed);
+                return refreshed;
+            }
+        }
+        return load(userId);
+    }
+
+    private CachedState load(String userId) {
+        MessageReadStateRepository.StoredState stored = readStateRepository.find(userId);
+        CachedState loaded;
+        if (stored != null) {
+            loaded = new CachedState(deserialize(stored.getReadIds()), stored.getVersion());
+        } else {
+            Roaring64Bitmap initial = new Roaring64Bitmap();
+            if (defaultUser.equals(userId)) {
+                // 默认用户继承旧的全局 is_read 标记，首次修改时才写入 message_read_state
+                messageJdbcRepository.forEachLegacyReadId(initial::addLong);
+                initial.runOptimize();
+            }
+            loaded = new CachedState(initial, 0);
+        }
+        cachePut(userId, loaded);
+        return loaded;
+    }
+
+    /**
+     * 默认用户的阅读状态变化同步到 messages.is_read，按连续 id 区间分批更新
+     * 位图已写库，同步失败只记录日志，下次修改时只同步新的变化
+     */
+    private void syncLegacyFlags(Roaring64Bitmap previous, Roaring64Bitmap next) {
+        try {
+            List<long[]> read = runsOf(Roaring64Bitmap.andNot(next, previous));
+            List<long[]> unread = runsOf(Roaring64Bitmap.andNot(previous, next));
+            if (!read.isEmpty()) {
+                messageJdbcRepository.updateLegacyReadFlag(read, true);
+            }
+            if (!unread.isEmpty()) {
+                messageJdbcRepository.updateLegacyReadFlag(unread, false);
+            }
+        } catch (RuntimeException e) {
+            log.error("同步默认用户的 is_read 标记失败：{}", e.getMessage(), e);
+        }
+    }
+
+    private static List<long[]> runsOf(Roaring64Bitmap ids) {
+        ids.runOptimize();
+        return IdRanges.of(ids, Integer.MAX_VALUE);
+    }
+
+    private void cachePut(String userId, CachedState state) {
+        synchronized (cache) {
+            cache.put(userId, state);
+        }
+    }
+
+    private Object lockFor(String userId) {
+        return locks[Math.floorMod(userId.hashCode(), LOCK_STRIPES)];
+    }
+
+    static byte[] serialize(Roaring64Bitmap bitmap) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + Math.toIntExact(bitmap.serializedSizeInBytes()));
+        buffer.put(FORMAT_64);
+        try {
+            bitmap.serialize(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("阅读状态位图序列化失败", e);
+        }
+        return buffer.array();
+    }
+
+    static Roaring64Bitmap deserialize(byte[] bytes) {
+        try {
+            if (bytes.length > 0 && bytes[0] == FORMAT_64) {
+                Roaring64Bitmap bitmap = new Roaring64Bitmap();
+                bitmap.deserialize(ByteBuffer.wrap(bytes, 1, bytes.length - 1).slice());
+                return bitmap;
+            }
+            // 旧格式：按连续区间转换，下次修改时以新格式写回
+            RoaringBitmap legacy = new RoaringBitmap();
+            legacy.deserialize(ByteBuffer.wrap(bytes));
+            Roaring64Bitmap bitmap = new Roaring64Bitmap();
+            long start = legacy.isEmpty() ? -1 : Integer.toUnsignedLong(legacy.first());
+            while (start >= 0) {
+                long end = legacy.nextAbsentValue((int) start);
+                bitmap.addRange(start, end);
+                start = end > 0xFFFFFFFFL ? -1 : legacy.nextValue((int) end);
+            }
+            bitmap.runOptimize();
+            return bitmap;
+        } catch (IOException e) {
+            throw new UncheckedIOException("阅读状态位图损坏", e);
+        }
+    }
+
+    private static final class CachedState {
+        private final Roaring64Bitmap readIds;
+        private final long version;
+        private final long checkedAt = System.currentTimeMillis();
+
+        private CachedState(Roaring64Bitmap readIds, long version) {
+            this.readIds = readIds;
+            this.version = version;
+        }
+    }
+}
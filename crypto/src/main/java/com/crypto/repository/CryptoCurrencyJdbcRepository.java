@@ -0,0 +1,79 @@
+package com.crypto.repository;
+
+import com.crypto.entity.CryptoCurrency;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * 虚拟货币行情的 JDBC 批量写入
+ * 基于 symbol 唯一索引执行 INSERT ... ON DUPLICATE KEY UPDATE，
+ * 配合连接串中的 rewriteBatchedStatements=true，每个批次只需一次数据库往返
+ */
+@Repository
+public class CryptoCurrencyJdbcRepository {
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO crypto_currency (symbol, name, usd_price, cny_price, change_24h, volume_24h, market_cap, update_time, quote_version) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE name = VALUES(name), usd_price = VALUES(usd_price), " +
+            "cny_price = COALESCE(VALUES(cny_price), cny_price), " +
+            "change_24h = COALESCE(VALUES(change_24h), change_24h), " +
+            "volume_24h = COALESCE(VALUES(volume_24h), volume_24h), " +
+            "market_cap = COALESCE(VALUES(market_cap), market_cap), " +
+            "update_time = VALUES(update_time), quote_version = VALUES(quote_version)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public CryptoCurrencyJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 按 batchSize 分批 upsert
+     * 某个批次失败时逐行重试该批次，定位失败行并通过 onRowFailure 回调上报，其余行照常写入
+     * @param quoteVersion 本批分配的行情版本，写入每一行
+     * @return 数据库往返次数
+     */
+    public int batchUpsert(List<CryptoCurrency> rows, long quoteVersion, int batchSize,
+                           BiConsumer<CryptoCurrency, DataAccessException> onRowFailure) {
+        int roundTrips = 0;
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            List<CryptoCurrency> chunk = rows.subList(from, Math.min(from + batchSize, rows.size()));
+            roundTrips++;
+            try {
+                jdbcTemplate.batchUpdate(UPSERT_SQL, chunk, chunk.size(), (ps, row) -> bind(ps, row, quoteVersion));
+            } catch (DataAccessException batchError) {
+                for (CryptoCurrency row : chunk) {
+                    roundTrips++;
+                    try {
+                        jdbcTemplate.update(UPSERT_SQL, ps -> bind(ps, row, quoteVersion));
+                    } catch (DataAccessException rowError) {
+                        onRowFailure.accept(row, rowError);
+                    }
+                }
+            }
+        }
+        return roundTrips;
+    }
+
+    private static void bind(PreparedStatement ps, CryptoCurrency crypto, long quoteVersion) throws SQLException {
+        ps.setString(1, crypto.getSymbol());
+        ps.setString(2, crypto.getName());
+        ps.setBigDecimal(3, crypto.getUsdPrice());
+        ps.setBigDecimal(4, crypto.getCnyPrice());
+        ps.setBigDecimal(5, crypto.getChange24h());
+        ps.setBigDecimal(6, crypto.getVolume24h());
+        ps.setBigDecimal(7, crypto.getMarketCap());
+        ps.setTimestamp(8, Timestamp.valueOf(crypto.getUpdateTime()));
+        ps.setLong(9, quoteVersion);
+    }
+}
@@ -4,10 +4,18 @@ import com.crypto.entity.CryptoCurrency;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CryptoCurrencyRepository extends JpaRepository<CryptoCurrency, Long> {
     // 根据货币符号查询
     Optional<CryptoCurrency> findBySymbol(String symbol);
+
+    // 根据一组货币符号查询
+    List<CryptoCurrency> findBySymbolIn(Collection<String> symbols);
+
+    // 行情版本大于 version 的行（走 quote_version 索引，用于快照增量加载）
+    List<CryptoCurrency> findByQuoteVersionGreaterThan(long version);
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package com.crypto.repository;
+
+import com.crypto.archive.ArchiveSegment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 消息归档分段（message_archive_segment 表）
+ */
+@Repository
+public class MessageArchiveSegmentRepository {
+
+    private static final RowMapper<ArchiveSegment> ROW_MAPPER = (rs, rowNum) -> {
+        ArchiveSegment segment = new ArchiveSegment();
+        segment.setId(rs.getLong("id"));
+        segment.setPeriod(rs.getString("period"));
+        segment.setFilePath(rs.getString("file_path"));
+        segment.setStatus(rs.getString("status"));
+        segment.setMessageCount(rs.getLong("message_count"));
+        segment.setMinId(rs.getObject("min_id", Long.class));
+        segment.setMaxId(rs.getObject("max_id", Long.class));
+        segment.setStartTime(rs.getTimestamp("start_time").toLocalDateTime());
+        segment.setEndTime(rs.getTimestamp("end_time").toLocalDateTime());
+        segment.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        return segment;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public MessageArchiveSegmentRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public long insert(ArchiveSegment segment) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO message_archive_segment (period, file_path, status, message_count, min_id, max_id, " +
+                    "start_time, end_time, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, NOW(6), NOW(6))",
+                    Statement.RETURN_GENERATED_KEYS);
+            ps.setString(1, segment.getPeriod());
+            ps.setString(2, segment.getFilePath());
+            ps.setString(3, segment.getStatus());
+            ps.setLong(4, segment.getMessageCount());
+            ps.setObject(5, segment.getMinId());
+            ps.setObject(6, segment.getMaxId());
+            ps.setTimestamp(7, Timestamp.valueOf(segment.getStartTime()));
+            ps.setTimestamp(8, Timestamp.valueOf(segment.getEndTime()));
+            return ps;
+        }, keyHolder);
+        return keyHolder.getKey().longValue();
+    }
+
+    public void updateStatus(long id, String status) {
+        jdbcTemplate.update("UPDATE message_archive_segment SET status = ?, updated_at = NOW(6) WHERE id = ?", status, id);
+    }
+
+    public List<ArchiveSegment> findAll() {
+        return jdbcTemplate.query("SELECT * FROM message_archive_segment ORDER BY start_time, id", ROW_MAPPER);
+    }
+
+    public List<ArchiveSegment> findByStatus(String status) {
+        return jdbcTemplate.query("SELECT * FROM message_archive_segment WHERE status = ? ORDER BY id", ROW_MAPPER, status);
+    }
+
+    /**
+     * 与时间范围 [start, end) 有交集的分段，参数为空表示不限
+     */
+    public List<ArchiveSegment> findOverlapping(LocalDateTime start, LocalDateTime end) {
+        return jdbcTemplate.query("SELECT * FROM message_archive_segment WHERE start_time < ? AND end_time > ? ORDER BY start_time DESC, id DESC",
+                ROW_MAPPER,
+                Timestamp.valueOf(end != null ? end : LocalDateTime.of(9999, 1, 1, 0, 0)),
+                Timestamp.valueOf(start != null ? start : LocalDateTime.of(1970, 1, 1, 0, 0)));
+    }
+
+    public List<ArchiveSegment> findContainingId(long messageId) {
+        return jdbcTemplate.query("SELECT * FROM message_archive_segment WHERE min_id <= ? AND max_id >= ?",
+                ROW_MAPPER, messageId, messageId);
+    }
+
+    /**
+     * id 大于 afterId 的已删除消息的分段，按 id 升序
+     */
+    public List<ArchiveSegment> findPurgedAfter(long afterId) {
+        return jdbcTemplate.query("SELECT * FROM message_archive_segment WHERE status = 'PURGED' AND id > ? ORDER BY id",
+                ROW_MAPPER, afterId);
+    }
+
+    /**
+     * 已删除消息的最新分段 id，其他节点据此发现需要重新加载消息 id 位图
+     */
+    public long findLatestPurgedId() {
+        Long id = jdbcTemplate.queryForObject(
+                "SELECT MAX(id) FROM message_archive_segment WHERE status = 'PURGED'", Long.class);
+        return id != null ? id : 0;
+    }
+}
@@ -0,0 +1,308 @@
+package com.crypto.repository;
+
+import com.crypto.dto.MessageCursor;
+import com.crypto.dto.MessageFilter;
+import com.crypto.entity.Message;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * 消息表的 JDBC 访问：批量插入，按 id 流式扫描、按 (created_at, id) 分块取键，用于构建内存位图、全文索引、去重过滤器和冷归档
+ */
+@Repository
+public class MessageJdbcRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO messages (crypto_type, content, sentiment, source, source_url, created_at, is_read, content_hash) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    // 同步 is_read 时每条 UPDATE 覆盖的最大 id 跨度，大区间拆成多条短语句，限制单条语句的锁持有时间
+    private static final long LEGACY_FLAG_SPAN = 10_000;
+    private static final int LEGACY_FLAG_BATCH = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingTemplate;
+
+    @Autowired
+    public MessageJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        // MySQL 驱动在 fetchSize 为 Integer.MIN_VALUE 时逐行流式返回，百万级 id 也不会整体载入内存
+        this.streamingTemplate = StreamingQuery.template(jdbcTemplate);
+    }
+
+    /**
+     * 按 id 升序遍历大于 afterId 的消息 id
+     */
+    public void forEachIdAfter(long afterId, LongConsumer consumer) {
+        streamingTemplate.query("SELECT id FROM messages WHERE id > ? ORDER BY id",
+                rs -> {
+                    consumer.accept(rs.getLong(1));
+                }, afterId);
+    }
+
+    /**
+     * 遍历旧的全局 is_read 标记为已读的消息 id，用于初始化默认用户的阅读状态
+     */
+    public void forEachLegacyReadId(LongConsumer consumer) {
+        streamingTemplate.query("SELECT id FROM messages WHERE is_read = 1",
+                rs -> {
+                    consumer.accept(rs.getLong(1));
+                });
+    }
+
+    /**
+     * 把 [起始, 结束] 闭区间内消息的全局 is_read 标记设为 read，大区间按 id 跨度拆分，每条语句单独提交
+     */
+    public void updateLegacyReadFlag(List<long[]> ranges, boolean read) {
+        List<long[]> slices = new ArrayList<>();
+        for (long[] range : ranges) {
+            for (long from = range[0]; from <= range[1]; from += LEGACY_FLAG_SPAN) {
+                slices.add(new long[]{from, Math.min(range[1], from + LEGACY_FLAG_SPAN - 1)});
+            }
+        }
+        jdbcTemplate.batchUpdate("UPDATE messages SET is_read = ? WHERE id BETWEEN ? AND ?", slices, LEGACY_FLAG_BATCH,
+                (ps, slice) -> {
+                    ps.setBoolean(1, read);
+                    ps.setLong(2, slice[0]);
+                    ps.setLong(3, slice[1]);
+                });
+    }
+
+    /**
+     * 按 (created_at, id) 倒序（backward 时正序）取游标之后的一块消息键，只读索引列
+     * 筛选条件与 MessageSpecifications.matches 一致，不含阅读状态；created_at 为空的消息不参与
+     */
+    public List<MessageCursor> findKeys(MessageFilter filter, MessageCursor after, boolean backward, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT created_at, id FROM messages WHERE created_at IS NOT NULL");
+        List<Object> args = new ArrayList<>();
+        appendFilter(sql, args, filter);
+        if (after != null) {
+            String op = backward ? ">" : "<";
+            sql.append(" AND (created_at ").append(op).append(" ? OR (created_at = ? AND id ").append(op).append(" ?))");
+            Timestamp createdAt = Timestamp.valueOf(after.getCreatedAt());
+            args.add(createdAt);
+            args.add(createdAt);
+            args.add(after.getId());
+        }
+        String direction = backward ? "ASC" : "DESC";
+        sql.append(" ORDER BY created_at ").append(direction).append(", id ").append(direction).append(" LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(),
+                (rs, rowNum) -> new MessageCursor(rs.getTimestamp(1).toLocalDateTime(), rs.getLong(2)), args.toArray());
+    }
+
+    /**
+     * 按 id 升序取 afterId 之后的一块消息，只含全文索引需要的列
+     */
+    public List<Message> findIndexRowsAfter(long afterId, int limit) {
+        return jdbcTemplate.query(
+                "SELECT id, crypto_type, content, sentiment, source, created_at FROM messages WHERE id > ? ORDER BY id LIMIT ?",
+                (rs, rowNum) -> {
+                    Message message = new Message();
+                    message.setId(rs.getLong("id"));
+                    message.setCryptoType(rs.getString("crypto_type"));
+                    message.setContent(rs.getString("content"));
+                    message.setSentiment(rs.getString("sentiment"));
+                    message.setSource(rs.getString("source"));
+                    Timestamp createdAt = rs.getTimestamp("created_at");
+                    message.setCreatedAt(createdAt != null ? createdAt.toLocalDateTime() : null);
+                    return message;
+                }, afterId, limit);
+    }
+
+    /**
+     * 遍历已有的去重哈希
+     */
+    public void forEachContentHash(Consumer<String> consumer) {
+        streamingTemplate.query("SELECT content_hash FROM messages WHERE content_hash IS NOT NULL",
+                rs -> {
+                    consumer.accept(rs.getString(1));
+                });
+    }
+
+    /**
+     * 按 id 升序取一块尚未计算去重哈希的消息（id、content、source_url）
+     */
+    public List<Message> findUnhashedAfter(long afterId, int limit) {
+        return jdbcTemplate.query(
+                "SELECT id, content, source_url FROM messages WHERE id > ? AND content_hash IS NULL ORDER BY id LIMIT ?",
+                (rs, rowNum) -> {
+                    Message message = new Message();
+                    message.setId(rs.getLong("id"));
+                    message.setContent(rs.getString("content"));
+                    message.setSourceUrl(rs.getString("source_url"));
+                    return message;
+                }, afterId, limit);
+    }
+
+    /**
+     * 按 batchSize 分批插入消息并回填自增 id
+     * 连接串开启 rewriteBatchedStatements=true 时每批改写为一条多行 INSERT，只需一次往返；
+     * 多行 INSERT 的自增值连续分配，驱动按 LAST_INSERT_ID() 和 auto_increment_increment 推算每行的 id
+     */
+    public void insertBatch(List<Message> messages, int batchSize) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (int from = 0; from < messages.size(); from += batchSize) {
+                    List<Message> chunk = messages.subList(from, Math.min(from + batchSize, messages.size()));
+                    for (Message message : chunk) {
+                        bindInsert(ps, message);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        for (Message message : chunk) {
+                            if (!keys.next()) {
+                                throw new SQLException("批量插入返回的自增 id 少于插入行数");
+                            }
+                            message.setId(keys.getLong(1));
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private static void bindInsert(PreparedStatement ps, Message message) throws SQLException {
+        ps.setString(1, message.getCryptoType());
+        ps.setString(2, message.getContent());
+        ps.setString(3, message.getSentiment());
+        ps.setString(4, message.getSource());
+        ps.setString(5, message.getSourceUrl());
+        ps.setTimestamp(6, message.getCreatedAt() != null ? Timestamp.valueOf(message.getCreatedAt()) : null);
+        if (message.getIsRead() != null) {
+            ps.setBoolean(7, message.getIsRead());
+        } else {
+            ps.setNull(7, Types.BIT);
+        }
+        ps.setString(8, message.getContentHash());
+    }
+
+    /**
+     * 回填去重哈希，与已有消息重复的行忽略（保持为 NULL）
+     */
+    public void updateContentHashes(List<Message> messages) {
+        jdbcTemplate.batchUpdate("UPDATE IGNORE messages SET content_hash = ? WHERE id = ?", messages, messages.size(),
+                (ps, message) -> {
+                    ps.setString(1, message.getContentHash());
+                    ps.setLong(2, message.getId());
+                });
+    }
+
+    /**
+     * 返回给定哈希中数据库已存在的部分
+     */
+    public Set<String> findExistingHashes(Collection<String> hashes) {
+        if (hashes.isEmpty()) {
+            return Collections.emptySet();
+        }
+        String placeholders = String.join(",", Collections.nCopies(hashes.size(), "?"));
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT content_hash FROM messages WHERE content_hash IN (" + placeholders + ")", String.class, hashes.toArray()));
+    }
+
+    /**
+     * created_at 早于 before 的最早消息时间，没有时返回 null
+     */
+    public LocalDateTime findEarliestCreatedBefore(LocalDateTime before) {
+        Timestamp earliest = jdbcTemplate.queryForObject(
+                "SELECT MIN(created_at) FROM messages WHERE created_at < ?", Timestamp.class, Timestamp.valueOf(before));
+        return earliest != null ? earliest.toLocalDateTime() : null;
+    }
+
+    /**
+     * 按 (created_at, id) 正序取 [start, end) 内游标之后的一块完整消息
+     */
+    public List<Message> findRowsBetween(LocalDateTime start, LocalDateTime end, MessageCursor after, int limit) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT id, crypto_type, content, sentiment, source, source_url, created_at, is_read FROM messages " +
+                "WHERE created_at >= ? AND created_at < ?");
+        List<Object> args = new ArrayList<>();
+        args.add(Timestamp.valueOf(start));
+        args.add(Timestamp.valueOf(end));
+        if (after != null) {
+            sql.append(" AND (created_at > ? OR (created_at = ? AND id > ?))");
+            Timestamp createdAt = Timestamp.valueOf(after.getCreatedAt());
+            args.add(createdAt);
+            args.add(createdAt);
+            args.add(after.getId());
+        }
+        sql.append(" ORDER BY created_at, id LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
+            Message message = new Message();
+            message.setId(rs.getLong("id"));
+            message.setCryptoType(rs.getString("crypto_type"));
+            message.setContent(rs.getString("content"));
+            message.setSentiment(rs.getString("sentiment"));
+            message.setSource(rs.getString("source"));
+            message.setSourceUrl(rs.getString("source_url"));
+            message.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+            message.setIsRead(rs.getObject("is_read", Boolean.class));
+            return message;
+        }, args.toArray());
+    }
+
+    /**
+     * 按 id 删除一批消息（单条语句，调用方控制批大小以限制锁持有时间）
+     */
+    public int deleteByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        return jdbcTemplate.update("DELETE FROM messages WHERE id IN (" + placeholders + ")", ids.toArray());
+    }
+
+    /**
+     * 按 (created_at, id) 正序流式读取符合条件的消息（不含阅读状态条件），逐行交给 handler
+     * 列：id、crypto_type、content、sentiment、source、source_url、created_at
+     */
+    public void streamForExport(MessageFilter filter, RowCallbackHandler handler) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT id, crypto_type, content, sentiment, source, source_url, created_at FROM messages WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        appendFilter(sql, args, filter);
+        sql.append(" ORDER BY created_at, id");
+        StreamingQuery.query(streamingTemplate, sql.toString(), args.toArray(), handler);
+    }
+
+    // 与 MessageSpecifications.matches 一致的筛选条件
+    private static void appendFilter(StringBuilder sql, List<Object> args, MessageFilter filter) {
+        if (filter.getCryptoType() != null) {
+            sql.append(" AND crypto_type = ?");
+            args.add(filter.getCryptoType());
+        }
+        if (filter.getSentiment() != null) {
+            sql.append(" AND sentiment = ?");
+            args.add(filter.getSentiment());
+        }
+        if (filter.getStartDate() != null) {
+            sql.append(" AND created_at >= ?");
+            args.add(Timestamp.valueOf(filter.getStartDate()));
+        }
+        if (filter.getEndDate() != null) {
+            sql.append(" AND created_at <= ?");
+            args.add(Timestamp.valueOf(filter.getEndDate()));
+        }
+    }
+}
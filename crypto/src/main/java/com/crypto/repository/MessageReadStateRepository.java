@@ -0,0 +1,76 @@
+package com.crypto.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * 用户阅读状态（message_read_state 表）：每个用户一行，已读消息 id 以压缩位图序列化存储
+ * 通过 version 列做乐观并发控制，多个节点同时修改同一用户时后提交者重试
+ */
+@Repository
+public class MessageReadStateRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public MessageReadStateRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return 用户的阅读状态，不存在时返回 null
+     */
+    public StoredState find(String userId) {
+        List<StoredState> rows = jdbcTemplate.query("SELECT read_ids, version FROM message_read_state WHERE user_id = ?",
+                (rs, rowNum) -> new StoredState(rs.getBytes(1), rs.getLong(2)), userId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * @return 当前版本号，用户不存在时返回 null
+     */
+    public Long findVersion(String userId) {
+        List<Long> versions = jdbcTemplate.queryForList("SELECT version FROM message_read_state WHERE user_id = ?",
+                Long.class, userId);
+        return versions.isEmpty() ? null : versions.get(0);
+    }
+
+    /**
+     * 首次保存，version 从 1 开始
+     * @return 是否插入成功；其他节点已先插入时返回 false
+     */
+    public boolean insert(String userId, byte[] readIds) {
+        return jdbcTemplate.update("INSERT IGNORE INTO message_read_state (user_id, read_ids, version, updated_at) " +
+                "VALUES (?, ?, 1, NOW(6))", userId, readIds) > 0;
+    }
+
+    /**
+     * 仅当版本号未变时覆盖
+     * @return 是否更新成功
+     */
+    public boolean compareAndSet(String userId, byte[] readIds, long expectedVersion) {
+        return jdbcTemplate.update("UPDATE message_read_state SET read_ids = ?, version = version + 1, updated_at = NOW(6) " +
+                "WHERE user_id = ? AND version = ?", readIds, userId, expectedVersion) > 0;
+    }
+
+    public static final class StoredState {
+        private final byte[] readIds;
+        private final long version;
+
+        public StoredState(byte[] readIds, long version) {
+            this.readIds = readIds;
+            this.version = version;
+        }
+
+        public byte[] getReadIds() {
+            return readIds;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+    }
+}
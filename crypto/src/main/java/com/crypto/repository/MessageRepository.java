@@ -1,36 +1,21 @@
 package com.crypto.repository;
 
 import com.crypto.entity.Message;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
-public interface MessageRepository extends JpaRepository<Message, Long> {
-    List<Message> findByCryptoTypeAndSentimentAndCreatedAtBetween(
-            @Param("cryptoType") String cryptoType,
-            @Param("sentiment") String sentiment,
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate);
+public interface MessageRepository extends JpaRepository<Message, Long>, JpaSpecificationExecutor<Message> {
+    // 不带总数查询的分页（配合估算总数使用）
+    List<Message> findAllBy(Pageable pageable);
     
-    List<Message> findByCryptoTypeAndCreatedAtBetween(
-            @Param("cryptoType") String cryptoType,
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate);
-    
-    List<Message> findBySentimentAndCreatedAtBetween(
-            @Param("sentiment") String sentiment,
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate);
-    
-    List<Message> findByCreatedAtBetween(
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate);
-    
-    @Query("SELECT COUNT(m) FROM Message m WHERE m.isRead = false")
-    Long countUnreadMessages();
+    // 表统计信息中的估算行数，不扫描数据
+    @Query(value = "SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'messages'",
+            nativeQuery = true)
+    Long estimateRowCount();
 }
@@ -0,0 +1,90 @@
+package com.crypto.repository;
+
+import com.crypto.dto.MessageCursor;
+import com.crypto.dto.MessageFilter;
+import com.crypto.entity.Message;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 消息动态查询条件：任意筛选组合生成一条 SQL，取代按组合逐个声明的查询方法
+ * 阅读状态按用户保存在位图中，由业务层转换为 id 条件（idRanges）后再组合
+ */
+public final class MessageSpecifications {
+
+    private MessageSpecifications() {
+    }
+
+    public static Specification<Message> matches(MessageFilter filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (filter.getCryptoType() != null) {
+                predicates.add(cb.equal(root.get("cryptoType"), filter.getCryptoType()));
+            }
+            if (filter.getSentiment() != null) {
+                predicates.add(cb.equal(root.get("sentiment"), filter.getSentiment()));
+            }
+            if (filter.getStartDate() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("createdAt"), filter.getStartDate()));
+            }
+            if (filter.getEndDate() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("createdAt"), filter.getEndDate()));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * 游标条件：按 (created_at, id) 倒序排列时，取游标之后（更早）或之前（更新）的消息
+     * 使用展开的 OR 形式而不是行比较 (created_at, id) < (?, ?)：MySQL 不会对行比较的不等式做范围扫描；
+     * 额外的 created_at 单列边界让优化器确定起点，只扫描 (created_at, id) 组合索引的一个区间
+     * created_at 为空的历史数据无法参与比较，不出现在消息流中
+     */
+    public static Specification<Message> beyond(MessageCursor cursor, boolean backward) {
+        return (root, query, cb) -> {
+            Path<LocalDateTime> createdAt = root.get("createdAt");
+            Path<Long> id = root.get("id");
+            if (cursor == null) {
+                return cb.isNotNull(createdAt);
+            }
+            if (backward) {
+                return cb.and(cb.greaterThanOrEqualTo(createdAt, cursor.getCreatedAt()),
+                        cb.or(cb.greaterThan(createdAt, cursor.getCreatedAt()), cb.greaterThan(id, cursor.getId())));
+            }
+            return cb.and(cb.lessThanOrEqualTo(createdAt, cursor.getCreatedAt()),
+                    cb.or(cb.lessThan(createdAt, cursor.getCreatedAt()), cb.lessThan(id, cursor.getId())));
+        };
+    }
+
+    /**
+     * id 落在（或不落在）给定闭区间内；单个 id 的区间合并为一个 IN 条件
+     */
+    public static Specification<Message> idRanges(List<long[]> ranges, boolean exclude) {
+        return (root, query, cb) -> {
+            Path<Long> id = root.get("id");
+            List<Long> singles = new ArrayList<>();
+            List<Predicate> predicates = new ArrayList<>();
+            for (long[] range : ranges) {
+                if (range[0] == range[1]) {
+                    singles.add(range[0]);
+                } else {
+                    predicates.add(cb.between(id, range[0], range[1]));
+                }
+            }
+            if (!singles.isEmpty()) {
+                predicates.add(id.in(singles));
+            }
+            Predicate any = cb.or(predicates.toArray(new Predicate[0]));
+            return exclude ? cb.not(any) : any;
+        };
+    }
+
+    public static Specification<Message> idGreaterThan(long id) {
+        return (root, query, cb) -> cb.greaterThan(root.get("id"), id);
+    }
+}
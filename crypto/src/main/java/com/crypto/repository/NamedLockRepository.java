@@ -0,0 +1,53 @@
+package com.crypto.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 基于 MySQL GET_LOCK 的跨节点互斥：锁归属于会话，持锁期间占用一个连接，连接断开时自动释放
+ * 不应在事务内调用（会复用事务连接，锁随之延长到事务结束之外）
+ */
+@Repository
+public class NamedLockRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public NamedLockRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 获取到锁时执行 task 并返回 true；锁被其他节点持有时立即返回 false
+     */
+    public boolean runExclusively(String name, Runnable task) {
+        Boolean ran = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            if (!call(connection, "SELECT GET_LOCK(?, 0)", name)) {
+                return false;
+            }
+            try {
+                task.run();
+                return true;
+            } finally {
+                call(connection, "SELECT RELEASE_LOCK(?)", name);
+            }
+        });
+        return Boolean.TRUE.equals(ran);
+    }
+
+    private static boolean call(Connection connection, String sql, String name) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+}
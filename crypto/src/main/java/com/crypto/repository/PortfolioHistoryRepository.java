@@ -11,9 +11,11 @@ import java.util.List;
 
 @Repository
 public interface PortfolioHistoryRepository extends JpaRepository<PortfolioHistory, Long> {
-    @Query("SELECT ph FROM PortfolioHistory ph WHERE ph.date >= :startDate ORDER BY ph.date ASC")
-    List<PortfolioHistory> findByDateGreaterThanEqualOrderByDateAsc(@Param("startDate") LocalDate startDate);
+    @Query("SELECT ph FROM PortfolioHistory ph WHERE ph.portfolioId = :portfolioId AND ph.date >= :startDate ORDER BY ph.date ASC")
+    List<PortfolioHistory> findByPortfolioIdAndDateGreaterThanEqualOrderByDateAsc(@Param("portfolioId") Long portfolioId,
+                                                                                 @Param("startDate") LocalDate startDate);
     
-    @Query("SELECT ph FROM PortfolioHistory ph WHERE ph.date = :date ORDER BY ph.cryptoType ASC")
-    List<PortfolioHistory> findByDateOrderByCryptoTypeAsc(@Param("date") LocalDate date);
+    @Query("SELECT ph FROM PortfolioHistory ph WHERE ph.portfolioId = :portfolioId AND ph.date = :date ORDER BY ph.cryptoType ASC")
+    List<PortfolioHistory> findByPortfolioIdAndDateOrderByCryptoTypeAsc(@Param("portfolioId") Long portfolioId,
+                                                                       @Param("date") LocalDate date);
 }
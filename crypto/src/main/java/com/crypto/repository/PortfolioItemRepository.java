@@ -4,6 +4,10 @@ import com.crypto.entity.PortfolioItem;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface PortfolioItemRepository extends JpaRepository<PortfolioItem, Long> {
+    // 单个投资组合的持仓，走 (portfolio_id, crypto_type) 索引
+    List<PortfolioItem> findByPortfolioIdOrderByIdAsc(Long portfolioId);
 }
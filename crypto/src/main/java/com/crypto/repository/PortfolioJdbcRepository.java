@@ -0,0 +1,256 @@
+package com.crypto.repository;
+
+import com.crypto.entity.PortfolioHistory;
+import com.crypto.entity.PortfolioItem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 持仓与持仓历史的 JDBC 批量读写（写入需在调用方事务内执行）
+ * 配合连接串中的 rewriteBatchedStatements=true，插入批次改写为多行 INSERT
+ * 除补齐与组合列表外，所有读写都限定在一个投资组合内，走以 portfolio_id 开头的索引
+ */
+@Repository
+public class PortfolioJdbcRepository {
+
+    private static final String INSERT_ITEM_SQL =
+            "INSERT INTO portfolio_items (crypto_type, percentage, price, quantity, value, portfolio_id) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_ITEM_SQL =
+            "UPDATE portfolio_items SET crypto_type = ?, percentage = ?, price = ?, quantity = ?, value = ? " +
+            "WHERE portfolio_id = ? AND id = ?";
+    // 按 (portfolio_id, date, crypto_type) 唯一键覆盖，重复执行结果相同
+    private static final String UPSERT_HISTORY_SQL =
+            "INSERT INTO portfolio_history (portfolio_id, crypto_type, date, percentage, total_value) VALUES (?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE percentage = VALUES(percentage), total_value = VALUES(total_value), " +
+            "updated_at = CURRENT_TIMESTAMP(6)";
+    private static final String HISTORY_COLUMNS =
+            "SELECT portfolio_id, date, crypto_type, percentage, total_value FROM portfolio_history ";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingTemplate;
+
+    @Autowired
+    public PortfolioJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingTemplate = StreamingQuery.template(jdbcTemplate);
+    }
+
+    /**
+     * 有持仓或持仓历史的全部投资组合 id（按 portfolio_id 开头的索引松散扫描）
+     */
+    public List<Long> findPortfolioIds() {
+        return jdbcTemplate.queryForList("SELECT DISTINCT portfolio_id FROM portfolio_items " +
+                "UNION SELECT DISTINCT portfolio_id FROM portfolio_history ORDER BY 1", Long.class);
+    }
+
+    /**
+     * 按日期顺序流式读取一个投资组合的全部持仓历史
+     * 列：date、crypto_type、percentage、total_value、updated_at
+     */
+    public void forEachHistory(long portfolioId, RowCallbackHandler handler) {
+        StreamingQuery.query(streamingTemplate,
+                "SELECT date, crypto_type, percentage, total_value, updated_at FROM portfolio_history " +
+                        "WHERE portfolio_id = ? ORDER BY date",
+                new Object[]{portfolioId}, handler);
+    }
+
+    /**
+     * 全部投资组合中最晚的 updated_at，没有记录时返回 null
+     */
+    public LocalDateTime findHistoryMaxUpdatedAt() {
+        Timestamp latest = jdbcTemplate.queryForObject("SELECT MAX(updated_at) FROM portfolio_history", Timestamp.class);
+        return latest != null ? latest.toLocalDateTime() : null;
+    }
+
+    /**
+     * updated_at 不早于 since 的 (组合, 日期) 及各自最晚的 updated_at，跨组合查询，供各节点补齐已缓存的组合
+     * @return portfolio_id -> (date -> updated_at)
+     */
+    public Map<Long, Map<LocalDate, LocalDateTime>> findHistoryDatesUpdatedSince(LocalDateTime since) {
+        Map<Long, Map<LocalDate, LocalDateTime>> dates = new HashMap<>();
+        jdbcTemplate.query("SELECT portfolio_id, date, MAX(updated_at) FROM portfolio_history WHERE updated_at >= ? " +
+                        "GROUP BY portfolio_id, date",
+                rs -> {
+                    Date date = rs.getDate(2);
+                    if (date != null) {
+                        dates.computeIfAbsent(rs.getLong(1), id -> new HashMap<>())
+                                .put(date.toLocalDate(), rs.getTimestamp(3).toLocalDateTime());
+                    }
+                }, Timestamp.valueOf(since));
+        return dates;
+    }
+
+    /**
+     * 一个投资组合在 [start, end] 内的持仓历史
+     */
+    public List<PortfolioHistory> findHistoryBetween(long portfolioId, LocalDate start, LocalDate end) {
+        return jdbcTemplate.query(HISTORY_COLUMNS + "WHERE portfolio_id = ? AND date >= ? AND date <= ? ORDER BY date",
+                PortfolioJdbcRepository::mapHistory, portfolioId, Date.valueOf(start), Date.valueOf(end));
+    }
+
+    /**
+     * 一个投资组合早于 date 的最近一个有记录日期的全部持仓历史，没有时返回空列表
+     */
+    public List<PortfolioHistory> findHistoryLatestBefore(long portfolioId, LocalDate date) {
+        return jdbcTemplate.query(HISTORY_COLUMNS + "WHERE portfolio_id = ? AND date = " +
+                        "(SELECT MAX(date) FROM portfolio_history WHERE portfolio_id = ? AND date < ?)",
+                PortfolioJdbcRepository::mapHistory, portfolioId, portfolioId, Date.valueOf(date));
+    }
+
+    private static PortfolioHistory mapHistory(ResultSet rs, int rowNum) throws SQLException {
+        PortfolioHistory history = new PortfolioHistory();
+        history.setPortfolioId(rs.getLong("portfolio_id"));
+        history.setDate(rs.getDate("date").toLocalDate());
+        history.setCryptoType(rs.getString("crypto_type"));
+        history.setPercentage(getDouble(rs, "percentage"));
+        history.setTotalValue(getDouble(rs, "total_value"));
+        return history;
+    }
+
+    /**
+     * 读取并锁住一个投资组合的当前持仓，同一组合的并发持仓更新在此排队，其他组合不受影响
+     */
+    public List<PortfolioItem> findAllForUpdate(long portfolioId) {
+        return jdbcTemplate.query(
+                "SELECT id, portfolio_id, crypto_type, percentage, price, quantity, value FROM portfolio_items " +
+                        "WHERE portfolio_id = ? ORDER BY id FOR UPDATE",
+                (rs, rowNum) -> {
+                    PortfolioItem item = new PortfolioItem();
+                    item.setId(rs.getLong("id"));
+                    item.setPortfolioId(rs.getLong("portfolio_id"));
+                    item.setCryptoType(rs.getString("crypto_type"));
+                    item.setPercentage(getDouble(rs, "percentage"));
+                    item.setPrice(getDouble(rs, "price"));
+                    item.setQuantity(getDouble(rs, "quantity"));
+                    item.setValue(getDouble(rs, "value"));
+                    return item;
+                }, portfolioId);
+    }
+
+    /**
+     * 分批插入持仓并回填自增 id，持仓须已设置所属组合
+     */
+    public void insertItems(List<PortfolioItem> items, int batchSize) {
+        if (items.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_ITEM_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (int from = 0; from < items.size(); from += batchSize) {
+                    List<PortfolioItem> chunk = items.subList(from, Math.min(from + batchSize, items.size()));
+                    for (PortfolioItem item : chunk) {
+                        bindItem(ps, item);
+                        ps.setLong(6, item.getPortfolioId());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        for (PortfolioItem item : chunk) {
+                            if (!keys.next()) {
+                                throw new SQLException("批量插入返回的自增 id 少于插入行数");
+                            }
+                            item.setId(keys.getLong(1));
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    public void updateItems(List<PortfolioItem> items, int batchSize) {
+        if (items.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPDATE_ITEM_SQL, items, batchSize, (ps, item) -> {
+            bindItem(ps, item);
+            ps.setLong(6, item.getPortfolioId());
+            ps.setLong(7, item.getId());
+        });
+    }
+
+    public void deleteItems(long portfolioId, List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Object> args = new ArrayList<>(ids.size() + 1);
+        args.add(portfolioId);
+        args.addAll(ids);
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        jdbcTemplate.update("DELETE FROM portfolio_items WHERE portfolio_id = ? AND id IN (" + placeholders + ")",
+                args.toArray());
+    }
+
+    /**
+     * 按 (portfolio_id, date, crypto_type) 批量 upsert 持仓历史，行须已设置所属组合
+     */
+    public void upsertHistory(List<PortfolioHistory> rows, int batchSize) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT_HISTORY_SQL, rows, batchSize, (ps, row) -> {
+            ps.setLong(1, row.getPortfolioId());
+            ps.setString(2, row.getCryptoType());
+            ps.setDate(3, Date.valueOf(row.getDate()));
+            setDouble(ps, 4, row.getPercentage());
+            setDouble(ps, 5, row.getTotalValue());
+        });
+    }
+
+    /**
+     * 删除一个投资组合某天不在 symbols 中的币种记录（当天已清仓的币种）
+     */
+    public int deleteHistoryExcept(long portfolioId, LocalDate date, Collection<String> symbols) {
+        if (symbols.isEmpty()) {
+            return jdbcTemplate.update("DELETE FROM portfolio_history WHERE portfolio_id = ? AND date = ?",
+                    portfolioId, Date.valueOf(date));
+        }
+        List<Object> args = new ArrayList<>(symbols.size() + 2);
+        args.add(portfolioId);
+        args.add(Date.valueOf(date));
+        args.addAll(symbols);
+        String placeholders = String.join(",", Collections.nCopies(symbols.size(), "?"));
+        return jdbcTemplate.update("DELETE FROM portfolio_history WHERE portfolio_id = ? AND date = ? " +
+                "AND crypto_type NOT IN (" + placeholders + ")", args.toArray());
+    }
+
+    private static void bindItem(PreparedStatement ps, PortfolioItem item) throws SQLException {
+        ps.setString(1, item.getCryptoType());
+        setDouble(ps, 2, item.getPercentage());
+        setDouble(ps, 3, item.getPrice());
+        setDouble(ps, 4, item.getQuantity());
+        setDouble(ps, 5, item.getValue());
+    }
+
+    private static void setDouble(PreparedStatement ps, int index, Double value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.DOUBLE);
+        } else {
+            ps.setDouble(index, value);
+        }
+    }
+
+    private static Double getDouble(ResultSet rs, String column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+}
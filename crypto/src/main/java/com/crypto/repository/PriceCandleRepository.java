@@ -0,0 +1,16 @@
+package com.crypto.repository;
+
+import com.crypto.entity.PriceCandle;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PriceCandleRepository extends JpaRepository<PriceCandle, Long> {
+    // 按币种、周期和时间范围从新到旧查询 K 线（倒序扫描唯一索引 symbol + bar_interval + bucket_start）
+    List<PriceCandle> findBySymbolAndBarIntervalAndBucketStartBetweenOrderByBucketStartDesc(
+            String symbol, String barInterval, LocalDateTime start, LocalDateTime end, Pageable pageable);
+}
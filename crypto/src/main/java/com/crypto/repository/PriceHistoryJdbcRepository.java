@@ -0,0 +1,130 @@
+package com.crypto.repository;
+
+import com.crypto.entity.CandleInterval;
+import com.crypto.entity.CryptoCurrency;
+import com.crypto.entity.PriceCandle;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 行情历史的 JDBC 批量写入：逐笔记录只追加，K 线按唯一键增量合并
+ */
+@Repository
+public class PriceHistoryJdbcRepository {
+
+    private static final String INSERT_TICK_SQL =
+            "INSERT INTO crypto_price_tick (symbol, usd_price, volume_24h, tick_time) VALUES (?, ?, ?, ?)";
+
+    // 赋值按从左到右执行，开盘/收盘价必须在 open_time/close_time 更新之前判断
+    private static final String UPSERT_CANDLE_SQL =
+            "INSERT INTO crypto_price_candle (symbol, bar_interval, bucket_start, open_price, high_price, low_price, " +
+            "close_price, volume, tick_count, open_time, close_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "open_price = IF(VALUES(open_time) < open_time, VALUES(open_price), open_price), " +
+            "close_price = IF(VALUES(close_time) >= close_time, VALUES(close_price), close_price), " +
+            "volume = IF(VALUES(close_time) >= close_time, VALUES(volume), volume), " +
+            "high_price = GREATEST(high_price, VALUES(high_price)), " +
+            "low_price = LEAST(low_price, VALUES(low_price)), " +
+            "tick_count = tick_count + VALUES(tick_count), " +
+            "open_time = LEAST(open_time, VALUES(open_time)), " +
+            "close_time = GREATEST(close_time, VALUES(close_time))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingTemplate;
+
+    @Autowired
+    public PriceHistoryJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingTemplate = StreamingQuery.template(jdbcTemplate);
+    }
+
+    public void appendTicks(List<CryptoCurrency> ticks, int batchSize) {
+        jdbcTemplate.batchUpdate(INSERT_TICK_SQL, ticks, batchSize, (ps, tick) -> {
+            ps.setString(1, tick.getSymbol());
+            ps.setBigDecimal(2, tick.getUsdPrice());
+            ps.setBigDecimal(3, tick.getVolume24h());
+            ps.setTimestamp(4, Timestamp.valueOf(tick.getUpdateTime()));
+        });
+    }
+
+    /**
+     * 合并一批已在内存中预聚合的 K 线增量
+     */
+    public void mergeCandles(Collection<PriceCandle> deltas, int batchSize) {
+        jdbcTemplate.batchUpdate(UPSERT_CANDLE_SQL, deltas, batchSize, (ps, candle) -> {
+            ps.setString(1, candle.getSymbol());
+            ps.setString(2, candle.getBarInterval());
+            ps.setTimestamp(3, Timestamp.valueOf(candle.getBucketStart()));
+            ps.setBigDecimal(4, candle.getOpen());
+            ps.setBigDecimal(5, candle.getHigh());
+            ps.setBigDecimal(6, candle.getLow());
+            ps.setBigDecimal(7, candle.getClose());
+            ps.setBigDecimal(8, candle.getVolume());
+            ps.setInt(9, candle.getTickCount());
+            ps.setTimestamp(10, Timestamp.valueOf(candle.getOpenTime()));
+            ps.setTimestamp(11, Timestamp.valueOf(candle.getCloseTime()));
+        });
+    }
+
+    /**
+     * 流式读取逐笔行情，指定币种时按 (tick_time, id) 走 idx_tick_symbol_time，否则按 id 顺序
+     * 列：id、symbol、usd_price、volume_24h、tick_time
+     */
+    public void streamTicks(String symbol, LocalDateTime start, LocalDateTime end, RowCallbackHandler handler) {
+        StringBuilder sql = new StringBuilder("SELECT id, symbol, usd_price, volume_24h, tick_time FROM crypto_price_tick WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        appendRange(sql, args, "tick_time", symbol, start, end);
+        sql.append(symbol != null ? " ORDER BY tick_time, id" : " ORDER BY id");
+        StreamingQuery.query(streamingTemplate, sql.toString(), args.toArray(), handler);
+    }
+
+    /**
+     * 流式读取 K 线，按 (symbol, bar_interval, bucket_start) 顺序
+     * 列：symbol、bar_interval、bucket_start、open_price、high_price、low_price、close_price、volume、tick_count
+     */
+    public void streamCandles(String symbol, String interval, LocalDateTime start, LocalDateTime end,
+                              RowCallbackHandler handler) {
+        StringBuilder sql = new StringBuilder("SELECT symbol, bar_interval, bucket_start, open_price, high_price, low_price, " +
+                "close_price, volume, tick_count FROM crypto_price_candle WHERE bar_interval = ?");
+        List<Object> args = new ArrayList<>();
+        args.add(interval);
+        appendRange(sql, args, "bucket_start", symbol, start, end);
+        sql.append(" ORDER BY symbol, bar_interval, bucket_start");
+        StreamingQuery.query(streamingTemplate, sql.toString(), args.toArray(), handler);
+    }
+
+    /**
+     * 流式读取 [start, end) 内的日线收盘价，按 (symbol, bucket_start) 顺序
+     * 列：symbol、bucket_start、close_price
+     */
+    public void streamDailyCloses(LocalDateTime start, LocalDateTime end, RowCallbackHandler handler) {
+        StreamingQuery.query(streamingTemplate,
+                "SELECT symbol, bucket_start, close_price FROM crypto_price_candle " +
+                "WHERE bar_interval = ? AND bucket_start >= ? AND bucket_start < ? ORDER BY symbol, bucket_start",
+                new Object[]{CandleInterval.D1.getCode(), Timestamp.valueOf(start), Timestamp.valueOf(end)}, handler);
+    }
+
+    private static void appendRange(StringBuilder sql, List<Object> args, String timeColumn,
+                                    String symbol, LocalDateTime start, LocalDateTime end) {
+        if (symbol != null) {
+            sql.append(" AND symbol = ?");
+            args.add(symbol);
+        }
+        if (start != null) {
+            sql.append(" AND ").append(timeColumn).append(" >= ?");
+            args.add(Timestamp.valueOf(start));
+        }
+        if (end != null) {
+            sql.append(" AND ").append(timeColumn).append(" < ?");
+            args.add(Timestamp.valueOf(end));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.crypto.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * 行情版本分配（quote_version 计数器 + quote_version_leases 租约表）
+ * 1. 版本在独立的短事务中分配并登记租约，计数器行锁只持有到该事务结束，各节点的写入事务可以并发
+ * 2. 写入事务内删除自己的租约，随写入一起提交；回滚后另行删除，宕机等残留的租约超时后清理
+ * 3. 已提交版本取计数器与最小租约之前的版本中较小者：不大于它的版本都已提交或已回滚
+ */
+@Repository
+public class QuoteVersionRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SystemCounterRepository systemCounterRepository;
+
+    @Autowired
+    public QuoteVersionRepository(JdbcTemplate jdbcTemplate, SystemCounterRepository systemCounterRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.systemCounterRepository = systemCounterRepository;
+    }
+
+    /**
+     * 分配一个行情版本并登记租约，在独立事务中立即提交
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Exception.class)
+    public long allocate() {
+        long version = systemCounterRepository.next(SystemCounterRepository.QUOTE_VERSION);
+        jdbcTemplate.update("INSERT INTO quote_version_leases (version, created_at) VALUES (?, NOW(6))", version);
+        return version;
+    }
+
+    /**
+     * 删除租约，在写入事务内调用，随写入一起提交
+     */
+    public void release(long version) {
+        jdbcTemplate.update("DELETE FROM quote_version_leases WHERE version = ?", version);
+    }
+
+    /**
+     * 写入事务回滚后删除租约，在独立事务中提交（事务结束回调中原事务的连接仍被占用）
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Exception.class)
+    public void discard(long version) {
+        release(version);
+    }
+
+    /**
+     * 不大于返回值的版本都已提交或已回滚；计数器不存在时返回 null
+     * 计数器与最小租约在同一条语句中读取，两者来自同一个一致性视图
+     */
+    public Long committedVersion() {
+        List<Long> values = jdbcTemplate.query(
+                "SELECT c.counter_value, (SELECT MIN(version) FROM quote_version_leases) FROM system_counters c WHERE c.name = ?",
+                (rs, rowNum) -> {
+                    long counter = rs.getLong(1);
+                    long lease = rs.getLong(2);
+                    return rs.wasNull() ? counter : Math.min(counter, lease - 1);
+                }, SystemCounterRepository.QUOTE_VERSION);
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    /**
+     * 清理分配超过 timeoutMs 仍未删除的租约（写入节点宕机等），返回清理条数
+     */
+    public int expire(long timeoutMs) {
+        return jdbcTemplate.update("DELETE FROM quote_version_leases WHERE created_at < NOW(6) - INTERVAL ? MICROSECOND",
+                timeoutMs * 1000);
+    }
+}
@@ -1,16 +1,38 @@
 package com.crypto.repository;
 
 import com.crypto.entity.Report;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ReportRepository extends JpaRepository<Report, Long> {
-    List<Report> findByStatus(String status);
+    // 按投资组合分页，分别走 (portfolio_id, status, created_at) 与 (portfolio_id, created_at) 索引
+    Page<Report> findByPortfolioIdAndStatus(Long portfolioId, String status, Pageable pageable);
     
-    @Query("SELECT COUNT(r) FROM Report r WHERE r.status = 'pending'")
-    Long countPendingReports();
+    Page<Report> findByPortfolioId(Long portfolioId, Pageable pageable);
+    
+    Optional<Report> findByIdAndPortfolioId(Long id, Long portfolioId);
+    
+    boolean existsByIdAndPortfolioId(Long id, Long portfolioId);
+    
+    @Query("SELECT COUNT(r) FROM Report r WHERE r.portfolioId = :portfolioId AND r.status = 'pending'")
+    Long countPendingReports(@Param("portfolioId") Long portfolioId);
+    
+    // 各投资组合的待审核报告数（用于计数器对账），每行为 [portfolioId, count]
+    @Query("SELECT r.portfolioId, COUNT(r) FROM Report r WHERE r.status = 'pending' GROUP BY r.portfolioId")
+    List<Object[]> countPendingReportsByPortfolio();
+    
+    // 加行锁读取，保证状态变更与待审核计数的增减一致
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Report r WHERE r.id = :id AND r.portfolioId = :portfolioId")
+    Optional<Report> findByIdForUpdate(@Param("id") Long id, @Param("portfolioId") Long portfolioId);
 }
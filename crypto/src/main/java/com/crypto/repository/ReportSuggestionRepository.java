@@ -5,11 +5,14 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ReportSuggestionRepository extends JpaRepository<ReportSuggestion, Long> {
-    // 根据报告ID查询建议列表
-    List<ReportSuggestion> findByReportId(Long reportId);
+    // 根据投资组合和报告ID查询建议列表
+    List<ReportSuggestion> findByPortfolioIdAndReportId(Long portfolioId, Long reportId);
+    
+    Optional<ReportSuggestion> findByIdAndPortfolioId(Long id, Long portfolioId);
     
     // 根据加密货币类型查询建议列表
     List<ReportSuggestion> findByCryptoType(String cryptoType);
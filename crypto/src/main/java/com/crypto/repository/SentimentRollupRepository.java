@@ -0,0 +1,95 @@
+package com.crypto.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 消息情感汇总表 message_sentiment_rollup 的 JDBC 访问
+ */
+@Repository
+public class SentimentRollupRepository {
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO message_sentiment_rollup (bucket_interval, bucket_start, crypto_type, sentiment, message_count) " +
+            "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE message_count = message_count + VALUES(message_count)";
+
+    // 按周期从消息表重新汇总；created_at 为空的消息不计入
+    private static final String REBUILD_SQL =
+            "INSERT INTO message_sentiment_rollup (bucket_interval, bucket_start, crypto_type, sentiment, message_count) " +
+            "SELECT ?, %s, IFNULL(crypto_type, ''), IFNULL(sentiment, ''), COUNT(*) FROM messages " +
+            "WHERE created_at >= ? AND created_at < ? GROUP BY 2, 3, 4";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public SentimentRollupRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 累加一批已在内存中预聚合的计数
+     */
+    public void increment(List<Object[]> deltas) {
+        jdbcTemplate.batchUpdate(UPSERT_SQL, deltas);
+    }
+
+    /**
+     * 汇总各币种、情感在若干时间段内的计数
+     * @param ranges 每项为 {周期, 起始（含）, 结束（不含）}
+     * @param cryptoType 为空表示全部币种
+     * @return 每行 crypto_type、sentiment、total
+     */
+    public List<Map<String, Object>> sum(List<Object[]> ranges, String cryptoType) {
+        if (ranges.isEmpty()) {
+            return List.of();
+        }
+        StringBuilder sql = new StringBuilder(
+                "SELECT crypto_type, sentiment, SUM(message_count) AS total FROM message_sentiment_rollup WHERE (");
+        List<Object> args = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            Object[] range = ranges.get(i);
+            sql.append(i == 0 ? "" : " OR ").append("(bucket_interval = ? AND bucket_start >= ? AND bucket_start < ?)");
+            args.add(range[0]);
+            args.add(Timestamp.valueOf((LocalDateTime) range[1]));
+            args.add(Timestamp.valueOf((LocalDateTime) range[2]));
+        }
+        sql.append(")");
+        if (cryptoType != null) {
+            sql.append(" AND crypto_type = ?");
+            args.add(cryptoType);
+        }
+        sql.append(" GROUP BY crypto_type, sentiment");
+        return jdbcTemplate.queryForList(sql.toString(), args.toArray());
+    }
+
+    /**
+     * 消息表中最早、最晚的创建时间，用于确定回填范围
+     */
+    public LocalDateTime[] findMessageTimeRange() {
+        return jdbcTemplate.queryForObject("SELECT MIN(created_at), MAX(created_at) FROM messages",
+                (rs, rowNum) -> new LocalDateTime[]{
+                        rs.getTimestamp(1) != null ? rs.getTimestamp(1).toLocalDateTime() : null,
+                        rs.getTimestamp(2) != null ? rs.getTimestamp(2).toLocalDateTime() : null});
+    }
+
+    /**
+     * 用消息表重新计算 [start, end) 内的小时、天汇总（start、end 需按天对齐）
+     * @return 写入的汇总行数
+     */
+    public int rebuild(LocalDateTime start, LocalDateTime end) {
+        Timestamp from = Timestamp.valueOf(start);
+        Timestamp to = Timestamp.valueOf(end);
+        jdbcTemplate.update("DELETE FROM message_sentiment_rollup WHERE bucket_start >= ? AND bucket_start < ?", from, to);
+        int rows = jdbcTemplate.update(String.format(REBUILD_SQL, "DATE_FORMAT(created_at, '%Y-%m-%d %H:00:00')"),
+                "1h", from, to);
+        rows += jdbcTemplate.update(String.format(REBUILD_SQL, "DATE(created_at)"), "1d", from, to);
+        return rows;
+    }
+}
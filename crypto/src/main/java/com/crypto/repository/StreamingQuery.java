@@ -0,0 +1,51 @@
+package com.crypto.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 只进游标的流式查询：MySQL 驱动在 fetchSize 为 Integer.MIN_VALUE 时逐行返回，客户端内存与结果行数无关
+ * 流式结果集关闭时驱动会读完剩余的行，处理中途失败（如客户端断开）时先取消语句，避免读完整个结果
+ */
+final class StreamingQuery {
+
+    private StreamingQuery() {
+    }
+
+    static JdbcTemplate template(JdbcTemplate jdbcTemplate) {
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(Integer.MIN_VALUE);
+        return streaming;
+    }
+
+    static void query(JdbcTemplate streamingTemplate, String sql, Object[] args, RowCallbackHandler handler) {
+        PreparedStatement[] statement = new PreparedStatement[1];
+        streamingTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            for (int i = 0; i < args.length; i++) {
+                ps.setObject(i + 1, args[i]);
+            }
+            statement[0] = ps;
+            return ps;
+        }, rs -> {
+            try {
+                handler.processRow(rs);
+            } catch (RuntimeException | SQLException e) {
+                cancelQuietly(statement[0]);
+                throw e;
+            }
+        });
+    }
+
+    private static void cancelQuietly(PreparedStatement statement) {
+        try {
+            statement.cancel();
+        } catch (SQLException ignored) {
+            // 取消失败时由关闭结果集兜底
+        }
+    }
+}
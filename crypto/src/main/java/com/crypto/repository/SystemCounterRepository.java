@@ -0,0 +1,121 @@
+package com.crypto.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 系统计数器（system_counters 表）
+ * 计数变化与业务写入在同一事务内执行，概览页只需按主键读一行
+ */
+@Repository
+public class SystemCounterRepository {
+
+    // 行情版本，每批行情写入递增一次，写入的行记录分配到的版本（由 QuoteVersionRepository 在独立事务中分配）
+    public static final String QUOTE_VERSION = "quote_version";
+
+    // 待审核报告数（按投资组合），对应 reports.status = 'pending'，计数器名为 pending_reports:<portfolio_id>
+    public static final String PENDING_REPORTS = "pending_reports";
+
+    // 持仓版本（按投资组合），持仓有变化的写入事务递增一次，计数器名为 portfolio_items:<portfolio_id>
+    public static final String PORTFOLIO_ITEMS = "portfolio_items";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public SystemCounterRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 某个投资组合的待审核报告数计数器名
+     */
+    public static String pendingReports(long portfolioId) {
+        return PENDING_REPORTS + ":" + portfolioId;
+    }
+
+    /**
+     * 某个投资组合的持仓版本计数器名
+     */
+    public static String portfolioItems(long portfolioId) {
+        return PORTFOLIO_ITEMS + ":" + portfolioId;
+    }
+
+    /**
+     * 增减计数，必须在业务写入所在的事务中调用；计数器不存在时以 delta 创建（新组合），偏差由对账纠正
+     */
+    public void increment(String name, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        jdbcTemplate.update("INSERT INTO system_counters (name, counter_value, updated_at) VALUES (?, ?, NOW(6)) " +
+                "ON DUPLICATE KEY UPDATE counter_value = counter_value + VALUES(counter_value), updated_at = VALUES(updated_at)",
+                name, delta);
+    }
+
+    /**
+     * 计数加一并返回新值，必须在事务中调用
+     * 计数器的行锁持有到事务结束，分配版本号时应使用独立的短事务
+     */
+    public long next(String name) {
+        increment(name, 1);
+        return get(name);
+    }
+
+    /**
+     * @return 计数值，计数器不存在时返回 null
+     */
+    public Long get(String name) {
+        List<Long> values = jdbcTemplate.queryForList("SELECT counter_value FROM system_counters WHERE name = ?", Long.class, name);
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    /**
+     * 按主键批量读取计数，不存在的计数器不出现在结果中
+     */
+    public Map<String, Long> findAll(Collection<String> names) {
+        Map<String, Long> counters = new HashMap<>(names.size() * 2);
+        if (names.isEmpty()) {
+            return counters;
+        }
+        String placeholders = String.join(",", Collections.nCopies(names.size(), "?"));
+        jdbcTemplate.query("SELECT name, counter_value FROM system_counters WHERE name IN (" + placeholders + ")",
+                rs -> {
+                    counters.put(rs.getString(1), rs.getLong(2));
+                }, names.toArray());
+        return counters;
+    }
+
+    /**
+     * 加行锁读取计数，阻塞并发的增减直到当前事务结束（用于对账）
+     */
+    public Long getForUpdate(String name) {
+        List<Long> values = jdbcTemplate.queryForList(
+                "SELECT counter_value FROM system_counters WHERE name = ? FOR UPDATE", Long.class, name);
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    /**
+     * 加行锁读取名称以 prefix 开头的全部计数器（用于按组合的计数器对账）
+     */
+    public Map<String, Long> findByPrefixForUpdate(String prefix) {
+        Map<String, Long> counters = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT name, counter_value FROM system_counters WHERE name LIKE ? ORDER BY name FOR UPDATE",
+                rs -> {
+                    counters.put(rs.getString(1), rs.getLong(2));
+                }, prefix.replace("_", "\\_") + "%");
+        return counters;
+    }
+
+    public void set(String name, long value) {
+        jdbcTemplate.update("INSERT INTO system_counters (name, counter_value, updated_at) VALUES (?, ?, NOW(6)) " +
+                "ON DUPLICATE KEY UPDATE counter_value = VALUES(counter_value), updated_at = VALUES(updated_at)", name, value);
+    }
+}
@@ -0,0 +1,106 @@
+package com.crypto.risk;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 组合风险估算结果，收益类指标均为比例（0.05 表示 5%），VaR 为 1 日持有期的损失比例
+ * 无法计算的指标为 NaN
+ */
+public final class PortfolioRisk {
+
+    private final double volatility;
+    private final double historicalVar95;
+    private final double historicalVar99;
+    private final double parametricVar95;
+    private final double parametricVar99;
+    private final double maxDrawdown;
+    private final double beta;
+    private final double coverage;
+    private final double[] rollingVolatility;
+    private final LocalDate rollingStart;
+
+    PortfolioRisk(double volatility, double historicalVar95, double historicalVar99,
+                  double parametricVar95, double parametricVar99, double maxDrawdown, double beta,
+                  double coverage, double[] rollingVolatility, LocalDate rollingStart) {
+        this.volatility = volatility;
+        this.historicalVar95 = historicalVar95;
+        this.historicalVar99 = historicalVar99;
+        this.parametricVar95 = parametricVar95;
+        this.parametricVar99 = parametricVar99;
+        this.maxDrawdown = maxDrawdown;
+        this.beta = beta;
+        this.coverage = coverage;
+        this.rollingVolatility = rollingVolatility;
+        this.rollingStart = rollingStart;
+    }
+
+    /**
+     * 输出接口用的指标汇总，无法计算的指标为 null
+     */
+    public Map<String, Object> summary() {
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("volatility", RiskModel.finiteOrNull(volatility));
+        summary.put("historicalVar95", RiskModel.finiteOrNull(historicalVar95));
+        summary.put("historicalVar99", RiskModel.finiteOrNull(historicalVar99));
+        summary.put("parametricVar95", RiskModel.finiteOrNull(parametricVar95));
+        summary.put("parametricVar99", RiskModel.finiteOrNull(parametricVar99));
+        summary.put("maxDrawdown", RiskModel.finiteOrNull(maxDrawdown));
+        summary.put("beta", RiskModel.finiteOrNull(beta));
+        summary.put("coverage", coverage);
+        return summary;
+    }
+
+    /**
+     * 年化波动率（由协方差矩阵计算）
+     */
+    public double getVolatility() {
+        return volatility;
+    }
+
+    public double getHistoricalVar95() {
+        return historicalVar95;
+    }
+
+    public double getHistoricalVar99() {
+        return historicalVar99;
+    }
+
+    public double getParametricVar95() {
+        return parametricVar95;
+    }
+
+    public double getParametricVar99() {
+        return parametricVar99;
+    }
+
+    public double getMaxDrawdown() {
+        return maxDrawdown;
+    }
+
+    public double getBeta() {
+        return beta;
+    }
+
+    /**
+     * 有价格历史的币种占组合的比例
+     */
+    public double getCoverage() {
+        return coverage;
+    }
+
+    /**
+     * 按日的滚动年化波动率，未请求或数据不足时为空数组
+     */
+    public double[] getRollingVolatility() {
+        return rollingVolatility;
+    }
+
+    /**
+     * 滚动波动率第一个值对应的日期
+     */
+    public LocalDate getRollingStart() {
+        return rollingStart;
+    }
+}
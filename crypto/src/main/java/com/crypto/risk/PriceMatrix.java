@@ -0,0 +1,107 @@
+package com.crypto.risk;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按自然日对齐的日线收盘价矩阵：prices[symbol][day]，day 为距 start 的天数
+ * 第一条记录之前为 NaN，之后缺失的日期沿用前一天的收盘价（当天收益为 0）
+ */
+public final class PriceMatrix {
+
+    private final LocalDate start;
+    private final int days;
+    private final String[] symbols;
+    private final double[][] prices;
+    // 每个币种第一条记录所在的日
+    private final int[] firstDay;
+
+    private PriceMatrix(LocalDate start, int days, String[] symbols, double[][] prices, int[] firstDay) {
+        this.start = start;
+        this.days = days;
+        this.symbols = symbols;
+        this.prices = prices;
+        this.firstDay = firstDay;
+    }
+
+    public static Builder builder(LocalDate start, int days) {
+        return new Builder(start, days);
+    }
+
+    public LocalDate getStart() {
+        return start;
+    }
+
+    public LocalDate dateOf(int day) {
+        return start.plusDays(day);
+    }
+
+    public int days() {
+        return days;
+    }
+
+    public int size() {
+        return symbols.length;
+    }
+
+    public String getSymbol(int index) {
+        return symbols[index];
+    }
+
+    public double[] getPrices(int index) {
+        return prices[index];
+    }
+
+    public int getFirstDay(int index) {
+        return firstDay[index];
+    }
+
+    public static final class Builder {
+        private final LocalDate start;
+        private final int days;
+        private final Map<String, double[]> columns = new LinkedHashMap<>();
+
+        private Builder(LocalDate start, int days) {
+            this.start = start;
+            this.days = days;
+        }
+
+        /**
+         * 记录某天的收盘价，窗口外的日期与非正价格忽略
+         */
+        public Builder add(String symbol, LocalDate date, double close) {
+            long day = date.toEpochDay() - start.toEpochDay();
+            if (day < 0 || day >= days || !(close > 0)) {
+                return this;
+            }
+            columns.computeIfAbsent(symbol, s -> {
+                double[] column = new double[days];
+                Arrays.fill(column, Double.NaN);
+                return column;
+            })[(int) day] = close;
+            return this;
+        }
+
+        public PriceMatrix build() {
+            String[] symbols = columns.keySet().toArray(new String[0]);
+            double[][] prices = columns.values().toArray(new double[0][]);
+            int[] firstDay = new int[symbols.length];
+            for (int i = 0; i < symbols.length; i++) {
+                double[] column = prices[i];
+                int first = 0;
+                while (first < days && Double.isNaN(column[first])) {
+                    first++;
+                }
+                firstDay[i] = first;
+                for (int day = first + 1; day < days; day++) {
+                    if (Double.isNaN(column[day])) {
+                        column[day] = column[day - 1];
+                    }
+                }
+            }
+            return new PriceMatrix(start, days, symbols, prices, firstDay);
+        }
+    }
+}
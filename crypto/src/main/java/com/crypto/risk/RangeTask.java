@@ -0,0 +1,41 @@
+package com.crypto.risk;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * 把 [from, to) 二分拆成不大于 threshold 的区间并行执行；区间粒度小时工作窃取可以平衡三角矩阵等不均匀的负载
+ */
+final class RangeTask extends RecursiveAction {
+
+    private final int from;
+    private final int to;
+    private final int threshold;
+    private final IntConsumer body;
+
+    private RangeTask(int from, int to, int threshold, IntConsumer body) {
+        this.from = from;
+        this.to = to;
+        this.threshold = threshold;
+        this.body = body;
+    }
+
+    static void forEach(ForkJoinPool pool, int from, int to, int threshold, IntConsumer body) {
+        if (to > from) {
+            pool.invoke(new RangeTask(from, to, Math.max(threshold, 1), body));
+        }
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= threshold) {
+            for (int i = from; i < to; i++) {
+                body.accept(i);
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        invokeAll(new RangeTask(from, mid, threshold, body), new RangeTask(mid, to, threshold, body));
+    }
+}
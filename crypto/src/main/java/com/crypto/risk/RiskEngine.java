@@ -0,0 +1,184 @@
+package com.crypto.risk;
+
+import com.crypto.repository.PriceHistoryJdbcRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 风险数据按天缓存：从日线收盘价（不含当天未收盘的 K 线）计算，同一天内直接复用
+ * 1. 跨天后在后台线程重新计算，计算期间继续返回前一天的数据
+ * 2. 计算失败或没有任何日线时保留已有数据，retry-ms 内不再重试
+ */
+@Component
+public class RiskEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(RiskEngine.class);
+
+    private final PriceHistoryJdbcRepository priceHistoryJdbcRepository;
+    private final int lookbackDays;
+    private final int volatilityWindow;
+    private final String benchmark;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final long retryMillis;
+    // 同一时间只有一个线程计算
+    private final ReentrantLock buildLock = new ReentrantLock();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "risk-model-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile RiskModel model;
+    // model 对应的自然日
+    private volatile LocalDate modelDay;
+    // 最近一次计算失败的时间
+    private volatile long failedAt;
+
+    @Autowired
+    public RiskEngine(PriceHistoryJdbcRepository priceHistoryJdbcRepository,
+                      @Value("${crypto.risk.lookback-days:1095}") int lookbackDays,
+                      @Value("${crypto.risk.volatility-window:30}") int volatilityWindow,
+                      @Value("${crypto.risk.benchmark:BTC}") String benchmark,
+                      @Value("${crypto.risk.parallelism:0}") int parallelism,
+                      @Value("${crypto.risk.retry-ms:60000}") long retryMillis) {
+        this.priceHistoryJdbcRepository = priceHistoryJdbcRepository;
+        this.lookbackDays = lookbackDays;
+        this.volatilityWindow = volatilityWindow;
+        this.benchmark = benchmark;
+        this.ownsPool = parallelism > 0;
+        this.pool = ownsPool ? new ForkJoinPool(parallelism) : ForkJoinPool.commonPool();
+        this.retryMillis = retryMillis;
+    }
+
+    /**
+     * 风险数据，从未计算成功时在调用线程中计算；已有数据时不等待当天的重新计算
+     *
+     * @throws IllegalStateException 没有可用的风险数据
+     */
+    public RiskModel model() {
+        RiskModel current = current();
+        if (current != null) {
+            return current;
+        }
+        refresh();
+        current = model;
+        if (current == null) {
+            throw new IllegalStateException("风险数据暂不可用：没有日线收盘价或计算失败");
+        }
+        return current;
+    }
+
+    /**
+     * 已有的风险数据（可能是前一天的），不等待计算；没有时返回 null
+     */
+    public RiskModel current() {
+        RiskModel current = model;
+        if (current == null || !LocalDate.now().equals(modelDay)) {
+            refreshAsync();
+        }
+        return current;
+    }
+
+    /**
+     * 风险计算使用的线程池，批量场景估算也在其中并行
+     */
+    ForkJoinPool pool() {
+        return pool;
+    }
+
+    // 每天凌晨预先计算，避免当天第一次请求等待加载
+    @Scheduled(cron = "${crypto.risk.warm-cron:0 5 0 * * ?}")
+    public void warm() {
+        refresh();
+    }
+
+    private void refreshAsync() {
+        if (inBackoff() || !refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    refresh();
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.set(false);
+        }
+    }
+
+    // 当天数据已计算或处于失败重试间隔内时直接返回
+    private void refresh() {
+        buildLock.lock();
+        try {
+            LocalDate today = LocalDate.now();
+            if (model != null && today.equals(modelDay) || inBackoff()) {
+                return;
+            }
+            try {
+                RiskModel built = build(today);
+                if (built == null) {
+                    failedAt = System.currentTimeMillis();
+                    log.warn("风险数据未计算：{} 之前没有日线收盘价", today);
+                    return;
+                }
+                model = built;
+                modelDay = today;
+                failedAt = 0;
+            } catch (RuntimeException e) {
+                failedAt = System.currentTimeMillis();
+                log.error("风险数据计算失败：{}", e.getMessage(), e);
+            }
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    private boolean inBackoff() {
+        long failed = failedAt;
+        return failed != 0 && System.currentTimeMillis() - failed < retryMillis;
+    }
+
+    // 没有任何日线时返回 null
+    private RiskModel build(LocalDate today) {
+        long started = System.nanoTime();
+        LocalDate start = today.minusDays(lookbackDays);
+        PriceMatrix.Builder builder = PriceMatrix.builder(start, lookbackDays);
+        priceHistoryJdbcRepository.streamDailyCloses(start.atStartOfDay(), today.atStartOfDay(),
+                rs -> builder.add(rs.getString(1), rs.getTimestamp(2).toLocalDateTime().toLocalDate(), rs.getDouble(3)));
+        PriceMatrix matrix = builder.build();
+        if (matrix.size() == 0) {
+            return null;
+        }
+        long loaded = System.nanoTime();
+        RiskModel computed = RiskModel.compute(matrix, volatilityWindow, benchmark, pool);
+        log.info("风险数据已计算：{} 个币种 × {} 天，加载 {} ms，计算 {} ms", matrix.size(), matrix.days(),
+                (loaded - started) / 1_000_000, (System.nanoTime() - loaded) / 1_000_000);
+        return computed;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.crypto.risk;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 由日线收盘价计算的市场风险数据：日收益、近期波动率、最大回撤、相对基准的 beta、协方差与相关系数矩阵
+ * 计算完成后只读，可被多个线程同时用于组合估算
+ * 两个币种的协方差只在双方都有价格的重叠区间内计算，重叠不足 MIN_OBSERVATIONS 天时为 NaN
+ */
+public final class RiskModel {
+
+    // 加密货币全年交易，按 365 天年化
+    public static final double PERIODS_PER_YEAR = 365;
+    static final int MIN_OBSERVATIONS = 10;
+    private static final double Z_95 = 1.6448536269514722;
+    private static final double Z_99 = 2.3263478740408408;
+    // 协方差矩阵每个并行任务的行数
+    private static final int ROWS_PER_TASK = 4;
+
+    private final PriceMatrix matrix;
+    private final int volatilityWindow;
+    private final int periods;
+    // returns[i][t] 为第 t 天到第 t+1 天的简单收益，第一条价格之前为 0
+    private final double[][] returns;
+    private final double[] volatility;
+    private final double[] maxDrawdown;
+    private final double[] beta;
+    private final double[][] covariance;
+    private final double[][] correlation;
+    private final Map<String, Integer> indexBySymbol;
+
+    private RiskModel(PriceMatrix matrix, int volatilityWindow) {
+        int size = matrix.size();
+        this.matrix = matrix;
+        this.volatilityWindow = volatilityWindow;
+        this.periods = Math.max(matrix.days() - 1, 0);
+        this.returns = new double[size][];
+        this.volatility = new double[size];
+        this.maxDrawdown = new double[size];
+        this.beta = new double[size];
+        this.covariance = new double[size][size];
+        this.correlation = new double[size][size];
+        this.indexBySymbol = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            indexBySymbol.put(matrix.getSymbol(i), i);
+        }
+    }
+
+    /**
+     * @param benchmark 计算 beta 的基准币种，不在矩阵中时 beta 全部为 NaN
+     */
+    public static RiskModel compute(PriceMatrix matrix, int volatilityWindow, String benchmark, ForkJoinPool pool) {
+        RiskModel model = new RiskModel(matrix, volatilityWindow);
+        int size = matrix.size();
+        RangeTask.forEach(pool, 0, size, ROWS_PER_TASK * 4, model::computeSymbol);
+        RangeTask.forEach(pool, 0, size, ROWS_PER_TASK, model::computeCovarianceRow);
+        int benchmarkIndex = model.indexOf(benchmark);
+        for (int i = 0; i < size; i++) {
+            model.beta[i] = benchmarkIndex < 0 ? Double.NaN : model.betaAgainst(i, benchmarkIndex);
+        }
+        return model;
+    }
+
+    private void computeSymbol(int i) {
+        double[] prices = matrix.getPrices(i);
+        int first = matrix.getFirstDay(i);
+        double[] r = new double[periods];
+        double peak = Double.NaN;
+        double drawdown = 0;
+        for (int day = first; day < matrix.days(); day++) {
+            double price = prices[day];
+            if (day > first) {
+                r[day - 1] = price / prices[day - 1] - 1;
+            }
+            if (!(price <= peak)) {
+                peak = price;
+            }
+            drawdown = Math.max(drawdown, 1 - price / peak);
+        }
+        returns[i] = r;
+        maxDrawdown[i] = drawdown;
+        // 最近 volatilityWindow 个有效收益的年化标准差
+        int from = Math.max(first, periods - volatilityWindow);
+        volatility[i] = Math.sqrt(variance(r, from, periods) * PERIODS_PER_YEAR);
+    }
+
+    // 只计算 j >= i 的一半，对称位置由同一任务写入，不同任务之间没有重叠的单元格
+    private void computeCovarianceRow(int i) {
+        double[] x = returns[i];
+        for (int j = i; j < returns.length; j++) {
+            double[] y = returns[j];
+            int from = Math.max(matrix.getFirstDay(i), matrix.getFirstDay(j));
+            int n = periods - from;
+            double cov = Double.NaN;
+            double corr = Double.NaN;
+            if (n >= MIN_OBSERVATIONS) {
+                double sx = 0, sy = 0, sxx = 0, syy = 0, sxy = 0;
+                for (int t = from; t < periods; t++) {
+                    double a = x[t];
+                    double b = y[t];
+                    sx += a;
+                    sy += b;
+                    sxx += a * a;
+                    syy += b * b;
+                    sxy += a * b;
+                }
+                cov = (sxy - sx * sy / n) / (n - 1);
+                double vx = (sxx - sx * sx / n) / (n - 1);
+                double vy = (syy - sy * sy / n) / (n - 1);
+                corr = vx > 0 && vy > 0 ? cov / Math.sqrt(vx * vy) : Double.NaN;
+            }
+            covariance[i][j] = cov;
+            covariance[j][i] = cov;
+            correlation[i][j] = corr;
+            correlation[j][i] = corr;
+        }
+    }
+
+    private double betaAgainst(int i, int benchmarkIndex) {
+        int from = Math.max(matrix.getFirstDay(i), matrix.getFirstDay(benchmarkIndex));
+        double benchmarkVariance = variance(returns[benchmarkIndex], from, periods);
+        return benchmarkVariance > 0 ? covariance[i][benchmarkIndex] / benchmarkVariance : Double.NaN;
+    }
+
+    private static double variance(double[] values, int from, int to) {
+        int n = to - from;
+        if (n < 2) {
+            return Double.NaN;
+        }
+        double sum = 0, sumSquares = 0;
+        for (int t = from; t < to; t++) {
+            sum += values[t];
+            sumSquares += values[t] * values[t];
+        }
+        return Math.max((sumSquares - sum * sum / n) / (n - 1), 0);
+    }
+
+    /**
+     * 按给定权重（占总价值的比例）估算组合风险，没有价格历史的币种不计入，比例见 coverage
+     * 组合日收益按当前权重回放历史收益（币种上市之前按现金处理）
+     * @param withSeries 是否计算组合的滚动波动率序列
+     */
+    public PortfolioRisk evaluate(String[] symbols, double[] weights, boolean withSeries) {
+        int[] indexes = new int[symbols.length];
+        for (int k = 0; k < symbols.length; k++) {
+            indexes[k] = indexOf(symbols[k]);
+        }
+        return evaluate(indexes, weights, withSeries);
+    }
+
+    /**
+     * 同上，币种已事先换算为本模型中的下标（-1 表示没有价格历史），批量估算时避免重复查找
+     */
+    public PortfolioRisk evaluate(int[] indexes, double[] weights, boolean withSeries) {
+        int[] held = new int[indexes.length];
+        double[] w = new double[indexes.length];
+        int count = 0;
+        double coverage = 0;
+        for (int k = 0; k < indexes.length; k++) {
+            int index = indexes[k];
+            if (index >= 0 && weights[k] != 0) {
+                held[count] = index;
+                w[count++] = weights[k];
+                coverage += weights[k];
+            }
+        }
+
+        double[] portfolio = new double[periods];
+        int start = periods;
+        double variance = 0;
+        double portfolioBeta = 0;
+        for (int a = 0; a < count; a++) {
+            double[] r = returns[held[a]];
+            double weight = w[a];
+            for (int t = 0; t < periods; t++) {
+                portfolio[t] += weight * r[t];
+            }
+            start = Math.min(start, matrix.getFirstDay(held[a]));
+            double[] row = covariance[held[a]];
+            for (int b = 0; b < count; b++) {
+                double cov = row[held[b]];
+                if (!Double.isNaN(cov)) {
+                    variance += weight * w[b] * cov;
+                }
+            }
+            if (!Double.isNaN(beta[held[a]])) {
+                portfolioBeta += weight * beta[held[a]];
+            }
+        }
+
+        double sigma = Math.sqrt(Math.max(variance, 0));
+        int n = periods - start;
+        double historical95 = Double.NaN;
+        double historical99 = Double.NaN;
+        double drawdown = Double.NaN;
+        if (n >= MIN_OBSERVATIONS) {
+            double[] sorted = Arrays.copyOfRange(portfolio, start, periods);
+            Arrays.sort(sorted);
+            historical95 = -sorted[(int) Math.floor(n * 0.05)];
+            historical99 = -sorted[(int) Math.floor(n * 0.01)];
+            drawdown = maxDrawdown(portfolio, start, periods);
+        }
+        boolean covered = count > 0 && n >= MIN_OBSERVATIONS;
+        return new PortfolioRisk(
+                covered ? sigma * Math.sqrt(PERIODS_PER_YEAR) : Double.NaN,
+                historical95, historical99,
+                covered ? Z_95 * sigma : Double.NaN,
+                covered ? Z_99 * sigma : Double.NaN,
+                drawdown,
+                count > 0 ? portfolioBeta : Double.NaN,
+                coverage,
+                withSeries && covered ? rollingVolatility(portfolio, start) : new double[0],
+                matrix.dateOf(start + volatilityWindow));
+    }
+
+    private static double maxDrawdown(double[] returns, int from, int to) {
+        double value = 1;
+        double peak = 1;
+        double drawdown = 0;
+        for (int t = from; t < to; t++) {
+            value *= 1 + returns[t];
+            peak = Math.max(peak, value);
+            drawdown = Math.max(drawdown, 1 - value / peak);
+        }
+        return drawdown;
+    }
+
+    // 第 k 个值为截至第 start + volatilityWindow + k 天的窗口年化波动率
+    private double[] rollingVolatility(double[] portfolio, int start) {
+        int count = periods - start - volatilityWindow + 1;
+        if (count <= 0 || volatilityWindow < 2) {
+            return new double[0];
+        }
+        double[] series = new double[count];
+        double sum = 0, sumSquares = 0;
+        for (int t = start; t < periods; t++) {
+            sum += portfolio[t];
+            sumSquares += portfolio[t] * portfolio[t];
+            if (t - start >= volatilityWindow) {
+                double old = portfolio[t - volatilityWindow];
+                sum -= old;
+                sumSquares -= old * old;
+            }
+            if (t - start >= volatilityWindow - 1) {
+                double v = (sumSquares - sum * sum / volatilityWindow) / (volatilityWindow - 1);
+                series[t - start - volatilityWindow + 1] = Math.sqrt(Math.max(v, 0) * PERIODS_PER_YEAR);
+            }
+        }
+        return series;
+    }
+
+    /**
+     * 最后一条日线的日期
+     */
+    public LocalDate getAsOf() {
+        return matrix.dateOf(matrix.days() - 1);
+    }
+
+    public int getVolatilityWindow() {
+        return volatilityWindow;
+    }
+
+    public int size() {
+        return matrix.size();
+    }
+
+    public String getSymbol(int index) {
+        return matrix.getSymbol(index);
+    }
+
+    /**
+     * @return symbol 对应的下标，不存在时返回 -1
+     */
+    public int indexOf(String symbol) {
+        Integer index = symbol == null ? null : indexBySymbol.get(symbol);
+        return index == null ? -1 : index;
+    }
+
+    public double getVolatility(int index) {
+        return volatility[index];
+    }
+
+    public double getMaxDrawdown(int index) {
+        return maxDrawdown[index];
+    }
+
+    public double getBeta(int index) {
+        return beta[index];
+    }
+
+    public double getCovariance(int i, int j) {
+        return covariance[i][j];
+    }
+
+    public double getCorrelation(int i, int j) {
+        return correlation[i][j];
+    }
+
+    /**
+     * NaN、无穷转为 null，便于输出 JSON
+     */
+    public static Double finiteOrNull(double value) {
+        return Double.isFinite(value) ? value : null;
+    }
+}
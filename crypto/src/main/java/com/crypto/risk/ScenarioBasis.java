@@ -0,0 +1,184 @@
+package com.crypto.risk;
+
+import com.crypto.valuation.PortfolioValuation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 一批调仓场景共用的输入：当前持仓与价格、目标中出现的其他币种的行情价格、各币种在风险数据中的下标
+ * 构建后只读，各场景只复制一份占比数组，可并行估算
+ */
+public final class ScenarioBasis {
+
+    private static final double EPSILON = 1e-9;
+    // 每个并行任务估算的场景数
+    private static final int SCENARIOS_PER_TASK = 16;
+
+    private final String[] symbols;
+    private final double[] prices;
+    private final double[] values;
+    // 当前占比（%）
+    private final double[] weights;
+    private final int[] riskIndexes;
+    private final Map<String, Integer> indexBySymbol;
+    private final double totalValue;
+    private final RiskModel model;
+    private final double feeRate;
+    private final double minTradeValue;
+    private final PortfolioRisk baseline;
+
+    private ScenarioBasis(String[] symbols, double[] prices, double[] values, double[] weights, double totalValue,
+                          RiskModel model, double feeRate, double minTradeValue) {
+        this.symbols = symbols;
+        this.prices = prices;
+        this.values = values;
+        this.weights = weights;
+        this.totalValue = totalValue;
+        this.model = model;
+        this.feeRate = feeRate;
+        this.minTradeValue = minTradeValue;
+        this.riskIndexes = new int[symbols.length];
+        this.indexBySymbol = new HashMap<>(symbols.length * 2);
+        double[] current = new double[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            riskIndexes[i] = model.indexOf(symbols[i]);
+            indexBySymbol.put(symbols[i], i);
+            current[i] = totalValue > 0 ? values[i] / totalValue : 0;
+        }
+        this.baseline = model.evaluate(riskIndexes, current, false);
+    }
+
+    /**
+     * @param extraPrices 未持有但可能买入的币种的价格，与持仓重复的忽略
+     * @param feeRate 按成交额计算的手续费率
+     * @param minTradeValue 成交额低于该值的调整忽略
+     */
+    public static ScenarioBasis of(PortfolioValuation valuation, Map<String, Double> extraPrices, RiskModel model,
+                                   double feeRate, double minTradeValue) {
+        int capacity = valuation.size() + extraPrices.size();
+        String[] symbols = new String[capacity];
+        double[] prices = new double[capacity];
+        double[] values = new double[capacity];
+        double[] weights = new double[capacity];
+        int size = 0;
+        for (int i = 0; i < valuation.size(); i++, size++) {
+            symbols[size] = valuation.getSymbol(i);
+            prices[size] = valuation.getPrice(i);
+            values[size] = valuation.getValue(i);
+            weights[size] = valuation.getPercentage(i);
+        }
+        for (Map.Entry<String, Double> entry : extraPrices.entrySet()) {
+            if (valuation.indexOf(entry.getKey()) < 0) {
+                symbols[size] = entry.getKey();
+                prices[size++] = entry.getValue();
+            }
+        }
+        return new ScenarioBasis(Arrays.copyOf(symbols, size), Arrays.copyOf(prices, size), Arrays.copyOf(values, size),
+                Arrays.copyOf(weights, size), valuation.getTotalValue(), model, feeRate, minTradeValue);
+    }
+
+    /**
+     * 并行估算一批场景，结果与输入顺序一致
+     */
+    public List<ScenarioResult> evaluateAll(List<String> names, List<Map<String, Double>> targets, boolean withTrades,
+                                            ForkJoinPool pool) {
+        ScenarioResult[] results = new ScenarioResult[targets.size()];
+        RangeTask.forEach(pool, 0, results.length, SCENARIOS_PER_TASK,
+                k -> results[k] = evaluate(names.get(k), targets.get(k), withTrades));
+        return List.of(results);
+    }
+
+    /**
+     * 估算调仓到目标占比（%）需要的交易、费用、换手率与调仓后的风险
+     * 未列出的币种保持当前占比；合计超过 100% 时按比例缩放，不足部分以现金持有
+     */
+    public ScenarioResult evaluate(String name, Map<String, Double> target, boolean withTrades) {
+        double[] target100 = weights.clone();
+        List<String> unpriced = Collections.emptyList();
+        for (Map.Entry<String, Double> entry : target.entrySet()) {
+            Double weight = entry.getValue();
+            if (weight == null) {
+                continue;
+            }
+            if (!(weight >= 0)) {
+                throw new IllegalArgumentException("目标占比不能为负数：" + entry.getKey());
+            }
+            Integer index = indexBySymbol.get(entry.getKey());
+            if (index == null) {
+                if (unpriced.isEmpty()) {
+                    unpriced = new ArrayList<>();
+                }
+                unpriced.add(entry.getKey());
+                continue;
+            }
+            target100[index] = weight;
+        }
+
+        double sum = 0;
+        for (double weight : target100) {
+            sum += weight;
+        }
+        boolean normalized = sum > 100 + EPSILON;
+        double scale = normalized ? 1.0 / sum : 0.01;
+        double[] fractions = new double[target100.length];
+        List<ScenarioResult.Trade> trades = withTrades ? new ArrayList<>() : Collections.emptyList();
+        int tradeCount = 0;
+        double buyValue = 0;
+        double sellValue = 0;
+        for (int i = 0; i < fractions.length; i++) {
+            fractions[i] = target100[i] * scale;
+            double delta = fractions[i] * totalValue - values[i];
+            if (Math.abs(delta) < minTradeValue || !(prices[i] > 0)) {
+                continue;
+            }
+            tradeCount++;
+            if (delta > 0) {
+                buyValue += delta;
+            } else {
+                sellValue -= delta;
+            }
+            if (withTrades) {
+                trades.add(new ScenarioResult.Trade(symbols[i], delta > 0 ? "BUY" : "SELL",
+                        Math.abs(delta) / prices[i], prices[i], Math.abs(delta), Math.abs(delta) * feeRate));
+            }
+        }
+        double traded = buyValue + sellValue;
+        return new ScenarioResult(name, trades, tradeCount, buyValue, sellValue, traded * feeRate,
+                totalValue > 0 ? traded / 2 / totalValue * 100 : 0,
+                normalized ? 0 : Math.max(100 - sum, 0), normalized, unpriced,
+                model.evaluate(riskIndexes, fractions, false));
+    }
+
+    public double getTotalValue() {
+        return totalValue;
+    }
+
+    public double getFeeRate() {
+        return feeRate;
+    }
+
+    /**
+     * 当前持仓的风险，作为各场景的对照
+     */
+    public PortfolioRisk getBaseline() {
+        return baseline;
+    }
+
+    public RiskModel getModel() {
+        return model;
+    }
+
+    /**
+     * 当前占比（%），币种不在本批次中时返回 0
+     */
+    public double getCurrentWeight(String symbol) {
+        Integer index = indexBySymbol.get(symbol);
+        return index == null ? 0 : weights[index];
+    }
+}
@@ -0,0 +1,88 @@
+package com.crypto.risk;
+
+import com.crypto.entity.CryptoCurrency;
+import com.crypto.quote.QuoteSnapshot;
+import com.crypto.quote.QuoteSnapshotHolder;
+import com.crypto.valuation.LiveValuationEngine;
+import com.crypto.valuation.PortfolioValuation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量调仓场景估算：一次取当前持仓、行情与当天的风险数据，所有场景共用，在风险计算的线程池中并行估算
+ */
+@Component
+public class ScenarioEngine {
+
+    private final RiskEngine riskEngine;
+    private final LiveValuationEngine liveValuationEngine;
+    private final QuoteSnapshotHolder quoteSnapshotHolder;
+    private final double feeRate;
+    private final double minTradeValue;
+    private final int maxScenarios;
+
+    @Autowired
+    public ScenarioEngine(RiskEngine riskEngine,
+                          LiveValuationEngine liveValuationEngine,
+                          QuoteSnapshotHolder quoteSnapshotHolder,
+                          @Value("${crypto.scenario.fee-rate:0.001}") double feeRate,
+                          @Value("${crypto.scenario.min-trade-value:1}") double minTradeValue,
+                          @Value("${crypto.scenario.max-scenarios:20000}") int maxScenarios) {
+        this.riskEngine = riskEngine;
+        this.liveValuationEngine = liveValuationEngine;
+        this.quoteSnapshotHolder = quoteSnapshotHolder;
+        this.feeRate = feeRate;
+        this.minTradeValue = minTradeValue;
+        this.maxScenarios = maxScenarios;
+    }
+
+    /**
+     * 校验一批场景，须在 basis 之前调用，超限或参数错误的请求不会去取持仓与行情
+     * @param derived 之后由服务端派生追加的场景数（如中间方案），同样计入上限
+     */
+    public void validate(List<Map<String, Double>> targets, int derived) {
+        if ((long) targets.size() + derived > maxScenarios) {
+            throw new IllegalArgumentException("单次最多估算 " + maxScenarios + " 个场景");
+        }
+        for (Map<String, Double> target : targets) {
+            target.forEach((symbol, weight) -> {
+                if (weight != null && !(weight >= 0)) {
+                    throw new IllegalArgumentException("目标占比不能为负数：" + symbol);
+                }
+            });
+        }
+    }
+
+    /**
+     * 准备一个投资组合一批场景的共用输入，目标中出现但未持有的币种按最新行情定价
+     */
+    public ScenarioBasis basis(long portfolioId, List<Map<String, Double>> targets) {
+        PortfolioValuation valuation = liveValuationEngine.snapshot(portfolioId);
+        QuoteSnapshot quotes = quoteSnapshotHolder.current();
+        Map<String, Double> extraPrices = new HashMap<>();
+        for (Map<String, Double> target : targets) {
+            for (String symbol : target.keySet()) {
+                if (valuation.indexOf(symbol) < 0 && !extraPrices.containsKey(symbol)) {
+                    CryptoCurrency quote = quotes.get(symbol);
+                    if (quote != null && quote.getUsdPrice() != null) {
+                        extraPrices.put(symbol, quote.getUsdPrice().doubleValue());
+                    }
+                }
+            }
+        }
+        return ScenarioBasis.of(valuation, extraPrices, riskEngine.model(), feeRate, minTradeValue);
+    }
+
+    /**
+     * 并行估算全部场景，结果与输入顺序一致；场景须已通过 validate
+     */
+    public List<ScenarioResult> evaluate(ScenarioBasis basis, List<String> names, List<Map<String, Double>> targets,
+                                         boolean withTrades) {
+        return basis.evaluateAll(names, targets, withTrades, riskEngine.pool());
+    }
+}
@@ -0,0 +1,140 @@
+package com.crypto.risk;
+
+import java.util.List;
+
+/**
+ * 单个调仓场景的估算结果，金额单位为 USD，占比单位为 %
+ */
+public final class ScenarioResult {
+
+    private final String name;
+    private final List<Trade> trades;
+    private final int tradeCount;
+    private final double buyValue;
+    private final double sellValue;
+    private final double fees;
+    private final double turnover;
+    private final double cashWeight;
+    private final boolean normalized;
+    private final List<String> unpriced;
+    private final PortfolioRisk risk;
+
+    ScenarioResult(String name, List<Trade> trades, int tradeCount, double buyValue, double sellValue, double fees,
+                   double turnover, double cashWeight, boolean normalized, List<String> unpriced, PortfolioRisk risk) {
+        this.name = name;
+        this.trades = trades;
+        this.tradeCount = tradeCount;
+        this.buyValue = buyValue;
+        this.sellValue = sellValue;
+        this.fees = fees;
+        this.turnover = turnover;
+        this.cashWeight = cashWeight;
+        this.normalized = normalized;
+        this.unpriced = unpriced;
+        this.risk = risk;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 交易明细，未请求时为空列表
+     */
+    public List<Trade> getTrades() {
+        return trades;
+    }
+
+    public int getTradeCount() {
+        return tradeCount;
+    }
+
+    public double getBuyValue() {
+        return buyValue;
+    }
+
+    public double getSellValue() {
+        return sellValue;
+    }
+
+    public double getFees() {
+        return fees;
+    }
+
+    /**
+     * 单边换手率（%）：买卖总额的一半占组合总价值的比例
+     */
+    public double getTurnover() {
+        return turnover;
+    }
+
+    /**
+     * 调仓后未配置、以现金持有的占比
+     */
+    public double getCashWeight() {
+        return cashWeight;
+    }
+
+    /**
+     * 目标占比合计超过 100% 时按比例缩放
+     */
+    public boolean isNormalized() {
+        return normalized;
+    }
+
+    /**
+     * 没有行情价格、无法交易的币种
+     */
+    public List<String> getUnpriced() {
+        return unpriced;
+    }
+
+    public PortfolioRisk getRisk() {
+        return risk;
+    }
+
+    public static final class Trade {
+        private final String asset;
+        private final String side;
+        private final double quantity;
+        private final double price;
+        private final double value;
+        private final double fee;
+
+        Trade(String asset, String side, double quantity, double price, double value, double fee) {
+            this.asset = asset;
+            this.side = side;
+            this.quantity = quantity;
+            this.price = price;
+            this.value = value;
+            this.fee = fee;
+        }
+
+        public String getAsset() {
+            return asset;
+        }
+
+        /**
+         * BUY / SELL
+         */
+        public String getSide() {
+            return side;
+        }
+
+        public double getQuantity() {
+            return quantity;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public double getValue() {
+            return value;
+        }
+
+        public double getFee() {
+            return fee;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.crypto.scheduler;
+
+import com.crypto.entity.PortfolioHistory;
+import com.crypto.repository.NamedLockRepository;
+import com.crypto.repository.PortfolioJdbcRepository;
+import com.crypto.valuation.LiveValuationEngine;
+import com.crypto.valuation.PortfolioHistoryStore;
+import com.crypto.valuation.PortfolioValuation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 每日持仓备份：逐个投资组合按 (portfolio_id, date, crypto_type) upsert，每个组合一个事务批量写入，重复执行结果相同
+ * 停机错过的日期沿用前一个有记录日期的持仓补齐（不回溯历史价格）；多节点通过数据库命名锁保证同一时刻只有一个节点执行
+ * 单个组合失败不影响其他组合，全部处理完后再报告失败
+ * 指标通过 /actuator/metrics/crypto.portfolio.backup、/actuator/metrics/crypto.portfolio.backup.rows 查看
+ */
+@Component
+public class PortfolioBackupJob {
+
+    private static final Logger log = LoggerFactory.getLogger(PortfolioBackupJob.class);
+    private static final String LOCK_NAME = "crypto.portfolio-backup";
+
+    private final PortfolioJdbcRepository portfolioJdbcRepository;
+    private final NamedLockRepository namedLockRepository;
+    private final LiveValuationEngine liveValuationEngine;
+    private final PortfolioHistoryStore portfolioHistoryStore;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry registry;
+    private final Counter writtenRows;
+    private final Counter filledDays;
+    private final int catchUpDays;
+    private final int batchSize;
+    private final boolean onStartup;
+
+    @Autowired
+    public PortfolioBackupJob(PortfolioJdbcRepository portfolioJdbcRepository,
+                              NamedLockRepository namedLockRepository,
+                              LiveValuationEngine liveValuationEngine,
+                              PortfolioHistoryStore portfolioHistoryStore,
+                              TransactionTemplate transactionTemplate,
+                              MeterRegistry registry,
+                              @Value("${crypto.portfolio.backup.catch-up-days:31}") int catchUpDays,
+                              @Value("${crypto.ingest.batch-size:500}") int batchSize,
+                              @Value("${crypto.portfolio.backup.on-startup:true}") boolean onStartup) {
+        this.portfolioJdbcRepository = portfolioJdbcRepository;
+        this.namedLockRepository = namedLockRepository;
+        this.liveValuationEngine = liveValuationEngine;
+        this.portfolioHistoryStore = portfolioHistoryStore;
+        this.transactionTemplate = transactionTemplate;
+        this.registry = registry;
+        this.writtenRows = Counter.builder("crypto.portfolio.backup.rows")
+                .description("持仓备份写入的历史行数")
+                .register(registry);
+        this.filledDays = Counter.builder("crypto.portfolio.backup.filled-days")
+                .description("持仓备份补齐的缺失日期数")
+                .register(registry);
+        this.catchUpDays = catchUpDays;
+        this.batchSize = batchSize;
+        this.onStartup = onStartup;
+    }
+
+    // 启动时补齐停机期间错过的备份
+    @EventListener(ApplicationReadyEvent.class)
+    public void backupOnStartup() {
+        if (!onStartup) {
+            return;
+        }
+        try {
+            backup();
+        } catch (RuntimeException e) {
+            log.error("启动时持仓备份失败：{}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 备份全部投资组合今天的持仓并补齐最近 catchUpDays 天内缺失的日期
+     * @return 写入的行数；其他节点正在执行时返回 -1
+     */
+    public int backup() {
+        Timer.Sample sample = Timer.start(registry);
+        String result = "failure";
+        try {
+            int[] written = {0};
+            boolean ran = namedLockRepository.runExclusively(LOCK_NAME, () -> written[0] = backupAll(LocalDate.now()));
+            result = ran ? "success" : "skipped";
+            if (ran) {
+                log.info("持仓数据备份完成：{} 行", written[0]);
+            } else {
+                log.info("持仓数据备份正在其他节点执行，跳过");
+            }
+            return ran ? written[0] : -1;
+        } finally {
+            sample.stop(Timer.builder("crypto.portfolio.backup")
+                    .description("持仓备份耗时")
+                    .tag("result", result)
+                    .register(registry));
+        }
+    }
+
+    private int backupAll(LocalDate today) {
+        int written = 0;
+        List<Long> failed = new ArrayList<>();
+        for (long portfolioId : portfolioJdbcRepository.findPortfolioIds()) {
+            try {
+                written += backupLocked(portfolioId, today);
+            } catch (RuntimeException e) {
+                failed.add(portfolioId);
+                log.error("投资组合 {} 持仓备份失败：{}", portfolioId, e.getMessage(), e);
+            }
+        }
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException("以下投资组合持仓备份失败：" + failed);
+        }
+        return written;
+    }
+
+    private int backupLocked(long portfolioId, LocalDate today) {
+        LocalDate from = today.minusDays(catchUpDays);
+        Map<LocalDate, List<PortfolioHistory>> recorded = groupByDate(
+                portfolioJdbcRepository.findHistoryBetween(portfolioId, from, today.minusDays(1)));
+        Map<LocalDate, List<PortfolioHistory>> fills = groupByDate(
+                fillMissingDays(portfolioJdbcRepository.findHistoryLatestBefore(portfolioId, from), recorded, from, today));
+        List<PortfolioHistory> rows = new ArrayList<>();
+        fills.values().forEach(rows::addAll);
+
+        // 未缓存的组合直接从数据库估值，不因备份把全部组合载入内存
+        PortfolioValuation valuation = liveValuationEngine.valuate(portfolioId);
+        double totalValue = valuation.getTotalValue();
+        Map<String, Double> percentages = new LinkedHashMap<>();
+        for (int i = 0; i < valuation.size(); i++) {
+            PortfolioHistory history = new PortfolioHistory();
+            history.setPortfolioId(portfolioId);
+            history.setDate(today);
+            history.setTotalValue(totalValue);
+            history.setCryptoType(valuation.getSymbol(i));
+            history.setPercentage(valuation.getPercentage(i));
+            rows.add(history);
+            percentages.put(valuation.getSymbol(i), valuation.getPercentage(i));
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            portfolioJdbcRepository.upsertHistory(rows, batchSize);
+            portfolioJdbcRepository.deleteHistoryExcept(portfolioId, today, percentages.keySet());
+        });
+
+        // 已提交，同步本节点的内存序列
+        fills.forEach((date, dayRows) -> {
+            Map<String, Double> dayPercentages = new LinkedHashMap<>();
+            dayRows.forEach(row -> dayPercentages.put(row.getCryptoType(), row.getPercentage()));
+            Double dayTotal = dayRows.get(0).getTotalValue();
+            portfolioHistoryStore.replaceDay(portfolioId, date, dayTotal != null ? dayTotal : 0, dayPercentages);
+        });
+        portfolioHistoryStore.replaceDay(portfolioId, today, totalValue, percentages);
+        writtenRows.increment(rows.size());
+        filledDays.increment(fills.size());
+        return rows.size();
+    }
+
+    /**
+     * [from, today) 内没有记录的日期沿用前一个有记录日期的持仓；第一次有记录之前的日期不补
+     * @param previous from 之前最后一个有记录日期的行，没有时为空
+     * @return 需要补写的行
+     */
+    static List<PortfolioHistory> fillMissingDays(List<PortfolioHistory> previous,
+                                                  Map<LocalDate, List<PortfolioHistory>> recorded,
+                                                  LocalDate from, LocalDate today) {
+        List<PortfolioHistory> fills = new ArrayList<>();
+        List<PortfolioHistory> last = previous.isEmpty() ? null : previous;
+        for (LocalDate date = from; date.isBefore(today); date = date.plusDays(1)) {
+            List<PortfolioHistory> dayRows = recorded.get(date);
+            if (dayRows != null && !dayRows.isEmpty()) {
+                last = dayRows;
+                continue;
+            }
+            if (last == null) {
+                continue;
+            }
+            List<PortfolioHistory> copies = new ArrayList<>(last.size());
+            for (PortfolioHistory row : last) {
+                PortfolioHistory copy = new PortfolioHistory();
+                copy.setPortfolioId(row.getPortfolioId());
+                copy.setDate(date);
+                copy.setTotalValue(row.getTotalValue());
+                copy.setCryptoType(row.getCryptoType());
+                copy.setPercentage(row.getPercentage());
+                copies.add(copy);
+            }
+            fills.addAll(copies);
+            last = copies;
+        }
+        return fills;
+    }
+
+    private static Map<LocalDate, List<PortfolioHistory>> groupByDate(List<PortfolioHistory> rows) {
+        Map<LocalDate, List<PortfolioHistory>> byDate = new TreeMap<>();
+        for (PortfolioHistory row : rows) {
+            byDate.computeIfAbsent(row.getDate(), date -> new ArrayList<>()).add(row);
+        }
+        return byDate;
+    }
+}
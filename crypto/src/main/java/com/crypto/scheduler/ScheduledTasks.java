@@ -1,49 +1,31 @@
 package com.crypto.scheduler;
 
-import com.crypto.entity.PortfolioHistory;
-import com.crypto.entity.PortfolioItem;
-import com.crypto.repository.PortfolioHistoryRepository;
-import com.crypto.repository.PortfolioItemRepository;
+import com.crypto.service.SystemService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
-import java.util.List;
 
 @Component
 public class ScheduledTasks {
     
     @Autowired
-    private PortfolioItemRepository portfolioItemRepository;
+    private PortfolioBackupJob portfolioBackupJob;
     
     @Autowired
-    private PortfolioHistoryRepository portfolioHistoryRepository;
+    private SystemService systemService;
     
-    // 每日凌晨2点备份持仓数据
-    @Scheduled(cron = "0 0 2 * * ?")
+    // 每日凌晨2点备份持仓数据，同时补齐停机期间错过的日期；多节点时只有一个节点执行
+    @Scheduled(cron = "${crypto.portfolio.backup.cron:0 0 2 * * ?}")
     public void backupPortfolioData() {
-        // 获取当前持仓数据
-        List<PortfolioItem> items = portfolioItemRepository.findAll();
-        
-        // 计算总价值
-        double totalValue = items.stream()
-                .mapToDouble(item -> item.getQuantity() * item.getPrice())
-                .sum();
-        
-        // 保存到持仓历史表
-        LocalDate today = LocalDate.now();
-        items.forEach(item -> {
-            PortfolioHistory history = new PortfolioHistory();
-            history.setDate(today);
-            history.setTotalValue(totalValue);
-            history.setCryptoType(item.getCryptoType());
-            history.setPercentage((item.getQuantity() * item.getPrice() / totalValue) * 100);
-            
-            portfolioHistoryRepository.save(history);
-        });
-        
-        System.out.println("持仓数据备份完成：" + today);
+        portfolioBackupJob.backup();
+    }
+    
+    // 定时校正待审核报告数计数器
+    @Scheduled(fixedDelayString = "${crypto.counters.reconcile-interval-ms:600000}")
+    public void reconcileCounters() {
+        systemService.reconcileCounters();
     }
     
     // 每日凌晨3点采集市场消息
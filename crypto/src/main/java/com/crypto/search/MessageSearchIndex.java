@@ -0,0 +1,281 @@
+package com.crypto.search;
+
+import com.crypto.dto.MessageFilter;
+import com.crypto.entity.Message;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.cjk.CJKAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FilterCollector;
+import org.apache.lucene.search.FilterLeafCollector;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.TopScoreDocCollectorManager;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.store.Directory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+/**
+ * 消息全文索引（Lucene 倒排索引）
+ * 1. content、source 使用 CJK 二元分词（英文按词）建索引，按 BM25 相关度排序
+ * 2. cryptoType、sentiment 为精确词项，createdAt 为数值点，作为不参与打分的过滤条件
+ * 3. 写入后刷新即可检索（近实时）；commit 时把补齐进度（已从数据库补齐到的消息 id）写入提交数据，重启后从该位置继续
+ */
+public class MessageSearchIndex implements Closeable {
+
+    static final String FIELD_ID = "id";
+    static final String FIELD_ID_TERM = "id_term";
+    static final String FIELD_CONTENT = "content";
+    static final String FIELD_SOURCE = "source";
+    static final String FIELD_CRYPTO_TYPE = "crypto_type";
+    static final String FIELD_SENTIMENT = "sentiment";
+    static final String FIELD_CREATED_AT = "created_at";
+
+    private static final String COMMIT_CHECKPOINT = "checkpoint";
+    private static final String COMMIT_PURGED_SEGMENT = "purgedSegment";
+    // 来源字段命中的权重低于正文
+    private static final Map<String, Float> SEARCH_FIELDS = Map.of(FIELD_CONTENT, 1.0f, FIELD_SOURCE, 0.5f);
+    // 命中总数只精确统计到该值，超过后允许跳过不可能进入前列的文档，高频词不必遍历全部倒排
+    static final int TOTAL_HITS_THRESHOLD = 10000;
+
+    private final Analyzer analyzer = new CJKAnalyzer();
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private volatile long checkpoint;
+    private volatile long purgedSegmentId;
+
+    public MessageSearchIndex(Directory directory) throws IOException {
+        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        config.setRAMBufferSizeMB(64);
+        this.writer = new IndexWriter(directory, config);
+        this.searcherManager = new SearcherManager(writer, null);
+        Iterable<Map.Entry<String, String>> commitData = writer.getLiveCommitData();
+        if (commitData != null) {
+            for (Map.Entry<String, String> entry : commitData) {
+                if (COMMIT_CHECKPOINT.equals(entry.getKey())) {
+                    checkpoint = Long.parseLong(entry.getValue());
+                } else if (COMMIT_PURGED_SEGMENT.equals(entry.getKey())) {
+                    purgedSegmentId = Long.parseLong(entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * 新增或覆盖（按消息 id）索引文档，完成后立即可检索
+     */
+    public void index(Collection<Message> messages) throws IOException {
+        for (Message message : messages) {
+            writer.updateDocument(new Term(FIELD_ID_TERM, String.valueOf(message.getId())), toDocument(message));
+        }
+        searcherManager.maybeRefresh();
+    }
+
+    public void delete(Collection<Long> ids) throws IOException {
+        Term[] terms = ids.stream().map(id -> new Term(FIELD_ID_TERM, String.valueOf(id))).toArray(Term[]::new);
+        writer.deleteDocuments(terms);
+        searcherManager.maybeRefresh();
+    }
+
+    public void deleteAll() throws IOException {
+        writer.deleteAll();
+        checkpoint = 0;
+        searcherManager.maybeRefresh();
+    }
+
+    /**
+     * 持久化已写入的索引，并记录补齐进度与已清理的归档分段
+     * @param checkpoint 该 id 及之前的消息均已写入索引
+     */
+    public void commit(long checkpoint) throws IOException {
+        this.checkpoint = checkpoint;
+        writer.setLiveCommitData(Map.of(COMMIT_CHECKPOINT, String.valueOf(checkpoint),
+                COMMIT_PURGED_SEGMENT, String.valueOf(purgedSegmentId)).entrySet());
+        writer.commit();
+    }
+
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * 该归档分段及之前已删除（PURGED）的消息均已从索引中删除
+     */
+    public long getPurgedSegmentId() {
+        return purgedSegmentId;
+    }
+
+    /**
+     * 下次 commit 时一起持久化
+     */
+    public void setPurgedSegmentId(long purgedSegmentId) {
+        this.purgedSegmentId = purgedSegmentId;
+    }
+
+    public int numDocs() {
+        return writer.getDocStats().numDocs;
+    }
+
+    /**
+     * 关键词检索
+     * @param text 检索词，支持 + - "短语" 等简单语法，多个词默认需同时命中
+     * @param filter 精确条件（cryptoType、sentiment、时间范围），阅读状态通过 idFilter 传入
+     * @param idFilter 按消息 id 过滤，为空表示不过滤
+     */
+    public SearchResult search(String text, MessageFilter filter, LongPredicate idFilter, int offset, int limit) throws IOException {
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, SEARCH_FIELDS);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query textQuery = parser.parse(text);
+        if (textQuery == null) {
+            return new SearchResult(0, true, List.of(), List.of());
+        }
+        BooleanQuery.Builder query = new BooleanQuery.Builder().add(textQuery, BooleanClause.Occur.MUST);
+        if (filter.getCryptoType() != null) {
+            query.add(new TermQuery(new Term(FIELD_CRYPTO_TYPE, filter.getCryptoType())), BooleanClause.Occur.FILTER);
+        }
+        if (filter.getSentiment() != null) {
+            query.add(new TermQuery(new Term(FIELD_SENTIMENT, filter.getSentiment())), BooleanClause.Occur.FILTER);
+        }
+        if (filter.getStartDate() != null || filter.getEndDate() != null) {
+            long from = filter.getStartDate() != null ? toMillis(filter.getStartDate()) : Long.MIN_VALUE;
+            long to = filter.getEndDate() != null ? toMillis(filter.getEndDate()) : Long.MAX_VALUE;
+            query.add(LongPoint.newRangeQuery(FIELD_CREATED_AT, from, to), BooleanClause.Occur.FILTER);
+        }
+
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopScoreDocCollector top = new TopScoreDocCollectorManager(offset + limit, null, TOTAL_HITS_THRESHOLD, false)
+                    .newCollector();
+            searcher.search(query.build(), idFilter == null ? top : filtered(top, idFilter));
+            TopDocs topDocs = top.topDocs(offset, limit);
+            List<Long> ids = new ArrayList<>(topDocs.scoreDocs.length);
+            List<Float> scores = new ArrayList<>(topDocs.scoreDocs.length);
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                ids.add(searcher.storedFields().document(scoreDoc.doc).getField(FIELD_ID).numericValue().longValue());
+                scores.add(scoreDoc.score);
+            }
+            return new SearchResult(topDocs.totalHits.value,
+                    topDocs.totalHits.relation == TotalHits.Relation.EQUAL_TO, ids, scores);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+    }
+
+    static Document toDocument(Message message) {
+        Document document = new Document();
+        document.add(new StringField(FIELD_ID_TERM, String.valueOf(message.getId()), Field.Store.NO));
+        document.add(new NumericDocValuesField(FIELD_ID, message.getId()));
+        document.add(new StoredField(FIELD_ID, message.getId()));
+        if (message.getContent() != null) {
+            document.add(new TextField(FIELD_CONTENT, message.getContent(), Field.Store.NO));
+        }
+        if (message.getSource() != null) {
+            document.add(new TextField(FIELD_SOURCE, message.getSource(), Field.Store.NO));
+        }
+        if (message.getCryptoType() != null) {
+            document.add(new StringField(FIELD_CRYPTO_TYPE, message.getCryptoType(), Field.Store.NO));
+        }
+        if (message.getSentiment() != null) {
+            document.add(new StringField(FIELD_SENTIMENT, message.getSentiment(), Field.Store.NO));
+        }
+        if (message.getCreatedAt() != null) {
+            document.add(new LongPoint(FIELD_CREATED_AT, toMillis(message.getCreatedAt())));
+        }
+        return document;
+    }
+
+    // 只用于区间比较，统一按 UTC 换算即可
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * 在收集阶段按消息 id 过滤，命中总数与分页都只计入通过过滤的文档
+     */
+    private static Collector filtered(Collector delegate, LongPredicate idFilter) {
+        return new FilterCollector(delegate) {
+            @Override
+            public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+                NumericDocValues ids = DocValues.getNumeric(context.reader(), FIELD_ID);
+                return new FilterLeafCollector(super.getLeafCollector(context)) {
+                    @Override
+                    public void collect(int doc) throws IOException {
+                        if (ids.advanceExact(doc) && idFilter.test(ids.longValue())) {
+                            super.collect(doc);
+                        }
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * 检索结果：命中总数（totalExact 为 false 时是下限），以及当前页按相关度排序的消息 id 与得分
+     */
+    public static final class SearchResult {
+        private final long totalHits;
+        private final boolean totalExact;
+        private final List<Long> ids;
+        private final List<Float> scores;
+
+        public SearchResult(long totalHits, boolean totalExact, List<Long> ids, List<Float> scores) {
+            this.totalHits = totalHits;
+            this.totalExact = totalExact;
+            this.ids = ids;
+            this.scores = scores;
+        }
+
+        public long getTotalHits() {
+            return totalHits;
+        }
+
+        public boolean isTotalExact() {
+            return totalExact;
+        }
+
+        public List<Long> getIds() {
+            return ids;
+        }
+
+        public List<Float> getScores() {
+            return scores;
+        }
+    }
+}
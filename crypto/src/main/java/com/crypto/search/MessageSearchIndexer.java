@@ -0,0 +1,245 @@
+package com.crypto.search;
+
+import com.crypto.archive.ArchiveSegment;
+import com.crypto.archive.ArchiveStorage;
+import com.crypto.dto.MessageFilter;
+import com.crypto.entity.Message;
+import com.crypto.repository.MessageArchiveSegmentRepository;
+import com.crypto.repository.MessageJdbcRepository;
+import com.fasterxml.jackson.databind.MappingIterator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongPredicate;
+
+/**
+ * 维护本节点的消息全文索引
+ * 1. 本节点保存的消息在事务提交后直接写入索引
+ * 2. 后台线程按 id 从数据库补齐其他节点写入的消息，首次启动时即全量构建
+ * 3. 补齐进度随索引一起提交，重启后从上次进度继续
+ * 4. 任一节点归档删除的消息：补齐前按分段顺序读取共享归档目录中的文件，从本节点索引删除对应 id，已处理的分段随索引提交
+ *    （归档节点删除后已直接从自己的索引删除，之后补齐时再删除一次，结果不变）
+ */
+@Component
+public class MessageSearchIndexer {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageSearchIndexer.class);
+    // 每次从数据库读取的消息条数
+    private static final int CHUNK_SIZE = 5000;
+    // 全量构建时每写入这么多条提交一次，中途重启不必从头开始
+    private static final int COMMIT_EVERY = 200_000;
+
+    private final MessageJdbcRepository messageJdbcRepository;
+    private final MessageArchiveSegmentRepository archiveSegmentRepository;
+    private final ArchiveStorage archiveStorage;
+    private final Path indexDir;
+    private final long catchUpIntervalMs;
+    private final long catchUpOverlap;
+
+    // 补齐与重建互斥
+    private final ReentrantLock catchUpLock = new ReentrantLock();
+    private MessageSearchIndex index;
+    private Thread worker;
+    private volatile boolean running;
+    private volatile boolean building;
+
+    @Autowired
+    public MessageSearchIndexer(MessageJdbcRepository messageJdbcRepository,
+                                MessageArchiveSegmentRepository archiveSegmentRepository,
+                                ArchiveStorage archiveStorage,
+                                @Value("${crypto.search.index-dir:data/message-index}") String indexDir,
+                                @Value("${crypto.search.catch-up-interval-ms:30000}") long catchUpIntervalMs,
+                                @Value("${crypto.search.catch-up-overlap:1000}") long catchUpOverlap) {
+        this.messageJdbcRepository = messageJdbcRepository;
+        this.archiveSegmentRepository = archiveSegmentRepository;
+        this.archiveStorage = archiveStorage;
+        this.indexDir = Paths.get(indexDir);
+        this.catchUpIntervalMs = catchUpIntervalMs;
+        this.catchUpOverlap = catchUpOverlap;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(indexDir);
+        index = new MessageSearchIndex(FSDirectory.open(indexDir));
+        log.info("消息全文索引已打开：{}，{} 条，补齐进度 id={}", indexDir.toAbsolutePath(), index.numDocs(), index.getCheckpoint());
+        running = true;
+        worker = new Thread(this::runCatchUp, "message-search-indexer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+        catchUpLock.lock();
+        try {
+            index.commit(index.getCheckpoint());
+            index.close();
+        } finally {
+            catchUpLock.unlock();
+        }
+    }
+
+    private void runCatchUp() {
+        while (running) {
+            try {
+                catchUp();
+            } catch (Exception e) {
+                log.error("消息全文索引补齐失败", e);
+            }
+            try {
+                Thread.sleep(catchUpIntervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 从数据库补齐进度之后的消息
+     * 自增 id 的提交顺序不一定与 id 顺序一致，每次从进度往回重叠一段 id 重新写入，覆盖晚提交的小 id
+     * @return 本次写入的消息条数，已有补齐在执行时返回 -1
+     */
+    public long catchUp() throws IOException {
+        if (!catchUpLock.tryLock()) {
+            return -1;
+        }
+        try {
+            if (index.getCheckpoint() == 0) {
+                // 全量构建只读取消息表中现存的行，之前已归档删除的分段无需再处理
+                index.setPurgedSegmentId(archiveSegmentRepository.findLatestPurgedId());
+            } else {
+                applyPurged();
+            }
+            long afterId = Math.max(0, index.getCheckpoint() - catchUpOverlap);
+            long lastId = index.getCheckpoint();
+            long indexed = 0;
+            long sinceCommit = 0;
+            building = index.getCheckpoint() == 0;
+            while (running) {
+                List<Message> chunk = messageJdbcRepository.findIndexRowsAfter(afterId, CHUNK_SIZE);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                index.index(chunk);
+                afterId = chunk.get(chunk.size() - 1).getId();
+                lastId = Math.max(lastId, afterId);
+                indexed += chunk.size();
+                sinceCommit += chunk.size();
+                if (sinceCommit >= COMMIT_EVERY) {
+                    index.commit(lastId);
+                    sinceCommit = 0;
+                    log.info("消息全文索引补齐中：已写入 {} 条，进度 id={}", indexed, lastId);
+                }
+                if (chunk.size() < CHUNK_SIZE) {
+                    break;
+                }
+            }
+            index.commit(lastId);
+            return indexed;
+        } finally {
+            building = false;
+            catchUpLock.unlock();
+        }
+    }
+
+    /**
+     * 从索引中删除尚未处理的已归档分段中的消息；归档文件读取失败时停在该分段，下次补齐时重试
+     */
+    private void applyPurged() throws IOException {
+        for (ArchiveSegment segment : archiveSegmentRepository.findPurgedAfter(index.getPurgedSegmentId())) {
+            long deleted = 0;
+            try (MappingIterator<Message> messages = archiveStorage.read(segment)) {
+                List<Long> ids = new ArrayList<>(CHUNK_SIZE);
+                while (messages.hasNextValue()) {
+                    ids.add(messages.nextValue().getId());
+                    if (ids.size() == CHUNK_SIZE) {
+                        index.delete(ids);
+                        deleted += ids.size();
+                        ids.clear();
+                    }
+                }
+                index.delete(ids);
+                deleted += ids.size();
+            } catch (IOException | RuntimeException e) {
+                log.error("从全文索引删除归档分段 {} 的消息失败，下次补齐时重试：{}", segment.getId(), e.getMessage());
+                return;
+            }
+            index.setPurgedSegmentId(segment.getId());
+            log.info("已从全文索引删除归档分段 {}（{}）的 {} 条消息", segment.getId(), segment.getPeriod(), deleted);
+        }
+    }
+
+    /**
+     * 清空索引后从数据库全量重建
+     */
+    public long rebuild() throws IOException {
+        catchUpLock.lock();
+        try {
+            index.deleteAll();
+            index.commit(0);
+            return catchUp();
+        } finally {
+            catchUpLock.unlock();
+        }
+    }
+
+    /**
+     * 写入本节点刚提交的消息，失败时由后台补齐兜底
+     */
+    public void index(List<Message> messages) {
+        try {
+            index.index(messages);
+        } catch (IOException | RuntimeException e) {
+            log.warn("消息写入全文索引失败，等待后台补齐：{}", e.getMessage());
+        }
+    }
+
+    public void delete(List<Long> ids) {
+        try {
+            index.delete(ids);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public MessageSearchIndex.SearchResult search(String text, MessageFilter filter, LongPredicate idFilter,
+                                                  int offset, int limit) {
+        try {
+            return index.search(text, filter, idFilter, offset, limit);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("indexDir", indexDir.toAbsolutePath().toString());
+        stats.put("numDocs", index.numDocs());
+        stats.put("checkpoint", index.getCheckpoint());
+        stats.put("purgedSegmentId", index.getPurgedSegmentId());
+        stats.put("building", building);
+        return stats;
+    }
+}
@@ -1,11 +1,12 @@
 package com.crypto.service;
 
+import com.crypto.dto.BatchSaveResult;
 import com.crypto.entity.CryptoCurrency;
 import java.util.List;
 
 public interface CryptoCurrencyService {
-    // 批量保存/更新
-    void batchSaveOrUpdate(List<CryptoCurrency> cryptoList);
+    // 批量保存/更新，返回逐行结果报告
+    BatchSaveResult batchSaveOrUpdate(List<CryptoCurrency> cryptoList);
 
     // 查询所有数据
     List<CryptoCurrency> findAll();
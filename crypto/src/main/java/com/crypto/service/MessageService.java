@@ -1,17 +1,62 @@
 package com.crypto.service;
 
+import com.crypto.dto.MessageFilter;
+import com.crypto.dto.MessageSaveResult;
 import com.crypto.entity.Message;
+import com.crypto.export.ExportFormat;
 
-import java.time.LocalDateTime;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 
 public interface MessageService {
-    Map<String, Object> getMessages(String cryptoType, String sentiment, LocalDateTime startDate, LocalDateTime endDate, int page, int size);
-    Message getMessageById(Long id);
-    void markMessageAsRead(Long id);
+    /**
+     * 按条件分页查询消息，按创建时间倒序
+     * @param estimateTotal 无筛选条件时使用表统计信息估算总数，避免对全表 COUNT
+     */
+    Map<String, Object> getMessages(MessageFilter filter, int page, int size, boolean estimateTotal);
+    /**
+     * 游标分页的消息流，按 (created_at, id) 倒序，任意深度的每页开销相同
+     * @param cursor 上一页返回的 nextCursor / prevCursor，为空表示从最新消息开始
+     * @param backward 为 true 时向更新的消息翻页
+     */
+    Map<String, Object> getMessageFeed(MessageFilter filter, String cursor, boolean backward, int size);
+    /**
+     * 分页查询已归档（已移出消息表）的消息，顺序扫描归档文件，较慢
+     */
+    Map<String, Object> getArchivedMessages(MessageFilter filter, int page, int size);
+    /**
+     * 按关键词全文检索 content、source，按相关度排序，支持与列表相同的筛选条件
+     * @param query 检索词，支持 + - "短语" 等简单语法，多个词默认需同时命中
+     */
+    Map<String, Object> searchMessages(String query, MessageFilter filter, int page, int size);
+    /**
+     * 按 (created_at, id) 正序流式导出符合条件的全部消息（不含已归档的消息），筛选条件与列表相同
+     * @return 导出的行数
+     */
+    long exportMessages(MessageFilter filter, ExportFormat format, OutputStream out);
+    /**
+     * 消息表中不存在时再到归档文件中查找
+     * @param userId 阅读状态所属用户，为空表示默认用户
+     */
+    Message getMessageById(Long id, String userId);
+    void markMessageAsRead(Long id, String userId);
+    /**
+     * 把符合条件的消息全部标记为该用户已读（只修改位图，不更新消息行）
+     * @return 新增的已读条数
+     */
+    long markAllAsRead(MessageFilter filter);
+    /**
+     * 用户未读消息数
+     */
+    long countUnread(String userId);
     // 添加保存消息的方法，支持Dify数据测试
+    /**
+     * @return 保存后的消息；与已有消息内容重复时不写入，返回 null
+     */
     Message saveMessage(Message message);
-    // 批量保存消息
-    List<Message> saveMessages(List<Message> messages);
+    /**
+     * 批量保存消息，按规范化的 content + sourceUrl 去重，已存在或同批重复的消息不写入
+     */
+    MessageSaveResult saveMessages(List<Message> messages);
 }
\ No newline at end of file
@@ -5,9 +5,26 @@ import com.crypto.entity.PortfolioItem;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * 各方法的 portfolioId 为请求头 X-Portfolio-Id 的值，为空时使用默认投资组合
+ */
 public interface PortfolioService {
-    Map<String, Object> getCurrentPortfolio();
-    List<Map<String, Object>> getPortfolioHistory(int days);
-    Map<String, Object> updatePortfolio(List<PortfolioItem> items);
-    Map<String, Object> getHoldingsForAI();
+    Map<String, Object> getCurrentPortfolio(Long portfolioId);
+    List<Map<String, Object>> getPortfolioHistory(Long portfolioId, int days);
+    /**
+     * 列式的持仓历史序列（dates、totalValues、按币种的 weights），长窗口自动按周/月采样
+     * @param days 最近天数，不大于 0 表示全部历史
+     * @param interval 1d/1w/1M，auto 或为空时按窗口长度选择
+     */
+    Map<String, Object> getPortfolioHistorySeries(Long portfolioId, int days, String interval);
+    Map<String, Object> updatePortfolio(Long portfolioId, List<PortfolioItem> items);
+    /**
+     * 当前持仓的风险指标：组合波动率、历史/参数法 VaR、最大回撤、相对 BTC 的 beta，
+     * 各持仓的波动率、回撤、beta 与相关系数矩阵，以及组合的滚动波动率序列（风险数据按天缓存）
+     */
+    Map<String, Object> getPortfolioRisk(Long portfolioId);
+    /**
+     * AI 使用的持仓信息，附带各持仓与组合的风险指标
+     */
+    Map<String, Object> getHoldingsForAI(Long portfolioId);
 }
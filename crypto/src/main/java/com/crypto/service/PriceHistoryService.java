@@ -0,0 +1,25 @@
+package com.crypto.service;
+
+import com.crypto.entity.CandleInterval;
+import com.crypto.entity.CryptoCurrency;
+import com.crypto.entity.PriceCandle;
+import com.crypto.export.ExportFormat;
+
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface PriceHistoryService {
+    // 记录已成功写入的行情：追加逐笔记录并增量更新各周期 K 线（需在写入事务内调用）
+    void recordTicks(List<CryptoCurrency> ticks);
+
+    // 按币种和周期查询时间范围内的 K 线（按时间正序，超出单次上限时保留最近的部分）
+    List<PriceCandle> getCandles(String symbol, CandleInterval interval, LocalDateTime start, LocalDateTime end);
+
+    // 流式导出逐笔行情，symbol 为空表示全部币种，返回导出的行数
+    long exportTicks(String symbol, LocalDateTime start, LocalDateTime end, ExportFormat format, OutputStream out);
+
+    // 流式导出某一周期的 K 线，返回导出的行数
+    long exportCandles(String symbol, CandleInterval interval, LocalDateTime start, LocalDateTime end,
+                       ExportFormat format, OutputStream out);
+}
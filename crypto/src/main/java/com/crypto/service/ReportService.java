@@ -6,15 +6,19 @@ import com.crypto.entity.ReportSuggestion;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * 报告与建议按投资组合隔离，portfolioId 为请求头 X-Portfolio-Id 的值（为空时使用默认组合），
+ * 访问其他组合的报告或建议按不存在处理
+ */
 public interface ReportService {
-    Map<String, Object> getReports(String status, int page, int size);
-    Map<String, Object> getReportById(Long id);
-    void updateReportStatus(Long id, String status);
-    Map<String, Object> createReport(Map<String, Object> reportData);
+    Map<String, Object> getReports(Long portfolioId, String status, int page, int size);
+    Map<String, Object> getReportById(Long portfolioId, Long id);
+    void updateReportStatus(Long portfolioId, Long id, String status);
+    Map<String, Object> createReport(Long portfolioId, Map<String, Object> reportData);
     
     // ReportSuggestion相关方法
-    List<ReportSuggestion> getSuggestionsByReportId(Long reportId);
-    ReportSuggestion addSuggestionToReport(Long reportId, Map<String, Object> suggestionData);
-    ReportSuggestion updateSuggestion(Long suggestionId, Map<String, Object> suggestionData);
-    void deleteSuggestion(Long suggestionId);
-}
\ No newline at end of file
+    List<ReportSuggestion> getSuggestionsByReportId(Long portfolioId, Long reportId);
+    ReportSuggestion addSuggestionToReport(Long portfolioId, Long reportId, Map<String, Object> suggestionData);
+    ReportSuggestion updateSuggestion(Long portfolioId, Long suggestionId, Map<String, Object> suggestionData);
+    void deleteSuggestion(Long portfolioId, Long suggestionId);
+}
@@ -0,0 +1,19 @@
+package com.crypto.service;
+
+import com.crypto.dto.ScenarioRequest;
+
+import java.util.Map;
+
+public interface ScenarioService {
+    /**
+     * 按投资组合的当前持仓估算一批目标占比的交易、费用、换手率与调仓后的风险
+     * @param portfolioId 为空时使用默认组合
+     */
+    Map<String, Object> evaluate(Long portfolioId, ScenarioRequest request);
+
+    /**
+     * 估算报告建议（suggestedPercentage）及其变体：请求中的场景、当前持仓与建议之间的 blendSteps 个中间方案
+     * @return 报告不存在或不属于该组合时返回 null
+     */
+    Map<String, Object> evaluateReportSuggestions(Long portfolioId, Long reportId, ScenarioRequest request);
+}
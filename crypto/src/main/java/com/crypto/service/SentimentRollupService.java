@@ -0,0 +1,25 @@
+package com.crypto.service;
+
+import com.crypto.entity.Message;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public interface SentimentRollupService {
+    // 把新写入的消息累加到小时、天汇总（需在写入事务内调用）
+    void recordMessages(List<Message> messages);
+
+    /**
+     * 时间窗口内各情感的消息数与占比，由天汇总和首尾不足一天部分的小时汇总相加得到
+     * 窗口按小时对齐：start 向下、end 向上取整到整点
+     * @param cryptoType 为空表示全部币种，同时按币种返回明细
+     */
+    Map<String, Object> getSentimentStats(String cryptoType, LocalDateTime start, LocalDateTime end);
+
+    /**
+     * 从消息表按天重新计算汇总，范围为空时覆盖全部消息
+     * @return 处理的天数与写入的汇总行数
+     */
+    Map<String, Object> rebuild(LocalDateTime start, LocalDateTime end);
+}
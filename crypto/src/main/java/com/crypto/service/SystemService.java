@@ -3,6 +3,15 @@ package com.crypto.service;
 import java.util.Map;
 
 public interface SystemService {
-    Map<String, Object> getSystemOverview();
+    /**
+     * @param userId 未读消息数所属用户，为空表示默认用户
+     * @param portfolioId 待审核报告数与总资产所属的投资组合，为空表示默认组合
+     */
+    Map<String, Object> getSystemOverview(String userId, Long portfolioId);
     Map<String, Object> saveSystemSettings(Map<String, Object> settings);
+    /**
+     * 用 COUNT 结果校正计数器
+     * @return 每个计数器的校正前值、实际值与偏差
+     */
+    Map<String, Object> reconcileCounters();
 }
\ No newline at end of file
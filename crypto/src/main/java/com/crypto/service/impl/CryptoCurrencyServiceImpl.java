@@ -1,18 +1,31 @@
 package com.crypto.service.impl;
 
+import com.crypto.dto.BatchSaveResult;
 import com.crypto.entity.CryptoCurrency;
+import com.crypto.ingest.CryptoIngestMetrics;
+import com.crypto.quote.QuoteSnapshot;
+import com.crypto.quote.QuoteSnapshotHolder;
+import com.crypto.repository.CryptoCurrencyJdbcRepository;
 import com.crypto.repository.CryptoCurrencyRepository;
+import com.crypto.repository.QuoteVersionRepository;
 import com.crypto.service.CryptoCurrencyService;
+import com.crypto.service.PriceHistoryService;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 
-import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 虚拟货币数据业务层实现（含完整日志、数据校验、事务管理）
@@ -25,80 +38,156 @@ public class CryptoCurrencyServiceImpl implements CryptoCurrencyService {
 
     // 数据访问层依赖
     private final CryptoCurrencyRepository cryptoRepository;
+    private final CryptoCurrencyJdbcRepository cryptoJdbcRepository;
+    private final PriceHistoryService priceHistoryService;
+    private final QuoteSnapshotHolder quoteSnapshotHolder;
+    private final QuoteVersionRepository quoteVersionRepository;
+
+    private final CryptoIngestMetrics ingestMetrics;
+
+    // 每个 JDBC 批次的行数
+    private final int batchSize;
+
+    // 每批失败明细最多打印的条数
+    private static final int FAILURE_LOG_SAMPLE = 5;
 
     // 构造器注入（Spring 推荐方式）
     @Autowired
-    public CryptoCurrencyServiceImpl(CryptoCurrencyRepository cryptoRepository) {
+    public CryptoCurrencyServiceImpl(CryptoCurrencyRepository cryptoRepository,
+                                     CryptoCurrencyJdbcRepository cryptoJdbcRepository,
+                                     PriceHistoryService priceHistoryService,
+                                     QuoteSnapshotHolder quoteSnapshotHolder,
+                                     QuoteVersionRepository quoteVersionRepository,
+                                     CryptoIngestMetrics ingestMetrics,
+                                     @Value("${crypto.ingest.batch-size:500}") int batchSize) {
         this.cryptoRepository = cryptoRepository;
+        this.cryptoJdbcRepository = cryptoJdbcRepository;
+        this.priceHistoryService = priceHistoryService;
+        this.quoteSnapshotHolder = quoteSnapshotHolder;
+        this.quoteVersionRepository = quoteVersionRepository;
+        this.ingestMetrics = ingestMetrics;
+        this.batchSize = batchSize;
         log.info("CryptoCurrencyServiceImpl 初始化完成");
     }
 
     /**
      * 批量保存/更新虚拟货币数据
      * 1. 接收前端/Dify 传递的数据列表
-     * 2. 数据校验（非空、格式合法）
-     * 3. 按 symbol 判断：存在则更新，不存在则新增
-     * 4. 事务管理：要么全部成功，要么全部回滚
+     * 2. 数据校验（非空、格式合法），不合法的行记入失败明细
+     * 3. 合法数据按 symbol 唯一索引分批执行 INSERT ... ON DUPLICATE KEY UPDATE
+     * 4. 写入成功的行情追加到逐笔历史并增量更新 K 线
+     * 5. 事务管理：整批在一个事务内提交，单行失败只记入失败明细；提交后刷新内存行情快照
+     * 每批在独立的短事务中分配一个行情版本并登记租约，写入事务内删除租约，计数器行锁不会串行化各节点的写入
+     * 各阶段耗时与行数写入 Micrometer 指标；只打印每批汇总日志，逐行日志仅对开启跟踪的 symbol 输出
      */
     @Override
     @Transactional(rollbackFor = Exception.class) // 异常时回滚事务
-    public void batchSaveOrUpdate(List<CryptoCurrency> cryptoList) {
-        log.info("=== 开始执行批量保存/更新操作 ===");
-        log.info("接收的数据总量：{}", cryptoList == null ? 0 : cryptoList.size());
+    public BatchSaveResult batchSaveOrUpdate(List<CryptoCurrency> cryptoList) {
+        BatchSaveResult result = new BatchSaveResult(cryptoList == null ? 0 : cryptoList.size());
 
         // 校验数据列表是否为空
         if (cryptoList == null || cryptoList.isEmpty()) {
             log.warn("接收的数据列表为空，无需执行操作");
-            return;
+            return result;
         }
 
-        // 遍历处理每条数据
-        int successCount = 0; // 成功条数
-        int failCount = 0;    // 失败条数
-        for (CryptoCurrency crypto : cryptoList) {
-            log.info("开始处理数据：{}", crypto);
-
-            try {
-                // 1. 数据合法性校验
-                if (!validateCryptoData(crypto)) {
-                    failCount++;
-                    log.error("数据校验失败，跳过该条数据：{}", crypto);
-                    continue;
+        // 1. 数据合法性校验，记录每条合法数据在请求中的下标
+        long stageStart = System.nanoTime();
+        List<CryptoCurrency> validList = new ArrayList<>(cryptoList.size());
+        Map<CryptoCurrency, Integer> indexOf = new IdentityHashMap<>(cryptoList.size());
+        for (int i = 0; i < cryptoList.size(); i++) {
+            CryptoCurrency crypto = cryptoList.get(i);
+            String error = validateCryptoData(crypto);
+            if (error != null) {
+                result.addFailure(i, crypto == null ? null : crypto.getSymbol(), error);
+                if (crypto != null && ingestMetrics.isTraced(crypto.getSymbol())) {
+                    log.info("[trace] 数据校验失败：{}", error);
                 }
+                continue;
+            }
+            validList.add(crypto);
+            indexOf.put(crypto, i);
+            if (ingestMetrics.isTraced(crypto.getSymbol())) {
+                log.info("[trace] 接收行情：{}", crypto);
+            }
+        }
+        stageStart = record(ingestMetrics.validationTimer(), stageStart);
+
+        // 2. 对照内存行情快照区分新增与更新（不访问数据库）
+        QuoteSnapshot snapshot = quoteSnapshotHolder.current();
+        int updated = 0;
+        for (CryptoCurrency crypto : validList) {
+            if (snapshot.get(crypto.getSymbol()) != null) {
+                updated++;
+            }
+        }
+        stageStart = record(ingestMetrics.lookupTimer(), stageStart);
 
-                // 2. 按 symbol 查询是否已存在
-                Optional<CryptoCurrency> existingCrypto = cryptoRepository.findBySymbol(crypto.getSymbol());
-
-                if (existingCrypto.isPresent()) {
-                    // 3. 已存在：执行更新操作
-                    CryptoCurrency updateCrypto = existingCrypto.get();
-                    updateCrypto.setName(crypto.getName());
-                    updateCrypto.setUsdPrice(crypto.getUsdPrice());
-                    updateCrypto.setUpdateTime(crypto.getUpdateTime());
-                    cryptoRepository.save(updateCrypto);
-                    log.info("更新数据成功：symbol={}, name={}, price={}",
-                            updateCrypto.getSymbol(), updateCrypto.getName(), updateCrypto.getUsdPrice());
-                    successCount++;
-                } else {
-                    // 4. 不存在：执行新增操作（清空 id 让数据库自增）
-                    crypto.setId(null);
-                    cryptoRepository.save(crypto);
-                    log.info("新增数据成功：symbol={}, name={}, price={}",
-                            crypto.getSymbol(), crypto.getName(), crypto.getUsdPrice());
-                    successCount++;
+        // 3. 分配本批的全局行情版本后分批 upsert，单行失败不影响整体事务；租约随写入一起提交
+        long quoteVersion = validList.isEmpty() ? 0 : quoteVersionRepository.allocate();
+        if (quoteVersion > 0) {
+            quoteVersionRepository.release(quoteVersion);
+        }
+        int roundTrips = cryptoJdbcRepository.batchUpsert(validList, quoteVersion, batchSize, (crypto, e) -> {
+            result.addFailure(indexOf.remove(crypto), crypto.getSymbol(), e.getMostSpecificCause().getMessage());
+            if (ingestMetrics.isTraced(crypto.getSymbol())) {
+                log.info("[trace] 写入失败：symbol={}, 异常信息：{}", crypto.getSymbol(), e.getMessage());
+            }
+        });
+        result.setRoundTrips(roundTrips);
+        stageStart = record(ingestMetrics.writeTimer(), stageStart);
+
+        // 4. 写入成功的行情同时追加到历史记录并更新 K 线（同一事务）
+        List<CryptoCurrency> accepted = validList.size() == indexOf.size()
+                ? validList : validList.stream().filter(indexOf::containsKey).toList();
+        priceHistoryService.recordTicks(accepted);
+        record(ingestMetrics.historyTimer(), stageStart);
+
+        // 5. 事务提交耗时计入 commit 阶段，提交后按版本增量刷新内存行情快照
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private long commitStart;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                commitStart = System.nanoTime();
+            }
+
+            @Override
+            public void afterCommit() {
+                record(ingestMetrics.commitTimer(), commitStart);
+            }
+
+            // 回滚时租约的删除也被回滚，另起事务删除；快照版本可能因此推进
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED && quoteVersion > 0) {
+                    try {
+                        quoteVersionRepository.discard(quoteVersion);
+                    } catch (RuntimeException e) {
+                        log.warn("行情版本租约删除失败，等待超时清理：version={}, 异常信息：{}", quoteVersion, e.getMessage());
+                    }
                 }
-            } catch (Exception e) {
-                // 单条数据处理失败，记录日志，继续处理下一条（不影响整体事务）
-                failCount++;
-                log.error("处理数据失败：symbol={}, 异常信息：{}",
-                        crypto.getSymbol(), e.getMessage(), e);
+                quoteSnapshotHolder.publish();
             }
+        });
+        result.setSuccessCount(result.getTotal() - result.getFailCount());
+        int inserted = accepted.size() - Math.min(updated, accepted.size());
+        ingestMetrics.recordRows(result.getSuccessCount(), result.getFailCount(), inserted, accepted.size() - inserted);
+
+        // 汇总日志：每批一行，失败明细只抽样打印前几条
+        log.info("批量保存/更新完成：总接收条数：{}，成功条数：{}，失败条数：{}，数据库往返：{}",
+                result.getTotal(), result.getSuccessCount(), result.getFailCount(), roundTrips);
+        if (result.getFailCount() > 0) {
+            log.warn("失败明细（抽样前 {} 条）：{}", FAILURE_LOG_SAMPLE,
+                    result.getFailures().subList(0, Math.min(FAILURE_LOG_SAMPLE, result.getFailures().size())));
         }
+        return result;
+    }
 
-        // 打印操作统计结果
-        log.info("=== 批量操作执行完成 ===");
-        log.info("总接收条数：{}，成功条数：{}，失败条数：{}",
-                cryptoList.size(), successCount, failCount);
+    private static long record(Timer timer, long stageStart) {
+        long now = System.nanoTime();
+        timer.record(now - stageStart, TimeUnit.NANOSECONDS);
+        return now;
     }
 
     /**
@@ -115,55 +204,42 @@ public class CryptoCurrencyServiceImpl implements CryptoCurrencyService {
     /**
      * 数据合法性校验（确保字段符合数据库要求）
      * @param crypto 待校验数据
-     * @return true：校验通过，false：校验失败
+     * @return null：校验通过，否则为失败原因
      */
-    private boolean validateCryptoData(CryptoCurrency crypto) {
+    private String validateCryptoData(CryptoCurrency crypto) {
         // 1. 非空校验
         if (crypto == null) {
-            log.error("校验失败：数据对象为空");
-            return false;
+            return "数据对象为空";
         }
         if (!StringUtils.hasText(crypto.getSymbol())) {
-            log.error("校验失败：symbol 字段为空");
-            return false;
+            return "symbol 字段为空";
         }
         if (!StringUtils.hasText(crypto.getName())) {
-            log.error("校验失败：name 字段为空（symbol={}）", crypto.getSymbol());
-            return false;
+            return "name 字段为空（symbol=" + crypto.getSymbol() + "）";
         }
         if (crypto.getUsdPrice() == null) {
-            log.error("校验失败：usdPrice 字段为空（symbol={}）", crypto.getSymbol());
-            return false;
+            return "usdPrice 字段为空（symbol=" + crypto.getSymbol() + "）";
         }
         if (crypto.getUpdateTime() == null) {
-            log.error("校验失败：updateTime 字段为空（symbol={}）", crypto.getSymbol());
-            return false;
+            return "updateTime 字段为空（symbol=" + crypto.getSymbol() + "）";
         }
 
         // 2. 格式/长度校验（匹配数据库字段约束）
         if (crypto.getSymbol().length() > 20) {
-            log.error("校验失败：symbol 长度超过 20 字符（symbol={}）", crypto.getSymbol());
-            return false;
+            return "symbol 长度超过 20 字符（symbol=" + crypto.getSymbol() + "）";
         }
         if (crypto.getName().length() > 50) {
-            log.error("校验失败：name 长度超过 50 字符（symbol={}, name={}）",
-                    crypto.getSymbol(), crypto.getName());
-            return false;
+            return "name 长度超过 50 字符（symbol=" + crypto.getSymbol() + ", name=" + crypto.getName() + "）";
         }
         // 校验 BigDecimal 精度（最大 16 位整数 + 8 位小数）
         if (crypto.getUsdPrice().precision() > 16) {
-            log.error("校验失败：usdPrice 总长度超过 16 位（symbol={}, price={}）",
-                    crypto.getSymbol(), crypto.getUsdPrice());
-            return false;
+            return "usdPrice 总长度超过 16 位（symbol=" + crypto.getSymbol() + ", price=" + crypto.getUsdPrice() + "）";
         }
         if (crypto.getUsdPrice().scale() > 8) {
-            log.error("校验失败：usdPrice 小数位超过 8 位（symbol={}, price={}）",
-                    crypto.getSymbol(), crypto.getUsdPrice());
-            return false;
+            return "usdPrice 小数位超过 8 位（symbol=" + crypto.getSymbol() + ", price=" + crypto.getUsdPrice() + "）";
         }
 
         // 所有校验通过
-        log.info("数据校验通过：{}", crypto);
-        return true;
+        return null;
     }
-}
\ No newline at end of file
+}
@@ -1,86 +1,406 @@
 package com.crypto.service.impl;
 
+import com.crypto.archive.ArchivedMessageReader;
+import com.crypto.dedup.ContentHash;
+import com.crypto.dedup.MessageDeduplicator;
+import com.crypto.dto.MessageCursor;
+import com.crypto.dto.MessageFilter;
+import com.crypto.dto.MessageSaveResult;
 import com.crypto.entity.Message;
+import com.crypto.export.ExportFormat;
+import com.crypto.export.ResultSetExporter;
 import com.crypto.repository.MessageRepository;
+import com.crypto.repository.MessageSpecifications;
+import com.crypto.repository.MessageJdbcRepository;
+import com.crypto.readstate.IdRanges;
+import com.crypto.readstate.MessageIdIndex;
+import com.crypto.readstate.ReadStateStore;
+import com.crypto.search.MessageSearchIndex;
+import com.crypto.search.MessageSearchIndexer;
 import com.crypto.service.MessageService;
+import com.crypto.service.SentimentRollupService;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 @Service
 public class MessageServiceImpl implements MessageService {
     
+    // 单页最大条数
+    private static final int MAX_PAGE_SIZE = 200;
+    // 兜底扫描时每次取的消息键数
+    private static final int SCAN_CHUNK = 5000;
+    // 全文检索可翻到的最大结果位置，更深的翻页应缩小检索条件
+    private static final int MAX_SEARCH_WINDOW = 10000;
+    // 写入遇到唯一键冲突（并发写入相同内容）时的最大尝试次数
+    private static final int MAX_SAVE_ATTEMPTS = 3;
+    
     @Autowired
     private MessageRepository messageRepository;
     
+    @Autowired
+    private MessageJdbcRepository messageJdbcRepository;
+    
+    @Autowired
+    private ReadStateStore readStateStore;
+    
+    @Autowired
+    private MessageIdIndex messageIdIndex;
+    
+    @Autowired
+    private MessageSearchIndexer messageSearchIndexer;
+    
+    @Autowired
+    private MessageDeduplicator messageDeduplicator;
+    
+    @Autowired
+    private SentimentRollupService sentimentRollupService;
+    
+    @Autowired
+    private ArchivedMessageReader archivedMessageReader;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    // 批量写入消息时每条多行 INSERT 的行数
+    @Value("${crypto.message.insert-batch-size:500}")
+    private int insertBatchSize;
+    
+    // 阅读状态转换为 id 区间条件时允许的最大区间数，超过后改为按索引扫描 + 位图过滤
+    // 每个区间都是一个 BETWEEN 谓词，区间过多时 SQL 体积、Hibernate 与 MySQL 的解析和优化开销都会超过扫描本身
+    @Value("${crypto.read-state.max-inline-runs:200}")
+    private int maxInlineRuns;
+    
     @Override
-    public Map<String, Object> getMessages(String cryptoType, String sentiment, LocalDateTime startDate, LocalDateTime endDate, int page, int size) {
-        List<Message> messages;
-        
-        // 根据参数组合查询条件
-        if (cryptoType != null && sentiment != null && startDate != null && endDate != null) {
-            messages = messageRepository.findByCryptoTypeAndSentimentAndCreatedAtBetween(cryptoType, sentiment, startDate, endDate);
-        } else if (cryptoType != null && startDate != null && endDate != null) {
-            messages = messageRepository.findByCryptoTypeAndCreatedAtBetween(cryptoType, startDate, endDate);
-        } else if (sentiment != null && startDate != null && endDate != null) {
-            messages = messageRepository.findBySentimentAndCreatedAtBetween(sentiment, startDate, endDate);
-        } else if (startDate != null && endDate != null) {
-            messages = messageRepository.findByCreatedAtBetween(startDate, endDate);
+    public Map<String, Object> getMessages(MessageFilter filter, int page, int size, boolean estimateTotal) {
+        int current = Math.max(page, 1);
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        Roaring64Bitmap readIds = readStateStore.get(readStateStore.resolveUser(filter.getReaderId()));
+        // id 作为第二排序键，保证同一时间的消息分页顺序稳定
+        PageRequest pageable = PageRequest.of(current - 1, pageSize,
+                Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id")));
+
+        List<Message> records;
+        long total;
+        boolean estimated = false;
+        Specification<Message> spec = MessageSpecifications.matches(filter);
+        Specification<Message> readSpec = filter.getIsRead() != null ? readStateSpec(filter.getIsRead(), readIds) : null;
+        Long estimate = estimateTotal && filter.isEmpty() ? messageRepository.estimateRowCount() : null;
+        if (estimate != null) {
+            // 只查当前页，总数取表统计信息
+            records = messageRepository.findAllBy(pageable);
+            total = Math.max(estimate, (long) (current - 1) * pageSize + records.size());
+            estimated = true;
+        } else if (filter.getIsRead() != null && readSpec == null) {
+            // 阅读状态过于零散：按索引顺序扫描消息键，用位图过滤后计数并截取当前页
+            LongPredicate accept = readFilter(filter.getIsRead(), readIds);
+            long skip = (long) (current - 1) * pageSize;
+            long[] matched = new long[1];
+            List<Long> pageIds = new ArrayList<>(pageSize);
+            scanKeys(filter, null, false, accept, key -> {
+                if (matched[0]++ >= skip && pageIds.size() < pageSize) {
+                    pageIds.add(key.getId());
+                }
+                return true;
+            });
+            records = loadInOrder(pageIds);
+            total = matched[0];
         } else {
-            messages = messageRepository.findAll();
-        }
-        
-        // 分页处理
-        int total = messages.size();
-        int pages = (int) Math.ceil((double) total / size);
-        int fromIndex = (page - 1) * size;
-        int toIndex = Math.min(fromIndex + size, total);
-        List<Message> pageMessages = messages.subList(fromIndex, toIndex);
-        
+            // 数据库端 LIMIT/OFFSET 分页，另发一条 COUNT 查询（最后一页不足一页时 Spring Data 会省略）
+            Page<Message> result = messageRepository.findAll(readSpec != null ? spec.and(readSpec) : spec, pageable);
+            records = result.getContent();
+            total = result.getTotalElements();
+        }
+        applyReadState(records, readIds);
+
         // 构造响应
         Map<String, Object> result = new HashMap<>();
         result.put("total", total);
-        result.put("pages", pages);
-        result.put("current", page);
-        result.put("records", pageMessages);
-        
+        result.put("pages", (int) Math.ceil((double) total / pageSize));
+        result.put("current", current);
+        result.put("records", records);
+        result.put("estimated", estimated);
+
         return result;
     }
     
     @Override
-    public Message getMessageById(Long id) {
-        return messageRepository.findById(id).orElse(null);
+    public Map<String, Object> getMessageFeed(MessageFilter filter, String cursor, boolean backward, int size) {
+        MessageCursor position = cursor == null || cursor.isEmpty() ? null : MessageCursor.decode(cursor);
+        boolean reverse = backward && position != null;
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        Sort.Direction direction = reverse ? Sort.Direction.ASC : Sort.Direction.DESC;
+        Sort sort = Sort.by(new Sort.Order(direction, "createdAt"), new Sort.Order(direction, "id"));
+        Roaring64Bitmap readIds = readStateStore.get(readStateStore.resolveUser(filter.getReaderId()));
+
+        // 多取一条用于判断是否还有下一页，不做 COUNT
+        Specification<Message> spec = MessageSpecifications.matches(filter)
+                .and(MessageSpecifications.beyond(position, reverse));
+        Specification<Message> readSpec = filter.getIsRead() != null ? readStateSpec(filter.getIsRead(), readIds) : null;
+        List<Message> rows;
+        if (filter.getIsRead() != null && readSpec == null) {
+            List<Long> ids = new ArrayList<>(pageSize + 1);
+            scanKeys(filter, position, reverse, readFilter(filter.getIsRead(), readIds), key -> {
+                ids.add(key.getId());
+                return ids.size() <= pageSize;
+            });
+            rows = loadInOrder(ids);
+        } else {
+            Specification<Message> query = readSpec != null ? spec.and(readSpec) : spec;
+            rows = messageRepository.findBy(query, q -> q.sortBy(sort).limit(pageSize + 1).all());
+        }
+        boolean more = rows.size() > pageSize;
+        List<Message> records = new ArrayList<>(more ? rows.subList(0, pageSize) : rows);
+        if (reverse) {
+            Collections.reverse(records);
+        }
+        applyReadState(records, readIds);
+
+        String first = records.isEmpty() ? null : cursorOf(records.get(0));
+        String last = records.isEmpty() ? null : cursorOf(records.get(records.size() - 1));
+        Map<String, Object> result = new HashMap<>();
+        result.put("records", records);
+        result.put("size", pageSize);
+        if (reverse) {
+            result.put("prevCursor", more ? first : null);
+            result.put("nextCursor", records.isEmpty() ? cursor : last);
+        } else {
+            result.put("prevCursor", position == null ? null : first);
+            result.put("nextCursor", more ? last : null);
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Object> getArchivedMessages(MessageFilter filter, int page, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        // 扫描时在内存中保留 offset + size 条，与全文检索使用相同的翻页上限
+        int current = Math.min(Math.max(page, 1), MAX_SEARCH_WINDOW / pageSize);
+        Roaring64Bitmap readIds = readStateStore.get(readStateStore.resolveUser(filter.getReaderId()));
+        LongPredicate accept = filter.getIsRead() != null ? readFilter(filter.getIsRead(), readIds) : null;
+        ArchivedMessageReader.Page archived = archivedMessageReader.query(filter, accept, (current - 1) * pageSize, pageSize);
+        applyReadState(archived.getRecords(), readIds);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("total", archived.getTotal());
+        result.put("pages", (int) Math.ceil((double) archived.getTotal() / pageSize));
+        result.put("current", current);
+        result.put("records", archived.getRecords());
+        result.put("archived", true);
+        return result;
+    }
+
+    @Override
+    public Map<String, Object> searchMessages(String query, MessageFilter filter, int page, int size) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("检索词不能为空");
+        }
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        int current = Math.min(Math.max(page, 1), MAX_SEARCH_WINDOW / pageSize);
+        Roaring64Bitmap readIds = readStateStore.get(readStateStore.resolveUser(filter.getReaderId()));
+        // 阅读状态在收集命中时按位图过滤，总数与分页只计入通过的消息
+        LongPredicate accept = filter.getIsRead() != null ? readFilter(filter.getIsRead(), readIds) : null;
+        MessageSearchIndex.SearchResult hits = messageSearchIndexer.search(query, filter, accept,
+                (current - 1) * pageSize, pageSize);
+        List<Message> records = loadInOrder(hits.getIds());
+        applyReadState(records, readIds);
+
+        Map<Long, Float> scores = new HashMap<>();
+        for (int i = 0; i < hits.getIds().size(); i++) {
+            scores.put(hits.getIds().get(i), hits.getScores().get(i));
+        }
+        Map<String, Object> result = new HashMap<>();
+        // 命中数很多时 total 只是下限（totalExact=false），可翻页范围本身也限制在 MAX_SEARCH_WINDOW 以内
+        result.put("total", hits.getTotalHits());
+        result.put("totalExact", hits.isTotalExact());
+        result.put("pages", (int) Math.ceil((double) Math.min(hits.getTotalHits(), MAX_SEARCH_WINDOW) / pageSize));
+        result.put("current", current);
+        result.put("records", records);
+        result.put("scores", scores);
+        return result;
+    }
+
+    private static String cursorOf(Message message) {
+        return new MessageCursor(message.getCreatedAt(), message.getId()).encode();
+    }
+
+    /**
+     * 把按用户的阅读状态筛选转换为 id 条件，在目标集合与其补集中选区间更少的一侧
+     * 其他节点刚写入、尚未进入 id 位图的新消息一律视为未读
+     * @return null 表示两侧区间数都超过上限
+     */
+    private Specification<Message> readStateSpec(boolean read, Roaring64Bitmap readIds) {
+        Roaring64Bitmap allIds = messageIdIndex.current();
+        long maxKnownId = allIds.isEmpty() ? 0 : allIds.last();
+        Roaring64Bitmap unreadIds = Roaring64Bitmap.andNot(allIds, readIds);
+        unreadIds.runOptimize();
+        List<long[]> targetRuns = IdRanges.of(read ? readIds : unreadIds, maxInlineRuns);
+        List<long[]> otherRuns = IdRanges.of(read ? unreadIds : readIds,
+                targetRuns == null ? maxInlineRuns : targetRuns.size());
+        if (otherRuns != null) {
+            Specification<Message> excluded = MessageSpecifications.idRanges(otherRuns, true);
+            return read ? excluded.and(Specification.not(MessageSpecifications.idGreaterThan(maxKnownId))) : excluded;
+        }
+        if (targetRuns != null) {
+            Specification<Message> included = MessageSpecifications.idRanges(targetRuns, false);
+            return read ? included : included.or(MessageSpecifications.idGreaterThan(maxKnownId));
+        }
+        return null;
+    }
+
+    @Override
+    public long exportMessages(MessageFilter filter, ExportFormat format, OutputStream out) {
+        // 阅读状态取当前用户的位图，在结果集上逐行过滤，不改变数据库端的执行计划
+        Roaring64Bitmap readIds = readStateStore.get(readStateStore.resolveUser(filter.getReaderId()));
+        LongPredicate accept = filter.getIsRead() != null ? readFilter(filter.getIsRead(), readIds) : null;
+        ResultSetExporter exporter = new ResultSetExporter(format, out,
+                "id", "crypto_type", "content", "sentiment", "source", "source_url", "created_at")
+                .column("is_read", rs -> readIds.contains(rs.getLong(1)));
+        if (accept != null) {
+            exporter.filter(rs -> accept.test(rs.getLong(1)));
+        }
+        messageJdbcRepository.streamForExport(filter, exporter);
+        return exporter.finish();
+    }
+
+    private static LongPredicate readFilter(boolean read, Roaring64Bitmap readIds) {
+        return read ? readIds::contains : id -> !readIds.contains(id);
+    }
+
+    /**
+     * 按 (created_at, id) 顺序分块扫描消息键（只走索引），交给 visitor 处理通过 accept 的键
+     * @param visitor 返回 false 时停止扫描
+     */
+    private void scanKeys(MessageFilter filter, MessageCursor from, boolean backward,
+                          LongPredicate accept, Predicate<MessageCursor> visitor) {
+        MessageCursor position = from;
+        while (true) {
+            List<MessageCursor> keys = messageJdbcRepository.findKeys(filter, position, backward, SCAN_CHUNK);
+            for (MessageCursor key : keys) {
+                if (accept.test(key.getId()) && !visitor.test(key)) {
+                    return;
+                }
+            }
+            if (keys.size() < SCAN_CHUNK) {
+                return;
+            }
+            position = keys.get(keys.size() - 1);
+        }
+    }
+
+    private List<Message> loadInOrder(List<Long> ids) {
+        Map<Long, Message> byId = messageRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Message::getId, message -> message));
+        List<Message> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Message message = byId.get(id);
+            if (message != null) {
+                ordered.add(message);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * 返回给调用方的 isRead 为当前用户的阅读状态；实体均已脱离持久化上下文，修改不会写回数据库
+     */
+    private static void applyReadState(List<Message> messages, Roaring64Bitmap readIds) {
+        for (Message message : messages) {
+            message.setIsRead(readIds.contains(message.getId()));
+        }
     }
     
     @Override
-    public void markMessageAsRead(Long id) {
+    public Message getMessageById(Long id, String userId) {
         Message message = messageRepository.findById(id).orElse(null);
+        if (message == null) {
+            message = archivedMessageReader.findById(id);
+        }
         if (message != null) {
-            message.setRead(true);
-            messageRepository.save(message);
+            applyReadState(List.of(message), readStateStore.get(readStateStore.resolveUser(userId)));
         }
+        return message;
     }
-
+    
     @Override
-    public Message saveMessage(Message message) {
-        // 设置默认值
-        if (message.getCreatedAt() == null) {
-            message.setCreatedAt(LocalDateTime.now());
+    public void markMessageAsRead(Long id, String userId) {
+        if (messageRepository.existsById(id)) {
+            readStateStore.update(readStateStore.resolveUser(userId), readIds -> {
+                if (readIds.contains(id)) {
+                    return false;
+                }
+                readIds.addLong(id);
+                return true;
+            });
         }
-        if (message.getIsRead() == null) {
-            message.setIsRead(false);
+    }
+
+    @Override
+    public long markAllAsRead(MessageFilter filter) {
+        String reader = readStateStore.resolveUser(filter.getReaderId());
+        Roaring64Bitmap matched;
+        if (filter.hasContentConditions()) {
+            Roaring64Bitmap collected = new Roaring64Bitmap();
+            scanKeys(filter, null, false, id -> true, key -> {
+                collected.addLong(key.getId());
+                return true;
+            });
+            matched = collected;
+        } else {
+            // 无筛选条件时直接并入全部消息 id，先补齐其他节点刚写入的消息
+            messageIdIndex.refresh();
+            matched = messageIdIndex.current();
         }
-        return messageRepository.save(message);
+        long[] added = new long[1];
+        readStateStore.update(reader, readIds -> {
+            long before = readIds.getLongCardinality();
+            readIds.or(matched);
+            added[0] = readIds.getLongCardinality() - before;
+            return added[0] > 0;
+        });
+        return added[0];
+    }
+
+    @Override
+    public long countUnread(String userId) {
+        Roaring64Bitmap readIds = readStateStore.get(readStateStore.resolveUser(userId));
+        Roaring64Bitmap allIds = messageIdIndex.current();
+        return allIds.getLongCardinality() - Roaring64Bitmap.andCardinality(allIds, readIds);
     }
 
     @Override
-    public List<Message> saveMessages(List<Message> messages) {
-        // 设置默认值
+    public Message saveMessage(Message message) {
+        List<Message> saved = saveMessages(List.of(message)).getSaved();
+        return saved.isEmpty() ? null : saved.get(0);
+    }
+
+    @Override
+    public MessageSaveResult saveMessages(List<Message> messages) {
+        // 设置默认值，计算去重哈希；同一批次内的重复只保留第一条
         LocalDateTime now = LocalDateTime.now();
+        Map<String, Message> unique = new LinkedHashMap<>();
         for (Message message : messages) {
             if (message.getCreatedAt() == null) {
                 message.setCreatedAt(now);
@@ -88,8 +408,48 @@ public class MessageServiceImpl implements MessageService {
             if (message.getIsRead() == null) {
                 message.setIsRead(false);
             }
+            message.setContentHash(ContentHash.of(message.getContent(), message.getSourceUrl()));
+            unique.putIfAbsent(message.getContentHash(), message);
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            // 首次由布隆过滤器跳过一定不存在的哈希；冲突重试时其他节点的新消息可能不在本地过滤器中，全部查库
+            Set<String> existing = messageDeduplicator.findExisting(unique.keySet(), attempt > 1);
+            List<Message> fresh = unique.values().stream()
+                    .filter(message -> !existing.contains(message.getContentHash()))
+                    .collect(Collectors.toList());
+            try {
+                List<Message> saved = fresh.isEmpty() ? List.of() : transactionTemplate.execute(status -> {
+                    // 绕过 JPA：IDENTITY 主键下 saveAll 逐行 INSERT 并逐行取回 id，这里按批写入后一次取回整批 id
+                    messageJdbcRepository.insertBatch(fresh, insertBatchSize);
+                    sentimentRollupService.recordMessages(fresh);
+                    registerNewMessages(fresh);
+                    return fresh;
+                });
+                return new MessageSaveResult(saved, messages.size() - saved.size());
+            } catch (DataIntegrityViolationException e) {
+                if (attempt >= MAX_SAVE_ATTEMPTS) {
+                    throw e;
+                }
+                // 回滚前已分配的 id 作废
+                fresh.forEach(message -> message.setId(null));
+            }
         }
-        return messageRepository.saveAll(messages);
     }
-}
 
+    /**
+     * 事务提交后把新消息登记到 id 位图、全文索引和去重过滤器，回滚的消息不会出现在未读数和检索结果中
+     */
+    private void registerNewMessages(List<Message> saved) {
+        List<Long> ids = saved.stream().map(Message::getId).collect(Collectors.toList());
+        List<String> hashes = saved.stream().map(Message::getContentHash).collect(Collectors.toList());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                messageIdIndex.add(ids);
+                messageSearchIndexer.index(saved);
+                messageDeduplicator.register(hashes);
+            }
+        });
+    }
+}
@@ -2,127 +2,166 @@ package com.crypto.service.impl;
 
 import com.crypto.entity.PortfolioHistory;
 import com.crypto.entity.PortfolioItem;
-import com.crypto.repository.PortfolioHistoryRepository;
-import com.crypto.repository.PortfolioItemRepository;
+import com.crypto.repository.PortfolioJdbcRepository;
+import com.crypto.repository.SystemCounterRepository;
+import com.crypto.risk.PortfolioRisk;
+import com.crypto.risk.RiskEngine;
+import com.crypto.risk.RiskModel;
 import com.crypto.service.PortfolioService;
+import com.crypto.tenant.PortfolioTenants;
+import com.crypto.valuation.HistoryInterval;
+import com.crypto.valuation.LiveValuationEngine;
+import com.crypto.valuation.PortfolioHistoryStore;
+import com.crypto.valuation.PortfolioValuation;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 public class PortfolioServiceImpl implements PortfolioService {
     
     @Autowired
-    private PortfolioItemRepository portfolioItemRepository;
+    private LiveValuationEngine liveValuationEngine;
     
     @Autowired
-    private PortfolioHistoryRepository portfolioHistoryRepository;
+    private PortfolioHistoryStore portfolioHistoryStore;
+    
+    @Autowired
+    private PortfolioJdbcRepository portfolioJdbcRepository;
+    
+    @Autowired
+    private SystemCounterRepository systemCounterRepository;
+    
+    @Autowired
+    private RiskEngine riskEngine;
+    
+    @Autowired
+    private PortfolioTenants portfolioTenants;
+    
+    // 每个 JDBC 批次的行数
+    @Value("${crypto.ingest.batch-size:500}")
+    private int batchSize;
     
     @Override
-    public Map<String, Object> getCurrentPortfolio() {
+    public Map<String, Object> getCurrentPortfolio(Long portfolioId) {
         Map<String, Object> result = new HashMap<>();
         
-        // 获取所有持仓项目
-        List<PortfolioItem> items = portfolioItemRepository.findAll();
+        // 按最新行情实时估值的持仓（内存读取，只访问该组合的缓存）
+        long tenant = portfolioTenants.resolve(portfolioId);
+        PortfolioValuation valuation = liveValuationEngine.snapshot(tenant);
         
-        // 计算总价值
-        double totalValue = items.stream()
-                .mapToDouble(item -> item.getQuantity() * item.getPrice())
-                .sum();
-        
-        // 计算每个项目的价值和占比
-        List<Map<String, Object>> portfolioItems = items.stream().map(item -> {
+        // 每个项目的价值和占比
+        List<Map<String, Object>> portfolioItems = new ArrayList<>(valuation.size());
+        for (int i = 0; i < valuation.size(); i++) {
             Map<String, Object> portfolioItem = new HashMap<>();
-            double value = item.getQuantity() * item.getPrice();
-            double percentage = (value / totalValue) * 100;
-            
-            portfolioItem.put("id", item.getId());
-            portfolioItem.put("cryptoType", item.getCryptoType());
-            portfolioItem.put("quantity", item.getQuantity());
-            portfolioItem.put("price", item.getPrice());
-            portfolioItem.put("value", value);
-            portfolioItem.put("percentage", percentage);
-            
-            return portfolioItem;
-        }).collect(Collectors.toList());
+            portfolioItem.put("id", valuation.getId(i));
+            portfolioItem.put("cryptoType", valuation.getSymbol(i));
+            portfolioItem.put("quantity", valuation.getQuantity(i));
+            portfolioItem.put("price", valuation.getPrice(i));
+            portfolioItem.put("value", valuation.getValue(i));
+            portfolioItem.put("percentage", valuation.getPercentage(i));
+            portfolioItems.add(portfolioItem);
+        }
         
-        result.put("totalValue", totalValue);
+        result.put("portfolioId", tenant);
+        result.put("totalValue", valuation.getTotalValue());
         result.put("items", portfolioItems);
         
         return result;
     }
     
     @Override
-    public List<Map<String, Object>> getPortfolioHistory(int days) {
-        // 计算起始日期
-        LocalDate startDate = LocalDate.now().minusDays(days - 1);
-        
-        // 获取指定日期范围内的历史数据
-        List<PortfolioHistory> historyList = portfolioHistoryRepository.findByDateGreaterThanEqualOrderByDateAsc(startDate);
-        
-        // 按照日期分组
-        Map<LocalDate, List<PortfolioHistory>> historyByDate = historyList.stream()
-                .collect(Collectors.groupingBy(PortfolioHistory::getDate));
-        
-        // 构造响应数据
+    public List<Map<String, Object>> getPortfolioHistory(Long portfolioId, int days) {
+        // 按日读取内存序列，日期本身有序，无需分组和排序；days <= 0 时返回全部历史
+        LocalDate today = LocalDate.now();
+        LocalDate start = days > 0 ? today.minusDays(days - 1) : LocalDate.MIN;
         List<Map<String, Object>> result = new ArrayList<>();
-        
-        historyByDate.forEach((date, items) -> {
+        portfolioHistoryStore.forEachDay(portfolioTenants.resolve(portfolioId), start, today, (date, totalValue, percentages) -> {
             Map<String, Object> historyItem = new HashMap<>();
             historyItem.put("date", date.toString());
-            historyItem.put("totalValue", items.get(0).getTotalValue());
+            historyItem.put("totalValue", totalValue);
             
-            List<Map<String, Object>> cryptoItems = items.stream().map(item -> {
+            List<Map<String, Object>> cryptoItems = new ArrayList<>(percentages.size());
+            percentages.forEach((cryptoType, percentage) -> {
                 Map<String, Object> cryptoItem = new HashMap<>();
-                cryptoItem.put("cryptoType", item.getCryptoType());
-                cryptoItem.put("percentage", item.getPercentage());
-                return cryptoItem;
-            }).collect(Collectors.toList());
+                cryptoItem.put("cryptoType", cryptoType);
+                cryptoItem.put("percentage", percentage);
+                cryptoItems.add(cryptoItem);
+            });
             
             historyItem.put("items", cryptoItems);
             result.add(historyItem);
         });
-        
-        // 按日期排序
-        result.sort(Comparator.comparing(item -> item.get("date").toString()));
-        
         return result;
     }
     
     @Override
-    public Map<String, Object> updatePortfolio(List<PortfolioItem> items) {
-        // 删除现有的所有持仓项目
-        portfolioItemRepository.deleteAll();
-        
-        // 计算总价值
-        double totalValue = items.stream()
-                .mapToDouble(item -> item.getQuantity() * item.getPrice())
-                .sum();
-        
-        // 保存新的持仓项目
-        List<PortfolioItem> savedItems = items.stream().map(item -> {
-            double value = item.getQuantity() * item.getPrice();
-            double percentage = (value / totalValue) * 100;
-            
-            item.setValue(value);
-            item.setPercentage(percentage);
-            
-            return portfolioItemRepository.save(item);
-        }).collect(Collectors.toList());
+    public Map<String, Object> getPortfolioHistorySeries(Long portfolioId, int days, String interval) {
+        long tenant = portfolioTenants.resolve(portfolioId);
+        LocalDate end = LocalDate.now();
+        // days <= 0 时不限起点，序列从第一条记录开始，采样周期按实际跨度选择
+        LocalDate start = days > 0 ? end.minusDays(days - 1) : LocalDate.MIN;
+        return portfolioHistoryStore.query(tenant, start, end, HistoryInterval.fromCode(interval));
+    }
+    
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public Map<String, Object> updatePortfolio(Long portfolioId, List<PortfolioItem> items) {
+        long tenant = portfolioTenants.resolve(portfolioId);
+        
+        // 估值：价值与占比取决于整个组合，先按新持仓整体计算
+        PortfolioValuation valuation = PortfolioValuation.of(items);
+        double totalValue = valuation.getTotalValue();
+        for (int i = 0; i < items.size(); i++) {
+            PortfolioItem item = items.get(i);
+            item.setPortfolioId(tenant);
+            item.setValue(valuation.getValue(i));
+            item.setPercentage(valuation.getPercentage(i));
+        }
         
-        // 保存到持仓历史表
+        // 锁住该组合的当前持仓后按币种对比，只写入新增、变化和移除的行；事务提交前读者看到的仍是旧持仓
+        Changes changes = diff(portfolioJdbcRepository.findAllForUpdate(tenant), items);
+        portfolioJdbcRepository.deleteItems(tenant, changes.deletes);
+        portfolioJdbcRepository.updateItems(changes.updates, batchSize);
+        portfolioJdbcRepository.insertItems(changes.inserts, batchSize);
+        boolean itemsChanged = !changes.deletes.isEmpty() || !changes.updates.isEmpty() || !changes.inserts.isEmpty();
+        if (itemsChanged) {
+            // 持仓版本随持仓一起提交，其他节点据此只重载该组合
+            systemCounterRepository.increment(SystemCounterRepository.portfolioItems(tenant), 1);
+        }
+        
+        // 按 (date, crypto_type) 覆盖当天的持仓历史（一个批次），并删除当天已清仓的币种，重复提交不会产生重复行
         LocalDate today = LocalDate.now();
-        savedItems.forEach(item -> {
+        List<PortfolioHistory> historyRows = new ArrayList<>(items.size());
+        for (PortfolioItem item : items) {
             PortfolioHistory history = new PortfolioHistory();
+            history.setPortfolioId(tenant);
             history.setDate(today);
             history.setTotalValue(totalValue);
             history.setCryptoType(item.getCryptoType());
             history.setPercentage(item.getPercentage());
-            
-            portfolioHistoryRepository.save(history);
+            historyRows.add(history);
+        }
+        portfolioJdbcRepository.upsertHistory(historyRows, batchSize);
+        Map<String, Double> percentages = new LinkedHashMap<>();
+        items.forEach(item -> percentages.put(item.getCryptoType(), item.getPercentage()));
+        portfolioJdbcRepository.deleteHistoryExcept(tenant, today, percentages.keySet());
+        
+        // 提交后该组合的实时估值改用新的持仓（持仓有变化时），其他组合的缓存不受影响
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                if (itemsChanged) {
+                    liveValuationEngine.reload(tenant);
+                }
+                portfolioHistoryStore.replaceDay(tenant, today, totalValue, percentages);
+            }
         });
         
         // 构造响应数据
@@ -131,45 +170,162 @@ public class PortfolioServiceImpl implements PortfolioService {
         result.put("message", "持仓数据已更新");
         
         Map<String, Object> data = new HashMap<>();
+        data.put("portfolioId", tenant);
         data.put("totalValue", totalValue);
-        data.put("items", savedItems);
+        data.put("items", items);
+        data.put("inserted", changes.inserts.size());
+        data.put("updated", changes.updates.size());
+        data.put("deleted", changes.deletes.size());
         
         result.put("data", data);
         
         return result;
     }
     
+    /**
+     * 按币种对比当前持仓与目标持仓：相同币种沿用原 id，字段有变化时更新；当前持仓中多余的行删除
+     */
+    static Changes diff(List<PortfolioItem> current, List<PortfolioItem> desired) {
+        Map<String, Deque<PortfolioItem>> existing = new HashMap<>();
+        for (PortfolioItem item : current) {
+            existing.computeIfAbsent(item.getCryptoType(), k -> new ArrayDeque<>()).add(item);
+        }
+        Changes changes = new Changes();
+        Set<String> seen = new HashSet<>();
+        for (PortfolioItem item : desired) {
+            if (!seen.add(item.getCryptoType())) {
+                throw new IllegalArgumentException("持仓币种重复：" + item.getCryptoType());
+            }
+            Deque<PortfolioItem> matches = existing.get(item.getCryptoType());
+            PortfolioItem previous = matches != null ? matches.poll() : null;
+            if (previous == null) {
+                item.setId(null);
+                changes.inserts.add(item);
+                continue;
+            }
+            item.setId(previous.getId());
+            if (!Objects.equals(previous.getQuantity(), item.getQuantity())
+                    || !Objects.equals(previous.getPrice(), item.getPrice())
+                    || !Objects.equals(previous.getValue(), item.getValue())
+                    || !Objects.equals(previous.getPercentage(), item.getPercentage())) {
+                changes.updates.add(item);
+            }
+        }
+        existing.values().forEach(rest -> rest.forEach(item -> changes.deletes.add(item.getId())));
+        return changes;
+    }
+    
+    static final class Changes {
+        final List<PortfolioItem> inserts = new ArrayList<>();
+        final List<PortfolioItem> updates = new ArrayList<>();
+        final List<Long> deletes = new ArrayList<>();
+    }
+    
     @Override
-    public Map<String, Object> getHoldingsForAI() {
-        Map<String, Object> result = new HashMap<>();
+    public Map<String, Object> getPortfolioRisk(Long portfolioId) {
+        PortfolioValuation valuation = liveValuationEngine.snapshot(portfolioTenants.resolve(portfolioId));
+        RiskModel model = riskEngine.model();
+        PortfolioRisk risk = evaluateRisk(model, valuation, true);
+        double totalValue = valuation.getTotalValue();
+        
+        Map<String, Object> portfolio = risk.summary();
+        portfolio.put("historicalVar95Value", RiskModel.finiteOrNull(risk.getHistoricalVar95() * totalValue));
+        portfolio.put("historicalVar99Value", RiskModel.finiteOrNull(risk.getHistoricalVar99() * totalValue));
+        portfolio.put("parametricVar95Value", RiskModel.finiteOrNull(risk.getParametricVar95() * totalValue));
+        portfolio.put("parametricVar99Value", RiskModel.finiteOrNull(risk.getParametricVar99() * totalValue));
         
-        // 获取所有持仓项目
-        List<PortfolioItem> items = portfolioItemRepository.findAll();
+        // 各持仓的风险指标；相关系数矩阵只包含有价格历史的持仓
+        List<Map<String, Object>> holdings = new ArrayList<>(valuation.size());
+        List<String> correlated = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < valuation.size(); i++) {
+            int index = model.indexOf(valuation.getSymbol(i));
+            Map<String, Object> holding = new HashMap<>();
+            holding.put("asset", valuation.getSymbol(i));
+            holding.put("weight", valuation.getPercentage(i));
+            putSymbolRisk(holding, model, index);
+            holdings.add(holding);
+            if (index >= 0) {
+                correlated.add(valuation.getSymbol(i));
+                indexes.add(index);
+            }
+        }
+        Double[][] matrix = new Double[indexes.size()][indexes.size()];
+        for (int a = 0; a < indexes.size(); a++) {
+            for (int b = 0; b < indexes.size(); b++) {
+                matrix[a][b] = RiskModel.finiteOrNull(model.getCorrelation(indexes.get(a), indexes.get(b)));
+            }
+        }
         
-        // 计算总价值
-        double totalValue = items.stream()
-                .mapToDouble(item -> item.getQuantity() * item.getPrice())
-                .sum();
+        double[] rolling = risk.getRollingVolatility();
+        String[] rollingDates = new String[rolling.length];
+        for (int k = 0; k < rolling.length; k++) {
+            rollingDates[k] = risk.getRollingStart().plusDays(k).toString();
+        }
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("asOf", model.getAsOf().toString());
+        result.put("volatilityWindow", model.getVolatilityWindow());
+        result.put("totalValue", totalValue);
+        result.put("portfolio", portfolio);
+        result.put("holdings", holdings);
+        result.put("correlation", Map.of("symbols", correlated, "matrix", matrix));
+        result.put("rollingVolatility", Map.of("dates", rollingDates, "values", rolling));
+        return result;
+    }
+    
+    @Override
+    public Map<String, Object> getHoldingsForAI(Long portfolioId) {
+        Map<String, Object> result = new HashMap<>();
+        
+        // 按最新行情实时估值的持仓（内存读取）
+        PortfolioValuation valuation = liveValuationEngine.snapshot(portfolioTenants.resolve(portfolioId));
+        // 不等待风险数据计算，暂无风险数据时各风险字段为 null
+        RiskModel model = riskEngine.current();
         
         // 构造AI友好的持仓信息格式
-        List<Map<String, Object>> holdings = items.stream().map(item -> {
+        List<Map<String, Object>> holdings = new ArrayList<>(valuation.size());
+        for (int i = 0; i < valuation.size(); i++) {
             Map<String, Object> holding = new HashMap<>();
-            double value = item.getQuantity() * item.getPrice();
-            double percentage = (value / totalValue) * 100;
-            
-            holding.put("asset", item.getCryptoType());
-            holding.put("quantity", item.getQuantity());
-            holding.put("price", item.getPrice());
-            holding.put("value", value);
-            holding.put("percentage", percentage);
-            
-            return holding;
-        }).collect(Collectors.toList());
+            holding.put("asset", valuation.getSymbol(i));
+            holding.put("quantity", valuation.getQuantity(i));
+            holding.put("price", valuation.getPrice(i));
+            holding.put("value", valuation.getValue(i));
+            holding.put("percentage", valuation.getPercentage(i));
+            putSymbolRisk(holding, model, model != null ? model.indexOf(valuation.getSymbol(i)) : -1);
+            holdings.add(holding);
+        }
+        
+        Map<String, Object> risk = null;
+        if (model != null) {
+            risk = evaluateRisk(model, valuation, false).summary();
+            risk.put("asOf", model.getAsOf().toString());
+        }
         
-        result.put("totalValueUSD", totalValue);
+        result.put("totalValueUSD", valuation.getTotalValue());
         result.put("holdings", holdings);
+        result.put("risk", risk);
         result.put("timestamp", new Date());
         
         return result;
     }
+    
+    // 按当前市值计算权重
+    private static PortfolioRisk evaluateRisk(RiskModel model, PortfolioValuation valuation, boolean withSeries) {
+        String[] symbols = new String[valuation.size()];
+        double[] weights = new double[valuation.size()];
+        double totalValue = valuation.getTotalValue();
+        for (int i = 0; i < valuation.size(); i++) {
+            symbols[i] = valuation.getSymbol(i);
+            weights[i] = totalValue > 0 ? valuation.getValue(i) / totalValue : 0;
+        }
+        return model.evaluate(symbols, weights, withSeries);
+    }
+    
+    // 没有价格历史的币种各项为 null
+    private static void putSymbolRisk(Map<String, Object> holding, RiskModel model, int index) {
+        holding.put("volatility", index >= 0 ? RiskModel.finiteOrNull(model.getVolatility(index)) : null);
+        holding.put("maxDrawdown", index >= 0 ? RiskModel.finiteOrNull(model.getMaxDrawdown(index)) : null);
+        holding.put("beta", index >= 0 ? RiskModel.finiteOrNull(model.getBeta(index)) : null);
+    }
 }
@@ -0,0 +1,136 @@
+package com.crypto.service.impl;
+
+import com.crypto.entity.CandleInterval;
+import com.crypto.entity.CryptoCurrency;
+import com.crypto.entity.PriceCandle;
+import com.crypto.export.ExportFormat;
+import com.crypto.export.ResultSetExporter;
+import com.crypto.repository.PriceCandleRepository;
+import com.crypto.repository.PriceHistoryJdbcRepository;
+import com.crypto.service.PriceHistoryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 行情历史：逐笔记录 + 增量维护的 K 线
+ * 同一批行情先在内存中按 (symbol, 周期, 起始时间) 预聚合，每个 K 线只产生一条 upsert
+ */
+@Service
+public class PriceHistoryServiceImpl implements PriceHistoryService {
+
+    // 单次查询最多返回的 K 线条数
+    private static final int MAX_CANDLES = 2000;
+
+    private final PriceHistoryJdbcRepository priceHistoryJdbcRepository;
+    private final PriceCandleRepository priceCandleRepository;
+    private final int batchSize;
+
+    @Autowired
+    public PriceHistoryServiceImpl(PriceHistoryJdbcRepository priceHistoryJdbcRepository,
+                                   PriceCandleRepository priceCandleRepository,
+                                   @Value("${crypto.ingest.batch-size:500}") int batchSize) {
+        this.priceHistoryJdbcRepository = priceHistoryJdbcRepository;
+        this.priceCandleRepository = priceCandleRepository;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void recordTicks(List<CryptoCurrency> ticks) {
+        if (ticks.isEmpty()) {
+            return;
+        }
+        priceHistoryJdbcRepository.appendTicks(ticks, batchSize);
+
+        Map<String, PriceCandle> deltas = new HashMap<>();
+        for (CryptoCurrency tick : ticks) {
+            for (CandleInterval interval : CandleInterval.values()) {
+                LocalDateTime bucketStart = interval.bucketStart(tick.getUpdateTime());
+                String key = tick.getSymbol() + '|' + interval.getCode() + '|' + bucketStart;
+                PriceCandle candle = deltas.get(key);
+                if (candle == null) {
+                    deltas.put(key, newCandle(tick, interval, bucketStart));
+                } else {
+                    accumulate(candle, tick);
+                }
+            }
+        }
+        priceHistoryJdbcRepository.mergeCandles(deltas.values(), batchSize);
+    }
+
+    /**
+     * 范围内超过 MAX_CANDLES 根时保留最近的部分：按时间倒序取前 MAX_CANDLES 根，再翻转为正序返回
+     */
+    @Override
+    public List<PriceCandle> getCandles(String symbol, CandleInterval interval, LocalDateTime start, LocalDateTime end) {
+        List<PriceCandle> candles = new ArrayList<>(
+                priceCandleRepository.findBySymbolAndBarIntervalAndBucketStartBetweenOrderByBucketStartDesc(
+                        symbol, interval.getCode(), interval.bucketStart(start), end, PageRequest.of(0, MAX_CANDLES)));
+        Collections.reverse(candles);
+        return candles;
+    }
+
+    @Override
+    public long exportTicks(String symbol, LocalDateTime start, LocalDateTime end, ExportFormat format, OutputStream out) {
+        ResultSetExporter exporter = new ResultSetExporter(format, out, "id", "symbol", "usdPrice", "volume24h", "tickTime");
+        priceHistoryJdbcRepository.streamTicks(symbol, start, end, exporter);
+        return exporter.finish();
+    }
+
+    @Override
+    public long exportCandles(String symbol, CandleInterval interval, LocalDateTime start, LocalDateTime end,
+                              ExportFormat format, OutputStream out) {
+        ResultSetExporter exporter = new ResultSetExporter(format, out, "symbol", "barInterval", "bucketStart",
+                "open", "high", "low", "close", "volume", "tickCount");
+        priceHistoryJdbcRepository.streamCandles(symbol, interval.getCode(),
+                start != null ? interval.bucketStart(start) : null, end, exporter);
+        return exporter.finish();
+    }
+
+    private static PriceCandle newCandle(CryptoCurrency tick, CandleInterval interval, LocalDateTime bucketStart) {
+        PriceCandle candle = new PriceCandle();
+        candle.setSymbol(tick.getSymbol());
+        candle.setBarInterval(interval.getCode());
+        candle.setBucketStart(bucketStart);
+        candle.setOpen(tick.getUsdPrice());
+        candle.setHigh(tick.getUsdPrice());
+        candle.setLow(tick.getUsdPrice());
+        candle.setClose(tick.getUsdPrice());
+        candle.setVolume(tick.getVolume24h());
+        candle.setTickCount(1);
+        candle.setOpenTime(tick.getUpdateTime());
+        candle.setCloseTime(tick.getUpdateTime());
+        return candle;
+    }
+
+    private static void accumulate(PriceCandle candle, CryptoCurrency tick) {
+        LocalDateTime time = tick.getUpdateTime();
+        if (time.isBefore(candle.getOpenTime())) {
+            candle.setOpen(tick.getUsdPrice());
+            candle.setOpenTime(time);
+        }
+        if (!time.isBefore(candle.getCloseTime())) {
+            candle.setClose(tick.getUsdPrice());
+            candle.setVolume(tick.getVolume24h());
+            candle.setCloseTime(time);
+        }
+        if (tick.getUsdPrice().compareTo(candle.getHigh()) > 0) {
+            candle.setHigh(tick.getUsdPrice());
+        }
+        if (tick.getUsdPrice().compareTo(candle.getLow()) < 0) {
+            candle.setLow(tick.getUsdPrice());
+        }
+        candle.setTickCount(candle.getTickCount() + 1);
+    }
+}
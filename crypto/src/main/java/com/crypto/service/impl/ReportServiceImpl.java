@@ -1,18 +1,26 @@
 package com.crypto.service.impl;
 
 import com.crypto.entity.Message;
-import com.crypto.entity.PortfolioItem;
 import com.crypto.entity.Report;
 import com.crypto.entity.ReportSuggestion;
 import com.crypto.repository.MessageRepository;
-import com.crypto.repository.PortfolioItemRepository;
 import com.crypto.repository.ReportRepository;
 import com.crypto.repository.ReportSuggestionRepository;
+import com.crypto.repository.SystemCounterRepository;
 import com.crypto.service.ReportService;
+import com.crypto.tenant.PortfolioTenants;
+import com.crypto.valuation.LiveValuationEngine;
+import com.crypto.valuation.PortfolioValuation;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,43 +37,46 @@ public class ReportServiceImpl implements ReportService {
     private MessageRepository messageRepository;
     
     @Autowired
-    private PortfolioItemRepository portfolioItemRepository;
+    private LiveValuationEngine liveValuationEngine;
     
     @Autowired
     private ReportSuggestionRepository reportSuggestionRepository;
     
+    @Autowired
+    private SystemCounterRepository counterRepository;
+    
+    @Autowired
+    private PortfolioTenants portfolioTenants;
+    
     @Override
-    public Map<String, Object> getReports(String status, int page, int size) {
-        List<Report> reports;
+    public Map<String, Object> getReports(Long portfolioId, String status, int page, int size) {
+        long tenant = portfolioTenants.resolve(portfolioId);
         
-        // 根据状态筛选报告
+        // 在数据库中按组合（及状态）分页，走以 portfolio_id 开头的索引，只读取当前页
+        Pageable pageable = PageRequest.of(Math.max(page - 1, 0), size, Sort.by("createdAt", "id"));
+        Page<Report> reports;
         if (status != null && !status.isEmpty()) {
-            reports = reportRepository.findByStatus(status);
+            reports = reportRepository.findByPortfolioIdAndStatus(tenant, status, pageable);
         } else {
-            reports = reportRepository.findAll();
+            reports = reportRepository.findByPortfolioId(tenant, pageable);
         }
         
-        // 分页处理
-        int total = reports.size();
-        int pages = (int) Math.ceil((double) total / size);
-        int fromIndex = (page - 1) * size;
-        int toIndex = Math.min(fromIndex + size, total);
-        List<Report> pageReports = reports.subList(fromIndex, toIndex);
-        
         // 构造响应
         Map<String, Object> result = new HashMap<>();
-        result.put("total", total);
-        result.put("pages", pages);
+        result.put("total", reports.getTotalElements());
+        result.put("pages", reports.getTotalPages());
         result.put("current", page);
-        result.put("records", pageReports);
+        result.put("records", reports.getContent());
         
         return result;
     }
 
     @Override
-    public Map<String, Object> getReportById(Long id) {
-        // 获取报告基本信息
-        Report report = reportRepository.findById(id).orElse(null);
+    public Map<String, Object> getReportById(Long portfolioId, Long id) {
+        long tenant = portfolioTenants.resolve(portfolioId);
+        
+        // 获取报告基本信息，其他组合的报告按不存在处理
+        Report report = reportRepository.findByIdAndPortfolioId(id, tenant).orElse(null);
         if (report == null) {
             return null;
         }
@@ -91,24 +102,20 @@ public class ReportServiceImpl implements ReportService {
         
         // 获取持仓快照
         Map<String, Object> portfolioSnapshot = new HashMap<>();
-        List<PortfolioItem> items = portfolioItemRepository.findAll();
-        double totalValue = items.stream().mapToDouble(item -> item.getQuantity() * item.getPrice()).sum();
+        PortfolioValuation valuation = liveValuationEngine.snapshot(tenant);
         
-        List<Map<String, Object>> portfolioItems = items.stream().map(item -> {
+        List<Map<String, Object>> portfolioItems = new ArrayList<>(valuation.size());
+        for (int i = 0; i < valuation.size(); i++) {
             Map<String, Object> portfolioItem = new HashMap<>();
-            double value = item.getQuantity() * item.getPrice();
-            double percentage = (value / totalValue) * 100;
-            
-            portfolioItem.put("cryptoType", item.getCryptoType());
-            portfolioItem.put("quantity", item.getQuantity());
-            portfolioItem.put("price", item.getPrice());
-            portfolioItem.put("value", value);
-            portfolioItem.put("percentage", percentage);
-            
-            return portfolioItem;
-        }).collect(Collectors.toList());
+            portfolioItem.put("cryptoType", valuation.getSymbol(i));
+            portfolioItem.put("quantity", valuation.getQuantity(i));
+            portfolioItem.put("price", valuation.getPrice(i));
+            portfolioItem.put("value", valuation.getValue(i));
+            portfolioItem.put("percentage", valuation.getPercentage(i));
+            portfolioItems.add(portfolioItem);
+        }
         
-        portfolioSnapshot.put("totalValue", totalValue);
+        portfolioSnapshot.put("totalValue", valuation.getTotalValue());
         portfolioSnapshot.put("items", portfolioItems);
         result.put("portfolioSnapshot", portfolioSnapshot);
         
@@ -119,27 +126,42 @@ public class ReportServiceImpl implements ReportService {
     }
     
     @Override
-    public void updateReportStatus(Long id, String status) {
-        Report report = reportRepository.findById(id).orElse(null);
+    @Transactional
+    public void updateReportStatus(Long portfolioId, Long id, String status) {
+        long tenant = portfolioTenants.resolve(portfolioId);
+        Report report = reportRepository.findByIdForUpdate(id, tenant).orElse(null);
         if (report != null) {
+            long delta = (isPending(status) ? 1 : 0) - (isPending(report.getStatus()) ? 1 : 0);
             report.setStatus(status);
             reportRepository.save(report);
+            counterRepository.increment(SystemCounterRepository.pendingReports(tenant), delta);
         }
     }
+
+    private static boolean isPending(String status) {
+        return "pending".equals(status);
+    }
     
     @Override
-    public Map<String, Object> createReport(Map<String, Object> reportData) {
+    @Transactional
+    public Map<String, Object> createReport(Long portfolioId, Map<String, Object> reportData) {
+        long tenant = portfolioTenants.resolve(portfolioId);
         Report report = new Report();
+        report.setPortfolioId(tenant);
         report.setTitle((String) reportData.get("title"));
         report.setStatus(reportData.get("status") != null ? (String) reportData.get("status") : "pending");
         report.setCreatedAt(LocalDateTime.now());
         report.setMessageCount(0);
         
         Report savedReport = reportRepository.save(report);
+        if (isPending(savedReport.getStatus())) {
+            counterRepository.increment(SystemCounterRepository.pendingReports(tenant), 1);
+        }
         
         // 构造响应
         Map<String, Object> response = new HashMap<>();
         response.put("id", savedReport.getId());
+        response.put("portfolioId", savedReport.getPortfolioId());
         response.put("title", savedReport.getTitle());
         response.put("status", savedReport.getStatus());
         response.put("createdAt", savedReport.getCreatedAt());
@@ -152,18 +174,19 @@ public class ReportServiceImpl implements ReportService {
     
     // ReportSuggestion相关方法实现
     @Override
-    public List<ReportSuggestion> getSuggestionsByReportId(Long reportId) {
-        return reportSuggestionRepository.findByReportId(reportId);
+    public List<ReportSuggestion> getSuggestionsByReportId(Long portfolioId, Long reportId) {
+        return reportSuggestionRepository.findByPortfolioIdAndReportId(portfolioTenants.resolve(portfolioId), reportId);
     }
     
     @Override
-    public ReportSuggestion addSuggestionToReport(Long reportId, Map<String, Object> suggestionData) {
-        Report report = reportRepository.findById(reportId).orElse(null);
+    public ReportSuggestion addSuggestionToReport(Long portfolioId, Long reportId, Map<String, Object> suggestionData) {
+        Report report = reportRepository.findByIdAndPortfolioId(reportId, portfolioTenants.resolve(portfolioId)).orElse(null);
         if (report == null) {
             return null;
         }
         
         ReportSuggestion suggestion = new ReportSuggestion();
+        suggestion.setPortfolioId(report.getPortfolioId());
         suggestion.setCryptoType((String) suggestionData.get("cryptoType"));
         suggestion.setCurrentPercentage((Double) suggestionData.get("currentPercentage"));
         suggestion.setSuggestedPercentage((Double) suggestionData.get("suggestedPercentage"));
@@ -174,8 +197,9 @@ public class ReportServiceImpl implements ReportService {
     }
     
     @Override
-    public ReportSuggestion updateSuggestion(Long suggestionId, Map<String, Object> suggestionData) {
-        Optional<ReportSuggestion> optionalSuggestion = reportSuggestionRepository.findById(suggestionId);
+    public ReportSuggestion updateSuggestion(Long portfolioId, Long suggestionId, Map<String, Object> suggestionData) {
+        Optional<ReportSuggestion> optionalSuggestion =
+                reportSuggestionRepository.findByIdAndPortfolioId(suggestionId, portfolioTenants.resolve(portfolioId));
         if (optionalSuggestion.isPresent()) {
             ReportSuggestion suggestion = optionalSuggestion.get();
             
@@ -198,7 +222,8 @@ public class ReportServiceImpl implements ReportService {
     }
     
     @Override
-    public void deleteSuggestion(Long suggestionId) {
-        reportSuggestionRepository.deleteById(suggestionId);
+    public void deleteSuggestion(Long portfolioId, Long suggestionId) {
+        reportSuggestionRepository.findByIdAndPortfolioId(suggestionId, portfolioTenants.resolve(portfolioId))
+                .ifPresent(reportSuggestionRepository::delete);
     }
 }
\ No newline at end of file
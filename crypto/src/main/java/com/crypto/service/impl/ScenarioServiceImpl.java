@@ -0,0 +1,138 @@
+package com.crypto.service.impl;
+
+import com.crypto.dto.ScenarioRequest;
+import com.crypto.entity.ReportSuggestion;
+import com.crypto.repository.ReportRepository;
+import com.crypto.repository.ReportSuggestionRepository;
+import com.crypto.risk.ScenarioBasis;
+import com.crypto.risk.ScenarioEngine;
+import com.crypto.risk.ScenarioResult;
+import com.crypto.service.ScenarioService;
+import com.crypto.tenant.PortfolioTenants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class ScenarioServiceImpl implements ScenarioService {
+
+    private final ScenarioEngine scenarioEngine;
+    private final ReportRepository reportRepository;
+    private final ReportSuggestionRepository reportSuggestionRepository;
+    private final PortfolioTenants portfolioTenants;
+
+    @Autowired
+    public ScenarioServiceImpl(ScenarioEngine scenarioEngine,
+                               ReportRepository reportRepository,
+                               ReportSuggestionRepository reportSuggestionRepository,
+                               PortfolioTenants portfolioTenants) {
+        this.scenarioEngine = scenarioEngine;
+        this.reportRepository = reportRepository;
+        this.reportSuggestionRepository = reportSuggestionRepository;
+        this.portfolioTenants = portfolioTenants;
+    }
+
+    @Override
+    public Map<String, Object> evaluate(Long portfolioId, ScenarioRequest request) {
+        long tenant = portfolioTenants.resolve(portfolioId);
+        List<String> names = new ArrayList<>();
+        List<Map<String, Double>> targets = new ArrayList<>();
+        addTargets(request, names, targets);
+        scenarioEngine.validate(targets, 0);
+        ScenarioBasis basis = scenarioEngine.basis(tenant, targets);
+        return toResponse(basis, names, targets, request.isIncludeTrades());
+    }
+
+    @Override
+    public Map<String, Object> evaluateReportSuggestions(Long portfolioId, Long reportId, ScenarioRequest request) {
+        long tenant = portfolioTenants.resolve(portfolioId);
+        int steps = Math.max(request.getBlendSteps(), 0);
+        if (!reportRepository.existsByIdAndPortfolioId(reportId, tenant)) {
+            return null;
+        }
+        Map<String, Double> suggested = new LinkedHashMap<>();
+        for (ReportSuggestion suggestion : reportSuggestionRepository.findByPortfolioIdAndReportId(tenant, reportId)) {
+            if (suggestion.getCryptoType() != null && suggestion.getSuggestedPercentage() != null) {
+                suggested.put(suggestion.getCryptoType(), suggestion.getSuggestedPercentage());
+            }
+        }
+        List<String> names = new ArrayList<>();
+        List<Map<String, Double>> targets = new ArrayList<>();
+        names.add("suggestion");
+        targets.add(suggested);
+        addTargets(request, names, targets);
+        // 中间方案在 basis 之后才能生成，先按数量计入上限
+        scenarioEngine.validate(targets, steps);
+        ScenarioBasis basis = scenarioEngine.basis(tenant, targets);
+
+        // 中间方案：每个建议币种从当前占比向建议占比移动 k / (blendSteps + 1)
+        for (int k = 1; k <= steps; k++) {
+            double fraction = (double) k / (steps + 1);
+            Map<String, Double> blend = new LinkedHashMap<>();
+            suggested.forEach((symbol, weight) -> {
+                double current = basis.getCurrentWeight(symbol);
+                blend.put(symbol, current + (weight - current) * fraction);
+            });
+            names.add(String.format("blend-%.0f%%", fraction * 100));
+            targets.add(blend);
+        }
+
+        Map<String, Object> result = toResponse(basis, names, targets, request.isIncludeTrades());
+        result.put("reportId", reportId);
+        return result;
+    }
+
+    private static void addTargets(ScenarioRequest request, List<String> names, List<Map<String, Double>> targets) {
+        if (request.getScenarios() == null) {
+            return;
+        }
+        for (ScenarioRequest.Target target : request.getScenarios()) {
+            if (target.getWeights() == null) {
+                throw new IllegalArgumentException("场景缺少目标占比");
+            }
+            names.add(target.getName() != null ? target.getName() : "scenario-" + (names.size() + 1));
+            targets.add(target.getWeights());
+        }
+    }
+
+    private Map<String, Object> toResponse(ScenarioBasis basis, List<String> names, List<Map<String, Double>> targets,
+                                           boolean includeTrades) {
+        long started = System.nanoTime();
+        List<ScenarioResult> results = scenarioEngine.evaluate(basis, names, targets, includeTrades);
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        List<Map<String, Object>> scenarios = new ArrayList<>(results.size());
+        for (ScenarioResult result : results) {
+            Map<String, Object> scenario = new HashMap<>();
+            scenario.put("name", result.getName());
+            scenario.put("tradeCount", result.getTradeCount());
+            scenario.put("buyValue", result.getBuyValue());
+            scenario.put("sellValue", result.getSellValue());
+            scenario.put("fees", result.getFees());
+            scenario.put("turnover", result.getTurnover());
+            scenario.put("cashWeight", result.getCashWeight());
+            scenario.put("normalized", result.isNormalized());
+            scenario.put("unpriced", result.getUnpriced());
+            scenario.put("risk", result.getRisk().summary());
+            if (includeTrades) {
+                scenario.put("trades", result.getTrades());
+            }
+            scenarios.add(scenario);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("asOf", basis.getModel().getAsOf().toString());
+        response.put("totalValue", basis.getTotalValue());
+        response.put("feeRate", basis.getFeeRate());
+        response.put("baseline", basis.getBaseline().summary());
+        response.put("count", scenarios.size());
+        response.put("elapsedMs", elapsedMs);
+        response.put("scenarios", scenarios);
+        return response;
+    }
+}
@@ -0,0 +1,169 @@
+package com.crypto.service.impl;
+
+import com.crypto.entity.CandleInterval;
+import com.crypto.entity.Message;
+import com.crypto.repository.SentimentRollupRepository;
+import com.crypto.service.SentimentRollupService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 消息情感汇总：写入时按 (周期, 起始时间, 币种, 情感) 预聚合后 upsert 累加
+ * 查询任意窗口只读取 O(天数 + 48) 个桶，与消息总量无关
+ */
+@Service
+public class SentimentRollupServiceImpl implements SentimentRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(SentimentRollupServiceImpl.class);
+    private static final CandleInterval[] INTERVALS = {CandleInterval.H1, CandleInterval.D1};
+    // 组件固定返回的情感类别，没有消息时计为 0
+    private static final String[] SENTIMENTS = {"positive", "negative", "neutral"};
+
+    private final SentimentRollupRepository sentimentRollupRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public SentimentRollupServiceImpl(SentimentRollupRepository sentimentRollupRepository,
+                                      TransactionTemplate transactionTemplate) {
+        this.sentimentRollupRepository = sentimentRollupRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void recordMessages(List<Message> messages) {
+        Map<String, Object[]> deltas = new HashMap<>();
+        for (Message message : messages) {
+            if (message.getCreatedAt() == null) {
+                continue;
+            }
+            String cryptoType = message.getCryptoType() != null ? message.getCryptoType() : "";
+            String sentiment = message.getSentiment() != null ? message.getSentiment() : "";
+            for (CandleInterval interval : INTERVALS) {
+                LocalDateTime bucketStart = interval.bucketStart(message.getCreatedAt());
+                String key = interval.getCode() + '|' + bucketStart + '|' + cryptoType + '|' + sentiment;
+                Object[] delta = deltas.computeIfAbsent(key,
+                        k -> new Object[]{interval.getCode(), bucketStart, cryptoType, sentiment, 0L});
+                delta[4] = (Long) delta[4] + 1;
+            }
+        }
+        if (!deltas.isEmpty()) {
+            // 固定顺序加锁，避免并发写入的事务相互死锁
+            sentimentRollupRepository.increment(new ArrayList<>(new TreeMap<>(deltas).values()));
+        }
+    }
+
+    @Override
+    public Map<String, Object> getSentimentStats(String cryptoType, LocalDateTime start, LocalDateTime end) {
+        LocalDateTime from = CandleInterval.H1.bucketStart(start);
+        LocalDateTime to = end.equals(CandleInterval.H1.bucketStart(end)) ? end : CandleInterval.H1.bucketStart(end).plusHours(1);
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("统计窗口的开始时间必须早于结束时间");
+        }
+
+        Map<String, long[]> counts = new LinkedHashMap<>();
+        Map<String, Map<String, long[]>> byCrypto = new TreeMap<>();
+        for (Map<String, Object> row : sentimentRollupRepository.sum(plan(from, to), cryptoType)) {
+            String sentiment = (String) row.get("sentiment");
+            long total = ((Number) row.get("total")).longValue();
+            counts.computeIfAbsent(sentiment, k -> new long[1])[0] += total;
+            byCrypto.computeIfAbsent((String) row.get("crypto_type"), k -> new LinkedHashMap<>())
+                    .computeIfAbsent(sentiment, k -> new long[1])[0] += total;
+        }
+
+        Map<String, Object> result = summarize(counts);
+        result.put("start", from);
+        result.put("end", to);
+        result.put("cryptoType", cryptoType);
+        if (cryptoType == null) {
+            Map<String, Object> details = new LinkedHashMap<>();
+            byCrypto.forEach((type, typeCounts) -> details.put(type, summarize(typeCounts)));
+            result.put("byCrypto", details);
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Object> rebuild(LocalDateTime start, LocalDateTime end) {
+        LocalDateTime from = start;
+        LocalDateTime to = end;
+        if (from == null || to == null) {
+            LocalDateTime[] range = sentimentRollupRepository.findMessageTimeRange();
+            from = from != null ? from : range[0];
+            to = to != null ? to : range[1];
+        }
+        Map<String, Object> result = new HashMap<>();
+        int days = 0;
+        long rows = 0;
+        if (from != null && to != null) {
+            LocalDateTime last = to.truncatedTo(ChronoUnit.DAYS);
+            // 逐天在独立事务中删除并重算，单个事务的锁范围只有一天的消息
+            for (LocalDateTime day = from.truncatedTo(ChronoUnit.DAYS); !day.isAfter(last); day = day.plusDays(1)) {
+                LocalDateTime dayStart = day;
+                rows += transactionTemplate.execute(status -> sentimentRollupRepository.rebuild(dayStart, dayStart.plusDays(1)));
+                days++;
+            }
+            log.info("消息情感汇总已重建：{} 至 {}，{} 天，{} 行", from, to, days, rows);
+        }
+        result.put("days", days);
+        result.put("rows", rows);
+        return result;
+    }
+
+    /**
+     * 把 [from, to) 拆成整天部分（天汇总）与首尾不足一天的部分（小时汇总）
+     * @return 每项为 {周期, 起始（含）, 结束（不含）}
+     */
+    static List<Object[]> plan(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime firstDay = from.truncatedTo(ChronoUnit.DAYS);
+        if (firstDay.isBefore(from)) {
+            firstDay = firstDay.plusDays(1);
+        }
+        LocalDateTime lastDay = to.truncatedTo(ChronoUnit.DAYS);
+        List<Object[]> ranges = new ArrayList<>(3);
+        if (!firstDay.isBefore(lastDay)) {
+            ranges.add(new Object[]{CandleInterval.H1.getCode(), from, to});
+            return ranges;
+        }
+        ranges.add(new Object[]{CandleInterval.D1.getCode(), firstDay, lastDay});
+        if (from.isBefore(firstDay)) {
+            ranges.add(new Object[]{CandleInterval.H1.getCode(), from, firstDay});
+        }
+        if (lastDay.isBefore(to)) {
+            ranges.add(new Object[]{CandleInterval.H1.getCode(), lastDay, to});
+        }
+        return ranges;
+    }
+
+    private static Map<String, Object> summarize(Map<String, long[]> counts) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (String sentiment : SENTIMENTS) {
+            values.put(sentiment, 0L);
+        }
+        long total = 0;
+        for (Map.Entry<String, long[]> entry : counts.entrySet()) {
+            values.put(entry.getKey(), entry.getValue()[0]);
+            total += entry.getValue()[0];
+        }
+        Map<String, Double> ratios = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : values.entrySet()) {
+            ratios.put(entry.getKey(), total == 0 ? 0.0 : (double) entry.getValue() / total);
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("total", total);
+        summary.put("counts", values);
+        summary.put("ratios", ratios);
+        return summary;
+    }
+}
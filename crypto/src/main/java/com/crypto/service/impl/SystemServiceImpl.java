@@ -1,43 +1,61 @@
 package com.crypto.service.impl;
 
-import com.crypto.repository.MessageRepository;
-import com.crypto.repository.PortfolioItemRepository;
 import com.crypto.repository.ReportRepository;
+import com.crypto.repository.SystemCounterRepository;
+import com.crypto.service.MessageService;
 import com.crypto.service.SystemService;
+import com.crypto.tenant.PortfolioTenants;
+import com.crypto.valuation.LiveValuationEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.TreeSet;
 
 @Service
 public class SystemServiceImpl implements SystemService {
     
+    private static final Logger log = LoggerFactory.getLogger(SystemServiceImpl.class);
+    
     @Autowired
-    private MessageRepository messageRepository;
+    private MessageService messageService;
     
     @Autowired
     private ReportRepository reportRepository;
     
     @Autowired
-    private PortfolioItemRepository portfolioItemRepository;
+    private LiveValuationEngine liveValuationEngine;
+    
+    @Autowired
+    private SystemCounterRepository counterRepository;
+    
+    @Autowired
+    private PortfolioTenants portfolioTenants;
     
     @Override
-    public Map<String, Object> getSystemOverview() {
+    public Map<String, Object> getSystemOverview(String userId, Long portfolioId) {
+        long tenant = portfolioTenants.resolve(portfolioId);
+        
         Map<String, Object> overview = new HashMap<>();
         
-        // 获取未读消息数
-        Long unreadMessages = messageRepository.countUnreadMessages();
+        // 未读消息数由用户已读位图与全部消息 id 位图计算
+        long unreadMessages = messageService.countUnread(userId);
         
-        // 获取待审核报告数
-        Long pendingReports = reportRepository.countPendingReports();
+        // 待审核报告数读取该组合增量维护的计数器，计数器缺失时回退到该组合的 COUNT 查询
+        Long pendingReports = counterRepository.get(SystemCounterRepository.pendingReports(tenant));
+        if (pendingReports == null) {
+            pendingReports = reportRepository.countPendingReports(tenant);
+        }
         
-        // 计算总资产估值
-        Double totalAssets = portfolioItemRepository.findAll().stream()
-                .mapToDouble(item -> item.getValue() != null ? item.getValue() : 0.0)
-                .sum();
+        // 总资产取该组合在内存中的实时估值
+        double totalAssets = liveValuationEngine.getTotalValue(tenant);
         
-        overview.put("unreadMessages", unreadMessages != null ? unreadMessages : 0);
+        overview.put("unreadMessages", unreadMessages);
         overview.put("pendingReports", pendingReports != null ? pendingReports : 0);
         overview.put("totalAssets", totalAssets);
         
@@ -57,4 +75,37 @@ public class SystemServiceImpl implements SystemService {
         
         return result;
     }
+    
+    @Override
+    @Transactional
+    public Map<String, Object> reconcileCounters() {
+        // 先锁住全部组合的计数器行再 COUNT：并发写入事务在计数器上排队，COUNT 与校正后的值之间不会漏算或重复
+        Map<String, Long> stored = counterRepository.findByPrefixForUpdate(SystemCounterRepository.PENDING_REPORTS + ":");
+        Map<String, Long> counted = new HashMap<>();
+        for (Object[] row : reportRepository.countPendingReportsByPortfolio()) {
+            counted.put(SystemCounterRepository.pendingReports((Long) row[0]), (Long) row[1]);
+        }
+        
+        Map<String, Object> result = new LinkedHashMap<>();
+        TreeSet<String> names = new TreeSet<>(stored.keySet());
+        names.addAll(counted.keySet());
+        for (String name : names) {
+            result.put(name, reconcile(name, stored.get(name), counted.getOrDefault(name, 0L)));
+        }
+        return result;
+    }
+    
+    private Map<String, Object> reconcile(String name, Long stored, long actual) {
+        counterRepository.set(name, actual);
+        
+        long drift = stored != null ? stored - actual : -actual;
+        if (drift != 0) {
+            log.warn("计数器 {} 存在偏差：记录值 {}，实际值 {}，已校正", name, stored, actual);
+        }
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("stored", stored);
+        item.put("actual", actual);
+        item.put("drift", drift);
+        return item;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.crypto.tenant;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 请求所属的投资组合：由 X-Portfolio-Id 请求头指定，未携带时归到默认组合
+ */
+@Component
+public class PortfolioTenants {
+
+    public static final String HEADER = "X-Portfolio-Id";
+
+    private final long defaultId;
+
+    @Autowired
+    public PortfolioTenants(@Value("${crypto.portfolio.default-id:1}") long defaultId) {
+        this.defaultId = defaultId;
+    }
+
+    /**
+     * @param portfolioId 请求头中的组合 id，为空时使用默认组合
+     */
+    public long resolve(Long portfolioId) {
+        if (portfolioId == null) {
+            return defaultId;
+        }
+        if (portfolioId <= 0) {
+            throw new IllegalArgumentException("无效的投资组合 id：" + portfolioId);
+        }
+        return portfolioId;
+    }
+
+    public long getDefaultId() {
+        return defaultId;
+    }
+}
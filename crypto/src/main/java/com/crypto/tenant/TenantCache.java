@@ -0,0 +1,215 @@
+package com.crypto.tenant;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * 按投资组合分别缓存的数据：每个组合一个条目，首次读取时加载，单独失效
+ * 1. 读取只访问本组合的条目，成本与已缓存的组合数无关
+ * 2. 加载在条目上加锁，同一组合的并发读取只加载一次，不阻塞其他组合；替换取同一把锁
+ * 3. loader 返回 null 表示数据库中没有该组合，不占用缓存（避免任意组合 id 把缓存撑满）
+ * 4. 已加载的条目另按访问顺序排列（LRU）：新组合加载成功后超过 maxTenants 时从最久未访问的一端释放，
+ *    空闲超过 idleMillis 的条目由 evictIdle 从同一端释放，都只访问被释放的条目，不遍历整个缓存
+ * 5. 被释放或替换掉的数据交给 onRemoval，可能重复调用，实现须幂等
+ */
+public final class TenantCache<V> {
+
+    private final ConcurrentHashMap<Long, Entry<V>> entries = new ConcurrentHashMap<>();
+    // 已加载的条目，按访问顺序排列（最久未访问的在前）；访问需在 lru 上同步，每次只做 O(1) 的链表调整
+    private final LinkedHashMap<Long, Entry<V>> lru = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongFunction<V> loader;
+    private final long idleMillis;
+    private final int maxTenants;
+    private final Consumer<V> onRemoval;
+    private final LongSupplier clock;
+
+    public TenantCache(LongFunction<V> loader, long idleMillis, int maxTenants) {
+        this(loader, idleMillis, maxTenants, value -> { });
+    }
+
+    public TenantCache(LongFunction<V> loader, long idleMillis, int maxTenants, Consumer<V> onRemoval) {
+        this(loader, idleMillis, maxTenants, onRemoval, System::currentTimeMillis);
+    }
+
+    TenantCache(LongFunction<V> loader, long idleMillis, int maxTenants, Consumer<V> onRemoval, LongSupplier clock) {
+        this.loader = loader;
+        this.idleMillis = idleMillis;
+        this.maxTenants = Math.max(1, maxTenants);
+        this.onRemoval = onRemoval;
+        this.clock = clock;
+    }
+
+    /**
+     * 组合的缓存数据，未缓存时加载
+     * @return 数据库中没有该组合时返回 null，且不放入缓存
+     */
+    public V get(long tenantId) {
+        Entry<V> entry = entries.computeIfAbsent(tenantId, id -> new Entry<>());
+        entry.lastAccess = clock.getAsLong();
+        V value = entry.value;
+        if (value == null) {
+            synchronized (entry) {
+                value = entry.value;
+                if (value == null) {
+                    try {
+                        value = loader.apply(tenantId);
+                    } finally {
+                        if (value == null) {
+                            entries.remove(tenantId, entry);
+                        }
+                    }
+                    if (value == null) {
+                        return null;
+                    }
+                    entry.value = value;
+                    if (entries.get(tenantId) != entry) {
+                        // 加载期间条目已被释放
+                        onRemoval.accept(value);
+                        return value;
+                    }
+                }
+            }
+        }
+        // 在条目锁之外登记：释放其他条目时要取它们的锁
+        admit(tenantId, entry);
+        return value;
+    }
+
+    /**
+     * @return 已缓存的数据，未缓存时返回 null（不触发加载）
+     */
+    public V getIfPresent(long tenantId) {
+        Entry<V> entry = entries.get(tenantId);
+        return entry != null ? entry.value : null;
+    }
+
+    /**
+     * 组合已缓存时替换为新数据（写入提交后重新加载的结果），不更新访问时间；未缓存时不做任何事
+     * 与加载取同一把锁：正在加载时等加载完成后再替换，新数据不会被加载结果覆盖
+     */
+    public void replace(long tenantId, V value) {
+        Entry<V> entry = entries.get(tenantId);
+        if (entry == null) {
+            return;
+        }
+        V previous;
+        synchronized (entry) {
+            previous = entry.value;
+            if (previous == null) {
+                // 加载失败或已返回 null，下次读取时重新加载
+                return;
+            }
+            entry.value = value;
+        }
+        onRemoval.accept(previous);
+        if (entries.get(tenantId) != entry) {
+            onRemoval.accept(value);
+        }
+    }
+
+    /**
+     * 只释放一个组合的缓存，下次读取时重新加载
+     */
+    public void evict(long tenantId) {
+        Entry<V> entry = entries.remove(tenantId);
+        if (entry != null) {
+            unlink(tenantId, entry);
+            release(entry);
+        }
+    }
+
+    /**
+     * 遍历已加载的组合，用于定时对账等后台任务
+     */
+    public void forEach(BiConsumer<Long, V> action) {
+        entries.forEach((tenantId, entry) -> {
+            V value = entry.value;
+            if (value != null) {
+                action.accept(tenantId, value);
+            }
+        });
+    }
+
+    /**
+     * 释放空闲超时的条目：从最久未访问的一端开始，遇到未超时的条目即停止
+     * @return 释放的条目数
+     */
+    public int evictIdle() {
+        long now = clock.getAsLong();
+        List<Entry<V>> removed = new ArrayList<>();
+        synchronized (lru) {
+            Iterator<Map.Entry<Long, Entry<V>>> eldest = lru.entrySet().iterator();
+            while (eldest.hasNext()) {
+                Map.Entry<Long, Entry<V>> candidate = eldest.next();
+                if (now - candidate.getValue().lastAccess <= idleMillis) {
+                    break;
+                }
+                eldest.remove();
+                if (entries.remove(candidate.getKey(), candidate.getValue())) {
+                    removed.add(candidate.getValue());
+                }
+            }
+        }
+        removed.forEach(this::release);
+        return removed.size();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // 条目移到最近访问的一端（新加载的条目在此登记）；超过上限时从最久未访问的一端释放
+    // 正在加载的条目不在 lru 中，不计数也不释放
+    private void admit(long tenantId, Entry<V> loaded) {
+        List<Entry<V>> removed = new ArrayList<>();
+        synchronized (lru) {
+            lru.put(tenantId, loaded);
+            Iterator<Map.Entry<Long, Entry<V>>> eldest = lru.entrySet().iterator();
+            while (lru.size() > maxTenants && eldest.hasNext()) {
+                Map.Entry<Long, Entry<V>> candidate = eldest.next();
+                if (candidate.getValue() == loaded) {
+                    break;
+                }
+                eldest.remove();
+                if (entries.remove(candidate.getKey(), candidate.getValue())) {
+                    removed.add(candidate.getValue());
+                }
+            }
+        }
+        if (entries.get(tenantId) != loaded) {
+            // 登记前已被 evict 释放
+            unlink(tenantId, loaded);
+        }
+        removed.forEach(this::release);
+    }
+
+    private void unlink(long tenantId, Entry<V> entry) {
+        synchronized (lru) {
+            lru.remove(tenantId, entry);
+        }
+    }
+
+    // 条目已从 map 移除：等进行中的加载结束后把数据交给 onRemoval
+    private void release(Entry<V> entry) {
+        V value;
+        synchronized (entry) {
+            value = entry.value;
+        }
+        if (value != null) {
+            onRemoval.accept(value);
+        }
+    }
+
+    private static final class Entry<V> {
+        volatile V value;
+        volatile long lastAccess;
+    }
+}
@@ -0,0 +1,68 @@
+package com.crypto.valuation;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 8 位小数定点数（与数据库 decimal(16, 8) 一致），以 long 保存放大 10^8 后的值
+ * 乘法拆分整数/小数部分计算，不经过 double 或 BigDecimal，溢出时抛出 ArithmeticException
+ */
+public final class FixedPoint {
+
+    public static final int SCALE = 8;
+    public static final long ONE = 100_000_000L;
+
+    private FixedPoint() {
+    }
+
+    public static long fromDouble(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new ArithmeticException("无法转换为定点数：" + value);
+        }
+        long whole = (long) value;
+        return Math.addExact(Math.multiplyExact(whole, ONE), Math.round((value - whole) * ONE));
+    }
+
+    public static long fromDouble(Double value) {
+        return value == null ? 0L : fromDouble(value.doubleValue());
+    }
+
+    public static long fromBigDecimal(BigDecimal value) {
+        return value == null ? 0L : value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static double toDouble(long value) {
+        return value / ONE + (double) (value % ONE) / ONE;
+    }
+
+    public static BigDecimal toBigDecimal(long value) {
+        return BigDecimal.valueOf(value, SCALE);
+    }
+
+    /**
+     * 定点数相乘（结果按绝对值四舍五入到 8 位小数）
+     * a = ah * 10^8 + al, b = bh * 10^8 + bl
+     * a * b / 10^8 = ah * bh * 10^8 + ah * bl + al * bh + al * bl / 10^8
+     */
+    public static long multiply(long a, long b) {
+        boolean negative = (a < 0) != (b < 0);
+        long x = Math.absExact(a);
+        long y = Math.absExact(b);
+        long xh = x / ONE;
+        long xl = x % ONE;
+        long yh = y / ONE;
+        long yl = y % ONE;
+        long high = Math.multiplyExact(Math.multiplyExact(xh, yh), ONE);
+        long mid = Math.addExact(Math.multiplyExact(xh, yl), Math.multiplyExact(xl, yh));
+        long low = (xl * yl + ONE / 2) / ONE;
+        long result = Math.addExact(Math.addExact(high, mid), low);
+        return negative ? -result : result;
+    }
+
+    /**
+     * part 占 total 的百分比，total 为 0 时返回 0
+     */
+    public static double percentage(long part, long total) {
+        return total == 0 ? 0.0 : (double) part / total * 100;
+    }
+}
@@ -0,0 +1,68 @@
+package com.crypto.valuation;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * 持仓历史序列的采样周期：周、月采样取周期内最后一个有记录的日期
+ */
+public enum HistoryInterval {
+    DAY("1d"),
+    WEEK("1w"),
+    MONTH("1M");
+
+    // 窗口不超过该天数时按日返回，超过按周，再超过按月
+    private static final int DAILY_MAX_DAYS = 92;
+    private static final int WEEKLY_MAX_DAYS = 730;
+
+    private final String code;
+
+    HistoryInterval(String code) {
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * 日期所在周期的起始日（epoch day），同一周期的日期返回相同的值
+     */
+    long bucket(LocalDate date) {
+        switch (this) {
+            case WEEK:
+                return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).toEpochDay();
+            case MONTH:
+                return date.withDayOfMonth(1).toEpochDay();
+            default:
+                return date.toEpochDay();
+        }
+    }
+
+    /**
+     * 按窗口长度自动选择采样周期
+     */
+    public static HistoryInterval forSpan(LocalDate start, LocalDate end) {
+        long days = end.toEpochDay() - start.toEpochDay() + 1;
+        if (days <= DAILY_MAX_DAYS) {
+            return DAY;
+        }
+        return days <= WEEKLY_MAX_DAYS ? WEEK : MONTH;
+    }
+
+    /**
+     * @param code 1d/1w/1M，auto 或为空时返回 null（由窗口长度决定）
+     */
+    public static HistoryInterval fromCode(String code) {
+        if (code == null || code.isEmpty() || "auto".equalsIgnoreCase(code)) {
+            return null;
+        }
+        for (HistoryInterval interval : values()) {
+            if (interval.code.equals(code)) {
+                return interval;
+            }
+        }
+        throw new IllegalArgumentException("不支持的采样周期：" + code);
+    }
+}
@@ -0,0 +1,276 @@
+package com.crypto.valuation;
+
+import com.crypto.entity.CryptoCurrency;
+import com.crypto.entity.PortfolioItem;
+import com.crypto.quote.QuoteListener;
+import com.crypto.quote.QuoteSnapshot;
+import com.crypto.quote.QuoteSnapshotHolder;
+import com.crypto.repository.PortfolioItemRepository;
+import com.crypto.repository.SystemCounterRepository;
+import com.crypto.tenant.TenantCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 持仓实时估值：按投资组合缓存持仓，与最新行情快照按 symbol 关联
+ * 1. 行情变化时通过 symbol -> 组合索引，只更新持有该币种的已缓存组合中的对应持仓，总价值按差额调整
+ * 2. 没有行情的币种沿用持仓记录中的价格
+ * 3. 持仓只在变化时重新加载：本节点写入提交后立即重载；其他节点的写入通过持仓版本计数器发现，只重载版本变化的组合
+ * 4. 各组合的缓存单独失效：空闲超时或缓存组合数已满时释放，下次读取时重新加载；没有持仓的组合不缓存
+ */
+@Component
+public class LiveValuationEngine implements QuoteListener {
+
+    private static final Logger log = LoggerFactory.getLogger(LiveValuationEngine.class);
+    // 按主键批量读取持仓版本时每批的组合数
+    private static final int VERSION_BATCH_SIZE = 500;
+
+    private final PortfolioItemRepository portfolioItemRepository;
+    private final SystemCounterRepository systemCounterRepository;
+    private final QuoteSnapshotHolder quoteSnapshotHolder;
+    private final TenantCache<TenantValuation> cache;
+    // symbol -> 持有该币种的已缓存组合
+    private final Map<String, Set<TenantValuation>> holders = new ConcurrentHashMap<>();
+    // 监听器已处理完的行情快照版本
+    private volatile long appliedVersion = -1;
+
+    @Autowired
+    public LiveValuationEngine(PortfolioItemRepository portfolioItemRepository,
+                               SystemCounterRepository systemCounterRepository,
+                               QuoteSnapshotHolder quoteSnapshotHolder,
+                               @Value("${crypto.portfolio.cache.idle-ms:1800000}") long idleMillis,
+                               @Value("${crypto.portfolio.cache.max-tenants:1000}") int maxTenants) {
+        this.portfolioItemRepository = portfolioItemRepository;
+        this.systemCounterRepository = systemCounterRepository;
+        this.quoteSnapshotHolder = quoteSnapshotHolder;
+        this.cache = new TenantCache<>(this::load, idleMillis, maxTenants, this::release);
+        quoteSnapshotHolder.addListener(this);
+    }
+
+    /**
+     * 组合当前估值的副本，首次调用时加载持仓；没有持仓的组合返回空估值
+     */
+    public PortfolioValuation snapshot(long portfolioId) {
+        TenantValuation tenant = cache.get(portfolioId);
+        return tenant != null ? copy(tenant) : PortfolioValuation.of(List.of());
+    }
+
+    /**
+     * 组合当前估值：已缓存时取缓存的副本，否则直接从数据库估值且不放入缓存（供遍历全部组合的后台任务使用）
+     */
+    public PortfolioValuation valuate(long portfolioId) {
+        TenantValuation cached = cache.getIfPresent(portfolioId);
+        if (cached != null) {
+            return copy(cached);
+        }
+        PortfolioValuation valuation = PortfolioValuation.of(portfolioItemRepository.findByPortfolioIdOrderByIdAsc(portfolioId));
+        price(valuation, quoteSnapshotHolder.current());
+        return valuation;
+    }
+
+    public double getTotalValue(long portfolioId) {
+        TenantValuation tenant = cache.get(portfolioId);
+        if (tenant == null) {
+            return 0;
+        }
+        synchronized (tenant) {
+            sync(tenant);
+            return tenant.valuation.getTotalValue();
+        }
+    }
+
+    /**
+     * 组合估值已反映到的行情快照版本
+     */
+    public long getQuoteVersion(long portfolioId) {
+        TenantValuation tenant = cache.get(portfolioId);
+        if (tenant == null) {
+            return quoteSnapshotHolder.current().getVersion();
+        }
+        synchronized (tenant) {
+            sync(tenant);
+            // 之后的行情变化没有涉及该组合的币种时，估值同样是最新的
+            return Math.max(tenant.quoteVersion, appliedVersion);
+        }
+    }
+
+    /**
+     * 组合的持仓写入提交后调用：已缓存时重新加载持仓并按当前行情估值，未缓存的组合在下次读取时加载
+     */
+    public void reload(long portfolioId) {
+        if (cache.getIfPresent(portfolioId) == null) {
+            return;
+        }
+        TenantValuation next = load(portfolioId);
+        if (next == null) {
+            cache.evict(portfolioId);
+        } else {
+            cache.replace(portfolioId, next);
+        }
+    }
+
+    /**
+     * 只释放一个组合的缓存
+     */
+    public void evict(long portfolioId) {
+        cache.evict(portfolioId);
+    }
+
+    /**
+     * 行情快照替换后在发布线程内调用：只更新持有变化币种的已缓存组合，每个持仓 O(1)
+     */
+    @Override
+    public void onQuotesChanged(QuoteSnapshot snapshot, List<CryptoCurrency> changed) {
+        for (CryptoCurrency quote : changed) {
+            Set<TenantValuation> tenants = holders.get(quote.getSymbol());
+            if (tenants == null || quote.getUsdPrice() == null) {
+                continue;
+            }
+            long price = FixedPoint.fromBigDecimal(quote.getUsdPrice());
+            for (TenantValuation tenant : tenants) {
+                synchronized (tenant) {
+                    int index = tenant.valuation.indexOf(quote.getSymbol());
+                    if (index >= 0) {
+                        tenant.valuation.updatePrice(index, price);
+                        tenant.quoteVersion = Math.max(tenant.quoteVersion, snapshot.getVersion());
+                    }
+                }
+            }
+        }
+        appliedVersion = snapshot.getVersion();
+    }
+
+    /**
+     * 释放空闲的组合；已缓存组合的持仓版本变化（其他节点写入）时只重载这些组合
+     */
+    @Scheduled(fixedDelayString = "${crypto.valuation.refresh-interval-ms:30000}")
+    public void refresh() {
+        int evicted = cache.evictIdle();
+        if (evicted > 0) {
+            log.debug("释放空闲的持仓估值缓存：{} 个组合", evicted);
+        }
+        List<Long> portfolioIds = new ArrayList<>(cache.size());
+        cache.forEach((portfolioId, tenant) -> portfolioIds.add(portfolioId));
+        for (int from = 0; from < portfolioIds.size(); from += VERSION_BATCH_SIZE) {
+            List<Long> batch = portfolioIds.subList(from, Math.min(from + VERSION_BATCH_SIZE, portfolioIds.size()));
+            List<String> names = new ArrayList<>(batch.size());
+            batch.forEach(portfolioId -> names.add(SystemCounterRepository.portfolioItems(portfolioId)));
+            Map<String, Long> versions;
+            try {
+                versions = systemCounterRepository.findAll(names);
+            } catch (RuntimeException e) {
+                log.error("读取持仓版本失败：{}", e.getMessage(), e);
+                return;
+            }
+            for (long portfolioId : batch) {
+                TenantValuation tenant = cache.getIfPresent(portfolioId);
+                long version = versions.getOrDefault(SystemCounterRepository.portfolioItems(portfolioId), 0L);
+                if (tenant == null || tenant.itemsVersion == version) {
+                    continue;
+                }
+                try {
+                    reload(portfolioId);
+                } catch (RuntimeException e) {
+                    log.error("投资组合 {} 持仓估值重载失败：{}", portfolioId, e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    // 先读持仓版本再读持仓：版本之后的写入一定会在下次对账时被发现；没有持仓的组合返回 null，不放入缓存
+    private TenantValuation load(long portfolioId) {
+        Long version = systemCounterRepository.get(SystemCounterRepository.portfolioItems(portfolioId));
+        List<PortfolioItem> items = portfolioItemRepository.findByPortfolioIdOrderByIdAsc(portfolioId);
+        if (items.isEmpty()) {
+            return null;
+        }
+        return new TenantValuation(PortfolioValuation.of(items), version != null ? version : 0L);
+    }
+
+    private PortfolioValuation copy(TenantValuation tenant) {
+        synchronized (tenant) {
+            sync(tenant);
+            return tenant.valuation.copy();
+        }
+    }
+
+    /**
+     * 新加载的组合首次被读取时登记到 symbol 索引，再按当前快照整体估值一次，调用方持有 tenant 的锁
+     * 先登记后取快照：登记之后的行情变化由监听器更新，之前的已包含在快照中
+     */
+    private void sync(TenantValuation tenant) {
+        if (tenant.synced) {
+            return;
+        }
+        if (!tenant.removed) {
+            PortfolioValuation valuation = tenant.valuation;
+            for (int i = 0; i < valuation.size(); i++) {
+                holders.compute(valuation.getSymbol(i), (symbol, tenants) -> {
+                    Set<TenantValuation> next = tenants != null ? tenants : ConcurrentHashMap.newKeySet();
+                    next.add(tenant);
+                    return next;
+                });
+            }
+        }
+        QuoteSnapshot snapshot = quoteSnapshotHolder.current();
+        price(tenant.valuation, snapshot);
+        tenant.quoteVersion = snapshot.getVersion();
+        tenant.synced = true;
+    }
+
+    // 组合被释放或被重新加载的数据替换：从 symbol 索引中移除
+    private void release(TenantValuation tenant) {
+        synchronized (tenant) {
+            if (tenant.removed) {
+                return;
+            }
+            tenant.removed = true;
+            if (!tenant.synced) {
+                return;
+            }
+            PortfolioValuation valuation = tenant.valuation;
+            for (int i = 0; i < valuation.size(); i++) {
+                holders.computeIfPresent(valuation.getSymbol(i), (symbol, tenants) -> {
+                    tenants.remove(tenant);
+                    return tenants.isEmpty() ? null : tenants;
+                });
+            }
+        }
+    }
+
+    private static void price(PortfolioValuation valuation, QuoteSnapshot snapshot) {
+        for (int i = 0; i < valuation.size(); i++) {
+            CryptoCurrency quote = snapshot.get(valuation.getSymbol(i));
+            if (quote != null && quote.getUsdPrice() != null) {
+                valuation.updatePrice(i, FixedPoint.fromBigDecimal(quote.getUsdPrice()));
+            }
+        }
+    }
+
+    private static final class TenantValuation {
+        final PortfolioValuation valuation;
+        // 加载时的持仓版本（portfolio_items:<id> 计数器）
+        final long itemsVersion;
+        // 已应用到估值的行情快照版本
+        long quoteVersion = -1;
+        // 已登记到 symbol 索引并按快照估值
+        volatile boolean synced;
+        // 已从缓存释放，不再登记到索引
+        boolean removed;
+
+        TenantValuation(PortfolioValuation valuation, long itemsVersion) {
+            this.valuation = valuation;
+            this.itemsVersion = itemsVersion;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.crypto.valuation;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按日的持仓历史序列：日期（epoch day，升序）、总价值与每个币种的占比各存一列原始数组
+ * 每天一个位置，同一天的多次记录后写覆盖；区间查询二分定位起点，只遍历区间内的天
+ * 非线程安全，由调用方加锁
+ */
+public final class PortfolioHistorySeries {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int size;
+    private long[] days = new long[INITIAL_CAPACITY];
+    private double[] totals = new double[INITIAL_CAPACITY];
+    // 币种 -> 列下标；各列与 days 等长，NaN 表示当天没有该币种
+    private final Map<String, Integer> symbolIndex = new LinkedHashMap<>();
+    private final List<double[]> weights = new ArrayList<>();
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 记录某天某币种的占比与当天总价值
+     */
+    public void record(LocalDate date, String symbol, double percentage, double totalValue) {
+        int day = position(date);
+        totals[day] = totalValue;
+        if (symbol != null) {
+            weights.get(column(symbol))[day] = percentage;
+        }
+    }
+
+    /**
+     * 用一次完整的持仓记录替换某天的数据，未出现的币种视为当天没有持仓
+     */
+    public void replaceDay(LocalDate date, double totalValue, Map<String, Double> percentages) {
+        int day = position(date);
+        for (double[] column : weights) {
+            column[day] = Double.NaN;
+        }
+        totals[day] = totalValue;
+        percentages.forEach((symbol, percentage) ->
+                weights.get(column(symbol))[day] = percentage != null ? percentage : Double.NaN);
+    }
+
+    /**
+     * 第一条记录的日期，没有记录时返回 null
+     */
+    public LocalDate firstDay() {
+        return size > 0 ? LocalDate.ofEpochDay(days[0]) : null;
+    }
+
+    /**
+     * 查询 [start, end] 内的序列，周、月采样取每个周期最后一个有记录的日期
+     * start 早于第一条记录时从第一条记录开始（不限起点的查询同样按实际跨度采样）
+     * @param interval 为空时按窗口长度自动选择日/周/月采样
+     * @return 列式结果：dates、totalValues 与按币种的 weights（当天没有该币种时为 null）
+     */
+    public Map<String, Object> query(LocalDate start, LocalDate end, HistoryInterval interval) {
+        LocalDate first = firstDay();
+        if (first == null || first.isAfter(end)) {
+            start = end;
+        } else if (first.isAfter(start)) {
+            start = first;
+        }
+        if (interval == null) {
+            interval = HistoryInterval.forSpan(start, end);
+        }
+        int from = lowerBound(start.toEpochDay());
+        int to = lowerBound(end.toEpochDay() + 1);
+        // 每个周期保留最后一天
+        int[] picked = new int[Math.max(to - from, 0)];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            long bucket = interval.bucket(LocalDate.ofEpochDay(days[i]));
+            if (count > 0 && interval.bucket(LocalDate.ofEpochDay(days[picked[count - 1]])) == bucket) {
+                picked[count - 1] = i;
+            } else {
+                picked[count++] = i;
+            }
+        }
+
+        String[] dates = new String[count];
+        double[] totalValues = new double[count];
+        for (int k = 0; k < count; k++) {
+            dates[k] = LocalDate.ofEpochDay(days[picked[k]]).toString();
+            totalValues[k] = totals[picked[k]];
+        }
+        Map<String, Double[]> series = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : symbolIndex.entrySet()) {
+            double[] column = weights.get(entry.getValue());
+            Double[] values = new Double[count];
+            boolean present = false;
+            for (int k = 0; k < count; k++) {
+                double value = column[picked[k]];
+                if (!Double.isNaN(value)) {
+                    values[k] = value;
+                    present = true;
+                }
+            }
+            if (present) {
+                series.put(entry.getKey(), values);
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("interval", interval.getCode());
+        result.put("start", start.toString());
+        result.put("end", end.toString());
+        result.put("dates", dates);
+        result.put("totalValues", totalValues);
+        result.put("weights", series);
+        return result;
+    }
+
+    /**
+     * 按日逐行访问 [start, end] 内的记录，visitor 参数依次为日期、总价值、该日各币种占比
+     */
+    public void forEachDay(LocalDate start, LocalDate end, DayVisitor visitor) {
+        int to = lowerBound(end.toEpochDay() + 1);
+        for (int i = lowerBound(start.toEpochDay()); i < to; i++) {
+            Map<String, Double> percentages = new LinkedHashMap<>();
+            int day = i;
+            symbolIndex.forEach((symbol, index) -> {
+                double value = weights.get(index)[day];
+                if (!Double.isNaN(value)) {
+                    percentages.put(symbol, value);
+                }
+            });
+            visitor.visit(LocalDate.ofEpochDay(days[i]), totals[i], percentages);
+        }
+    }
+
+    @FunctionalInterface
+    public interface DayVisitor {
+        void visit(LocalDate date, double totalValue, Map<String, Double> percentages);
+    }
+
+    // 日期对应的位置，不存在时插入（通常追加在末尾）
+    private int position(LocalDate date) {
+        long epochDay = date.toEpochDay();
+        int index = lowerBound(epochDay);
+        if (index < size && days[index] == epochDay) {
+            return index;
+        }
+        if (size == days.length) {
+            int capacity = days.length * 2;
+            days = Arrays.copyOf(days, capacity);
+            totals = Arrays.copyOf(totals, capacity);
+            for (int c = 0; c < weights.size(); c++) {
+                double[] grown = Arrays.copyOf(weights.get(c), capacity);
+                Arrays.fill(grown, size, capacity, Double.NaN);
+                weights.set(c, grown);
+            }
+        }
+        int moved = size - index;
+        System.arraycopy(days, index, days, index + 1, moved);
+        System.arraycopy(totals, index, totals, index + 1, moved);
+        for (double[] column : weights) {
+            System.arraycopy(column, index, column, index + 1, moved);
+            column[index] = Double.NaN;
+        }
+        days[index] = epochDay;
+        totals[index] = 0;
+        size++;
+        return index;
+    }
+
+    private int column(String symbol) {
+        Integer index = symbolIndex.get(symbol);
+        if (index == null) {
+            index = weights.size();
+            double[] column = new double[days.length];
+            Arrays.fill(column, Double.NaN);
+            weights.add(column);
+            symbolIndex.put(symbol, index);
+        }
+        return index;
+    }
+
+    // 第一个不小于 epochDay 的位置
+    private int lowerBound(long epochDay) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days[mid] < epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,193 @@
+package com.crypto.valuation;
+
+import com.crypto.entity.PortfolioHistory;
+import com.crypto.repository.PortfolioJdbcRepository;
+import com.crypto.tenant.TenantCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 内存中的按日持仓历史序列，每个投资组合一份，单独加载和失效
+ * 组合首次查询时从 portfolio_history 流式加载该组合的记录；之后按 updated_at 找出被写入的 (组合, 日期)，
+ * 只对已缓存的组合整天重载（覆盖其他节点的写入）；本节点写入提交后直接替换对应日期
+ */
+@Component
+public class PortfolioHistoryStore {
+
+    private static final Logger log = LoggerFactory.getLogger(PortfolioHistoryStore.class);
+    // 补齐时往回重叠的时间，覆盖提交较晚但 updated_at 较早的事务
+    private static final long CATCH_UP_OVERLAP_SECONDS = 60;
+
+    // 没有历史记录的组合共用的空序列，只读
+    private static final TenantSeries EMPTY = new TenantSeries();
+
+    private final PortfolioJdbcRepository portfolioJdbcRepository;
+    private final TenantCache<TenantSeries> cache;
+
+    // 已补齐到的 updated_at（全部组合共用），在第一个组合加载前取数据库中的最大值
+    private volatile LocalDateTime watermark;
+
+    @Autowired
+    public PortfolioHistoryStore(PortfolioJdbcRepository portfolioJdbcRepository,
+                                 @Value("${crypto.portfolio.cache.idle-ms:1800000}") long idleMillis,
+                                 @Value("${crypto.portfolio.cache.max-tenants:1000}") int maxTenants) {
+        this.portfolioJdbcRepository = portfolioJdbcRepository;
+        this.cache = new TenantCache<>(this::load, idleMillis, maxTenants);
+    }
+
+    /**
+     * 列式查询一个组合 [start, end] 内的序列，start 早于第一条记录时从第一条记录开始
+     * @param interval 为空时按实际跨度自动选择日/周/月采样
+     */
+    public Map<String, Object> query(long portfolioId, LocalDate start, LocalDate end, HistoryInterval interval) {
+        TenantSeries tenant = tenant(portfolioId);
+        tenant.lock.readLock().lock();
+        try {
+            return tenant.series.query(start, end, interval);
+        } finally {
+            tenant.lock.readLock().unlock();
+        }
+    }
+
+    public void forEachDay(long portfolioId, LocalDate start, LocalDate end, PortfolioHistorySeries.DayVisitor visitor) {
+        TenantSeries tenant = tenant(portfolioId);
+        tenant.lock.readLock().lock();
+        try {
+            tenant.series.forEachDay(start, end, visitor);
+        } finally {
+            tenant.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 写入提交后调用，用某天的完整持仓替换当天数据；组合未缓存时不做任何事
+     */
+    public void replaceDay(long portfolioId, LocalDate date, double totalValue, Map<String, Double> percentages) {
+        TenantSeries tenant = cache.getIfPresent(portfolioId);
+        if (tenant == null) {
+            return;
+        }
+        tenant.lock.writeLock().lock();
+        try {
+            tenant.series.replaceDay(date, totalValue, percentages);
+        } finally {
+            tenant.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 只释放一个组合的缓存
+     */
+    public void evict(long portfolioId) {
+        cache.evict(portfolioId);
+    }
+
+    @Scheduled(fixedDelayString = "${crypto.valuation.refresh-interval-ms:30000}")
+    public void refresh() {
+        int evicted = cache.evictIdle();
+        if (evicted > 0) {
+            log.debug("释放空闲的持仓历史缓存：{} 个组合", evicted);
+        }
+        if (cache.size() == 0) {
+            // 没有缓存的组合时不补齐，下一个组合加载时重新取水位，避免之后补齐一大段无关的写入
+            resetWatermark();
+            return;
+        }
+        try {
+            catchUp();
+        } catch (RuntimeException e) {
+            log.error("持仓历史补齐失败：{}", e.getMessage(), e);
+        }
+    }
+
+    private TenantSeries load(long portfolioId) {
+        initWatermark();
+        TenantSeries tenant = new TenantSeries();
+        portfolioJdbcRepository.forEachHistory(portfolioId, rs -> {
+            Date date = rs.getDate("date");
+            if (date != null) {
+                double percentage = rs.getDouble("percentage");
+                if (rs.wasNull()) {
+                    percentage = Double.NaN;
+                }
+                tenant.series.record(date.toLocalDate(), rs.getString("crypto_type"), percentage, rs.getDouble("total_value"));
+            }
+        });
+        if (tenant.series.size() == 0) {
+            return null;
+        }
+        log.info("投资组合 {} 持仓历史已加载：{} 天", portfolioId, tenant.series.size());
+        return tenant;
+    }
+
+    // 没有历史记录的组合不放入缓存，按空序列查询
+    private TenantSeries tenant(long portfolioId) {
+        TenantSeries tenant = cache.get(portfolioId);
+        return tenant != null ? tenant : EMPTY;
+    }
+
+    // 在组合加载之前读取：晚于水位的写入由补齐覆盖，更早的已包含在随后的加载结果中
+    private void initWatermark() {
+        if (watermark != null) {
+            return;
+        }
+        synchronized (this) {
+            if (watermark == null) {
+                LocalDateTime latest = portfolioJdbcRepository.findHistoryMaxUpdatedAt();
+                watermark = latest != null ? latest : LocalDateTime.now();
+            }
+        }
+    }
+
+    private synchronized void resetWatermark() {
+        watermark = null;
+    }
+
+    /**
+     * 找出上次之后被写入的 (组合, 日期)，只对已缓存的组合逐天从数据库整天重载（当天已删除的币种随之消失）
+     */
+    private synchronized void catchUp() {
+        if (watermark == null) {
+            return;
+        }
+        LocalDateTime since = watermark.minusSeconds(CATCH_UP_OVERLAP_SECONDS);
+        Map<Long, Map<LocalDate, LocalDateTime>> updates = portfolioJdbcRepository.findHistoryDatesUpdatedSince(since);
+        for (Map.Entry<Long, Map<LocalDate, LocalDateTime>> portfolio : updates.entrySet()) {
+            long portfolioId = portfolio.getKey();
+            for (Map.Entry<LocalDate, LocalDateTime> entry : portfolio.getValue().entrySet()) {
+                if (cache.getIfPresent(portfolioId) != null) {
+                    reloadDay(portfolioId, entry.getKey());
+                }
+                if (entry.getValue().isAfter(watermark)) {
+                    watermark = entry.getValue();
+                }
+            }
+        }
+    }
+
+    private void reloadDay(long portfolioId, LocalDate date) {
+        double totalValue = 0;
+        Map<String, Double> percentages = new LinkedHashMap<>();
+        for (PortfolioHistory row : portfolioJdbcRepository.findHistoryBetween(portfolioId, date, date)) {
+            totalValue = row.getTotalValue() != null ? row.getTotalValue() : 0;
+            percentages.put(row.getCryptoType(), row.getPercentage());
+        }
+        replaceDay(portfolioId, date, totalValue, percentages);
+    }
+
+    private static final class TenantSeries {
+        final PortfolioHistorySeries series = new PortfolioHistorySeries();
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    }
+}
@@ -0,0 +1,125 @@
+package com.crypto.valuation;
+
+import com.crypto.entity.PortfolioItem;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 持仓估值核心：按 symbol 下标存放的并行 long 数组（8 位小数定点数）
+ * 估值与汇总全部在原始类型上完成，只在输出接口时转换为 double
+ */
+public final class PortfolioValuation {
+
+    private final int size;
+    private final String[] symbols;
+    // 持仓记录 id，0 表示尚未持久化
+    private final long[] ids;
+    private final long[] quantities;
+    private final long[] prices;
+    private final long[] values;
+    private final Map<String, Integer> indexBySymbol;
+    private long totalValue;
+
+    private PortfolioValuation(int size) {
+        this.size = size;
+        this.symbols = new String[size];
+        this.ids = new long[size];
+        this.quantities = new long[size];
+        this.prices = new long[size];
+        this.values = new long[size];
+        this.indexBySymbol = new HashMap<>(size * 2);
+    }
+
+    /**
+     * 以持仓记录自带的价格估值
+     */
+    public static PortfolioValuation of(List<PortfolioItem> items) {
+        PortfolioValuation valuation = new PortfolioValuation(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            PortfolioItem item = items.get(i);
+            valuation.symbols[i] = item.getCryptoType();
+            valuation.ids[i] = item.getId() == null ? 0L : item.getId();
+            valuation.quantities[i] = FixedPoint.fromDouble(item.getQuantity());
+            valuation.prices[i] = FixedPoint.fromDouble(item.getPrice());
+            valuation.values[i] = FixedPoint.multiply(valuation.quantities[i], valuation.prices[i]);
+            valuation.totalValue = Math.addExact(valuation.totalValue, valuation.values[i]);
+            valuation.indexBySymbol.put(item.getCryptoType(), i);
+        }
+        return valuation;
+    }
+
+    /**
+     * 复制当前估值，供调用方在锁外读取
+     */
+    public PortfolioValuation copy() {
+        PortfolioValuation copy = new PortfolioValuation(size);
+        System.arraycopy(symbols, 0, copy.symbols, 0, size);
+        System.arraycopy(ids, 0, copy.ids, 0, size);
+        System.arraycopy(quantities, 0, copy.quantities, 0, size);
+        System.arraycopy(prices, 0, copy.prices, 0, size);
+        System.arraycopy(values, 0, copy.values, 0, size);
+        copy.indexBySymbol.putAll(indexBySymbol);
+        copy.totalValue = totalValue;
+        return copy;
+    }
+
+    /**
+     * 更新单个持仓的价格，总价值按差额调整，O(1)
+     */
+    public void updatePrice(int index, long price) {
+        long value = FixedPoint.multiply(quantities[index], price);
+        totalValue = Math.addExact(totalValue, value - values[index]);
+        prices[index] = price;
+        values[index] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return symbol 对应的下标，不存在时返回 -1
+     */
+    public int indexOf(String symbol) {
+        Integer index = indexBySymbol.get(symbol);
+        return index == null ? -1 : index;
+    }
+
+    public String getSymbol(int index) {
+        return symbols[index];
+    }
+
+    public Long getId(int index) {
+        return ids[index] == 0L ? null : ids[index];
+    }
+
+    public double getQuantity(int index) {
+        return FixedPoint.toDouble(quantities[index]);
+    }
+
+    public double getPrice(int index) {
+        return FixedPoint.toDouble(prices[index]);
+    }
+
+    public double getValue(int index) {
+        return FixedPoint.toDouble(values[index]);
+    }
+
+    public long getValueScaled(int index) {
+        return values[index];
+    }
+
+    public double getPercentage(int index) {
+        return FixedPoint.percentage(values[index], totalValue);
+    }
+
+    public double getTotalValue() {
+        return FixedPoint.toDouble(totalValue);
+    }
+
+    public long getTotalValueScaled() {
+        return totalValue;
+    }
+}
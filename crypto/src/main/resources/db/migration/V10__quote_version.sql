@@ -0,0 +1,7 @@
+-- 行情版本：每批写入在同一事务内从 quote_version 计数器分配一个全局递增的版本号并写入被更新的行
+-- 各节点按该版本号增量加载，快照版本、ETag 与 since 增量在所有节点上一致
+ALTER TABLE `crypto_currency`
+  ADD COLUMN `quote_version` bigint(20) NOT NULL DEFAULT 0 COMMENT '最后一次写入分配的行情版本',
+  ADD INDEX `idx_crypto_quote_version`(`quote_version`) USING BTREE;
+
+INSERT INTO `system_counters` (`name`, `counter_value`, `updated_at`) VALUES ('quote_version', 0, NOW(6));
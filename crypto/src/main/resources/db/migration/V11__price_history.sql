@@ -0,0 +1,36 @@
+-- 行情历史：逐笔记录与 K 线汇总表
+-- 已有数据库以 V1 为基线，这两张表必须由本迁移创建；IF NOT EXISTS 兼容此前已建表的库
+-- ======================================
+-- 行情逐笔记录表
+-- 每条写入成功的行情追加一行，不做更新
+-- ======================================
+CREATE TABLE IF NOT EXISTS `crypto_price_tick`  (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `symbol` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '加密货币符号',
+  `usd_price` decimal(16, 8) NOT NULL COMMENT '美元价格',
+  `volume_24h` decimal(20, 2) NULL DEFAULT NULL COMMENT '24小时成交量',
+  `tick_time` datetime(6) NOT NULL COMMENT '行情时间（即 crypto_currency.update_time）',
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_tick_symbol_time`(`symbol`, `tick_time`) USING BTREE
+) ENGINE = InnoDB AUTO_INCREMENT = 1 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci ROW_FORMAT = Dynamic;
+
+-- ======================================
+-- K 线汇总表
+-- 1m/5m/1h/1d 四个周期，随行情写入增量维护
+-- ======================================
+CREATE TABLE IF NOT EXISTS `crypto_price_candle`  (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `symbol` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '加密货币符号',
+  `bar_interval` varchar(4) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT 'K线周期（1m/5m/1h/1d）',
+  `bucket_start` datetime(6) NOT NULL COMMENT '周期起始时间',
+  `open_price` decimal(16, 8) NOT NULL COMMENT '开盘价',
+  `high_price` decimal(16, 8) NOT NULL COMMENT '最高价',
+  `low_price` decimal(16, 8) NOT NULL COMMENT '最低价',
+  `close_price` decimal(16, 8) NOT NULL COMMENT '收盘价',
+  `volume` decimal(20, 2) NULL DEFAULT NULL COMMENT '周期内最后一笔行情的24小时成交量',
+  `tick_count` int(11) NOT NULL COMMENT '周期内行情笔数',
+  `open_time` datetime(6) NOT NULL COMMENT '周期内第一笔行情时间',
+  `close_time` datetime(6) NOT NULL COMMENT '周期内最后一笔行情时间',
+  PRIMARY KEY (`id`) USING BTREE,
+  UNIQUE INDEX `uk_candle_symbol_interval_bucket`(`symbol`, `bar_interval`, `bucket_start`) USING BTREE
+) ENGINE = InnoDB AUTO_INCREMENT = 1 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci ROW_FORMAT = Dynamic;
@@ -0,0 +1,7 @@
+-- 行情版本租约：写入批次在独立的短事务中分配版本并登记租约，计数器行锁不再持有到写入事务结束
+-- 写入事务提交时删除自己的租约；最小租约之前的版本都已结束，各节点的快照版本只推进到这里
+CREATE TABLE `quote_version_leases`  (
+  `version` bigint(20) NOT NULL COMMENT '已分配、写入事务尚未结束的行情版本',
+  `created_at` datetime(6) NOT NULL COMMENT '分配时间',
+  PRIMARY KEY (`version`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci ROW_FORMAT = Dynamic;
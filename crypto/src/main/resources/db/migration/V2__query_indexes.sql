@@ -0,0 +1,17 @@
+-- 按实际查询建立的组合索引，末尾带上排序列，避免 filesort 并支持游标分页
+
+-- 消息列表 / 消息流：无筛选时按 (created_at, id) 倒序；按币种、情感、已读状态筛选时等值列在前
+CREATE INDEX `idx_messages_created` ON `messages` (`created_at`, `id`);
+CREATE INDEX `idx_messages_type_created` ON `messages` (`crypto_type`, `created_at`, `id`);
+CREATE INDEX `idx_messages_sentiment_created` ON `messages` (`sentiment`, `created_at`, `id`);
+-- 同时覆盖未读数统计 countUnreadMessages
+CREATE INDEX `idx_messages_read_created` ON `messages` (`is_read`, `created_at`, `id`);
+
+-- 持仓历史：按日期范围取数并按日期、币种排序
+CREATE INDEX `idx_history_date_type` ON `portfolio_history` (`date`, `crypto_type`);
+
+-- 报告：按状态筛选、统计待处理报告
+CREATE INDEX `idx_reports_status_created` ON `reports` (`status`, `created_at`);
+
+-- 报告建议：按币种查询（report_id 已有外键索引）
+CREATE INDEX `idx_suggestions_crypto_type` ON `report_suggestions` (`crypto_type`);
@@ -0,0 +1,13 @@
+-- 系统计数器：未读消息数、待审核报告数随业务写入在同一事务内增减，由定时对账任务纠正偏差
+CREATE TABLE `system_counters`  (
+  `name` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '计数器名称',
+  `counter_value` bigint(20) NOT NULL DEFAULT 0 COMMENT '计数值',
+  `updated_at` datetime(6) NOT NULL COMMENT '最后更新时间',
+  PRIMARY KEY (`name`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci ROW_FORMAT = Dynamic;
+
+INSERT INTO `system_counters` (`name`, `counter_value`, `updated_at`)
+SELECT 'unread_messages', COUNT(*), NOW(6) FROM `messages` WHERE `is_read` = 0;
+
+INSERT INTO `system_counters` (`name`, `counter_value`, `updated_at`)
+SELECT 'pending_reports', COUNT(*), NOW(6) FROM `reports` WHERE `status` = 'pending';
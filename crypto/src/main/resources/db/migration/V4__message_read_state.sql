@@ -0,0 +1,11 @@
+-- 按用户记录的消息阅读状态：已读消息 id 以 Roaring 压缩位图存储，每个用户一行
+CREATE TABLE `message_read_state`  (
+  `user_id` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '用户标识（X-User-Id）',
+  `read_ids` longblob NOT NULL COMMENT '已读消息 id 的序列化压缩位图',
+  `version` bigint(20) NOT NULL COMMENT '乐观锁版本号',
+  `updated_at` datetime(6) NOT NULL COMMENT '最后更新时间',
+  PRIMARY KEY (`user_id`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci ROW_FORMAT = Dynamic;
+
+-- 未读数改为按用户从位图计算，不再维护全局未读计数
+DELETE FROM `system_counters` WHERE `name` = 'unread_messages';
@@ -0,0 +1,4 @@
+-- 消息去重：规范化后的 content + source_url 的 SHA-256（十六进制），唯一索引保证同一内容只存一份
+-- 已有消息的哈希由应用启动时分批回填，重复的历史消息保持为 NULL
+ALTER TABLE `messages` ADD COLUMN `content_hash` varchar(64) CHARACTER SET ascii COLLATE ascii_bin NULL DEFAULT NULL COMMENT '去重哈希（规范化内容 + 来源URL 的 SHA-256）';
+CREATE UNIQUE INDEX `uq_messages_content_hash` ON `messages` (`content_hash`);
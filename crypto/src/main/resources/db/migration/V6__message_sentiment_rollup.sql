@@ -0,0 +1,13 @@
+-- 消息情感汇总：按 (周期, 起始时间, 币种, 情感) 计数，写入消息时在同一事务内增量累加
+-- 币种或情感为空的消息记为空字符串；历史数据通过 POST /api/messages/sentiment-stats/rebuild 回填
+CREATE TABLE `message_sentiment_rollup`  (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `bucket_interval` varchar(4) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '汇总周期（1h/1d）',
+  `bucket_start` datetime(6) NOT NULL COMMENT '周期起始时间',
+  `crypto_type` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL DEFAULT '' COMMENT '加密货币类型',
+  `sentiment` varchar(32) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL DEFAULT '' COMMENT '情感分析结果',
+  `message_count` bigint(20) NOT NULL COMMENT '消息条数',
+  PRIMARY KEY (`id`) USING BTREE,
+  UNIQUE INDEX `uk_rollup_interval_bucket`(`bucket_interval`, `bucket_start`, `crypto_type`, `sentiment`) USING BTREE,
+  INDEX `idx_rollup_type_interval_bucket`(`crypto_type`, `bucket_interval`, `bucket_start`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci ROW_FORMAT = Dynamic;
@@ -0,0 +1,17 @@
+-- 消息冷归档：超过保留期的消息按月导出为 NDJSON.gz 文件后从 messages 表分批删除
+-- 每个归档文件一行；同一月份补充归档时产生多个分段
+CREATE TABLE `message_archive_segment`  (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `period` char(7) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '归档月份（yyyy-MM）',
+  `file_path` varchar(512) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '归档文件路径',
+  `status` varchar(16) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '状态（EXPORTED：已导出待删除，PURGED：已从消息表删除）',
+  `message_count` bigint(20) NOT NULL COMMENT '归档消息条数',
+  `min_id` bigint(20) NULL DEFAULT NULL COMMENT '最小消息ID',
+  `max_id` bigint(20) NULL DEFAULT NULL COMMENT '最大消息ID',
+  `start_time` datetime(6) NOT NULL COMMENT '月份起始时间（含）',
+  `end_time` datetime(6) NOT NULL COMMENT '月份结束时间（不含）',
+  `created_at` datetime(6) NOT NULL COMMENT '导出时间',
+  `updated_at` datetime(6) NOT NULL COMMENT '最后更新时间',
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_archive_time`(`start_time`, `end_time`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci ROW_FORMAT = Dynamic;
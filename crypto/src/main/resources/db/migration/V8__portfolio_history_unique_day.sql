@@ -0,0 +1,12 @@
+-- 持仓历史按 (日期, 币种) 唯一：备份任务与持仓更新改为 upsert，重复执行不再产生重复行
+-- 先清理历史上重复写入的行，每个 (date, crypto_type) 保留最后写入（id 最大）的一行
+DELETE h FROM `portfolio_history` h
+  JOIN `portfolio_history` newer
+    ON newer.`date` = h.`date` AND newer.`crypto_type` = h.`crypto_type` AND newer.`id` > h.`id`;
+
+-- updated_at 供各节点的内存历史序列增量补齐被覆盖的日期
+ALTER TABLE `portfolio_history`
+  ADD COLUMN `updated_at` datetime(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) COMMENT '最后写入时间',
+  DROP INDEX `idx_history_date_type`,
+  ADD UNIQUE INDEX `uq_history_date_type`(`date`, `crypto_type`) USING BTREE,
+  ADD INDEX `idx_history_updated`(`updated_at`) USING BTREE;
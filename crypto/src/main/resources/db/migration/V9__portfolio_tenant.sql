@@ -0,0 +1,25 @@
+-- 多投资组合：持仓、持仓历史、报告与报告建议按 portfolio_id 隔离，已有数据归入默认组合 1
+-- 按组合读取的索引都以 portfolio_id 开头，只扫描该组合自己的索引区间，读取成本与组合总数无关
+-- 不使用 PARTITION BY：分区表的每个唯一键（含主键）都必须包含分区列，且 InnoDB 分区表不支持外键
+ALTER TABLE `portfolio_items`
+  ADD COLUMN `portfolio_id` bigint(20) NOT NULL DEFAULT 1 COMMENT '所属投资组合ID' AFTER `id`,
+  ADD INDEX `idx_items_portfolio_type`(`portfolio_id`, `crypto_type`) USING BTREE;
+
+ALTER TABLE `portfolio_history`
+  ADD COLUMN `portfolio_id` bigint(20) NOT NULL DEFAULT 1 COMMENT '所属投资组合ID' AFTER `id`,
+  DROP INDEX `uq_history_date_type`,
+  ADD UNIQUE INDEX `uq_history_portfolio_date_type`(`portfolio_id`, `date`, `crypto_type`) USING BTREE;
+
+-- 全局的 (status, created_at) 索引保留给跨组合的待审核计数对账
+ALTER TABLE `reports`
+  ADD COLUMN `portfolio_id` bigint(20) NOT NULL DEFAULT 1 COMMENT '所属投资组合ID' AFTER `id`,
+  ADD INDEX `idx_reports_portfolio_status_created`(`portfolio_id`, `status`, `created_at`) USING BTREE,
+  ADD INDEX `idx_reports_portfolio_created`(`portfolio_id`, `created_at`) USING BTREE;
+
+-- 建议冗余所属组合，按组合和报告查询时不需要回表关联 reports
+ALTER TABLE `report_suggestions`
+  ADD COLUMN `portfolio_id` bigint(20) NOT NULL DEFAULT 1 COMMENT '所属投资组合ID' AFTER `id`,
+  ADD INDEX `idx_suggestions_portfolio_report`(`portfolio_id`, `report_id`) USING BTREE;
+
+-- 待审核报告数改为按组合计数
+UPDATE `system_counters` SET `name` = 'pending_reports:1' WHERE `name` = 'pending_reports';
@@ -0,0 +1,167 @@
+package com.crypto.archive;
+
+import com.crypto.dto.MessageFilter;
+import com.crypto.entity.Message;
+import com.crypto.readstate.MessageIdIndex;
+import com.crypto.repository.MessageArchiveSegmentRepository;
+import com.crypto.repository.MessageJdbcRepository;
+import com.crypto.search.MessageSearchIndex;
+import com.crypto.search.MessageSearchIndexer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MessageArchiverTest {
+
+    private static final long BIG_ID = Integer.MAX_VALUE + 10L;
+
+    // 各节点共享的归档目录
+    @TempDir
+    Path archiveDir;
+
+    @TempDir
+    Path indexDir;
+
+    private final MessageJdbcRepository messages = mock(MessageJdbcRepository.class);
+    private final MessageArchiveSegmentRepository segments = mock(MessageArchiveSegmentRepository.class);
+
+    @Test
+    void exportsExpiredMonthThenDeletesInBatchesAndServesReads() throws Exception {
+        MessageIdIndex idIndex = mock(MessageIdIndex.class);
+        ArchiveStorage storage = storage();
+        ArchiveSegment segment = archive(storage, idIndex, expiredRows());
+
+        assertEquals(5, segment.getMessageCount());
+        assertEquals(1L, segment.getMinId());
+        assertEquals(BIG_ID, segment.getMaxId());
+        assertEquals(ArchiveSegment.PURGED, segment.getStatus());
+        // 只登记文件名，各节点按自己挂载的共享目录解析
+        assertFalse(Path.of(segment.getFilePath()).isAbsolute());
+        assertTrue(Files.exists(archiveDir.resolve(segment.getFilePath())));
+        verify(messages, times(3)).deleteByIds(any());
+        verify(segments).updateStatus(42L, ArchiveSegment.PURGED);
+        verify(idIndex).remove(any(), eq(42L));
+
+        when(segments.findOverlapping(any(), any())).thenReturn(List.of(segment));
+        when(segments.findContainingId(anyLong())).thenReturn(List.of(segment));
+        ArchivedMessageReader reader = new ArchivedMessageReader(segments, storage);
+        MessageFilter btc = new MessageFilter();
+        btc.setCryptoType("BTC");
+        ArchivedMessageReader.Page page = reader.query(btc, null, 1, 1);
+        assertEquals(3, page.getTotal());
+        assertEquals(List.of(3L), page.getRecords().stream().map(Message::getId).toList());
+        assertEquals("content 4", reader.findById(4).getContent());
+        assertNull(reader.findById(9));
+
+        // 没有挂载共享目录的节点得到明确的错误，而不是任意的读取失败
+        ArchivedMessageReader unmounted = new ArchivedMessageReader(segments,
+                new ArchiveStorage(Jackson2ObjectMapperBuilder.json().build(), archiveDir.resolve("missing").toString()));
+        assertThrows(ArchiveUnavailableException.class, () -> unmounted.findById(4));
+    }
+
+    @Test
+    void otherNodesDropPurgedMessagesFromTheirSearchIndex() throws Exception {
+        List<Message> rows = expiredRows();
+        Message hot = message(BIG_ID + 1, "BTC", LocalDateTime.now());
+        List<Message> table = new ArrayList<>(rows);
+        table.add(hot);
+        when(messages.findIndexRowsAfter(anyLong(), anyInt())).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            return table.stream().filter(message -> message.getId() > afterId).toList();
+        });
+        ArchiveStorage storage = storage();
+        // 另一个节点在归档之前已建好索引
+        MessageSearchIndexer otherNode = new MessageSearchIndexer(messages, segments, storage, indexDir.toString(), 60_000, 0);
+        otherNode.start();
+        try {
+            await(() -> BIG_ID + 1 == (long) otherNode.getStats().get("checkpoint"));
+            assertEquals(6L, otherNode.search("content", new MessageFilter(), null, 0, 10).getTotalHits());
+
+            ArchiveSegment segment = archive(storage, mock(MessageIdIndex.class), rows);
+            table.removeAll(rows);
+            when(segments.findPurgedAfter(0)).thenReturn(List.of(segment));
+            while (otherNode.catchUp() < 0) {
+                Thread.sleep(10);
+            }
+
+            MessageSearchIndex.SearchResult hits = otherNode.search("content", new MessageFilter(), null, 0, 10);
+            assertEquals(1L, hits.getTotalHits());
+            assertEquals(List.of(hot.getId()), hits.getIds());
+            assertEquals(42L, otherNode.getStats().get("purgedSegmentId"));
+        } finally {
+            otherNode.stop();
+        }
+    }
+
+    private ArchiveStorage storage() {
+        return new ArchiveStorage(Jackson2ObjectMapperBuilder.json().build(), archiveDir.toString());
+    }
+
+    // 在归档节点上执行一次归档，rows 为过期月份中的消息，每次读取 2 条
+    private ArchiveSegment archive(ArchiveStorage storage, MessageIdIndex idIndex, List<Message> rows) throws Exception {
+        MessageArchiver archiver = new MessageArchiver(messages, segments, idIndex, mock(MessageSearchIndexer.class),
+                storage, true, 6, 2, 0);
+        LocalDateTime start = rows.get(0).getCreatedAt().toLocalDate().withDayOfMonth(1).atStartOfDay();
+        when(messages.findEarliestCreatedBefore(any())).thenReturn(start.plusDays(1), (LocalDateTime) null);
+        when(messages.findRowsBetween(eq(start), eq(start.plusMonths(1)), any(), eq(2)))
+                .thenReturn(rows.subList(0, 2), rows.subList(2, 4), rows.subList(4, 5));
+        when(messages.deleteByIds(any())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+        when(segments.insert(any())).thenReturn(42L);
+
+        List<ArchiveSegment> processed = archiver.archiveExpired();
+        assertEquals(1, processed.size());
+        return processed.get(0);
+    }
+
+    private static List<Message> expiredRows() {
+        LocalDateTime start = YearMonth.now().minusMonths(12).atDay(1).atStartOfDay();
+        List<Message> rows = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            rows.add(message(i, i % 2 == 0 ? "ETH" : "BTC", start.plusDays(i)));
+        }
+        // 超出 int 范围的 BIGINT id 也能归档删除
+        rows.add(message(BIG_ID, "BTC", start.plusDays(5)));
+        return rows;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待超时");
+            Thread.sleep(10);
+        }
+    }
+
+    private static Message message(long id, String cryptoType, LocalDateTime createdAt) {
+        Message message = new Message();
+        message.setId(id);
+        message.setCryptoType(cryptoType);
+        message.setContent("content " + id);
+        message.setSentiment("neutral");
+        message.setCreatedAt(createdAt);
+        message.setIsRead(false);
+        return message;
+    }
+}
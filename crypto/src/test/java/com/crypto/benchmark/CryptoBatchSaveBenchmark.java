@@ -0,0 +1,139 @@
+package com.crypto.benchmark;
+
+import com.crypto.entity.CryptoCurrency;
+import com.crypto.repository.CryptoCurrencyJdbcRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * /api/crypto/batch-save 写入路径基准：逐行 findBySymbol + save 与 JDBC 批量 upsert 的数据库往返次数和耗时对比
+ * 需要可用的 MySQL（表结构见 crypto_db.sql），运行方式：
+ * java -cp ... com.crypto.benchmark.CryptoBatchSaveBenchmark [jdbcUrl] [user] [password] [rows] [batchSize]
+ */
+public class CryptoBatchSaveBenchmark {
+
+    // 真正发往服务端的调用（每次调用一次往返）
+    private static final Set<String> EXECUTE_METHODS =
+            Set.of("execute", "executeQuery", "executeUpdate", "executeBatch", "executeLargeBatch", "executeLargeUpdate");
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0]
+                : "jdbc:mysql://localhost:3306/crypto_db?useSSL=false&serverTimezone=Asia/Shanghai&allowPublicKeyRetrieval=true&rewriteBatchedStatements=true";
+        String user = args.length > 1 ? args[1] : "root";
+        String password = args.length > 2 ? args[2] : "123456";
+        int rows = args.length > 3 ? Integer.parseInt(args[3]) : 2000;
+        int batchSize = args.length > 4 ? Integer.parseInt(args[4]) : 500;
+
+        AtomicInteger roundTrips = new AtomicInteger();
+        DataSource dataSource = countingDataSource(new DriverManagerDataSource(url, user, password), roundTrips);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        // 先清理上一次运行留下的基准数据，再分别测量“全部新增”和“全部更新”两轮
+        jdbcTemplate.update("DELETE FROM crypto_currency WHERE symbol LIKE 'BM%'");
+        run("逐行 findBySymbol + save（新增）", roundTrips, rows, () -> legacyRowByRow(jdbcTemplate, ticks(rows, 1)));
+        run("逐行 findBySymbol + save（更新）", roundTrips, rows, () -> legacyRowByRow(jdbcTemplate, ticks(rows, 2)));
+
+        jdbcTemplate.update("DELETE FROM crypto_currency WHERE symbol LIKE 'BM%'");
+        CryptoCurrencyJdbcRepository repository = new CryptoCurrencyJdbcRepository(jdbcTemplate);
+        run("批量 upsert（新增）", roundTrips, rows, () -> repository.batchUpsert(ticks(rows, 1), 1, batchSize, (c, e) -> { }));
+        run("批量 upsert（更新）", roundTrips, rows, () -> repository.batchUpsert(ticks(rows, 2), 2, batchSize, (c, e) -> { }));
+
+        jdbcTemplate.update("DELETE FROM crypto_currency WHERE symbol LIKE 'BM%'");
+    }
+
+    private static void run(String name, AtomicInteger roundTrips, int rows, Runnable task) {
+        roundTrips.set(0);
+        long start = System.nanoTime();
+        task.run();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        System.out.printf("%-36s rows=%d, roundTrips=%d, elapsed=%dms%n", name, rows, roundTrips.get(), elapsedMs);
+    }
+
+    /**
+     * 复现旧实现的访问模式：每行一次 SELECT，再一次 INSERT 或 UPDATE
+     */
+    private static void legacyRowByRow(JdbcTemplate jdbcTemplate, List<CryptoCurrency> ticks) {
+        for (CryptoCurrency tick : ticks) {
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM crypto_currency WHERE symbol = ?", Long.class, tick.getSymbol());
+            if (ids.isEmpty()) {
+                jdbcTemplate.update("INSERT INTO crypto_currency (symbol, name, usd_price, update_time) VALUES (?, ?, ?, ?)",
+                        tick.getSymbol(), tick.getName(), tick.getUsdPrice(), Timestamp.valueOf(tick.getUpdateTime()));
+            } else {
+                jdbcTemplate.update("UPDATE crypto_currency SET name = ?, usd_price = ?, update_time = ? WHERE id = ?",
+                        tick.getName(), tick.getUsdPrice(), Timestamp.valueOf(tick.getUpdateTime()), ids.get(0));
+            }
+        }
+    }
+
+    private static List<CryptoCurrency> ticks(int rows, int round) {
+        List<CryptoCurrency> ticks = new ArrayList<>(rows);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < rows; i++) {
+            CryptoCurrency crypto = new CryptoCurrency();
+            crypto.setSymbol("BM" + i);
+            crypto.setName("Benchmark " + i);
+            crypto.setUsdPrice(BigDecimal.valueOf(1000L + i * 7L + round, 4));
+            crypto.setUpdateTime(now);
+            ticks.add(crypto);
+        }
+        return ticks;
+    }
+
+    /**
+     * 包装 DataSource，统计所有 Statement 的 execute* 调用次数
+     */
+    private static DataSource countingDataSource(DataSource target, AtomicInteger counter) {
+        return proxy(DataSource.class, target, (method, result) ->
+                result instanceof Connection connection ? proxy(Connection.class, connection, (m, r) -> wrapStatement(r, counter)) : result);
+    }
+
+    private static Object wrapStatement(Object result, AtomicInteger counter) {
+        if (!(result instanceof Statement statement)) {
+            return result;
+        }
+        Class<?> type = result instanceof CallableStatement ? CallableStatement.class
+                : result instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (p, method, args) -> {
+            if (EXECUTE_METHODS.contains(method.getName())) {
+                counter.incrementAndGet();
+            }
+            return invoke(method, statement, args);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, ResultWrapper wrapper) {
+        InvocationHandler handler = (p, method, args) -> wrapper.wrap(method, invoke(method, target, args));
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private interface ResultWrapper {
+        Object wrap(Method method, Object result);
+    }
+}
@@ -0,0 +1,109 @@
+package com.crypto.benchmark;
+
+import com.crypto.dedup.ContentHash;
+import com.crypto.entity.Message;
+import com.crypto.repository.MessageJdbcRepository;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * 消息批量写入基准：逐行 INSERT 并取回自增 id（JPA IDENTITY 主键下 saveAll 的行为）与多行 INSERT 批量写入的吞吐对比
+ * 需要可用的 MySQL（表结构见 crypto_db.sql），连接串需开启 rewriteBatchedStatements=true，运行方式：
+ * java -cp ... com.crypto.benchmark.MessageBatchInsertBenchmark [jdbcUrl] [user] [password] [batchSize]
+ */
+public class MessageBatchInsertBenchmark {
+
+    private static final int[] MESSAGE_COUNTS = {100, 1000, 10000};
+
+    public static void main(String[] args) {
+        String url = args.length > 0 ? args[0]
+                : "jdbc:mysql://localhost:3306/crypto_db?useSSL=false&serverTimezone=Asia/Shanghai&allowPublicKeyRetrieval=true&rewriteBatchedStatements=true";
+        String user = args.length > 1 ? args[1] : "root";
+        String password = args.length > 2 ? args[2] : "123456";
+        int batchSize = args.length > 3 ? Integer.parseInt(args[3]) : 500;
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(url, user, password));
+        MessageJdbcRepository repository = new MessageJdbcRepository(jdbcTemplate);
+
+        for (int count : MESSAGE_COUNTS) {
+            run("逐行 INSERT + 取回 id", repository, count, messages -> rowByRow(jdbcTemplate, messages));
+            run("批量 INSERT（每批 " + batchSize + " 行）", repository, count,
+                    messages -> repository.insertBatch(messages, batchSize));
+        }
+    }
+
+    private static void run(String name, MessageJdbcRepository repository, int count,
+                            Consumer<List<Message>> writer) {
+        List<Message> messages = messages(count);
+        long started = System.nanoTime();
+        writer.accept(messages);
+        double seconds = (System.nanoTime() - started) / 1e9;
+        long assigned = messages.stream().filter(message -> message.getId() != null).count();
+        System.out.printf("%-28s %6d 条：%.3f 秒，%.0f 条/秒，取回 id %d 个%n",
+                name, count, seconds, count / seconds, assigned);
+        // 清理本轮写入的基准数据
+        List<Long> ids = messages.stream().map(Message::getId).collect(Collectors.toList());
+        for (int from = 0; from < ids.size(); from += 1000) {
+            repository.deleteByIds(ids.subList(from, Math.min(from + 1000, ids.size())));
+        }
+    }
+
+    /**
+     * 与 JPA IDENTITY 主键的 saveAll 相同：每行一条 INSERT、一次往返并取回 id
+     */
+    private static void rowByRow(JdbcTemplate jdbcTemplate, List<Message> messages) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            String sql = "INSERT INTO messages (crypto_type, content, sentiment, source, source_url, created_at, is_read, content_hash) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+            try (PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (Message message : messages) {
+                    ps.setString(1, message.getCryptoType());
+                    ps.setString(2, message.getContent());
+                    ps.setString(3, message.getSentiment());
+                    ps.setString(4, message.getSource());
+                    ps.setString(5, message.getSourceUrl());
+                    ps.setTimestamp(6, Timestamp.valueOf(message.getCreatedAt()));
+                    ps.setBoolean(7, message.getIsRead());
+                    ps.setString(8, message.getContentHash());
+                    ps.executeUpdate();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        keys.next();
+                        message.setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private static List<Message> messages(int count) {
+        String run = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        List<Message> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Message message = new Message();
+            message.setCryptoType(i % 2 == 0 ? "BTC" : "ETH");
+            message.setContent("benchmark message " + run + " #" + i + "：大型机构继续增持，链上活跃地址数创新高");
+            message.setSentiment(i % 3 == 0 ? "positive" : "neutral");
+            message.setSource("benchmark");
+            message.setSourceUrl("https://example.com/benchmark/" + run + "/" + i);
+            message.setCreatedAt(now);
+            message.setIsRead(false);
+            message.setContentHash(ContentHash.of(message.getContent(), message.getSourceUrl()));
+            messages.add(message);
+        }
+        return messages;
+    }
+}
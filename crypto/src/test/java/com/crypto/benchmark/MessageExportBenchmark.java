@@ -0,0 +1,69 @@
+package com.crypto.benchmark;
+
+import com.crypto.dto.MessageFilter;
+import com.crypto.export.ExportFormat;
+import com.crypto.export.ResultSetExporter;
+import com.crypto.repository.MessageJdbcRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 消息流式导出基准：全表导出为 gzip 压缩的 NDJSON/CSV（丢弃输出），统计吞吐与堆内存峰值
+ * 需要可用的 MySQL 且消息表中已有数据，建议限制堆大小验证内存与行数无关，运行方式：
+ * java -Xmx256m -cp ... com.crypto.benchmark.MessageExportBenchmark [jdbcUrl] [user] [password] [format]
+ */
+public class MessageExportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0]
+                : "jdbc:mysql://localhost:3306/crypto_db?useSSL=false&serverTimezone=Asia/Shanghai&allowPublicKeyRetrieval=true";
+        String user = args.length > 1 ? args[1] : "root";
+        String password = args.length > 2 ? args[2] : "123456";
+        ExportFormat format = ExportFormat.fromCode(args.length > 3 ? args[3] : "ndjson");
+
+        MessageJdbcRepository repository = new MessageJdbcRepository(
+                new JdbcTemplate(new DriverManagerDataSource(url, user, password)));
+        CountingOutputStream counter = new CountingOutputStream();
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        long started = System.nanoTime();
+        long rows;
+        try (GZIPOutputStream out = new GZIPOutputStream(counter, 1 << 16)) {
+            ResultSetExporter exporter = new ResultSetExporter(format, out,
+                    "id", "crypto_type", "content", "sentiment", "source", "source_url", "created_at");
+            repository.streamForExport(new MessageFilter(), exporter);
+            rows = exporter.finish();
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+        System.out.printf("%s：%d 行，%.1f 秒，%.0f 行/秒，压缩后 %.1f MB，堆峰值 %.1f MB（-Xmx %.0f MB）%n",
+                format, rows, seconds, rows / seconds, counter.bytes / 1048576.0,
+                peakHeap / 1048576.0, Runtime.getRuntime().maxMemory() / 1048576.0);
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.crypto.benchmark;
+
+import com.crypto.dto.MessageFilter;
+import com.crypto.entity.Message;
+import com.crypto.search.MessageSearchIndex;
+import org.apache.lucene.store.FSDirectory;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongPredicate;
+
+/**
+ * 消息全文检索基准：合成语料（词频服从 Zipf 分布）建索引后，统计各类查询的延迟分位数
+ * 索引目录已有足够文档时直接复用，不重复构建；不依赖数据库，运行方式：
+ * java -cp ... com.crypto.benchmark.MessageSearchBenchmark [docs] [indexDir] [queriesPerType]
+ */
+public class MessageSearchBenchmark {
+
+    private static final String[] SYMBOLS = {"BTC", "ETH", "SOL", "USDT", "BNB", "XRP", "ADA", "DOGE", "DOT", "AVAX"};
+    private static final String[] SENTIMENTS = {"positive", "negative", "neutral"};
+    private static final String[] SOURCES = {"Twitter", "Reddit", "Telegram", "News", "Discord"};
+    private static final int VOCABULARY = 50_000;
+    private static final int WORDS_PER_DOC = 30;
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    public static void main(String[] args) throws Exception {
+        int docs = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        Path dir = Paths.get(args.length > 1 ? args[1] : "target/message-search-bench");
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+
+        String[] words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            words[i] = "w" + Integer.toString(i, 36);
+        }
+        double[] cdf = zipfCdf(VOCABULARY, 1.07);
+
+        try (MessageSearchIndex index = new MessageSearchIndex(FSDirectory.open(dir))) {
+            if (index.getCheckpoint() < docs) {
+                build(index, docs, words, cdf);
+            }
+            System.out.printf("索引文档数：%d%n", index.numDocs());
+
+            Random random = new Random(7);
+            MessageFilter none = new MessageFilter();
+            MessageFilter filtered = new MessageFilter();
+            filtered.setCryptoType("ETH");
+            filtered.setStartDate(BASE.plusDays(30));
+            filtered.setEndDate(BASE.plusDays(60));
+            LongPredicate unread = id -> id % 10 == 0;
+
+            run("高频单词", queries, () -> index.search(words[random.nextInt(20)], none, null, 0, 20));
+            run("中频单词", queries, () -> index.search(words[100 + random.nextInt(1000)], none, null, 0, 20));
+            run("低频单词", queries, () -> index.search(words[10_000 + random.nextInt(30_000)], none, null, 0, 20));
+            run("两词同时命中", queries, () -> index.search(
+                    words[random.nextInt(200)] + " " + words[random.nextInt(2000)], none, null, 0, 20));
+            run("短语", queries, () -> index.search(
+                    "\"" + words[random.nextInt(50)] + " " + words[random.nextInt(50)] + "\"", none, null, 0, 20));
+            run("单词+币种+时间范围", queries, () -> index.search(words[random.nextInt(1000)], filtered, null, 0, 20));
+            run("单词+阅读状态位图", queries, () -> index.search(words[random.nextInt(1000)], none, unread, 0, 20));
+            run("单词+深翻页(第50页)", queries, () -> index.search(words[random.nextInt(1000)], none, null, 980, 20));
+        }
+    }
+
+    private static void build(MessageSearchIndex index, int docs, String[] words, double[] cdf) throws Exception {
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        List<Message> batch = new ArrayList<>(10_000);
+        StringBuilder content = new StringBuilder();
+        for (long id = index.getCheckpoint() + 1; id <= docs; id++) {
+            content.setLength(0);
+            for (int w = 0; w < WORDS_PER_DOC; w++) {
+                content.append(words[sample(cdf, random.nextDouble())]).append(' ');
+            }
+            Message message = new Message();
+            message.setId(id);
+            message.setCryptoType(SYMBOLS[random.nextInt(SYMBOLS.length)]);
+            message.setSentiment(SENTIMENTS[random.nextInt(SENTIMENTS.length)]);
+            message.setSource(SOURCES[random.nextInt(SOURCES.length)]);
+            message.setContent(content.toString());
+            message.setCreatedAt(BASE.plusSeconds(id * 3));
+            batch.add(message);
+            if (batch.size() == 10_000 || id == docs) {
+                index.index(batch);
+                batch.clear();
+                if (id % 1_000_000 == 0 || id == docs) {
+                    index.commit(id);
+                    System.out.printf("已写入 %d 条，耗时 %.1f s%n", id, (System.nanoTime() - start) / 1e9);
+                }
+            }
+        }
+    }
+
+    private static void run(String name, int queries, Query query) throws Exception {
+        for (int i = 0; i < Math.min(queries, 50); i++) {
+            query.run();
+        }
+        long[] nanos = new long[queries];
+        long hits = 0;
+        for (int i = 0; i < queries; i++) {
+            long start = System.nanoTime();
+            hits += query.run().getTotalHits();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%-16s p50=%7.2f ms  p95=%7.2f ms  p99=%7.2f ms  平均命中=%d%n", name,
+                percentile(nanos, 0.50), percentile(nanos, 0.95), percentile(nanos, 0.99), hits / queries);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)] / 1e6;
+    }
+
+    private static double[] zipfCdf(int n, double s) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1.0 / Math.pow(i + 1, s);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+
+    private static int sample(double[] cdf, double u) {
+        int i = Arrays.binarySearch(cdf, u);
+        return Math.min(cdf.length - 1, i >= 0 ? i : -i - 1);
+    }
+
+    @FunctionalInterface
+    private interface Query {
+        MessageSearchIndex.SearchResult run() throws Exception;
+    }
+}
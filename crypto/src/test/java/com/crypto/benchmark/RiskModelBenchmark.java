@@ -0,0 +1,88 @@
+package com.crypto.benchmark;
+
+import com.crypto.risk.PortfolioRisk;
+import com.crypto.risk.PriceMatrix;
+import com.crypto.risk.RiskModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 风险数据计算：symbols 个币种 × 3 年日线（部分币种上市较晚）的收益、波动率、回撤、beta 与协方差矩阵，
+ * 以及在已计算的风险数据上估算一个 20 个持仓的组合
+ * 运行方式：java -cp ... com.crypto.benchmark.RiskModelBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RiskModelBenchmark {
+
+    private static final int DAYS = 1095;
+
+    @Param({"100", "500", "1000"})
+    public int symbols;
+
+    private PriceMatrix matrix;
+    private RiskModel model;
+    private String[] heldSymbols;
+    private double[] heldWeights;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        LocalDate start = LocalDate.of(2023, 1, 1);
+        PriceMatrix.Builder builder = PriceMatrix.builder(start, DAYS);
+        for (int s = 0; s < symbols; s++) {
+            String symbol = s == 0 ? "BTC" : "C" + s;
+            int listed = s % 5 == 0 ? random.nextInt(DAYS / 2) : 0;
+            double price = 1 + random.nextDouble() * 1000;
+            for (int day = listed; day < DAYS; day++) {
+                price *= 1 + random.nextGaussian() * 0.03;
+                // 约 2% 的日期缺少日线
+                if (random.nextInt(50) != 0) {
+                    builder.add(symbol, start.plusDays(day), price);
+                }
+            }
+        }
+        matrix = builder.build();
+        model = RiskModel.compute(matrix, 30, "BTC", ForkJoinPool.commonPool());
+        heldSymbols = new String[20];
+        heldWeights = new double[20];
+        for (int k = 0; k < 20; k++) {
+            heldSymbols[k] = k == 0 ? "BTC" : "C" + (k * 7);
+            heldWeights[k] = 1.0 / 20;
+        }
+    }
+
+    @Benchmark
+    public RiskModel computeModel() {
+        return RiskModel.compute(matrix, 30, "BTC", ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public PortfolioRisk evaluatePortfolio() {
+        return model.evaluate(heldSymbols, heldWeights, true);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(RiskModelBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,110 @@
+package com.crypto.benchmark;
+
+import com.crypto.entity.PortfolioItem;
+import com.crypto.risk.PriceMatrix;
+import com.crypto.risk.RiskModel;
+import com.crypto.risk.ScenarioBasis;
+import com.crypto.risk.ScenarioResult;
+import com.crypto.valuation.PortfolioValuation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量调仓场景：20 个持仓、500 个币种 × 3 年日线的风险数据，每个场景调整 5 个币种的目标占比
+ * 运行方式：java -cp ... com.crypto.benchmark.ScenarioBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScenarioBenchmark {
+
+    private static final int DAYS = 1095;
+    private static final int SYMBOLS = 500;
+    private static final int HOLDINGS = 20;
+
+    @Param({"1000", "10000"})
+    public int scenarios;
+
+    @Param({"false", "true"})
+    public boolean withTrades;
+
+    private ScenarioBasis basis;
+    private List<String> names;
+    private List<Map<String, Double>> targets;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        LocalDate start = LocalDate.of(2023, 1, 1);
+        PriceMatrix.Builder builder = PriceMatrix.builder(start, DAYS);
+        for (int s = 0; s < SYMBOLS; s++) {
+            double price = 1 + random.nextDouble() * 1000;
+            for (int day = 0; day < DAYS; day++) {
+                price *= 1 + random.nextGaussian() * 0.03;
+                builder.add(symbol(s), start.plusDays(day), price);
+            }
+        }
+        RiskModel model = RiskModel.compute(builder.build(), 30, "BTC", ForkJoinPool.commonPool());
+
+        List<PortfolioItem> items = new ArrayList<>();
+        for (int k = 0; k < HOLDINGS; k++) {
+            PortfolioItem item = new PortfolioItem();
+            item.setCryptoType(symbol(k));
+            item.setQuantity(1.0 + random.nextInt(100));
+            item.setPrice(1.0 + random.nextInt(1000));
+            items.add(item);
+        }
+        Map<String, Double> extraPrices = new HashMap<>();
+        for (int s = HOLDINGS; s < HOLDINGS * 2; s++) {
+            extraPrices.put(symbol(s), 10.0);
+        }
+        basis = ScenarioBasis.of(PortfolioValuation.of(items), extraPrices, model, 0.001, 1);
+
+        names = new ArrayList<>(scenarios);
+        targets = new ArrayList<>(scenarios);
+        for (int n = 0; n < scenarios; n++) {
+            Map<String, Double> target = new HashMap<>();
+            for (int k = 0; k < 5; k++) {
+                target.put(symbol(random.nextInt(HOLDINGS * 2)), random.nextDouble() * 10);
+            }
+            names.add("s" + n);
+            targets.add(target);
+        }
+    }
+
+    private static String symbol(int index) {
+        return index == 0 ? "BTC" : "C" + index;
+    }
+
+    @Benchmark
+    public List<ScenarioResult> evaluateAll() {
+        return basis.evaluateAll(names, targets, withTrades, ForkJoinPool.commonPool());
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(ScenarioBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,119 @@
+package com.crypto.benchmark;
+
+import com.crypto.entity.PortfolioItem;
+import com.crypto.valuation.FixedPoint;
+import com.crypto.valuation.PortfolioValuation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 持仓估值对比：原有 stream + 包装 Double、BigDecimal 与定点数估值核心
+ * 运行方式：java -cp ... com.crypto.benchmark.ValuationBenchmark（加 -prof gc 可查看每次调用的分配量）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValuationBenchmark {
+
+    @Param({"10", "1000"})
+    public int positions;
+
+    private List<PortfolioItem> items;
+    private PortfolioValuation valuation;
+    private long[] tickPrices;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        items = new ArrayList<>(positions);
+        tickPrices = new long[positions];
+        for (int i = 0; i < positions; i++) {
+            PortfolioItem item = new PortfolioItem();
+            item.setCryptoType("C" + i);
+            item.setQuantity(Math.round(random.nextDouble() * 1_000_000) / 1000.0);
+            item.setPrice(Math.round(random.nextDouble() * 5_000_000) / 100.0);
+            items.add(item);
+            tickPrices[i] = FixedPoint.fromDouble(item.getPrice() * 1.01);
+        }
+        valuation = PortfolioValuation.of(items);
+    }
+
+    /**
+     * 原有实现：两次 stream 遍历，每个持仓反复拆箱 Double
+     */
+    @Benchmark
+    public void streamDouble(Blackhole blackhole) {
+        double totalValue = items.stream()
+                .mapToDouble(item -> item.getQuantity() * item.getPrice())
+                .sum();
+        items.forEach(item -> {
+            double value = item.getQuantity() * item.getPrice();
+            blackhole.consume(value);
+            blackhole.consume((value / totalValue) * 100);
+        });
+    }
+
+    @Benchmark
+    public void bigDecimal(Blackhole blackhole) {
+        BigDecimal totalValue = BigDecimal.ZERO;
+        BigDecimal[] values = new BigDecimal[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            PortfolioItem item = items.get(i);
+            values[i] = BigDecimal.valueOf(item.getQuantity()).multiply(BigDecimal.valueOf(item.getPrice()))
+                    .setScale(FixedPoint.SCALE, RoundingMode.HALF_UP);
+            totalValue = totalValue.add(values[i]);
+        }
+        for (BigDecimal value : values) {
+            blackhole.consume(value.multiply(BigDecimal.valueOf(100)).divide(totalValue, 8, RoundingMode.HALF_UP));
+        }
+    }
+
+    /**
+     * 从持仓记录构建估值（含一次性的 Double -> 定点数转换）
+     */
+    @Benchmark
+    public void fixedPointBuild(Blackhole blackhole) {
+        PortfolioValuation built = PortfolioValuation.of(items);
+        for (int i = 0; i < built.size(); i++) {
+            blackhole.consume(built.getValueScaled(i));
+            blackhole.consume(built.getPercentage(i));
+        }
+    }
+
+    /**
+     * 已构建的估值核心上逐个持仓更新价格，无对象分配
+     */
+    @Benchmark
+    public long fixedPointReprice() {
+        for (int i = 0; i < tickPrices.length; i++) {
+            valuation.updatePrice(i, tickPrices[i]);
+        }
+        return valuation.getTotalValueScaled();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(ValuationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
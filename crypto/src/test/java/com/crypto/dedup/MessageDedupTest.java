@@ -0,0 +1,38 @@
+package com.crypto.dedup;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageDedupTest {
+
+    @Test
+    void hashIgnoresWhitespaceAndWidthDifferences() {
+        String hash = ContentHash.of("BTC 突破 10 万美元", "https://example.com/a");
+        assertEquals(hash, ContentHash.of("  BTC\t突破  10 万美元\n", " https://example.com/a "));
+        assertEquals(hash, ContentHash.of("ＢＴＣ 突破 １０ 万美元", "https://example.com/a"));
+        assertNotEquals(hash, ContentHash.of("BTC 突破 10 万美元", "https://example.com/b"));
+        assertNotEquals(ContentHash.of("a", null), ContentHash.of(null, "a"));
+    }
+
+    @Test
+    void bloomFilterHasNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(100_000, 0.01);
+        for (int i = 0; i < 100_000; i++) {
+            String hash = ContentHash.of("message " + i, null);
+            filter.put(ContentHash.high(hash), ContentHash.low(hash));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            String present = ContentHash.of("message " + i, null);
+            assertTrue(filter.mightContain(ContentHash.high(present), ContentHash.low(present)));
+            String absent = ContentHash.of("other " + i, null);
+            if (filter.mightContain(ContentHash.high(absent), ContentHash.low(absent))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, "误判过多：" + falsePositives);
+    }
+}
@@ -0,0 +1,56 @@
+package com.crypto.export;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ResultSetExporterTest {
+
+    @Test
+    void csvFieldsAreQuotedOnlyWhenNeeded() {
+        assertEquals("", ResultSetExporter.csvField(null));
+        assertEquals("plain", ResultSetExporter.csvField("plain"));
+        assertEquals("\"a,b\"", ResultSetExporter.csvField("a,b"));
+        assertEquals("\"say \"\"hi\"\"\"", ResultSetExporter.csvField("say \"hi\""));
+        assertEquals("\"line1\nline2\"", ResultSetExporter.csvField("line1\nline2"));
+        assertEquals("0.00000010", ResultSetExporter.csvField(new BigDecimal("1.0E-7").setScale(8)));
+    }
+
+    @Test
+    void writesOneJsonObjectPerLineWithComputedColumns() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getObject(1)).thenReturn(7L);
+        when(rs.getObject(2)).thenReturn("BTC \"up\"");
+        when(rs.getObject(3)).thenReturn(Timestamp.valueOf(LocalDateTime.of(2024, 1, 2, 3, 4, 5)));
+        when(rs.getObject(4)).thenReturn(null);
+        when(rs.getLong(1)).thenReturn(7L);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResultSetExporter exporter = new ResultSetExporter(ExportFormat.NDJSON, out, "id", "content", "created_at", "source")
+                .column("is_read", r -> r.getLong(1) == 7L);
+        exporter.processRow(rs);
+        exporter.processRow(rs);
+        assertEquals(2, exporter.finish());
+
+        String line = "{\"id\":7,\"content\":\"BTC \\\"up\\\"\",\"created_at\":\"2024-01-02 03:04:05.000000\","
+                + "\"source\":null,\"is_read\":true}\n";
+        assertEquals(line + line, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void emptyCsvExportStillHasHeader() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResultSetExporter exporter = new ResultSetExporter(ExportFormat.CSV, out, "id", "symbol");
+        assertEquals(0, exporter.finish());
+        assertEquals("id,symbol\r\n", out.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,68 @@
+package com.crypto.ingest;
+
+import com.crypto.dto.BatchSaveResult;
+import com.crypto.entity.CryptoCurrency;
+import com.crypto.service.CryptoCurrencyService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CryptoIngestQueueTest {
+
+    @Test
+    void blockPolicyAcceptsOrRefusesWholeBatch() throws Exception {
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CryptoCurrencyService service = mock(CryptoCurrencyService.class);
+        when(service.batchSaveOrUpdate(anyList())).thenAnswer(invocation -> {
+            flushing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            List<?> batch = invocation.getArgument(0);
+            BatchSaveResult result = new BatchSaveResult(batch.size());
+            result.setSuccessCount(batch.size());
+            return result;
+        });
+        CryptoIngestQueue queue = new CryptoIngestQueue(service, new SimpleMeterRegistry(), "async",
+                4, 1, 0, IngestOverflowPolicy.BLOCK, 100);
+        queue.start();
+        try {
+            // 写入线程取出第一批后阻塞在落库上，之后入队的数据留在队列中
+            assertTrue(queue.offer(Arrays.asList(quote("BTC"))));
+            assertTrue(flushing.await(5, TimeUnit.SECONDS));
+            assertTrue(queue.offer(Arrays.asList(quote("ETH"), quote("SOL"), quote("XRP"))));
+
+            // 只剩 1 个空位：等待超时后整批拒绝，不会只放入其中一条
+            assertFalse(queue.offer(Arrays.asList(quote("ADA"), quote("DOT"))));
+            assertEquals(3, queue.getStats().get("queueDepth"));
+            assertEquals(2L, queue.getStats().get("rejectedRows"));
+            // 超过队列容量的批量直接拒绝
+            assertFalse(queue.offer(Arrays.asList(quote("A"), quote("B"), quote("C"), quote("D"), quote("E"))));
+
+            // 队列腾出空间后整批入队
+            release.countDown();
+            assertTrue(queue.offer(Arrays.asList(quote("ADA"), quote("DOT"))));
+            assertEquals(6L, queue.getStats().get("receivedRows"));
+        } finally {
+            release.countDown();
+            queue.stop();
+        }
+        assertEquals(6L, queue.getStats().get("writtenRows"));
+    }
+
+    private static CryptoCurrency quote(String symbol) {
+        CryptoCurrency quote = new CryptoCurrency();
+        quote.setSymbol(symbol);
+        return quote;
+    }
+}
@@ -0,0 +1,119 @@
+package com.crypto.quote;
+
+import com.crypto.entity.CryptoCurrency;
+import com.crypto.repository.CryptoCurrencyRepository;
+import com.crypto.repository.QuoteVersionRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class QuoteSnapshotHolderTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Test
+    void nodesLoadingTheSameRowsAgreeOnVersionAndETag() {
+        CryptoCurrencyRepository first = mock(CryptoCurrencyRepository.class);
+        CryptoCurrencyRepository second = mock(CryptoCurrencyRepository.class);
+        when(first.findAll()).thenReturn(List.of(quote("BTC", "50000", 3), quote("ETH", "3000", 5)));
+        when(second.findAll()).thenReturn(List.of(quote("BTC", "50000", 3)));
+        when(second.findByQuoteVersionGreaterThan(3L)).thenReturn(List.of(quote("ETH", "3000", 5)));
+
+        QuoteVersionRepository versionsA = mock(QuoteVersionRepository.class);
+        QuoteVersionRepository versionsB = mock(QuoteVersionRepository.class);
+        when(versionsA.committedVersion()).thenReturn(5L);
+        when(versionsB.committedVersion()).thenReturn(3L, 5L);
+
+        QuoteSnapshotHolder nodeA = new QuoteSnapshotHolder(first, versionsA, 300_000);
+        QuoteSnapshotHolder nodeB = new QuoteSnapshotHolder(second, versionsB, 300_000);
+        nodeB.current();
+        nodeB.publish();
+
+        assertEquals(5, nodeA.current().getVersion());
+        assertEquals(nodeA.current().getETag(), nodeB.current().getETag());
+        // 增量加载后只返回版本更新的行；全量加载的节点对更早的 since 返回全量
+        assertEquals(List.of("ETH"), symbols(nodeB.current().changedSince(4)));
+        assertNull(nodeA.current().changedSince(4));
+    }
+
+    @Test
+    void refreshDropsDeletedSymbolsAndForcesFullList() {
+        CryptoCurrencyRepository repository = mock(CryptoCurrencyRepository.class);
+        QuoteVersionRepository versions = mock(QuoteVersionRepository.class);
+        when(versions.committedVersion()).thenReturn(5L);
+        when(repository.findAll()).thenReturn(List.of(quote("BTC", "50000", 3), quote("ETH", "3000", 5)));
+        QuoteSnapshotHolder holder = new QuoteSnapshotHolder(repository, versions, 300_000);
+        String before = holder.current().getETag();
+        List<String> removed = new ArrayList<>();
+        holder.addListener(new QuoteListener() {
+            @Override
+            public void onQuotesChanged(QuoteSnapshot snapshot, List<CryptoCurrency> changed) {
+            }
+
+            @Override
+            public void onQuotesRemoved(QuoteSnapshot snapshot, List<String> symbols) {
+                removed.addAll(symbols);
+            }
+        });
+
+        when(repository.findAll()).thenReturn(List.of(quote("BTC", "50000", 3)));
+        holder.refresh();
+        assertEquals(List.of("ETH"), removed);
+
+        // 版本不回退，已持有版本 5 的客户端改为拿到全量
+        assertNull(holder.current().get("ETH"));
+        assertEquals(5, holder.current().getVersion());
+        assertNotEquals(before, holder.current().getETag());
+        assertNull(holder.current().changedSince(5));
+    }
+
+    @Test
+    void laterVersionCommittedFirstDoesNotHideEarlierOne() {
+        CryptoCurrencyRepository repository = mock(CryptoCurrencyRepository.class);
+        QuoteVersionRepository versions = mock(QuoteVersionRepository.class);
+        when(repository.findAll()).thenReturn(List.of(quote("BTC", "50000", 3)));
+        when(versions.committedVersion()).thenReturn(3L);
+        QuoteSnapshotHolder holder = new QuoteSnapshotHolder(repository, versions, 300_000);
+        holder.current();
+        List<List<String>> notified = new ArrayList<>();
+        holder.addListener((snapshot, changed) -> notified.add(symbols(changed)));
+
+        // 版本 6 先提交，版本 5 仍未结束：快照版本停在 4
+        when(versions.committedVersion()).thenReturn(4L);
+        when(repository.findByQuoteVersionGreaterThan(3L)).thenReturn(List.of(quote("ETH", "3000", 6)));
+        holder.publish();
+        assertEquals(4, holder.current().getVersion());
+        assertEquals("3000", holder.current().get("ETH").getUsdPrice().toPlainString());
+
+        // 版本 5 提交后被增量加载；重新加载的版本 6 内容未变，不再通知
+        when(versions.committedVersion()).thenReturn(6L);
+        when(repository.findByQuoteVersionGreaterThan(4L))
+                .thenReturn(List.of(quote("BTC", "51000", 5), quote("ETH", "3000", 6)));
+        holder.publish();
+        assertEquals(6, holder.current().getVersion());
+        assertEquals("51000", holder.current().get("BTC").getUsdPrice().toPlainString());
+        assertEquals(List.of(List.of("ETH"), List.of("BTC")), notified);
+    }
+
+    private static List<String> symbols(List<CryptoCurrency> quotes) {
+        return quotes.stream().map(CryptoCurrency::getSymbol).toList();
+    }
+
+    private static CryptoCurrency quote(String symbol, String usdPrice, long quoteVersion) {
+        CryptoCurrency quote = new CryptoCurrency();
+        quote.setSymbol(symbol);
+        quote.setUsdPrice(new BigDecimal(usdPrice));
+        quote.setUpdateTime(TIME);
+        quote.setQuoteVersion(quoteVersion);
+        return quote;
+    }
+}
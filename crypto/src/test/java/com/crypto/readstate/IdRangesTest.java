@@ -0,0 +1,76 @@
+package com.crypto.readstate;
+
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class IdRangesTest {
+
+    private static final long BIG_ID = 5_000_000_000L;
+
+    @Test
+    void splitsBitmapIntoClosedRuns() {
+        Roaring64Bitmap bitmap = Roaring64Bitmap.bitmapOf(3, 7, 8, 9, 100);
+        bitmap.addRange(1000L, 5001L);
+        bitmap.runOptimize();
+
+        List<long[]> runs = IdRanges.of(bitmap, 10);
+        assertEquals(4, runs.size());
+        assertArrayEquals(new long[]{3, 3}, runs.get(0));
+        assertArrayEquals(new long[]{7, 9}, runs.get(1));
+        assertArrayEquals(new long[]{100, 100}, runs.get(2));
+        assertArrayEquals(new long[]{1000, 5000}, runs.get(3));
+
+        assertEquals(0, IdRanges.of(new Roaring64Bitmap(), 0).size());
+        assertNull(IdRanges.of(bitmap, 3));
+    }
+
+    @Test
+    void mergesRunsAcrossWindowsAndSkipsGapsBeyondIntRange() {
+        Roaring64Bitmap bitmap = new Roaring64Bitmap();
+        bitmap.addRange(1L, 3_000_001L);
+        bitmap.addLong(Integer.MAX_VALUE + 1L);
+        bitmap.addRange(BIG_ID, BIG_ID + 10);
+
+        List<long[]> runs = IdRanges.of(bitmap, 10);
+        assertEquals(3, runs.size());
+        assertArrayEquals(new long[]{1, 3_000_000}, runs.get(0));
+        assertArrayEquals(new long[]{Integer.MAX_VALUE + 1L, Integer.MAX_VALUE + 1L}, runs.get(1));
+        assertArrayEquals(new long[]{BIG_ID, BIG_ID + 9}, runs.get(2));
+    }
+
+    @Test
+    void serializedStateRoundTrips() {
+        Roaring64Bitmap bitmap = new Roaring64Bitmap();
+        bitmap.addRange(1L, 2_000_000L);
+        bitmap.addLong(3_000_017);
+        bitmap.addLong(BIG_ID);
+        bitmap.runOptimize();
+
+        byte[] bytes = ReadStateStore.serialize(bitmap);
+        assertEquals(bitmap, ReadStateStore.deserialize(bytes));
+    }
+
+    @Test
+    void readsLegacyIntBitmaps() {
+        RoaringBitmap legacy = RoaringBitmap.bitmapOf(5, 6, 7, Integer.MAX_VALUE);
+        legacy.add(1000L, 70_000L);
+        legacy.runOptimize();
+        ByteBuffer buffer = ByteBuffer.allocate(legacy.serializedSizeInBytes());
+        legacy.serialize(buffer);
+
+        Roaring64Bitmap expected = Roaring64Bitmap.bitmapOf(5, 6, 7, Integer.MAX_VALUE);
+        expected.addRange(1000L, 70_000L);
+        Roaring64Bitmap converted = ReadStateStore.deserialize(buffer.array());
+        assertEquals(expected.getLongCardinality(), converted.getLongCardinality());
+        assertEquals(IdRanges.of(expected, 10).size(), IdRanges.of(converted, 10).size());
+        expected.forEach(id -> assertEquals(true, converted.contains(id)));
+    }
+}
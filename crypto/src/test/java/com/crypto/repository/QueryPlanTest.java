@@ -0,0 +1,328 @@
+package com.crypto.repository;
+
+import com.crypto.dto.MessageCursor;
+import com.crypto.dto.MessageFilter;
+import com.crypto.entity.Message;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 在迁移后的真实 MySQL 上调用各仓库的查询方法，从 general_log 取出实际发出的 SQL 执行 EXPLAIN，出现全表扫描即失败
+ * 检查的是仓库（含 Spring Data 派生查询和 Specification）真正执行的语句，仓库 SQL 改动后无需同步修改本测试
+ * 需要本地 Docker，没有 Docker 时自动跳过
+ */
+@DataJpaTest(properties = "spring.flyway.enabled=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({MessageJdbcRepository.class, PortfolioJdbcRepository.class, SentimentRollupRepository.class})
+@Testcontainers(disabledWithoutDocker = true)
+class QueryPlanTest {
+
+    @Container
+    private static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+
+    private static final int PORTFOLIOS = 20;
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+    private static final MessageCursor CURSOR = new MessageCursor(LocalDateTime.of(2025, 1, 1, 12, 0), 500);
+
+    @Autowired
+    private MessageRepository messageRepository;
+    @Autowired
+    private MessageJdbcRepository messageJdbcRepository;
+    @Autowired
+    private PortfolioItemRepository portfolioItemRepository;
+    @Autowired
+    private PortfolioHistoryRepository portfolioHistoryRepository;
+    @Autowired
+    private PortfolioJdbcRepository portfolioJdbcRepository;
+    @Autowired
+    private ReportRepository reportRepository;
+    @Autowired
+    private ReportSuggestionRepository reportSuggestionRepository;
+    @Autowired
+    private CryptoCurrencyRepository cryptoCurrencyRepository;
+    @Autowired
+    private PriceCandleRepository priceCandleRepository;
+    @Autowired
+    private SentimentRollupRepository sentimentRollupRepository;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", MYSQL::getJdbcUrl);
+        registry.add("spring.datasource.username", MYSQL::getUsername);
+        registry.add("spring.datasource.password", MYSQL::getPassword);
+    }
+
+    @BeforeAll
+    static void migrateAndSeed() throws SQLException {
+        Flyway.configure().dataSource(MYSQL.getJdbcUrl(), MYSQL.getUsername(), MYSQL.getPassword()).load().migrate();
+        try (Connection connection = connect()) {
+            seed(connection);
+        }
+        try (Connection admin = admin(); Statement statement = admin.createStatement()) {
+            statement.execute("SET GLOBAL log_output = 'TABLE'");
+            statement.execute("SET GLOBAL general_log = 'ON'");
+        }
+    }
+
+    @Test
+    void repositoryQueriesUseIndexes() throws SQLException {
+        Map<String, List<String>> queries = new LinkedHashMap<>();
+        MessageFilter none = new MessageFilter();
+        MessageFilter btc = new MessageFilter();
+        btc.setCryptoType("BTC");
+        MessageFilter negativeDay = new MessageFilter();
+        negativeDay.setSentiment("negative");
+        negativeDay.setStartDate(LocalDateTime.of(2025, 1, 1, 0, 0));
+        negativeDay.setEndDate(LocalDateTime.of(2025, 1, 2, 0, 0));
+        MessageFilter eth = new MessageFilter();
+        eth.setCryptoType("ETH");
+        LocalDateTime day = LocalDateTime.of(2025, 1, 2, 0, 0);
+
+        queries.put("消息列表-无筛选", capture(() -> messageRepository.findAllBy(PageRequest.of(2, 10, NEWEST_FIRST))));
+        queries.put("消息列表-币种（含计数）", capture(() ->
+                messageRepository.findAll(MessageSpecifications.matches(btc), PageRequest.of(0, 10, NEWEST_FIRST))));
+        queries.put("消息列表-情感+时间范围（含计数）", capture(() ->
+                messageRepository.findAll(MessageSpecifications.matches(negativeDay), PageRequest.of(0, 10, NEWEST_FIRST))));
+        queries.put("消息流-游标", capture(() -> feed(eth, CURSOR)));
+        queries.put("消息键-按位图过滤扫描", capture(() -> messageJdbcRepository.findKeys(eth, CURSOR, false, 1000)));
+        queries.put("消息-按 id 加载", capture(() -> messageRepository.findAllById(List.of(10L, 20L, 30L))));
+        queries.put("消息去重-按哈希", capture(() -> messageJdbcRepository.findExistingHashes(List.of("00ab", "ff01"))));
+        queries.put("归档-最早消息", capture(() -> messageJdbcRepository.findEarliestCreatedBefore(LocalDateTime.of(2025, 1, 5, 0, 0))));
+        queries.put("归档-按月导出", capture(() -> messageJdbcRepository.findRowsBetween(LocalDateTime.of(2025, 1, 1, 0, 0),
+                LocalDateTime.of(2025, 2, 1, 0, 0), new MessageCursor(LocalDateTime.of(2025, 1, 3, 0, 0), 100), 1000)));
+        queries.put("情感汇总-全部币种", capture(() -> sentimentRollupRepository.sum(List.of(
+                new Object[]{"1d", day, day.plusDays(7)},
+                new Object[]{"1h", day.minusHours(4), day}), null)));
+        queries.put("情感汇总-单币种", capture(() -> sentimentRollupRepository.sum(List.<Object[]>of(
+                new Object[]{"1d", day, day.plusDays(7)}), "BTC")));
+        queries.put("持仓-按组合", capture(() -> portfolioItemRepository.findByPortfolioIdOrderByIdAsc(7L)));
+        queries.put("持仓-加锁读取", capture(() -> portfolioJdbcRepository.findAllForUpdate(7L)));
+        queries.put("持仓-组合列表", capture(() -> portfolioJdbcRepository.findPortfolioIds()));
+        queries.put("持仓历史-按组合加载", capture(() -> portfolioJdbcRepository.forEachHistory(7L, rs -> { })));
+        queries.put("持仓历史-日期范围", capture(() ->
+                portfolioHistoryRepository.findByPortfolioIdAndDateGreaterThanEqualOrderByDateAsc(7L, LocalDate.of(2025, 1, 20))));
+        queries.put("持仓历史-单日", capture(() ->
+                portfolioHistoryRepository.findByPortfolioIdAndDateOrderByCryptoTypeAsc(7L, LocalDate.of(2025, 1, 15))));
+        queries.put("持仓历史-区间", capture(() ->
+                portfolioJdbcRepository.findHistoryBetween(7L, LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 15))));
+        queries.put("持仓历史-按更新时间补齐", capture(() ->
+                portfolioJdbcRepository.findHistoryDatesUpdatedSince(LocalDateTime.now().plusDays(1))));
+        queries.put("报告-按组合分页", capture(() -> reportRepository.findByPortfolioId(7L, PageRequest.of(0, 10, Sort.by("createdAt", "id")))));
+        queries.put("报告-按组合和状态", capture(() ->
+                reportRepository.findByPortfolioIdAndStatus(7L, "rejected", PageRequest.of(0, 10, Sort.by("createdAt", "id")))));
+        queries.put("待处理报告数-按组合", capture(() -> reportRepository.countPendingReports(7L)));
+        queries.put("待处理报告数-对账", capture(() -> reportRepository.countPendingReportsByPortfolio()));
+        queries.put("报告建议-按报告", capture(() -> reportSuggestionRepository.findByPortfolioIdAndReportId(7L, 7L)));
+        queries.put("报告建议-按币种", capture(() -> reportSuggestionRepository.findByCryptoType("SOL")));
+        queries.put("行情-按币种", capture(() -> cryptoCurrencyRepository.findBySymbolIn(List.of("S1", "S2"))));
+        queries.put("行情-按版本增量", capture(() -> cryptoCurrencyRepository.findByQuoteVersionGreaterThan(1990)));
+        queries.put("K线-区间", capture(() -> priceCandleRepository.findBySymbolAndBarIntervalAndBucketStartBetweenOrderByBucketStartDesc(
+                "BTC", "1h", LocalDateTime.of(2025, 1, 1, 0, 0), LocalDateTime.of(2025, 1, 2, 0, 0), PageRequest.of(0, 2000))));
+
+        List<String> fullScans = new ArrayList<>();
+        try (Connection admin = admin(); Statement statement = admin.createStatement()) {
+            for (Map.Entry<String, List<String>> query : queries.entrySet()) {
+                assertFalse(query.getValue().isEmpty(), "没有捕获到查询：" + query.getKey());
+                for (String sql : query.getValue()) {
+                    try (ResultSet plan = statement.executeQuery("EXPLAIN " + sql)) {
+                        while (plan.next()) {
+                            if ("ALL".equals(plan.getString("type"))) {
+                                fullScans.add(query.getKey() + " -> " + plan.getString("table") + "：" + sql);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        assertTrue(fullScans.isEmpty(), "以下查询出现全表扫描：" + fullScans);
+    }
+
+    @Test
+    void keysetCursorScansCompositeIndexRange() throws SQLException {
+        List<String> statements = capture(() -> feed(new MessageFilter(), CURSOR));
+        assertEquals(1, statements.size(), statements.toString());
+        try (Connection admin = admin(); Statement statement = admin.createStatement();
+             ResultSet plan = statement.executeQuery("EXPLAIN " + statements.get(0))) {
+            assertTrue(plan.next());
+            assertEquals("range", plan.getString("type"));
+            assertEquals("idx_messages_created", plan.getString("key"));
+            String extra = plan.getString("Extra");
+            assertTrue(extra == null || !extra.contains("filesort"), "游标分页不应排序：" + extra);
+        }
+    }
+
+    // 与 MessageServiceImpl.getMessageFeed 相同的查询：筛选条件加游标，按 (created_at, id) 倒序多取一条
+    private List<Message> feed(MessageFilter filter, MessageCursor cursor) {
+        Specification<Message> spec = MessageSpecifications.matches(filter).and(MessageSpecifications.beyond(cursor, false));
+        return messageRepository.findBy(spec, q -> q.sortBy(NEWEST_FIRST).limit(11).all());
+    }
+
+    /**
+     * 执行一次仓库调用，返回它发出的 SELECT 语句（驱动在客户端绑定参数，general_log 中是完整的 SQL）
+     */
+    private List<String> capture(Runnable call) {
+        try (Connection admin = admin(); Statement statement = admin.createStatement()) {
+            statement.execute("TRUNCATE TABLE mysql.general_log");
+            call.run();
+            List<String> statements = new ArrayList<>();
+            try (ResultSet rs = statement.executeQuery("SELECT CONVERT(argument USING utf8mb4) FROM mysql.general_log "
+                    + "WHERE command_type = 'Query' AND thread_id <> CONNECTION_ID() ORDER BY event_time")) {
+                while (rs.next()) {
+                    String sql = rs.getString(1).trim();
+                    String lower = sql.toLowerCase();
+                    if (lower.startsWith("select") && !lower.startsWith("select @@") && !lower.contains("connection_id()")) {
+                        statements.add(sql);
+                    }
+                }
+            }
+            return statements;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Connection connect() throws SQLException {
+        return DriverManager.getConnection(MYSQL.getJdbcUrl(), MYSQL.getUsername(), MYSQL.getPassword());
+    }
+
+    // 开关 general_log 需要 root，容器的 root 密码与测试用户相同
+    private static Connection admin() throws SQLException {
+        return DriverManager.getConnection(MYSQL.getJdbcUrl(), "root", MYSQL.getPassword());
+    }
+
+    /**
+     * 造足够的数据让优化器按真实分布选择执行计划，空表的 EXPLAIN 没有参考价值
+     */
+    private static void seed(Connection connection) throws SQLException {
+        String[] symbols = {"BTC", "ETH", "SOL", "USDT", "BNB", "XRP", "ADA", "DOGE", "DOT", "AVAX"};
+        String[] sentiments = {"positive", "negative", "neutral"};
+        String[] statuses = {"pending", "published", "archived", "rejected", "draft", "reviewing", "failed", "expired"};
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        connection.setAutoCommit(false);
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO messages (crypto_type, content, sentiment, source, created_at, is_read) VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < 20000; i++) {
+                ps.setString(1, symbols[i % symbols.length]);
+                ps.setString(2, "message " + i);
+                ps.setString(3, sentiments[i % sentiments.length]);
+                ps.setString(4, "test");
+                ps.setTimestamp(5, Timestamp.valueOf(start.plusMinutes(i)));
+                ps.setBoolean(6, i % 10 != 0);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        // 多个投资组合，按组合的查询只应扫描该组合的索引区间
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO portfolio_items (portfolio_id, crypto_type, percentage, price, quantity, value) VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (long portfolio = 1; portfolio <= PORTFOLIOS; portfolio++) {
+                for (String symbol : symbols) {
+                    ps.setLong(1, portfolio);
+                    ps.setString(2, symbol);
+                    ps.setDouble(3, 10.0);
+                    ps.setDouble(4, 100.0);
+                    ps.setDouble(5, 1.0);
+                    ps.setDouble(6, 100.0);
+                    ps.addBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO portfolio_history (portfolio_id, crypto_type, date, percentage, total_value) VALUES (?, ?, ?, ?, ?)")) {
+            for (long portfolio = 1; portfolio <= PORTFOLIOS; portfolio++) {
+                for (int day = 0; day < 365; day++) {
+                    for (String symbol : symbols) {
+                        ps.setLong(1, portfolio);
+                        ps.setString(2, symbol);
+                        ps.setObject(3, LocalDate.of(2024, 2, 1).plusDays(day));
+                        ps.setDouble(4, 10.0);
+                        ps.setDouble(5, 1000000.0);
+                        ps.addBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+        }
+        try (PreparedStatement report = connection.prepareStatement(
+                "INSERT INTO reports (title, status, created_at, message_count, portfolio_id) VALUES (?, ?, ?, ?, ?)");
+             PreparedStatement suggestion = connection.prepareStatement(
+                     "INSERT INTO report_suggestions (crypto_type, current_percentage, suggested_percentage, reason, report_id, portfolio_id) "
+                             + "VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (int i = 1; i <= 2000; i++) {
+                long portfolio = i % PORTFOLIOS + 1;
+                report.setString(1, "report " + i);
+                report.setString(2, statuses[i % statuses.length]);
+                report.setTimestamp(3, Timestamp.valueOf(start.plusHours(i)));
+                report.setInt(4, 100);
+                report.setLong(5, portfolio);
+                report.addBatch();
+                for (String symbol : symbols) {
+                    suggestion.setString(1, symbol);
+                    suggestion.setDouble(2, 10.0);
+                    suggestion.setDouble(3, 12.0);
+                    suggestion.setString(4, "test");
+                    suggestion.setLong(5, i);
+                    suggestion.setLong(6, portfolio);
+                    suggestion.addBatch();
+                }
+            }
+            report.executeBatch();
+            suggestion.executeBatch();
+        }
+        // 行情表：每个币种最后一次写入的版本各不相同，增量加载只取最新的少数几行
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO crypto_currency (symbol, name, usd_price, update_time, quote_version) VALUES (?, ?, ?, ?, ?)")) {
+            for (int i = 1; i <= 2000; i++) {
+                ps.setString(1, "S" + i);
+                ps.setString(2, "coin " + i);
+                ps.setBigDecimal(3, BigDecimal.ONE);
+                ps.setTimestamp(4, Timestamp.valueOf(start));
+                ps.setLong(5, i);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        connection.commit();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO message_sentiment_rollup (bucket_interval, bucket_start, crypto_type, sentiment, message_count) "
+                    + "SELECT '1h', DATE_FORMAT(created_at, '%Y-%m-%d %H:00:00'), crypto_type, sentiment, COUNT(*) FROM messages GROUP BY 2, 3, 4");
+            statement.execute("INSERT INTO message_sentiment_rollup (bucket_interval, bucket_start, crypto_type, sentiment, message_count) "
+                    + "SELECT '1d', DATE(created_at), crypto_type, sentiment, COUNT(*) FROM messages GROUP BY 2, 3, 4");
+            statement.execute("ANALYZE TABLE crypto_currency, messages, portfolio_items, portfolio_history, reports, report_suggestions, "
+                    + "message_sentiment_rollup");
+        }
+    }
+}
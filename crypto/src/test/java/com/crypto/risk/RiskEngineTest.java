@@ -0,0 +1,45 @@
+package com.crypto.risk;
+
+import com.crypto.repository.PriceHistoryJdbcRepository;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class RiskEngineTest {
+
+    @Test
+    void noModelWithoutDailyCloses() {
+        PriceHistoryJdbcRepository repository = mock(PriceHistoryJdbcRepository.class);
+        RiskEngine engine = new RiskEngine(repository, 30, 10, "BTC", 0, 60_000);
+        try {
+            // 没有任何日线：不抛出异常，风险数据为 null
+            engine.warm();
+            assertNull(engine.current());
+            assertThrows(IllegalStateException.class, engine::model);
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    void failedBuildIsNotRetriedWithinBackoff() {
+        PriceHistoryJdbcRepository repository = mock(PriceHistoryJdbcRepository.class);
+        doThrow(new IllegalStateException("数据库不可用"))
+                .when(repository).streamDailyCloses(any(), any(), any());
+        RiskEngine engine = new RiskEngine(repository, 30, 10, "BTC", 0, 60_000);
+        try {
+            engine.warm();
+            assertNull(engine.current());
+            assertThrows(IllegalStateException.class, engine::model);
+            verify(repository, times(1)).streamDailyCloses(any(), any(), any());
+        } finally {
+            engine.shutdown();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.crypto.risk;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RiskModelTest {
+
+    private static final LocalDate START = LocalDate.of(2025, 1, 1);
+    private static final int DAYS = 41;
+
+    @Test
+    void computesPairwiseStatisticsOnOverlap() {
+        PriceMatrix.Builder builder = PriceMatrix.builder(START, DAYS);
+        double btc = 100;
+        double eth = 50;
+        for (int day = 0; day < DAYS; day++) {
+            // BTC 交替涨跌 2%，ETH 始终是 BTC 收益的 2 倍；SOL 从第 20 天才有价格，第 30 天缺失
+            double move = day % 2 == 0 ? 0.02 : -0.02;
+            if (day > 0) {
+                btc *= 1 + move;
+                eth *= 1 + 2 * move;
+            }
+            builder.add("BTC", START.plusDays(day), btc);
+            builder.add("ETH", START.plusDays(day), eth);
+            if (day >= 20 && day != 30) {
+                builder.add("SOL", START.plusDays(day), 10);
+            }
+        }
+        RiskModel model = RiskModel.compute(builder.build(), 10, "BTC", new ForkJoinPool(2));
+
+        int btcIndex = model.indexOf("BTC");
+        int ethIndex = model.indexOf("ETH");
+        assertEquals(1.0, model.getBeta(btcIndex), 1e-9);
+        assertEquals(2.0, model.getBeta(ethIndex), 1e-9);
+        assertEquals(1.0, model.getCorrelation(btcIndex, ethIndex), 1e-9);
+        assertEquals(0.02 * Math.sqrt(365) * Math.sqrt(10.0 / 9), model.getVolatility(btcIndex), 1e-3);
+        // 价格不变的币种：波动率与回撤为 0，相关系数无法计算
+        int solIndex = model.indexOf("SOL");
+        assertEquals(0.0, model.getVolatility(solIndex), 1e-12);
+        assertEquals(0.0, model.getMaxDrawdown(solIndex), 1e-12);
+        assertTrue(Double.isNaN(model.getCorrelation(solIndex, btcIndex)));
+        assertEquals(LocalDate.of(2025, 2, 10), model.getAsOf());
+    }
+
+    @Test
+    void evaluatesPortfolioAgainstCovariance() {
+        PriceMatrix.Builder builder = PriceMatrix.builder(START, DAYS);
+        double btc = 100;
+        for (int day = 0; day < DAYS; day++) {
+            if (day > 0) {
+                btc *= day % 2 == 0 ? 1.02 : 0.98;
+            }
+            builder.add("BTC", START.plusDays(day), btc);
+            builder.add("USDT", START.plusDays(day), 1);
+        }
+        RiskModel model = RiskModel.compute(builder.build(), 10, "BTC", ForkJoinPool.commonPool());
+
+        PortfolioRisk half = model.evaluate(new String[]{"BTC", "USDT", "UNKNOWN"}, new double[]{0.5, 0.4, 0.1}, true);
+        PortfolioRisk full = model.evaluate(new String[]{"BTC"}, new double[]{1.0}, false);
+        assertEquals(0.9, half.getCoverage(), 1e-12);
+        assertEquals(full.getVolatility() / 2, half.getVolatility(), 1e-9);
+        assertEquals(full.getParametricVar99() / 2, half.getParametricVar99(), 1e-9);
+        assertEquals(0.01, half.getHistoricalVar95(), 1e-9);
+        assertEquals(0.5, half.getBeta(), 1e-9);
+        assertTrue(half.getMaxDrawdown() > 0 && half.getMaxDrawdown() < full.getMaxDrawdown());
+        assertEquals(DAYS - 1 - 10 + 1, half.getRollingVolatility().length);
+        assertEquals(0, full.getRollingVolatility().length);
+    }
+}
@@ -0,0 +1,80 @@
+package com.crypto.risk;
+
+import com.crypto.entity.PortfolioItem;
+import com.crypto.valuation.PortfolioValuation;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScenarioBasisTest {
+
+    private static final LocalDate START = LocalDate.of(2025, 1, 1);
+
+    @Test
+    void computesTradesFeesAndTurnover() {
+        ScenarioBasis basis = basis();
+
+        // BTC 60% -> 30%，ETH 40% 不变，新买入 SOL 20%，剩余 10% 现金；DOGE 没有行情无法买入
+        ScenarioResult result = basis.evaluate("half", Map.of("BTC", 30.0, "SOL", 20.0, "DOGE", 5.0), true);
+        assertEquals(2, result.getTradeCount());
+        assertEquals(2000.0, result.getBuyValue(), 1e-6);
+        assertEquals(3000.0, result.getSellValue(), 1e-6);
+        assertEquals(5.0, result.getFees(), 1e-9);
+        assertEquals(25.0, result.getTurnover(), 1e-9);
+        assertEquals(10.0, result.getCashWeight(), 1e-9);
+        assertEquals(List.of("DOGE"), result.getUnpriced());
+        ScenarioResult.Trade sol = result.getTrades().get(1);
+        assertEquals("SOL", sol.getAsset());
+        assertEquals("BUY", sol.getSide());
+        assertEquals(100.0, sol.getQuantity(), 1e-9);
+        // 只剩 30% BTC 与价格不变的 ETH、SOL：波动率为当前持仓（60% BTC）的一半
+        assertEquals(basis.getBaseline().getVolatility() / 2, result.getRisk().getVolatility(), 1e-9);
+    }
+
+    @Test
+    void normalizesOverweightTargetsAndKeepsOrderInParallel() {
+        ScenarioBasis basis = basis();
+
+        ScenarioResult scaled = basis.evaluate("over", Map.of("BTC", 120.0), false);
+        assertTrue(scaled.isNormalized());
+        assertEquals(0.0, scaled.getCashWeight(), 1e-9);
+        assertTrue(scaled.getTrades().isEmpty());
+
+        List<ScenarioResult> results = basis.evaluateAll(List.of("a", "b", "c"),
+                List.of(Map.of(), Map.of("ETH", 0.0), Map.of("BTC", 100.0, "ETH", 0.0)), false, new ForkJoinPool(2));
+        assertEquals(List.of("a", "b", "c"), results.stream().map(ScenarioResult::getName).toList());
+        assertEquals(0, results.get(0).getTradeCount());
+        assertEquals(40.0, results.get(1).getCashWeight(), 1e-9);
+    }
+
+    // 持仓：BTC 6000（60%）、ETH 4000（40%）；SOL 只有行情价格 20
+    private static ScenarioBasis basis() {
+        PriceMatrix.Builder builder = PriceMatrix.builder(START, 31);
+        double btc = 100;
+        for (int day = 0; day < 31; day++) {
+            if (day > 0) {
+                btc *= day % 2 == 0 ? 1.03 : 0.97;
+            }
+            builder.add("BTC", START.plusDays(day), btc);
+            builder.add("ETH", START.plusDays(day), 50);
+            builder.add("SOL", START.plusDays(day), 20);
+        }
+        RiskModel model = RiskModel.compute(builder.build(), 10, "BTC", ForkJoinPool.commonPool());
+        PortfolioValuation valuation = PortfolioValuation.of(List.of(item("BTC", 0.1, 60000), item("ETH", 2, 2000)));
+        return ScenarioBasis.of(valuation, Map.of("SOL", 20.0), model, 0.001, 1);
+    }
+
+    private static PortfolioItem item(String symbol, double quantity, double price) {
+        PortfolioItem item = new PortfolioItem();
+        item.setCryptoType(symbol);
+        item.setQuantity(quantity);
+        item.setPrice(price);
+        return item;
+    }
+}
@@ -0,0 +1,51 @@
+package com.crypto.scheduler;
+
+import com.crypto.entity.PortfolioHistory;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PortfolioBackupJobTest {
+
+    private static final LocalDate FROM = LocalDate.of(2025, 3, 1);
+
+    @Test
+    void carriesForwardLastRecordedDayIntoGaps() {
+        List<PortfolioHistory> previous = List.of(row(FROM.minusDays(3), "BTC", 100.0, 500.0));
+        Map<LocalDate, List<PortfolioHistory>> recorded = Map.of(
+                FROM.plusDays(2), List.of(row(FROM.plusDays(2), "ETH", 60.0, 800.0), row(FROM.plusDays(2), "SOL", 40.0, 800.0)));
+
+        List<PortfolioHistory> fills = PortfolioBackupJob.fillMissingDays(previous, recorded, FROM, FROM.plusDays(4));
+
+        // 3/1、3/2 沿用 from 之前的 BTC，3/3 已有记录不动，3/4 沿用 3/3 的 ETH、SOL，今天（3/5）不在补齐范围内
+        assertEquals(4, fills.size());
+        assertEquals(FROM, fills.get(0).getDate());
+        assertEquals("BTC", fills.get(1).getCryptoType());
+        assertEquals(FROM.plusDays(1), fills.get(1).getDate());
+        assertEquals(FROM.plusDays(3), fills.get(2).getDate());
+        assertEquals("ETH", fills.get(2).getCryptoType());
+        assertEquals(800.0, fills.get(3).getTotalValue());
+    }
+
+    @Test
+    void doesNotFillBeforeFirstRecordedDay() {
+        Map<LocalDate, List<PortfolioHistory>> recorded = Map.of(
+                FROM.plusDays(3), List.of(row(FROM.plusDays(3), "BTC", 100.0, 500.0)));
+
+        assertTrue(PortfolioBackupJob.fillMissingDays(List.of(), recorded, FROM, FROM.plusDays(4)).isEmpty());
+    }
+
+    private static PortfolioHistory row(LocalDate date, String symbol, double percentage, double totalValue) {
+        PortfolioHistory history = new PortfolioHistory();
+        history.setDate(date);
+        history.setCryptoType(symbol);
+        history.setPercentage(percentage);
+        history.setTotalValue(totalValue);
+        return history;
+    }
+}
@@ -0,0 +1,77 @@
+package com.crypto.search;
+
+import com.crypto.dto.MessageFilter;
+import com.crypto.entity.Message;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageSearchIndexTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Test
+    void ranksAndFiltersMatches() throws Exception {
+        try (MessageSearchIndex index = new MessageSearchIndex(new ByteBuffersDirectory())) {
+            index.index(List.of(
+                    message(1, "BTC", "positive", "比特币 ETF 获批，比特币价格大涨", "Twitter", 0),
+                    message(2, "ETH", "neutral", "以太坊升级完成，比特币持平", "Reddit", 1),
+                    message(3, "BTC", "negative", "矿工抛售导致价格下跌", "比特币论坛", 2),
+                    message(4, "SOL", "positive", "Solana network upgrade", "News", 3)));
+
+            MessageFilter none = new MessageFilter();
+            MessageSearchIndex.SearchResult hits = index.search("比特币", none, null, 0, 10);
+            assertEquals(3, hits.getTotalHits());
+            // 正文两次命中排在最前，仅来源命中的权重最低
+            assertEquals(List.of(1L, 2L, 3L), hits.getIds());
+
+            assertEquals(List.of(4L), index.search("UPGRADE network", none, null, 0, 10).getIds());
+            assertEquals(0, index.search("比特币 -价格 +以太坊 -升级", none, null, 0, 10).getTotalHits());
+
+            MessageFilter btc = new MessageFilter();
+            btc.setCryptoType("BTC");
+            btc.setStartDate(BASE.plusHours(1));
+            assertEquals(List.of(3L), index.search("比特币", btc, null, 0, 10).getIds());
+
+            MessageSearchIndex.SearchResult odd = index.search("比特币", none, id -> id % 2 == 1, 0, 1);
+            assertEquals(2, odd.getTotalHits());
+            assertEquals(List.of(1L), odd.getIds());
+            assertEquals(List.of(3L), index.search("比特币", none, id -> id % 2 == 1, 1, 1).getIds());
+        }
+    }
+
+    @Test
+    void reindexReplacesAndCheckpointSurvivesReopen() throws Exception {
+        Directory directory = new ByteBuffersDirectory();
+        try (MessageSearchIndex index = new MessageSearchIndex(directory)) {
+            index.index(List.of(message(7, "BTC", "neutral", "halving soon", "Twitter", 0)));
+            index.index(List.of(message(7, "BTC", "neutral", "halving done", "Twitter", 0)));
+            assertEquals(1, index.numDocs());
+            assertEquals(0, index.search("soon", new MessageFilter(), null, 0, 10).getTotalHits());
+            index.commit(7);
+        }
+        try (MessageSearchIndex index = new MessageSearchIndex(directory)) {
+            assertEquals(7, index.getCheckpoint());
+            assertEquals(List.of(7L), index.search("done", new MessageFilter(), null, 0, 10).getIds());
+            index.delete(List.of(7L));
+            assertTrue(index.search("done", new MessageFilter(), null, 0, 10).getIds().isEmpty());
+        }
+    }
+
+    private static Message message(long id, String cryptoType, String sentiment, String content, String source, int hours) {
+        Message message = new Message();
+        message.setId(id);
+        message.setCryptoType(cryptoType);
+        message.setSentiment(sentiment);
+        message.setContent(content);
+        message.setSource(source);
+        message.setCreatedAt(BASE.plusHours(hours));
+        return message;
+    }
+}
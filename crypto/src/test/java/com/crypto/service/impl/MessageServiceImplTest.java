@@ -0,0 +1,101 @@
+package com.crypto.service.impl;
+
+import com.crypto.archive.ArchiveSegment;
+import com.crypto.archive.ArchiveStorage;
+import com.crypto.archive.ArchivedMessageReader;
+import com.crypto.dto.MessageFilter;
+import com.crypto.entity.Message;
+import com.crypto.readstate.ReadStateStore;
+import com.crypto.repository.MessageArchiveSegmentRepository;
+import com.crypto.repository.MessageJdbcRepository;
+import com.crypto.repository.MessageReadStateRepository;
+import com.crypto.repository.MessageRepository;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MessageServiceImplTest {
+
+    // 超出 int 范围的 BIGINT id
+    private static final long READ_ID = 5_000_000_001L;
+    private static final long UNREAD_ID = 5_000_000_002L;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @TempDir
+    Path archiveDir;
+
+    @Test
+    void archivedReadsApplyReadStateToBigIds() throws Exception {
+        ArchiveStorage storage = new ArchiveStorage(Jackson2ObjectMapperBuilder.json().build(), archiveDir.toString());
+        try (SequenceWriter writer = storage.create(storage.resolve("messages-2024-01.ndjson.gz"))) {
+            writer.write(message(READ_ID, START.plusDays(1)));
+            writer.write(message(UNREAD_ID, START.plusDays(2)));
+        }
+        ArchiveSegment segment = new ArchiveSegment();
+        segment.setId(1L);
+        segment.setStatus(ArchiveSegment.PURGED);
+        segment.setFilePath("messages-2024-01.ndjson.gz");
+        MessageArchiveSegmentRepository segments = mock(MessageArchiveSegmentRepository.class);
+        when(segments.findOverlapping(any(), any())).thenReturn(List.of(segment));
+        when(segments.findContainingId(anyLong())).thenReturn(List.of(segment));
+
+        MessageReadStateRepository readStates = mock(MessageReadStateRepository.class);
+        when(readStates.insert(anyString(), any())).thenReturn(true);
+        ReadStateStore readStateStore = new ReadStateStore(readStates, mock(MessageJdbcRepository.class), "default", 5000, 100);
+        readStateStore.update("default", readIds -> {
+            readIds.addLong(READ_ID);
+            return true;
+        });
+        MessageRepository messageRepository = mock(MessageRepository.class);
+        when(messageRepository.findById(anyLong())).thenReturn(Optional.empty());
+
+        MessageServiceImpl service = new MessageServiceImpl();
+        ReflectionTestUtils.setField(service, "readStateStore", readStateStore);
+        ReflectionTestUtils.setField(service, "messageRepository", messageRepository);
+        ReflectionTestUtils.setField(service, "archivedMessageReader", new ArchivedMessageReader(segments, storage));
+
+        MessageFilter unread = new MessageFilter();
+        unread.setIsRead(false);
+        assertEquals(List.of(UNREAD_ID), ids(service.getArchivedMessages(unread, 1, 10)));
+        MessageFilter read = new MessageFilter();
+        read.setIsRead(true);
+        Map<String, Object> page = service.getArchivedMessages(read, 1, 10);
+        assertEquals(List.of(READ_ID), ids(page));
+        assertEquals(1L, page.get("total"));
+
+        assertTrue(service.getMessageById(READ_ID, null).getIsRead());
+        assertFalse(service.getMessageById(UNREAD_ID, null).getIsRead());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Long> ids(Map<String, Object> page) {
+        return ((List<Message>) page.get("records")).stream().map(Message::getId).toList();
+    }
+
+    private static Message message(long id, LocalDateTime createdAt) {
+        Message message = new Message();
+        message.setId(id);
+        message.setCryptoType("BTC");
+        message.setContent("content " + id);
+        message.setCreatedAt(createdAt);
+        message.setIsRead(false);
+        return message;
+    }
+}
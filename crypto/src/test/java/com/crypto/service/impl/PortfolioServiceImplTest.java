@@ -0,0 +1,48 @@
+package com.crypto.service.impl;
+
+import com.crypto.entity.PortfolioItem;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PortfolioServiceImplTest {
+
+    @Test
+    void diffWritesOnlyChangedPositions() {
+        List<PortfolioItem> current = List.of(item(1L, "BTC", 1.0, 40000.0), item(2L, "ETH", 10.0, 2000.0),
+                item(3L, "SOL", 100.0, 100.0), item(4L, "ETH", 5.0, 2000.0));
+        PortfolioItem btc = item(null, "BTC", 1.0, 40000.0);
+        PortfolioItem eth = item(null, "ETH", 12.0, 2000.0);
+        PortfolioItem doge = item(99L, "DOGE", 1000.0, 0.1);
+
+        PortfolioServiceImpl.Changes changes = PortfolioServiceImpl.diff(current, List.of(btc, eth, doge));
+
+        // BTC 未变化：沿用 id，不写入
+        assertEquals(1L, btc.getId());
+        assertEquals(List.of(eth), changes.updates);
+        assertEquals(2L, eth.getId());
+        assertEquals(List.of(doge), changes.inserts);
+        assertNull(doge.getId());
+        // 多余的 SOL 和重复的 ETH 行删除
+        assertEquals(List.of(3L, 4L), changes.deletes.stream().sorted().toList());
+    }
+
+    @Test
+    void diffRejectsDuplicateSymbols() {
+        assertThrows(IllegalArgumentException.class, () -> PortfolioServiceImpl.diff(List.of(),
+                List.of(item(null, "BTC", 1.0, 1.0), item(null, "BTC", 2.0, 1.0))));
+    }
+
+    private static PortfolioItem item(Long id, String symbol, double quantity, double price) {
+        PortfolioItem item = new PortfolioItem();
+        item.setId(id);
+        item.setCryptoType(symbol);
+        item.setQuantity(quantity);
+        item.setPrice(price);
+        return item;
+    }
+}
@@ -0,0 +1,31 @@
+package com.crypto.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SentimentRollupServiceImplTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2025, 3, 1, 0, 0);
+
+    @Test
+    void splitsWindowIntoDaysAndEdgeHours() {
+        List<Object[]> ranges = SentimentRollupServiceImpl.plan(DAY.plusHours(20), DAY.plusDays(3).plusHours(5));
+        assertEquals(3, ranges.size());
+        assertArrayEquals(new Object[]{"1d", DAY.plusDays(1), DAY.plusDays(3)}, ranges.get(0));
+        assertArrayEquals(new Object[]{"1h", DAY.plusHours(20), DAY.plusDays(1)}, ranges.get(1));
+        assertArrayEquals(new Object[]{"1h", DAY.plusDays(3), DAY.plusDays(3).plusHours(5)}, ranges.get(2));
+
+        List<Object[]> aligned = SentimentRollupServiceImpl.plan(DAY, DAY.plusDays(7));
+        assertEquals(1, aligned.size());
+        assertArrayEquals(new Object[]{"1d", DAY, DAY.plusDays(7)}, aligned.get(0));
+
+        List<Object[]> withinDay = SentimentRollupServiceImpl.plan(DAY.plusHours(20), DAY.plusDays(1).plusHours(3));
+        assertEquals(1, withinDay.size());
+        assertArrayEquals(new Object[]{"1h", DAY.plusHours(20), DAY.plusDays(1).plusHours(3)}, withinDay.get(0));
+    }
+}
@@ -0,0 +1,123 @@
+package com.crypto.tenant;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TenantCacheTest {
+
+    @Test
+    void evictsIdleTenantsIndependently() {
+        AtomicLong now = new AtomicLong();
+        AtomicInteger loads = new AtomicInteger();
+        List<String> removed = new CopyOnWriteArrayList<>();
+        TenantCache<String> cache = new TenantCache<>(id -> {
+            loads.incrementAndGet();
+            return "portfolio-" + id;
+        }, 1_000, 100, removed::add, now::get);
+
+        assertEquals("portfolio-1", cache.get(1));
+        assertEquals("portfolio-1", cache.get(1));
+        cache.get(2);
+        assertEquals(2, loads.get());
+
+        // 组合 2 持续被访问，只有空闲的组合 1 被释放
+        now.set(800);
+        cache.get(2);
+        now.set(1_500);
+        assertEquals(1, cache.evictIdle());
+        assertNull(cache.getIfPresent(1));
+        assertNotNull(cache.getIfPresent(2));
+        assertEquals(List.of("portfolio-1"), removed);
+
+        // 后台替换不刷新访问时间，也不会把未缓存的组合放入缓存；被替换的数据交给 onRemoval
+        cache.replace(1, "stale");
+        assertNull(cache.getIfPresent(1));
+        cache.replace(2, "reloaded");
+        assertEquals("reloaded", cache.get(2));
+        assertEquals(List.of("portfolio-1", "portfolio-2"), removed);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedTenantOnInsert() {
+        AtomicLong now = new AtomicLong();
+        List<Long> removed = new CopyOnWriteArrayList<>();
+        TenantCache<Long> cache = new TenantCache<>(id -> id, 60_000, 2, removed::add, now::get);
+        now.set(1);
+        cache.get(1);
+        now.set(2);
+        cache.get(2);
+        now.set(3);
+        cache.get(1);
+
+        // 已满时新增组合 3，先释放最久未访问的组合 2
+        now.set(4);
+        cache.get(3);
+        assertEquals(2, cache.size());
+        assertNotNull(cache.getIfPresent(1));
+        assertNull(cache.getIfPresent(2));
+        assertEquals(List.of(2L), removed);
+    }
+
+    @Test
+    void doesNotCacheMissingTenants() {
+        AtomicInteger loads = new AtomicInteger();
+        TenantCache<String> cache = new TenantCache<>(id -> {
+            loads.incrementAndGet();
+            return id == 1 ? "portfolio-1" : null;
+        }, 60_000, 1);
+
+        for (long id = 100; id < 110; id++) {
+            assertNull(cache.get(id));
+        }
+        assertEquals(0, cache.size());
+        // 不存在的组合不挤占已存在的组合
+        assertEquals("portfolio-1", cache.get(1));
+        assertNull(cache.get(100));
+        assertEquals("portfolio-1", cache.getIfPresent(1));
+        assertEquals(12, loads.get());
+    }
+
+    @Test
+    void replaceWaitsForInFlightLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TenantCache<String> cache = new TenantCache<>(id -> {
+            loading.countDown();
+            await(release);
+            return "loaded";
+        }, 60_000, 10);
+
+        CompletableFuture<String> reader = CompletableFuture.supplyAsync(() -> cache.get(1));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> cache.replace(1, "replaced"));
+        Thread.sleep(50);
+        assertFalse(writer.isDone());
+
+        release.countDown();
+        assertEquals("loaded", reader.get(5, TimeUnit.SECONDS));
+        writer.get(5, TimeUnit.SECONDS);
+        // 替换排在加载之后，不会被加载结果覆盖
+        assertEquals("replaced", cache.getIfPresent(1));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.crypto.valuation;
+
+import com.crypto.entity.PortfolioItem;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FixedPointTest {
+
+    @Test
+    void multiplyMatchesBigDecimal() {
+        long[][] cases = {
+                {FixedPoint.fromDouble(100.0), FixedPoint.fromDouble(40000.0)},
+                {FixedPoint.fromBigDecimal(new BigDecimal("0.12345678")), FixedPoint.fromBigDecimal(new BigDecimal("98765.4321"))},
+                {FixedPoint.fromBigDecimal(new BigDecimal("1000000")), FixedPoint.fromBigDecimal(new BigDecimal("1.00000001"))},
+                {FixedPoint.fromBigDecimal(new BigDecimal("-2.5")), FixedPoint.fromBigDecimal(new BigDecimal("0.00000003"))},
+        };
+        for (long[] c : cases) {
+            BigDecimal expected = FixedPoint.toBigDecimal(c[0]).multiply(FixedPoint.toBigDecimal(c[1]))
+                    .setScale(FixedPoint.SCALE, RoundingMode.HALF_UP);
+            assertEquals(expected, FixedPoint.toBigDecimal(FixedPoint.multiply(c[0], c[1])));
+        }
+    }
+
+    @Test
+    void multiplyRejectsOverflow() {
+        long huge = FixedPoint.fromDouble(1e10);
+        assertThrows(ArithmeticException.class, () -> FixedPoint.multiply(huge, huge));
+    }
+
+    @Test
+    void valuationUpdatesTotalIncrementally() {
+        PortfolioValuation valuation = PortfolioValuation.of(List.of(item("BTC", 100.0, 40000.0), item("USDT", 1000000.0, 1.0)));
+        assertEquals(5000000.0, valuation.getTotalValue());
+        assertEquals(80.0, valuation.getPercentage(valuation.indexOf("BTC")));
+
+        valuation.updatePrice(valuation.indexOf("BTC"), FixedPoint.fromDouble(45000.0));
+        assertEquals(5500000.0, valuation.getTotalValue());
+        assertEquals(4500000.0, valuation.getValue(valuation.indexOf("BTC")));
+    }
+
+    private static PortfolioItem item(String symbol, double quantity, double price) {
+        PortfolioItem item = new PortfolioItem();
+        item.setCryptoType(symbol);
+        item.setQuantity(quantity);
+        item.setPrice(price);
+        return item;
+    }
+}
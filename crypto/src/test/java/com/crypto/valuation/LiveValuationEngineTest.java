@@ -0,0 +1,125 @@
+package com.crypto.valuation;
+
+import com.crypto.entity.CryptoCurrency;
+import com.crypto.entity.PortfolioItem;
+import com.crypto.quote.QuoteSnapshotHolder;
+import com.crypto.repository.CryptoCurrencyRepository;
+import com.crypto.repository.PortfolioItemRepository;
+import com.crypto.repository.QuoteVersionRepository;
+import com.crypto.repository.SystemCounterRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LiveValuationEngineTest {
+
+    @Test
+    void revaluesAffectedPositionsOnQuoteChange() {
+        CryptoCurrencyRepository cryptoRepository = mock(CryptoCurrencyRepository.class);
+        PortfolioItemRepository portfolioItemRepository = mock(PortfolioItemRepository.class);
+        when(cryptoRepository.findAll()).thenReturn(List.of(quote("BTC", "50000", 1)));
+        when(portfolioItemRepository.findByPortfolioIdOrderByIdAsc(1L))
+                .thenReturn(List.of(item("BTC", 2.0, 40000.0), item("DOGE", 1000.0, 0.1)));
+        when(portfolioItemRepository.findByPortfolioIdOrderByIdAsc(2L)).thenReturn(List.of(item("DOGE", 10.0, 0.1)));
+
+        QuoteVersionRepository versions = mock(QuoteVersionRepository.class);
+        when(versions.committedVersion()).thenReturn(1L);
+        QuoteSnapshotHolder holder = new QuoteSnapshotHolder(cryptoRepository, versions, 300_000);
+        LiveValuationEngine engine = new LiveValuationEngine(portfolioItemRepository, mock(SystemCounterRepository.class),
+                holder, 60_000, 100);
+
+        // 有行情的按行情估值，没有行情的沿用持仓记录中的价格
+        PortfolioValuation loaded = engine.snapshot(1L);
+        assertEquals(50000.0, loaded.getPrice(loaded.indexOf("BTC")));
+        assertEquals(0.1, loaded.getPrice(loaded.indexOf("DOGE")));
+        assertEquals(100100.0, engine.getTotalValue(1L));
+        assertEquals(1.0, engine.getTotalValue(2L));
+
+        when(versions.committedVersion()).thenReturn(2L);
+        when(cryptoRepository.findByQuoteVersionGreaterThan(1L)).thenReturn(List.of(quote("DOGE", "0.2", 2)));
+        holder.publish();
+        PortfolioValuation updated = engine.snapshot(1L);
+        assertEquals(0.2, updated.getPrice(updated.indexOf("DOGE")));
+        assertEquals(100200.0, engine.getTotalValue(1L));
+        assertEquals(2.0, engine.getTotalValue(2L));
+        assertEquals(holder.current().getVersion(), engine.getQuoteVersion(1L));
+        // 行情变化由监听器按币种更新，不访问持仓表
+        verify(portfolioItemRepository, times(1)).findByPortfolioIdOrderByIdAsc(1L);
+    }
+
+    @Test
+    void reloadsOnlyPortfoliosWhoseItemsVersionChanged() {
+        CryptoCurrencyRepository cryptoRepository = mock(CryptoCurrencyRepository.class);
+        PortfolioItemRepository portfolioItemRepository = mock(PortfolioItemRepository.class);
+        SystemCounterRepository counters = mock(SystemCounterRepository.class);
+        when(portfolioItemRepository.findByPortfolioIdOrderByIdAsc(anyLong())).thenReturn(List.of(item("DOGE", 10.0, 0.1)));
+        when(portfolioItemRepository.findByPortfolioIdOrderByIdAsc(9L)).thenReturn(List.of());
+        LiveValuationEngine engine = new LiveValuationEngine(portfolioItemRepository, counters,
+                new QuoteSnapshotHolder(cryptoRepository, mock(QuoteVersionRepository.class), 300_000), 60_000, 100);
+        engine.snapshot(1L);
+        engine.snapshot(2L);
+
+        // 其他节点修改了组合 2 的持仓
+        when(counters.findAll(anyCollection())).thenReturn(Map.of(SystemCounterRepository.portfolioItems(2L), 1L));
+        when(counters.get(SystemCounterRepository.portfolioItems(2L))).thenReturn(1L);
+        engine.refresh();
+        engine.refresh();
+        verify(portfolioItemRepository, times(1)).findByPortfolioIdOrderByIdAsc(1L);
+        verify(portfolioItemRepository, times(2)).findByPortfolioIdOrderByIdAsc(2L);
+
+        // 没有持仓的组合不放入缓存
+        assertEquals(0, engine.snapshot(9L).size());
+        assertEquals(0.0, engine.getTotalValue(9L));
+        verify(portfolioItemRepository, times(2)).findByPortfolioIdOrderByIdAsc(9L);
+    }
+
+    @Test
+    void evictsOnePortfolioWithoutReloadingOthers() {
+        CryptoCurrencyRepository cryptoRepository = mock(CryptoCurrencyRepository.class);
+        PortfolioItemRepository portfolioItemRepository = mock(PortfolioItemRepository.class);
+        when(portfolioItemRepository.findByPortfolioIdOrderByIdAsc(anyLong())).thenReturn(List.of(item("DOGE", 10.0, 0.1)));
+        LiveValuationEngine engine = new LiveValuationEngine(portfolioItemRepository, mock(SystemCounterRepository.class),
+                new QuoteSnapshotHolder(cryptoRepository, mock(QuoteVersionRepository.class), 300_000), 60_000, 100);
+        engine.snapshot(1L);
+        engine.snapshot(2L);
+
+        engine.evict(1L);
+        engine.snapshot(1L);
+        engine.snapshot(2L);
+
+        verify(portfolioItemRepository, times(2)).findByPortfolioIdOrderByIdAsc(1L);
+        verify(portfolioItemRepository, times(1)).findByPortfolioIdOrderByIdAsc(2L);
+        // 未缓存的组合直接估值，不放入缓存
+        engine.valuate(3L);
+        engine.valuate(3L);
+        verify(portfolioItemRepository, times(2)).findByPortfolioIdOrderByIdAsc(3L);
+    }
+
+    private static CryptoCurrency quote(String symbol, String usdPrice, long quoteVersion) {
+        CryptoCurrency quote = new CryptoCurrency();
+        quote.setSymbol(symbol);
+        quote.setUsdPrice(new BigDecimal(usdPrice));
+        quote.setUpdateTime(LocalDateTime.now());
+        quote.setQuoteVersion(quoteVersion);
+        return quote;
+    }
+
+    private static PortfolioItem item(String symbol, double quantity, double price) {
+        PortfolioItem item = new PortfolioItem();
+        item.setCryptoType(symbol);
+        item.setQuantity(quantity);
+        item.setPrice(price);
+        return item;
+    }
+}
@@ -0,0 +1,63 @@
+package com.crypto.valuation;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PortfolioHistorySeriesTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 3, 3);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void downsamplesToLastDayOfEachWeek() {
+        PortfolioHistorySeries series = new PortfolioHistorySeries();
+        // 乱序写入：插入到中间的位置也要保持日期有序
+        for (int day = 13; day >= 0; day--) {
+            series.record(MONDAY.plusDays(day), "BTC", 50.0 + day, 1000.0 + day);
+        }
+        series.replaceDay(MONDAY.plusDays(13), 2000.0, Map.of("ETH", 100.0));
+
+        Map<String, Object> daily = series.query(MONDAY.plusDays(1), MONDAY.plusDays(2), HistoryInterval.DAY);
+        assertArrayEquals(new String[]{"2025-03-04", "2025-03-05"}, (String[]) daily.get("dates"));
+        assertArrayEquals(new double[]{1001.0, 1002.0}, (double[]) daily.get("totalValues"));
+
+        Map<String, Object> weekly = series.query(MONDAY, MONDAY.plusDays(13), HistoryInterval.WEEK);
+        assertEquals("1w", weekly.get("interval"));
+        assertArrayEquals(new String[]{"2025-03-09", "2025-03-16"}, (String[]) weekly.get("dates"));
+        assertArrayEquals(new double[]{1006.0, 2000.0}, (double[]) weekly.get("totalValues"));
+        Map<String, Double[]> weights = (Map<String, Double[]>) weekly.get("weights");
+        // 最后一天被完整替换：BTC 当天为空，只剩 ETH
+        assertArrayEquals(new Double[]{56.0, null}, weights.get("BTC"));
+        assertArrayEquals(new Double[]{null, 100.0}, weights.get("ETH"));
+    }
+
+    @Test
+    void choosesIntervalBySpan() {
+        assertEquals(HistoryInterval.DAY, HistoryInterval.forSpan(MONDAY, MONDAY.plusDays(91)));
+        assertEquals(HistoryInterval.WEEK, HistoryInterval.forSpan(MONDAY, MONDAY.plusDays(364)));
+        assertEquals(HistoryInterval.MONTH, HistoryInterval.forSpan(LocalDate.EPOCH, MONDAY));
+    }
+
+    @Test
+    void unboundedQueryStartsAtFirstRecordedDay() {
+        PortfolioHistorySeries series = new PortfolioHistorySeries();
+        for (int day = 0; day < 30; day++) {
+            series.record(MONDAY.plusDays(day), "BTC", 100.0, 1000.0 + day);
+        }
+
+        // 不限起点时按实际 30 天的跨度选择按日采样，而不是按月
+        Map<String, Object> all = series.query(LocalDate.MIN, MONDAY.plusDays(29), null);
+        assertEquals("1d", all.get("interval"));
+        assertEquals(MONDAY.toString(), all.get("start"));
+        assertEquals(30, ((String[]) all.get("dates")).length);
+
+        Map<String, Object> empty = new PortfolioHistorySeries().query(LocalDate.MIN, MONDAY, null);
+        assertEquals(MONDAY.toString(), empty.get("start"));
+        assertEquals(0, ((String[]) empty.get("dates")).length);
+    }
+}
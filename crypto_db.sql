@@ -14,6 +14,7 @@
  Date: 20/12/2025 18:47:12
 */
 
+-- 表结构以 crypto/src/main/resources/db/migration 下的 Flyway 脚本为准，本文件为合并后的快照
 -- 设置字符集和外键检查
 SET NAMES utf8mb4;
 SET FOREIGN_KEY_CHECKS = 0;
@@ -33,14 +34,53 @@ CREATE TABLE `crypto_currency`  (
   `change_24h` decimal(10, 4) NULL DEFAULT NULL COMMENT '24小时涨跌幅（兼容Dify输出）',
   `volume_24h` decimal(20, 2) NULL DEFAULT NULL COMMENT '24小时成交量（兼容Dify输出）',
   `market_cap` decimal(25, 2) NULL DEFAULT NULL COMMENT '市值（兼容Dify输出）',
+  `quote_version` bigint(20) NOT NULL DEFAULT 0 COMMENT '最后一次写入分配的行情版本',
   PRIMARY KEY (`id`) USING BTREE,
-  UNIQUE INDEX `UK7ja34xjnw9b7hpmnvt9ghr14i`(`symbol`) USING BTREE COMMENT '保证加密货币符号唯一性'
+  UNIQUE INDEX `UK7ja34xjnw9b7hpmnvt9ghr14i`(`symbol`) USING BTREE COMMENT '保证加密货币符号唯一性',
+  INDEX `idx_crypto_quote_version`(`quote_version`) USING BTREE
 ) ENGINE = InnoDB AUTO_INCREMENT = 1 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci ROW_FORMAT = Dynamic;
 
 -- ----------------------------
 -- Records of crypto_currency
 -- ----------------------------
 
+-- ======================================
+-- 行情逐笔记录表
+-- 每条写入成功的行情追加一行，不做更新
+-- ======================================
+DROP TABLE IF EXISTS `crypto_price_tick`;
+CREATE TABLE `crypto_price_tick`  (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `symbol` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '加密货币符号',
+  `usd_price` decimal(16, 8) NOT NULL COMMENT '美元价格',
+  `volume_24h` decimal(20, 2) NULL DEFAULT NULL COMMENT '24小时成交量',
+  `tick_time` datetime(6) NOT NULL COMMENT '行情时间（即 crypto_currency.update_time）',
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_tick_symbol_time`(`symbol`, `tick_time`) USING BTREE
+) ENGINE = InnoDB AUTO_INCREMENT = 1 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci ROW_FORMAT = Dynamic;
+
+-- ======================================
+-- K 线汇总表
+-- 1m/5m/1h/1d 四个周期，随行情写入增量维护
+-- ======================================
+DROP TABLE IF EXISTS `crypto_price_candle`;
+CREATE TABLE `crypto_price_candle`  (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `symbol` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '加密货币符号',
+  `bar_interval` varchar(4) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT 'K线周期（1m/5m/1h/1d）',
+  `bucket_start` datetime(6) NOT NULL COMMENT '周期起始时间',
+  `open_price` decimal(16, 8) NOT NULL COMMENT '开盘价',
+  `high_price` decimal(16, 8) NOT NULL COMMENT '最高价',
+  `low_price` decimal(16, 8) NOT NULL COMMENT '最低价',
+  `close_price` decimal(16, 8) NOT NULL COMMENT '收盘价',
+  `volume` decimal(20, 2) NULL DEFAULT NULL COMMENT '周期内最后一笔行情的24小时成交量',
+  `tick_count` int(11) NOT NULL COMMENT '周期内行情笔数',
+  `open_time` datetime(6) NOT NULL COMMENT '周期内第一笔行情时间',
+  `close_time` datetime(6) NOT NULL COMMENT '周期内最后一笔行情时间',
+  PRIMARY KEY (`id`) USING BTREE,
+  UNIQUE INDEX `uk_candle_symbol_interval_bucket`(`symbol`, `bar_interval`, `bucket_start`) USING BTREE
+) ENGINE = InnoDB AUTO_INCREMENT = 1 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci ROW_FORMAT = Dynamic;
+
 -- ======================================
 -- 市场消息表
 -- 存储加密货币相关的市场消息和新闻
@@ -55,7 +95,13 @@ CREATE TABLE `messages`  (
   `sentiment` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NULL DEFAULT NULL COMMENT '情感分析结果（如：正面、负面、中性）',
   `source` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NULL DEFAULT NULL COMMENT '消息来源',
   `source_url` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NULL DEFAULT NULL COMMENT '消息源URL',
-  PRIMARY KEY (`id`) USING BTREE
+  `content_hash` varchar(64) CHARACTER SET ascii COLLATE ascii_bin NULL DEFAULT NULL COMMENT '去重哈希（规范化内容 + 来源URL 的 SHA-256）',
+  PRIMARY KEY (`id`) USING BTREE,
+  UNIQUE INDEX `uq_messages_content_hash`(`content_hash`) USING BTREE,
+  INDEX `idx_messages_created`(`created_at`, `id`) USING BTREE,
+  INDEX `idx_messages_type_created`(`crypto_type`, `created_at`, `id`) USING BTREE,
+  INDEX `idx_messages_sentiment_created`(`sentiment`, `created_at`, `id`) USING BTREE,
+  INDEX `idx_messages_read_created`(`is_read`, `created_at`, `id`) USING BTREE
 ) ENGINE = InnoDB AUTO_INCREMENT = 1 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci ROW_FORMAT = Dynamic;
 
 -- ----------------------------
@@ -69,11 +115,15 @@ CREATE TABLE `messages`  (
 DROP TABLE IF EXISTS `portfolio_history`;
 CREATE TABLE `portfolio_history`  (
   `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `portfolio_id` bigint(20) NOT NULL DEFAULT 1 COMMENT '所属投资组合ID',
   `crypto_type` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NULL DEFAULT NULL COMMENT '加密货币类型',
   `date` date NULL DEFAULT NULL COMMENT '记录日期',
   `percentage` double NULL DEFAULT NULL COMMENT '占投资组合百分比',
   `total_value` double NULL DEFAULT NULL COMMENT '总价值',
-  PRIMARY KEY (`id`) USING BTREE
+  `updated_at` datetime(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) COMMENT '最后写入时间',
+  PRIMARY KEY (`id`) USING BTREE,
+  UNIQUE INDEX `uq_history_portfolio_date_type`(`portfolio_id`, `date`, `crypto_type`) USING BTREE,
+  INDEX `idx_history_updated`(`updated_at`) USING BTREE
 ) ENGINE = InnoDB AUTO_INCREMENT = 1 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci ROW_FORMAT = Dynamic;
 
 -- ----------------------------
@@ -87,22 +137,24 @@ CREATE TABLE `portfolio_history`  (
 DROP TABLE IF EXISTS `portfolio_items`;
 CREATE TABLE `portfolio_items`  (
   `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `portfolio_id` bigint(20) NOT NULL DEFAULT 1 COMMENT '所属投资组合ID',
   `crypto_type` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NULL DEFAULT NULL COMMENT '加密货币类型',
   `percentage` double NULL DEFAULT NULL COMMENT '占投资组合百分比',
   `price` double NULL DEFAULT NULL COMMENT '当前价格',
   `quantity` double NULL DEFAULT NULL COMMENT '持有数量',
   `value` double NULL DEFAULT NULL COMMENT '持有价值',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_items_portfolio_type`(`portfolio_id`, `crypto_type`) USING BTREE
 ) ENGINE = InnoDB AUTO_INCREMENT = 1 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci ROW_FORMAT = Dynamic;
 
 -- ----------------------------
 -- Records of portfolio_items
 -- 初始持仓数据：总额1000万美元
 -- ----------------------------
-INSERT INTO `portfolio_items` VALUES (1, 'BTC', 40.0, 40000.0, 100.0, 4000000.0);
-INSERT INTO `portfolio_items` VALUES (2, 'ETH', 35.0, 2000.0, 1750.0, 3500000.0);
-INSERT INTO `portfolio_items` VALUES (3, 'SOL', 15.0, 100.0, 15000.0, 1500000.0);
-INSERT INTO `portfolio_items` VALUES (4, 'USDT', 10.0, 1.0, 1000000.0, 1000000.0);
+INSERT INTO `portfolio_items` VALUES (1, 1, 'BTC', 40.0, 40000.0, 100.0, 4000000.0);
+INSERT INTO `portfolio_items` VALUES (2, 1, 'ETH', 35.0, 2000.0, 1750.0, 3500000.0);
+INSERT INTO `portfolio_items` VALUES (3, 1, 'SOL', 15.0, 100.0, 15000.0, 1500000.0);
+INSERT INTO `portfolio_items` VALUES (4, 1, 'USDT', 10.0, 1.0, 1000000.0, 1000000.0);
 
 -- ======================================
 -- 报告建议表
@@ -111,6 +163,7 @@ INSERT INTO `portfolio_items` VALUES (4, 'USDT', 10.0, 1.0, 1000000.0, 1000000.0
 DROP TABLE IF EXISTS `report_suggestions`;
 CREATE TABLE `report_suggestions`  (
   `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `portfolio_id` bigint(20) NOT NULL DEFAULT 1 COMMENT '所属投资组合ID',
   `crypto_type` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NULL DEFAULT NULL COMMENT '加密货币类型',
   `current_percentage` double NULL DEFAULT NULL COMMENT '当前投资组合占比',
   `reason` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NULL DEFAULT NULL COMMENT '建议理由',
@@ -118,6 +171,8 @@ CREATE TABLE `report_suggestions`  (
   `report_id` bigint(20) NULL DEFAULT NULL COMMENT '所属报告ID',
   PRIMARY KEY (`id`) USING BTREE,
   INDEX `FK6nue8gl5h26yjoa9nxefftt2`(`report_id`) USING BTREE COMMENT '关联报告表的外键索引',
+  INDEX `idx_suggestions_crypto_type`(`crypto_type`) USING BTREE,
+  INDEX `idx_suggestions_portfolio_report`(`portfolio_id`, `report_id`) USING BTREE,
   CONSTRAINT `FK6nue8gl5h26yjoa9nxefftt2` FOREIGN KEY (`report_id`) REFERENCES `reports` (`id`) ON DELETE RESTRICT ON UPDATE RESTRICT COMMENT '关联到报告表'
 ) ENGINE = InnoDB AUTO_INCREMENT = 1 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci ROW_FORMAT = Dynamic;
 
@@ -132,16 +187,86 @@ CREATE TABLE `report_suggestions`  (
 DROP TABLE IF EXISTS `reports`;
 CREATE TABLE `reports`  (
   `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `portfolio_id` bigint(20) NOT NULL DEFAULT 1 COMMENT '所属投资组合ID',
   `created_at` datetime(6) NULL DEFAULT NULL COMMENT '报告生成时间',
   `message_count` int(11) NULL DEFAULT NULL COMMENT '分析的消息数量',
   `status` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NULL DEFAULT NULL COMMENT '报告状态（如：待审核、已发布）',
   `title` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NULL DEFAULT NULL COMMENT '报告标题',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_reports_status_created`(`status`, `created_at`) USING BTREE,
+  INDEX `idx_reports_portfolio_status_created`(`portfolio_id`, `status`, `created_at`) USING BTREE,
+  INDEX `idx_reports_portfolio_created`(`portfolio_id`, `created_at`) USING BTREE
 ) ENGINE = InnoDB AUTO_INCREMENT = 1 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci ROW_FORMAT = Dynamic;
 
 -- ----------------------------
 -- Records of reports
 -- ----------------------------
 
+-- ======================================
+-- 系统计数器表
+-- 按组合的待审核报告数（pending_reports:<portfolio_id>），随业务写入在同一事务内增减
+-- ======================================
+DROP TABLE IF EXISTS `system_counters`;
+CREATE TABLE `system_counters`  (
+  `name` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '计数器名称',
+  `counter_value` bigint(20) NOT NULL DEFAULT 0 COMMENT '计数值',
+  `updated_at` datetime(6) NOT NULL COMMENT '最后更新时间',
+  PRIMARY KEY (`name`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci ROW_FORMAT = Dynamic;
+
+INSERT INTO `system_counters` VALUES ('pending_reports:1', 0, NOW(6));
+INSERT INTO `system_counters` VALUES ('quote_version', 0, NOW(6));
+
+-- ======================================
+-- 消息阅读状态表
+-- 每个用户一行，已读消息 id 以 Roaring 压缩位图存储
+-- ======================================
+DROP TABLE IF EXISTS `message_read_state`;
+CREATE TABLE `message_read_state`  (
+  `user_id` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '用户标识（X-User-Id）',
+  `read_ids` longblob NOT NULL COMMENT '已读消息 id 的序列化压缩位图',
+  `version` bigint(20) NOT NULL COMMENT '乐观锁版本号',
+  `updated_at` datetime(6) NOT NULL COMMENT '最后更新时间',
+  PRIMARY KEY (`user_id`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci ROW_FORMAT = Dynamic;
+
+-- ======================================
+-- 消息情感汇总表
+-- 按小时、按天统计各币种各情感的消息条数，写入消息时增量累加
+-- ======================================
+DROP TABLE IF EXISTS `message_sentiment_rollup`;
+CREATE TABLE `message_sentiment_rollup`  (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `bucket_interval` varchar(4) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '汇总周期（1h/1d）',
+  `bucket_start` datetime(6) NOT NULL COMMENT '周期起始时间',
+  `crypto_type` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL DEFAULT '' COMMENT '加密货币类型',
+  `sentiment` varchar(32) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL DEFAULT '' COMMENT '情感分析结果',
+  `message_count` bigint(20) NOT NULL COMMENT '消息条数',
+  PRIMARY KEY (`id`) USING BTREE,
+  UNIQUE INDEX `uk_rollup_interval_bucket`(`bucket_interval`, `bucket_start`, `crypto_type`, `sentiment`) USING BTREE,
+  INDEX `idx_rollup_type_interval_bucket`(`crypto_type`, `bucket_interval`, `bucket_start`) USING BTREE
+) ENGINE = InnoDB AUTO_INCREMENT = 1 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci ROW_FORMAT = Dynamic;
+
+-- ======================================
+-- 消息归档分段表
+-- 记录按月导出到本地 NDJSON.gz 文件并从消息表删除的冷数据
+-- ======================================
+DROP TABLE IF EXISTS `message_archive_segment`;
+CREATE TABLE `message_archive_segment`  (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `period` char(7) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '归档月份（yyyy-MM）',
+  `file_path` varchar(512) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '归档文件路径',
+  `status` varchar(16) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '状态（EXPORTED：已导出待删除，PURGED：已从消息表删除）',
+  `message_count` bigint(20) NOT NULL COMMENT '归档消息条数',
+  `min_id` bigint(20) NULL DEFAULT NULL COMMENT '最小消息ID',
+  `max_id` bigint(20) NULL DEFAULT NULL COMMENT '最大消息ID',
+  `start_time` datetime(6) NOT NULL COMMENT '月份起始时间（含）',
+  `end_time` datetime(6) NOT NULL COMMENT '月份结束时间（不含）',
+  `created_at` datetime(6) NOT NULL COMMENT '导出时间',
+  `updated_at` datetime(6) NOT NULL COMMENT '最后更新时间',
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_archive_time`(`start_time`, `end_time`) USING BTREE
+) ENGINE = InnoDB AUTO_INCREMENT = 1 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci ROW_FORMAT = Dynamic;
+
 -- 恢复外键检查
 SET FOREIGN_KEY_CHECKS = 1;
@@ -20,4 +20,20 @@ export const batchSaveCrypto = (data: CryptoCurrencyRequest[]) => {
     url: '/crypto/batch-save',
     data,
   });
-};
\ No newline at end of file
+};
+/**
+ * 订阅行情增量推送（SSE），只推送变化的币种；断线后浏览器会携带 Last-Event-ID 自动续传
+ * @param symbols 关注的币种，不传表示全部
+ * @returns EventSource，调用方不再需要时应 close()
+ */
+export const subscribeCryptoStream = (
+  onQuotes: (quotes: CryptoCurrency[]) => void,
+  symbols?: string[],
+) => {
+  const query = symbols && symbols.length > 0 ? `?symbols=${encodeURIComponent(symbols.join(','))}` : '';
+  const source = new EventSource(`/api/crypto/stream${query}`);
+  source.addEventListener('quotes', (event) => {
+    onQuotes(JSON.parse((event as MessageEvent<string>).data) as CryptoCurrency[]);
+  });
+  return source;
+};
@@ -1,5 +1,5 @@
 import { requestWithRetry } from '../utils/axiosInstance';
-import type { Message, MessageRequest } from '../types/message';
+import type { Message, MessageFeedPage, MessageRequest, MessageSearchPage, SentimentStats } from '../types/message';
 
 /**
  * 获取消息列表
@@ -12,6 +12,32 @@ export const getMessages = (params?: MessageRequest) => {
   });
 };
 
+/**
+ * 游标分页获取消息流，深度翻页时每页开销不变
+ */
+export const getMessageFeed = (
+  params?: Omit<MessageRequest, 'page' | 'pageSize'> & { cursor?: string; direction?: 'next' | 'prev'; size?: number },
+) => {
+  return requestWithRetry<MessageFeedPage>({
+    method: 'GET',
+    url: '/messages/feed',
+    params,
+  });
+};
+
+/**
+ * 全文检索消息内容与来源，按相关度排序
+ */
+export const searchMessages = (
+  params: Omit<MessageRequest, 'pageSize'> & { q: string; size?: number },
+) => {
+  return requestWithRetry<MessageSearchPage>({
+    method: 'GET',
+    url: '/messages/search',
+    params,
+  });
+};
+
 /**
  * 根据ID获取消息详情
  */
@@ -31,3 +57,51 @@ export const markMessageAsRead = (id: number) => {
     url: `/messages/${id}/read`,
   });
 };
+
+/**
+ * 把符合条件的消息全部标记为已读（按当前用户）
+ */
+export const markAllMessagesAsRead = (params?: Pick<MessageRequest, 'cryptoType' | 'sentiment'>) => {
+  return requestWithRetry<{ success: boolean; marked: number }>({
+    method: 'POST',
+    url: '/messages/read-all',
+    params,
+  });
+};
+
+/**
+ * 获取当前用户的未读消息数
+ */
+export const getUnreadCount = () => {
+  return requestWithRetry<{ unread: number }>({
+    method: 'GET',
+    url: '/messages/unread-count',
+  });
+};
+
+/**
+ * 获取时间窗口内各情感的消息数与占比（默认最近 24 小时）
+ */
+export const getSentimentStats = (params?: { cryptoType?: string; startDate?: string; endDate?: string }) => {
+  return requestWithRetry<SentimentStats>({
+    method: 'GET',
+    url: '/messages/sentiment-stats',
+    params,
+  });
+};
+
+/**
+ * 消息导出下载地址：由浏览器直接下载（流式写盘），不经过 axios 载入内存
+ */
+export const getMessageExportUrl = (
+  params?: Omit<MessageRequest, 'page' | 'pageSize'> & { format?: 'ndjson' | 'csv'; gzip?: boolean },
+) => {
+  const query = new URLSearchParams();
+  Object.entries(params ?? {}).forEach(([key, value]) => {
+    if (value !== undefined && value !== null && value !== '') {
+      query.append(key, String(value));
+    }
+  });
+  const search = query.toString();
+  return `/api/messages/export${search ? `?${search}` : ''}`;
+};
@@ -1,5 +1,14 @@
 import { requestWithRetry } from '../utils/axiosInstance';
-import type { PortfolioItem, PortfolioHistory, PortfolioUpdateRequest, PortfolioHistoryRequest } from '../types/portfolio';
+import type {
+  PortfolioItem,
+  PortfolioHistory,
+  PortfolioHistorySeries,
+  PortfolioRisk,
+  ScenarioRequest,
+  ScenarioResponse,
+  PortfolioUpdateRequest,
+  PortfolioHistoryRequest,
+} from '../types/portfolio';
 
 /**
  * 获取当前持仓
@@ -22,6 +31,38 @@ export const getPortfolioHistory = (params?: PortfolioHistoryRequest) => {
   });
 };
 
+/**
+ * 获取列式持仓历史序列，days 不大于 0 表示全部历史
+ */
+export const getPortfolioHistorySeries = (params?: { days?: number; interval?: 'auto' | '1d' | '1w' | '1M' }) => {
+  return requestWithRetry<PortfolioHistorySeries>({
+    method: 'GET',
+    url: '/portfolio/history/series',
+    params,
+  });
+};
+
+/**
+ * 获取当前持仓的风险指标
+ */
+export const getPortfolioRisk = () => {
+  return requestWithRetry<PortfolioRisk>({
+    method: 'GET',
+    url: '/portfolio/risk',
+  });
+};
+
+/**
+ * 批量估算调仓场景
+ */
+export const evaluateScenarios = (data: ScenarioRequest) => {
+  return requestWithRetry<ScenarioResponse>({
+    method: 'POST',
+    url: '/portfolio/scenarios',
+    data,
+  });
+};
+
 /**
  * 更新持仓
  */
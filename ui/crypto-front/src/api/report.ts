@@ -1,5 +1,6 @@
 import { requestWithRetry } from '../utils/axiosInstance';
 import type { Report, ReportRequest, ReportStatusUpdateRequest } from '../types/report';
+import type { ScenarioRequest, ScenarioResponse } from '../types/portfolio';
 
 /**
  * 获取报告列表
@@ -32,3 +33,14 @@ export const updateReportStatus = (id: number, data: ReportStatusUpdateRequest)
     data,
   });
 };
+
+/**
+ * 估算报告建议及其变体的调仓场景
+ */
+export const evaluateReportScenarios = (reportId: number, data?: ScenarioRequest) => {
+  return requestWithRetry<ScenarioResponse>({
+    method: 'POST',
+    url: `/reports/${reportId}/scenarios`,
+    data,
+  });
+};
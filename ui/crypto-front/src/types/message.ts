@@ -38,4 +38,43 @@ export interface MessageRequest {
   startTime?: string;
   // 结束时间
   endTime?: string;
+  // 查询已归档的历史消息（较慢）
+  archived?: boolean;
+}
+
+// 游标分页消息流的返回结构
+export interface MessageFeedPage {
+  records: Message[];
+  size: number;
+  // 下一页（更早的消息）游标，为空表示已到末尾
+  nextCursor: string | null;
+  // 上一页（更新的消息）游标，为空表示已是最新
+  prevCursor: string | null;
+}
+
+// 全文检索的返回结构
+export interface MessageSearchPage {
+  // 命中总数，totalExact 为 false 时只是下限
+  total: number;
+  totalExact: boolean;
+  pages: number;
+  current: number;
+  records: Message[];
+  // 消息 id -> 相关度得分
+  scores: Record<number, number>;
+}
+
+// 情感统计：各情感的消息数与占比
+export interface SentimentSummary {
+  total: number;
+  counts: Record<string, number>;
+  ratios: Record<string, number>;
+}
+
+export interface SentimentStats extends SentimentSummary {
+  start: string;
+  end: string;
+  cryptoType: string | null;
+  // 未指定币种时按币种的明细
+  byCrypto?: Record<string, SentimentSummary>;
 }
@@ -32,6 +32,123 @@ export interface PortfolioHistory {
   items: PortfolioItem[];
 }
 
+// 列式持仓历史序列（长窗口按周/月采样，取每个周期最后一天）
+export interface PortfolioHistorySeries {
+  // 采样周期：1d / 1w / 1M
+  interval: '1d' | '1w' | '1M';
+  start: string;
+  end: string;
+  // 日期与总价值一一对应
+  dates: string[];
+  totalValues: number[];
+  // 币种 -> 每个日期的占比（%），当天没有该币种时为 null
+  weights: Record<string, (number | null)[]>;
+}
+
+// 组合风险指标，比例均为小数（0.05 表示 5%），VaR 为 1 日持有期，无法计算时为 null
+export interface PortfolioRiskSummary {
+  // 年化波动率
+  volatility: number | null;
+  historicalVar95: number | null;
+  historicalVar99: number | null;
+  parametricVar95: number | null;
+  parametricVar99: number | null;
+  // VaR 对应的金额（单位：USD）
+  historicalVar95Value: number | null;
+  historicalVar99Value: number | null;
+  parametricVar95Value: number | null;
+  parametricVar99Value: number | null;
+  maxDrawdown: number | null;
+  // 相对 BTC 的 beta
+  beta: number | null;
+  // 有价格历史的持仓占比
+  coverage: number;
+}
+
+export interface HoldingRisk {
+  asset: string;
+  // 持仓占比（%）
+  weight: number;
+  volatility: number | null;
+  maxDrawdown: number | null;
+  beta: number | null;
+}
+
+// 持仓风险分析（风险数据按天计算）
+export interface PortfolioRisk {
+  // 使用的最后一条日线日期
+  asOf: string;
+  // 近期波动率窗口（天）
+  volatilityWindow: number;
+  totalValue: number;
+  portfolio: PortfolioRiskSummary;
+  holdings: HoldingRisk[];
+  // 有价格历史的持仓之间的相关系数
+  correlation: {
+    symbols: string[];
+    matrix: (number | null)[][];
+  };
+  // 组合的滚动年化波动率
+  rollingVolatility: {
+    dates: string[];
+    values: number[];
+  };
+}
+
+// 调仓场景：目标占比（%），未列出的币种保持当前占比
+export interface ScenarioTarget {
+  name?: string;
+  weights: Record<string, number>;
+}
+
+export interface ScenarioRequest {
+  scenarios?: ScenarioTarget[];
+  // 是否返回交易明细，默认 true
+  includeTrades?: boolean;
+  // 报告场景：当前持仓与建议之间的中间方案数
+  blendSteps?: number;
+}
+
+export interface ScenarioTrade {
+  asset: string;
+  side: 'BUY' | 'SELL';
+  quantity: number;
+  price: number;
+  // 成交额与手续费（单位：USD）
+  value: number;
+  fee: number;
+}
+
+export interface ScenarioResult {
+  name: string;
+  tradeCount: number;
+  buyValue: number;
+  sellValue: number;
+  fees: number;
+  // 单边换手率（%）
+  turnover: number;
+  // 调仓后以现金持有的占比（%）
+  cashWeight: number;
+  // 目标合计超过 100% 时按比例缩放
+  normalized: boolean;
+  // 没有行情、无法买入的币种
+  unpriced: string[];
+  risk: Omit<PortfolioRiskSummary, 'historicalVar95Value' | 'historicalVar99Value' | 'parametricVar95Value' | 'parametricVar99Value'>;
+  trades?: ScenarioTrade[];
+}
+
+export interface ScenarioResponse {
+  asOf: string;
+  totalValue: number;
+  feeRate: number;
+  // 当前持仓的风险，作为对照
+  baseline: ScenarioResult['risk'];
+  count: number;
+  elapsedMs: number;
+  scenarios: ScenarioResult[];
+  reportId?: number;
+}
+
 // 更新持仓的请求参数类型
 export interface PortfolioUpdateRequest {
   // 加密货币类型
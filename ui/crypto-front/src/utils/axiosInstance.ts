@@ -9,10 +9,25 @@ const axiosInstance: AxiosInstance = axios.create({
   },
 });
 
-// 请求拦截器（可选，添加日志）
+// 当前投资组合，随请求头 X-Portfolio-Id 发送；未设置时后端使用默认组合
+const PORTFOLIO_ID_KEY = 'portfolioId';
+
+export const setPortfolioId = (portfolioId: number | null) => {
+  if (portfolioId == null) {
+    localStorage.removeItem(PORTFOLIO_ID_KEY);
+  } else {
+    localStorage.setItem(PORTFOLIO_ID_KEY, String(portfolioId));
+  }
+};
+
+// 请求拦截器（添加日志和投资组合请求头）
 axiosInstance.interceptors.request.use(
   (config) => {
     console.log('请求地址：', config.url);
+    const portfolioId = localStorage.getItem(PORTFOLIO_ID_KEY);
+    if (portfolioId) {
+      config.headers['X-Portfolio-Id'] = portfolioId;
+    }
     return config;
   },
   (error) => Promise.reject(error)